@@ -2,16 +2,20 @@ package edu.cmu.lti.event_coref.io;
 
 import com.google.common.base.Joiner;
 import edu.cmu.lti.utils.general.StringUtils;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionException;
 import org.apache.uima.collection.CollectionReader_ImplBase;
 import org.apache.uima.resource.ResourceInitializationException;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * An abstract preprocessor to consume input in a directory whose name is based on the specified date and
- * step number for convenience
+ * step number for convenience. Documents can be loaded ahead on background threads by setting
+ * {@link #PARAM_PREFETCH_SIZE}.
  *
  * @author Jun Araki
  */
@@ -27,6 +31,10 @@ public abstract class AbstractStepBasedDirReader extends CollectionReader_ImplBa
 
     public static final String PARAM_FAIL_UNKNOWN = "FailOnUnknownType";
 
+    public static final String PARAM_PREFETCH_SIZE = "PrefetchSize";
+
+    public static final String PARAM_NUM_PREFETCH_THREADS = "NumPrefetchThreads";
+
     private String parentInputDirPath;
 
 
@@ -40,6 +48,13 @@ public abstract class AbstractStepBasedDirReader extends CollectionReader_ImplBa
 
     protected File inputDir;
 
+    // number of documents loaded ahead on background threads, 0 to load on the caller thread
+    protected int prefetchSize;
+
+    protected int numPrefetchThreads;
+
+    private CasPrefetcher prefetcher;
+
     @Override
     public void initialize() throws ResourceInitializationException {
         super.initialize();
@@ -49,6 +64,10 @@ public abstract class AbstractStepBasedDirReader extends CollectionReader_ImplBa
         inputStepNumber = (Integer) getConfigParameterValue(PARAM_INPUT_STEP_NUMBER);
         inputFileSuffix = (String) getConfigParameterValue(PARAM_INPUT_FILE_SUFFIX);
         failOnUnknownType = (Boolean) getConfigParameterValue(PARAM_FAIL_UNKNOWN);
+        Integer prefetchSizeValue = (Integer) getConfigParameterValue(PARAM_PREFETCH_SIZE);
+        prefetchSize = prefetchSizeValue == null ? 0 : prefetchSizeValue;
+        Integer numPrefetchThreadsValue = (Integer) getConfigParameterValue(PARAM_NUM_PREFETCH_THREADS);
+        numPrefetchThreads = numPrefetchThreadsValue == null ? 1 : numPrefetchThreadsValue;
 
         List<String> dirNameSegments = new ArrayList<String>();
         dirNameSegments.add(String.format("%02d", inputStepNumber));
@@ -76,4 +95,57 @@ public abstract class AbstractStepBasedDirReader extends CollectionReader_ImplBa
      */
     public abstract void subInitialize();
 
+    /**
+     * Load a file into the CAS. It is called on a background thread with a scratch CAS when
+     * prefetching is on, so it should only use the file and the CAS.
+     *
+     * @param file
+     * @param aCAS
+     * @throws IOException
+     * @throws CollectionException
+     */
+    protected abstract void load(File file, CAS aCAS) throws IOException, CollectionException;
+
+    /**
+     * Load the file at the given index into the CAS, the files are requested in order. With
+     * prefetching on, the file is usually already loaded by the background threads.
+     *
+     * @param files all files of the reader
+     * @param index the index of the file to load
+     * @param aCAS
+     * @throws IOException
+     * @throws CollectionException
+     */
+    protected void loadNext(List<File> files, int index, CAS aCAS) throws IOException, CollectionException {
+        if (prefetchSize <= 0) {
+            load(files.get(index), aCAS);
+            return;
+        }
+
+        if (prefetcher == null) {
+            try {
+                prefetcher = new CasPrefetcher(files, index, aCAS, getProcessingResourceMetaData(),
+                        prefetchSize, numPrefetchThreads, new CasPrefetcher.Loader() {
+                    @Override
+                    public void load(File file, CAS scratchCas) throws Exception {
+                        AbstractStepBasedDirReader.this.load(file, scratchCas);
+                    }
+                });
+            } catch (ResourceInitializationException e) {
+                throw new CollectionException(e);
+            }
+        }
+        prefetcher.next(aCAS);
+    }
+
+    /**
+     * @see org.apache.uima.collection.base_cpm.BaseCollectionReader#close()
+     */
+    public void close() throws IOException {
+        if (prefetcher != null) {
+            prefetcher.shutdown();
+            prefetcher = null;
+        }
+    }
+
 }
@@ -0,0 +1,157 @@
+package edu.cmu.lti.event_coref.io;
+
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.CasCreationUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.*;
+
+/**
+ * Writes CASes on background threads, so that the pipeline does not wait for the serialization and
+ * the disk. The pipeline thread only takes a binary snapshot of the CAS, which is restored into a
+ * scratch CAS of the same type system and written by a pool of writer threads.
+ * <p/>
+ * At most twice the number of threads snapshots are waiting, after that the pipeline thread writes
+ * the CAS itself, which keeps the memory bounded when the disk cannot keep up. {@link #flush()}
+ * waits for all pending writes and reports the first failure.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class AsyncCasWriter {
+    /**
+     * Writes one CAS into its output file.
+     */
+    public interface CasSerializer {
+        void write(CAS aCas, File outputFile) throws Exception;
+    }
+
+    private final CasSerializer serializer;
+
+    private final int numThreads;
+
+    private final ThreadPoolExecutor executor;
+
+    private BlockingQueue<CAS> scratchCases;
+
+    private final LinkedList<Future<?>> pending = new LinkedList<Future<?>>();
+
+    public AsyncCasWriter(int numThreads, CasSerializer serializer) {
+        this.numThreads = numThreads;
+        this.serializer = serializer;
+        executor = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(numThreads * 2), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "async-cas-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Take a snapshot of the CAS and write it in the background.
+     *
+     * @param aCas
+     * @param outputFile
+     * @throws AnalysisEngineProcessException
+     */
+    public void submit(CAS aCas, final File outputFile) throws AnalysisEngineProcessException {
+        if (scratchCases == null) {
+            createScratchCases(aCas);
+        }
+
+        ByteArrayOutputStream snapshotOut = new ByteArrayOutputStream();
+        Serialization.serializeCAS(aCas, snapshotOut);
+        final byte[] snapshot = snapshotOut.toByteArray();
+
+        removeFinished();
+        pending.add(executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                CAS scratchCas = scratchCases.take();
+                try {
+                    Serialization.deserializeCAS(scratchCas, new ByteArrayInputStream(snapshot));
+                    serializer.write(scratchCas, outputFile);
+                } finally {
+                    scratchCas.reset();
+                    scratchCases.put(scratchCas);
+                }
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * The scratch CASes share the type system of the pipeline, which the binary snapshot requires.
+     */
+    private void createScratchCases(CAS aCas) throws AnalysisEngineProcessException {
+        // the pipeline thread may run a write itself when the queue is full
+        int numScratchCases = numThreads + 1;
+        scratchCases = new ArrayBlockingQueue<CAS>(numScratchCases);
+        try {
+            for (int i = 0; i < numScratchCases; i++) {
+                scratchCases.add(CasCreationUtils.createCas(aCas.getTypeSystem(), null, null, null));
+            }
+        } catch (ResourceInitializationException e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+    }
+
+    private void removeFinished() throws AnalysisEngineProcessException {
+        Iterator<Future<?>> iter = pending.iterator();
+        while (iter.hasNext()) {
+            Future<?> write = iter.next();
+            if (write.isDone()) {
+                iter.remove();
+                checkWrite(write);
+            }
+        }
+    }
+
+    private static void checkWrite(Future<?> write) throws AnalysisEngineProcessException {
+        try {
+            write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalysisEngineProcessException(e);
+        } catch (ExecutionException e) {
+            throw new AnalysisEngineProcessException(e.getCause());
+        }
+    }
+
+    /**
+     * Wait until all submitted CASes are written.
+     *
+     * @throws AnalysisEngineProcessException if a write failed
+     */
+    public void flush() throws AnalysisEngineProcessException {
+        AnalysisEngineProcessException failure = null;
+        while (!pending.isEmpty()) {
+            try {
+                checkWrite(pending.removeFirst());
+            } catch (AnalysisEngineProcessException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Stop the writer threads, call {@link #flush()} before to make sure everything is written.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,135 @@
+package edu.cmu.lti.event_coref.io;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.InvalidXMLException;
+import org.apache.uima.util.TypeSystemUtil;
+import org.apache.uima.util.XMLInputSource;
+import org.xml.sax.SAXException;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads and writes CASes in the UIMA compressed binary format (form 6). The format only keeps the
+ * feature structures, so it is much smaller and faster to load than XMI, but it needs the type system
+ * it was written with. The writer keeps the type system in a file next to the CASes, and the reader
+ * maps it to the type system of the pipeline, dropping types that the pipeline does not know.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class BinaryCasUtils {
+    public static final String DEFAULT_FILE_SUFFIX = ".bcas";
+
+    public static final String TYPE_SYSTEM_FILE_NAME = "typesystem.xml";
+
+    /**
+     * Serialize the CAS, with all its views, into the file.
+     *
+     * @param aCas
+     * @param outputFile
+     * @throws IOException
+     */
+    public static void serialize(CAS aCas, File outputFile) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile));
+        try {
+            Serialization.serializeWithCompression(aCas, out, aCas.getTypeSystem());
+        } catch (ResourceInitializationException e) {
+            throw new IOException(e);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Deserialize the file into the CAS, which should be empty.
+     *
+     * @param aCas
+     * @param inputFile
+     * @param sourceTypeSystem the type system the file is written with, or null if it is the same as
+     *                         the one of the CAS
+     * @throws IOException
+     */
+    public static void deserialize(CAS aCas, File inputFile, TypeSystem sourceTypeSystem) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(inputFile));
+        try {
+            if (sourceTypeSystem == null) {
+                Serialization.deserializeCAS(aCas, in);
+            } else {
+                Serialization.deserializeCAS(aCas, in, sourceTypeSystem, null);
+            }
+        } catch (ResourceInitializationException e) {
+            throw new IOException(e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write the type system into the directory, replacing the one of a previous run, which may be
+     * different. Writers call this once per run, before their first CAS.
+     *
+     * @param typeSystem
+     * @param dir
+     * @throws IOException
+     */
+    public static synchronized void writeTypeSystem(TypeSystem typeSystem, File dir) throws IOException {
+        File typeSystemFile = new File(dir, TYPE_SYSTEM_FILE_NAME);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(typeSystemFile));
+        try {
+            TypeSystemUtil.typeSystem2TypeSystemDescription(typeSystem).toXML(out);
+        } catch (SAXException e) {
+            throw new IOException(e);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Read the type system kept in the directory.
+     *
+     * @param dir
+     * @return the type system, or null if the directory does not have it
+     * @throws IOException
+     */
+    public static TypeSystem readTypeSystem(File dir) throws IOException {
+        File typeSystemFile = new File(dir, TYPE_SYSTEM_FILE_NAME);
+        if (!typeSystemFile.exists()) {
+            return null;
+        }
+        try {
+            TypeSystemDescription description = UIMAFramework.getXMLParser().parseTypeSystemDescription(
+                    new XMLInputSource(typeSystemFile));
+            return CasCreationUtils.createCas(description, null, null).getTypeSystem();
+        } catch (InvalidXMLException e) {
+            throw new IOException(e);
+        } catch (ResourceInitializationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @param sourceTypeSystem
+     * @param targetTypeSystem
+     * @return names of the types in the source type system that are not in the target one
+     */
+    public static List<String> getUnknownTypes(TypeSystem sourceTypeSystem, TypeSystem targetTypeSystem) {
+        List<String> unknownTypes = new ArrayList<String>();
+        Iterator<Type> types = sourceTypeSystem.getTypeIterator();
+        while (types.hasNext()) {
+            String typeName = types.next().getName();
+            if (targetTypeSystem.getType(typeName) == null) {
+                unknownTypes.add(typeName);
+            }
+        }
+        return unknownTypes;
+    }
+}
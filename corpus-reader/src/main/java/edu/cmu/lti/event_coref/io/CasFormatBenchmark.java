@@ -0,0 +1,91 @@
+package edu.cmu.lti.event_coref.io;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.util.CasCreationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares the size and the load time of the same corpus in XMI and in the binary CAS format, e.g. a
+ * processed directory and its copy made by {@link CasFormatConverter}.
+ * <p/>
+ * Usage: CasFormatBenchmark typeSystemDescriptorName xmiDir binaryDir [numRounds]
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class CasFormatBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(CasFormatBenchmark.class);
+
+    private static long totalSize(File[] files) {
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    private static long loadXmi(CAS cas, File[] xmiFiles) throws IOException {
+        long start = System.nanoTime();
+        for (File xmiFile : xmiFiles) {
+            cas.reset();
+            CasFormatConverter.readXmi(cas, xmiFile);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long loadBinary(CAS cas, File[] casFiles, TypeSystem sourceTypeSystem) throws IOException {
+        long start = System.nanoTime();
+        for (File casFile : casFiles) {
+            cas.reset();
+            BinaryCasUtils.deserialize(cas, casFile, sourceTypeSystem);
+        }
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: CasFormatBenchmark typeSystemDescriptorName xmiDir binaryDir [numRounds]");
+            System.exit(1);
+        }
+
+        CAS cas = CasCreationUtils.createCas(TypeSystemDescriptionFactory.createTypeSystemDescription(args[0]),
+                null, null);
+        File xmiDir = new File(args[1]);
+        File binaryDir = new File(args[2]);
+        int numRounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        File[] xmiFiles = CasFormatConverter.listFiles(xmiDir, CasFormatConverter.XMI_SUFFIX,
+                CasFormatConverter.GZIPPED_XMI_SUFFIX);
+        File[] casFiles = CasFormatConverter.listFiles(binaryDir, BinaryCasUtils.DEFAULT_FILE_SUFFIX);
+        TypeSystem sourceTypeSystem = BinaryCasUtils.readTypeSystem(binaryDir);
+
+        // the first round warms up the JIT and the file cache
+        loadXmi(cas, xmiFiles);
+        loadBinary(cas, casFiles, sourceTypeSystem);
+
+        long xmiNanos = 0;
+        long binaryNanos = 0;
+        for (int round = 0; round < numRounds; round++) {
+            xmiNanos += loadXmi(cas, xmiFiles);
+            binaryNanos += loadBinary(cas, casFiles, sourceTypeSystem);
+        }
+
+        long xmiSize = totalSize(xmiFiles);
+        long binarySize = totalSize(casFiles);
+        double xmiMs = xmiNanos / 1e6 / numRounds;
+        double binaryMs = binaryNanos / 1e6 / numRounds;
+
+        logger.info(String.format("%-8s %8s %14s %16s", "Format", "Files", "Size (bytes)", "Load time (ms)"));
+        logger.info(String.format("%-8s %8d %14d %16.1f", "XMI", xmiFiles.length, xmiSize, xmiMs));
+        logger.info(String.format("%-8s %8d %14d %16.1f", "Binary", casFiles.length, binarySize, binaryMs));
+        if (binarySize > 0 && binaryMs > 0) {
+            logger.info(String.format("Binary is %.1fx smaller and loads %.1fx faster.",
+                    (double) xmiSize / binarySize, xmiMs / binaryMs));
+        }
+    }
+}
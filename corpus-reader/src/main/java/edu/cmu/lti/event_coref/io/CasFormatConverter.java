@@ -0,0 +1,172 @@
+package edu.cmu.lti.event_coref.io;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.XMLSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Converts a directory of CASes between XMI (plain or gzipped) and the compressed binary format of
+ * {@link BinaryCasUtils}, so that processed corpora can be switched to the binary format without
+ * running the pipeline again.
+ * <p/>
+ * Usage: CasFormatConverter toBinary|toXmi typeSystemDescriptorName inputDir outputDir
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class CasFormatConverter {
+    private static final Logger logger = LoggerFactory.getLogger(CasFormatConverter.class);
+
+    public static final String XMI_SUFFIX = ".xmi";
+
+    public static final String GZIPPED_XMI_SUFFIX = ".xmi.gz";
+
+    private final CAS cas;
+
+    public CasFormatConverter(TypeSystemDescription typeSystemDescription) throws ResourceInitializationException {
+        cas = CasCreationUtils.createCas(typeSystemDescription, null, null);
+    }
+
+    /**
+     * Convert all XMI or gzipped XMI files in the input directory to binary CASes.
+     *
+     * @param inputDir
+     * @param outputDir
+     * @return number of converted files
+     * @throws IOException
+     */
+    public int toBinary(File inputDir, File outputDir) throws IOException {
+        outputDir.mkdirs();
+        BinaryCasUtils.writeTypeSystem(cas.getTypeSystem(), outputDir);
+
+        int numConverted = 0;
+        for (File xmiFile : listFiles(inputDir, XMI_SUFFIX, GZIPPED_XMI_SUFFIX)) {
+            cas.reset();
+            readXmi(cas, xmiFile);
+            String baseName = stripSuffix(xmiFile.getName(), XMI_SUFFIX, GZIPPED_XMI_SUFFIX);
+            BinaryCasUtils.serialize(cas, new File(outputDir, baseName + BinaryCasUtils.DEFAULT_FILE_SUFFIX));
+            numConverted++;
+        }
+        return numConverted;
+    }
+
+    /**
+     * Convert all binary CASes in the input directory to XMI files.
+     *
+     * @param inputDir
+     * @param outputDir
+     * @return number of converted files
+     * @throws IOException
+     */
+    public int toXmi(File inputDir, File outputDir) throws IOException {
+        outputDir.mkdirs();
+        TypeSystem sourceTypeSystem = BinaryCasUtils.readTypeSystem(inputDir);
+
+        int numConverted = 0;
+        for (File casFile : listFiles(inputDir, BinaryCasUtils.DEFAULT_FILE_SUFFIX)) {
+            cas.reset();
+            BinaryCasUtils.deserialize(cas, casFile, sourceTypeSystem);
+            String baseName = stripSuffix(casFile.getName(), BinaryCasUtils.DEFAULT_FILE_SUFFIX);
+            writeXmi(cas, new File(outputDir, baseName + XMI_SUFFIX));
+            numConverted++;
+        }
+        return numConverted;
+    }
+
+    /**
+     * Read a plain or gzipped XMI file, unknown types are ignored.
+     *
+     * @param aCas
+     * @param xmiFile
+     * @throws IOException
+     */
+    public static void readXmi(CAS aCas, File xmiFile) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(xmiFile));
+        if (xmiFile.getName().endsWith(GZIPPED_XMI_SUFFIX)) {
+            in = new GZIPInputStream(in);
+        }
+        try {
+            XmiCasDeserializer.deserialize(in, aCas, true);
+        } catch (SAXException e) {
+            throw new IOException(e);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeXmi(CAS aCas, File xmiFile) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(xmiFile));
+        try {
+            XmiCasSerializer ser = new XmiCasSerializer(aCas.getTypeSystem());
+            XMLSerializer xmlSer = new XMLSerializer(out, false);
+            ser.serialize(aCas, xmlSer.getContentHandler());
+        } catch (SAXException e) {
+            throw new IOException(e);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @param dir
+     * @param suffixes
+     * @return the files in the directory ending with one of the suffixes, sorted by name
+     */
+    public static File[] listFiles(File dir, final String... suffixes) {
+        File[] files = dir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return !file.isDirectory() && stripSuffix(file.getName(), suffixes) != null;
+            }
+        });
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * @return the name without the longest matching suffix, or null if the name has none of them
+     */
+    private static String stripSuffix(String name, String... suffixes) {
+        String stripped = null;
+        for (String suffix : suffixes) {
+            if (name.endsWith(suffix)) {
+                String candidate = name.substring(0, name.length() - suffix.length());
+                if (stripped == null || candidate.length() < stripped.length()) {
+                    stripped = candidate;
+                }
+            }
+        }
+        return stripped;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 4 || !(args[0].equals("toBinary") || args[0].equals("toXmi"))) {
+            System.err.println("Usage: CasFormatConverter toBinary|toXmi typeSystemDescriptorName inputDir outputDir");
+            System.exit(1);
+        }
+
+        CasFormatConverter converter = new CasFormatConverter(
+                TypeSystemDescriptionFactory.createTypeSystemDescription(args[1]));
+        File inputDir = new File(args[2]);
+        File outputDir = new File(args[3]);
+
+        int numConverted = args[0].equals("toBinary") ? converter.toBinary(inputDir, outputDir)
+                : converter.toXmi(inputDir, outputDir);
+        logger.info(String.format("Converted %d CASes from %s to %s", numConverted, inputDir, outputDir));
+    }
+}
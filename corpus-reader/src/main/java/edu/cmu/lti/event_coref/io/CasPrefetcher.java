@@ -0,0 +1,165 @@
+package edu.cmu.lti.event_coref.io;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+import org.apache.uima.util.CasCopier;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.TypeSystemUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Loads the next documents of a reader ahead of time on background threads, so that reading,
+ * decompressing and parsing overlap with the work of the annotators.
+ * <p/>
+ * Each document is loaded into a scratch CAS of the same type system, type priorities and indexes,
+ * which has the views the CAS of the pipeline had when the prefetcher was created, so that a loader
+ * can get the view it reads into. At most prefetchSize documents are loaded at the same time. When the reader asks for the next document, the oldest scratch CAS is
+ * copied into the CAS of the pipeline and reused for the next file, so the documents come out in the
+ * same order as the files.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class CasPrefetcher {
+    /**
+     * Loads a file into a CAS, called from the background threads.
+     */
+    public interface Loader {
+        void load(File file, CAS aCAS) throws Exception;
+    }
+
+    private final List<File> files;
+
+    private int nextFileIndex;
+
+    private final Loader loader;
+
+    private final BlockingQueue<CAS> freeCases;
+
+    // views of the pipeline CAS other than the initial view, created in each scratch CAS before loading
+    private final List<String> viewNames = new ArrayList<String>();
+
+    private final LinkedList<Future<CAS>> pending = new LinkedList<Future<CAS>>();
+
+    private final ExecutorService executor;
+
+    /**
+     * @param files          the files of the reader, in order
+     * @param firstFileIndex the first file to load
+     * @param pipelineCas    the CAS of the pipeline, gives the type system and the views
+     * @param metaData       the metadata of the reader, gives the type priorities and indexes, may be null
+     * @param prefetchSize   number of documents loaded ahead
+     * @param numThreads     number of background threads
+     * @param loader         loads one file
+     * @throws ResourceInitializationException
+     */
+    public CasPrefetcher(List<File> files, int firstFileIndex, CAS pipelineCas, ProcessingResourceMetaData metaData,
+                         int prefetchSize, int numThreads, Loader loader) throws ResourceInitializationException {
+        this.files = files;
+        this.nextFileIndex = firstFileIndex;
+        this.loader = loader;
+
+        Iterator<CAS> views = pipelineCas.getViewIterator();
+        while (views.hasNext()) {
+            String viewName = views.next().getViewName();
+            if (!CAS.NAME_DEFAULT_SOFA.equals(viewName)) {
+                viewNames.add(viewName);
+            }
+        }
+
+        freeCases = new ArrayBlockingQueue<CAS>(prefetchSize);
+        for (int i = 0; i < prefetchSize; i++) {
+            freeCases.add(CasCreationUtils.createCas(
+                    TypeSystemUtil.typeSystem2TypeSystemDescription(pipelineCas.getTypeSystem()),
+                    metaData == null ? null : metaData.getTypePriorities(),
+                    metaData == null ? null : metaData.getFsIndexes()));
+        }
+
+        executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "cas-prefetcher");
+                // do not keep the JVM alive if the reader is not closed
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        for (int i = 0; i < prefetchSize; i++) {
+            submitNext();
+        }
+    }
+
+    private void submitNext() {
+        if (nextFileIndex >= files.size()) {
+            return;
+        }
+        final File file = files.get(nextFileIndex++);
+        // there are never more pending loads than scratch CASes, so one is free
+        final CAS scratchCas = freeCases.poll();
+        pending.add(executor.submit(new Callable<CAS>() {
+            @Override
+            public CAS call() throws Exception {
+                try {
+                    // a reset CAS only has the initial view
+                    for (String viewName : viewNames) {
+                        scratchCas.createView(viewName);
+                    }
+                    loader.load(file, scratchCas);
+                } catch (Exception e) {
+                    scratchCas.reset();
+                    freeCases.add(scratchCas);
+                    throw e;
+                }
+                return scratchCas;
+            }
+        }));
+    }
+
+    /**
+     * Copy the next document into the CAS, waiting for it if it is not loaded yet.
+     *
+     * @param aCAS the CAS of the pipeline
+     * @throws CollectionException
+     */
+    public void next(CAS aCAS) throws CollectionException {
+        if (pending.isEmpty()) {
+            throw new CollectionException(new IllegalStateException("No more documents to prefetch."));
+        }
+
+        Future<CAS> loading = pending.removeFirst();
+        CAS scratchCas;
+        try {
+            scratchCas = loading.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CollectionException(e);
+        } catch (ExecutionException e) {
+            // the scratch CAS is freed by the failed load, keep loading the rest
+            submitNext();
+            throw new CollectionException(e.getCause());
+        }
+
+        try {
+            CasCopier.copyCas(scratchCas, aCAS, true);
+        } finally {
+            scratchCas.reset();
+            freeCases.add(scratchCas);
+        }
+        submitNext();
+    }
+
+    /**
+     * Stop the background threads.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -7,6 +7,7 @@ import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.uimafit.factory.AnalysisEngineFactory;
 import org.uimafit.factory.CollectionReaderFactory;
+import org.uimafit.factory.ConfigurationParameterFactory;
 
 import java.util.Set;
 
@@ -162,6 +163,56 @@ public class ReaderWriterFactory {
         return reader;
     }
 
+    /**
+     * Creates a binary CAS reader assuming the directory naming convention, see
+     * {@link StepBasedDirBinaryCasWriter}.
+     *
+     * @param parentInputDirName
+     * @param baseInputDirName
+     * @param stepNumber
+     * @param failOnUnkown
+     * @return
+     * @throws org.apache.uima.resource.ResourceInitializationException
+     */
+    public static CollectionReaderDescription createBinaryCasReader(String parentInputDirName,
+                                                                    String baseInputDirName, Integer stepNumber, Boolean failOnUnkown)
+            throws ResourceInitializationException {
+        CollectionReaderDescription reader = CollectionReaderFactory.createDescription(
+                StepBasedDirBinaryCasCollectionReader.class,
+                StepBasedDirBinaryCasCollectionReader.PARAM_PARENT_INPUT_DIR_PATH, parentInputDirName,
+                StepBasedDirBinaryCasCollectionReader.PARAM_BASE_INPUT_DIR_NAME, baseInputDirName,
+                StepBasedDirBinaryCasCollectionReader.PARAM_INPUT_STEP_NUMBER, stepNumber,
+                StepBasedDirBinaryCasCollectionReader.PARAM_FAIL_UNKNOWN, failOnUnkown);
+
+        return reader;
+    }
+
+    /**
+     * Creates a binary CAS reader with the specified type system, assuming the directory naming
+     * convention.
+     *
+     * @param typeSystemDescription
+     * @param parentInputDirName
+     * @param baseInputDirName
+     * @param stepNumber
+     * @param failOnUnkown
+     * @return
+     * @throws org.apache.uima.resource.ResourceInitializationException
+     */
+    public static CollectionReaderDescription createBinaryCasReader(
+            TypeSystemDescription typeSystemDescription, String parentInputDirName,
+            String baseInputDirName, Integer stepNumber, Boolean failOnUnkown)
+            throws ResourceInitializationException {
+        CollectionReaderDescription reader = CollectionReaderFactory.createDescription(
+                StepBasedDirBinaryCasCollectionReader.class, typeSystemDescription,
+                StepBasedDirBinaryCasCollectionReader.PARAM_PARENT_INPUT_DIR_PATH, parentInputDirName,
+                StepBasedDirBinaryCasCollectionReader.PARAM_BASE_INPUT_DIR_NAME, baseInputDirName,
+                StepBasedDirBinaryCasCollectionReader.PARAM_INPUT_STEP_NUMBER, stepNumber,
+                StepBasedDirBinaryCasCollectionReader.PARAM_FAIL_UNKNOWN, failOnUnkown);
+
+        return reader;
+    }
+
     /**
      * Creates a simple plain text preprocessor for the text under the specified directory.
      *
@@ -230,6 +281,44 @@ public class ReaderWriterFactory {
         coreferenceEngine.setMetaData(metatData);
     }
 
+    /**
+     * Let a step based reader (XMI, gzipped XMI or binary CAS) load the next documents on background
+     * threads while the pipeline works on the current one.
+     *
+     * @param reader       a reader created by this factory
+     * @param prefetchSize number of documents loaded ahead
+     * @param numThreads   number of background threads
+     */
+    public static void setPrefetching(CollectionReaderDescription reader, int prefetchSize, int numThreads) {
+        ConfigurationParameterFactory.addConfigurationParameter(reader,
+                AbstractStepBasedDirReader.PARAM_PREFETCH_SIZE, prefetchSize);
+        ConfigurationParameterFactory.addConfigurationParameter(reader,
+                AbstractStepBasedDirReader.PARAM_NUM_PREFETCH_THREADS, numThreads);
+    }
+
+    /**
+     * Let an XMI or gzipped XMI writer created by this factory serialize the CASes on background
+     * threads, the writer waits for them in collectionProcessComplete.
+     *
+     * @param writer     an XMI or gzipped XMI writer
+     * @param numThreads number of writer threads
+     */
+    public static void setAsyncWriting(AnalysisEngineDescription writer, int numThreads) {
+        ConfigurationParameterFactory.addConfigurationParameter(writer,
+                StepBasedDirXmiWriter.PARAM_NUM_ASYNC_WRITERS, numThreads);
+    }
+
+    /**
+     * Set the deflate level of a gzipped XMI writer created by this factory.
+     *
+     * @param writer           a gzipped XMI writer
+     * @param compressionLevel from 1 (fastest) to 9 (smallest)
+     */
+    public static void setCompressionLevel(AnalysisEngineDescription writer, int compressionLevel) {
+        ConfigurationParameterFactory.addConfigurationParameter(writer,
+                StepBasedDirGzippedXmiWriter.PARAM_COMPRESSION_LEVEL, compressionLevel);
+    }
+
     /**
      * Creates an XMI writer assuming the directory naming convention
      *
@@ -409,6 +498,53 @@ public class ReaderWriterFactory {
         return writer;
     }
 
+    /**
+     * Creates a binary CAS writer assuming the directory naming convention. The output is much faster
+     * to read than XMI, use it for intermediate steps that are only read by our pipelines.
+     *
+     * @param parentOutputDirPath
+     * @param baseOutputDirName
+     * @param stepNumber
+     * @param outputFileSuffix
+     * @return
+     * @throws ResourceInitializationException
+     */
+    public static AnalysisEngineDescription createBinaryCasWriter(String parentOutputDirPath,
+                                                                  String baseOutputDirName, Integer stepNumber, String outputFileSuffix)
+            throws ResourceInitializationException {
+        AnalysisEngineDescription writer = AnalysisEngineFactory.createPrimitiveDescription(
+                StepBasedDirBinaryCasWriter.class,
+                StepBasedDirBinaryCasWriter.PARAM_PARENT_OUTPUT_DIR_PATH, parentOutputDirPath,
+                StepBasedDirBinaryCasWriter.PARAM_BASE_OUTPUT_DIR_NAME, baseOutputDirName,
+                StepBasedDirBinaryCasWriter.PARAM_OUTPUT_FILE_SUFFIX, outputFileSuffix,
+                StepBasedDirBinaryCasWriter.PARAM_OUTPUT_STEP_NUMBER, stepNumber);
+        return writer;
+    }
+
+    /**
+     * Creates a binary CAS writer and provides an array of indices to select documents to output
+     *
+     * @param parentOutputDirPath
+     * @param baseOutputDirName
+     * @param stepNumber
+     * @param outputFileSuffix
+     * @param outputDocumentNumbers
+     * @return
+     * @throws ResourceInitializationException
+     */
+    public static AnalysisEngineDescription createSelectiveBinaryCasWriter(String parentOutputDirPath,
+                                                                           String baseOutputDirName, Integer stepNumber, String outputFileSuffix,
+                                                                           Integer[] outputDocumentNumbers) throws ResourceInitializationException {
+        AnalysisEngineDescription writer = AnalysisEngineFactory.createPrimitiveDescription(
+                StepBasedDirBinaryCasWriter.class,
+                StepBasedDirBinaryCasWriter.PARAM_PARENT_OUTPUT_DIR_PATH, parentOutputDirPath,
+                StepBasedDirBinaryCasWriter.PARAM_BASE_OUTPUT_DIR_NAME, baseOutputDirName,
+                StepBasedDirBinaryCasWriter.PARAM_OUTPUT_FILE_SUFFIX, outputFileSuffix,
+                StepBasedDirBinaryCasWriter.PARAM_OUTPUT_STEP_NUMBER, stepNumber,
+                StepBasedDirBinaryCasWriter.PARAM_OUTPUT_FILE_NUMBERS, outputDocumentNumbers);
+        return writer;
+    }
+
 //    /**
 //     * Creates a plain text writer.
 //     *
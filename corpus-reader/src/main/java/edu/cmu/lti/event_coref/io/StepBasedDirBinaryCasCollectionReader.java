@@ -0,0 +1,117 @@
+package edu.cmu.lti.event_coref.io;
+
+import edu.cmu.lti.utils.general.StringUtils;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.Progress;
+import org.apache.uima.util.ProgressImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A collection reader of the CASes written by {@link StepBasedDirBinaryCasWriter}. The whole CAS is
+ * restored, with all its views.
+ * <p/>
+ * When the type system of the CASes differs from the one of the pipeline, types unknown to the
+ * pipeline are dropped if failing on unknown types is turned off.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class StepBasedDirBinaryCasCollectionReader extends AbstractStepBasedDirReader {
+    private static final Logger logger = LoggerFactory.getLogger(StepBasedDirBinaryCasCollectionReader.class);
+
+    private List<File> casFiles;
+
+    private int currentDocIndex;
+
+    // the type system the CASes are written with
+    private TypeSystem sourceTypeSystem;
+
+    private boolean typeSystemChecked;
+
+    /**
+     * @see org.apache.uima.collection.CollectionReader_ImplBase#initialize()
+     */
+    public void initialize() throws ResourceInitializationException {
+        super.initialize();
+
+        if (StringUtils.isNullOrEmptyString(inputFileSuffix)) {
+            inputFileSuffix = BinaryCasUtils.DEFAULT_FILE_SUFFIX;
+        }
+
+        casFiles = new ArrayList<File>();
+        File[] files = inputDir.listFiles();
+        for (File file : files) {
+            if (!file.isDirectory() && file.getName().endsWith(inputFileSuffix)) {
+                casFiles.add(file);
+            }
+        }
+        Collections.sort(casFiles);
+
+        if (casFiles.size() == 0) {
+            logger.warn("The directory " + inputDir.getAbsolutePath()
+                    + " does not have any binary CAS files ending with " + inputFileSuffix);
+        }
+
+        try {
+            sourceTypeSystem = BinaryCasUtils.readTypeSystem(inputDir);
+        } catch (IOException e) {
+            throw new ResourceInitializationException(e);
+        }
+        typeSystemChecked = false;
+
+        currentDocIndex = 0;
+    }
+
+    @Override
+    public void subInitialize() {
+    }
+
+    /**
+     * @see org.apache.uima.collection.CollectionReader#hasNext()
+     */
+    public boolean hasNext() {
+        return currentDocIndex < casFiles.size();
+    }
+
+    /**
+     * @see org.apache.uima.collection.CollectionReader#getNext(org.apache.uima.cas.CAS)
+     */
+    public void getNext(CAS aCAS) throws IOException, CollectionException {
+        if (!typeSystemChecked && sourceTypeSystem != null) {
+            List<String> unknownTypes = BinaryCasUtils.getUnknownTypes(sourceTypeSystem, aCAS.getTypeSystem());
+            if (!unknownTypes.isEmpty()) {
+                if (failOnUnknownType) {
+                    throw new CollectionException(new IllegalStateException(
+                            "The pipeline does not know the types " + unknownTypes));
+                }
+                logger.warn("The following types will be dropped: " + unknownTypes);
+            }
+            typeSystemChecked = true;
+        }
+
+        int docIndex = currentDocIndex;
+        currentDocIndex++;
+        loadNext(casFiles, docIndex, aCAS);
+    }
+
+    @Override
+    protected void load(File file, CAS aCAS) throws IOException {
+        BinaryCasUtils.deserialize(aCAS, file, sourceTypeSystem);
+    }
+
+    /**
+     * @see org.apache.uima.collection.base_cpm.BaseCollectionReader#getProgress()
+     */
+    public Progress[] getProgress() {
+        return new Progress[]{new ProgressImpl(currentDocIndex, casFiles.size(), Progress.ENTITIES)};
+    }
+}
@@ -0,0 +1,123 @@
+package edu.cmu.lti.event_coref.io;
+
+import edu.cmu.lti.event_coref.utils.CollectionStatistics;
+import edu.cmu.lti.utils.general.StringUtils;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.examples.SourceDocumentInformation;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This analysis engine outputs CAS in the compressed binary format, see {@link BinaryCasUtils}. It is
+ * named and selected in the same way as {@link StepBasedDirXmiWriter}, and read back with
+ * {@link StepBasedDirBinaryCasCollectionReader}.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class StepBasedDirBinaryCasWriter extends AbstractStepBasedDirWriter {
+
+    public static final String PARAM_SRC_DOC_INFO_VIEW_NAME = "SourceDocumentInfoViewName";
+
+    public static final String PARAM_OUTPUT_FILE_NUMBERS = "OutputFileNumbers";
+
+    @ConfigurationParameter(name = PARAM_SRC_DOC_INFO_VIEW_NAME, mandatory = false)
+    /** The view where you extract source document information */
+    private String srcDocInfoViewName;
+
+    @ConfigurationParameter(name = PARAM_OUTPUT_FILE_NUMBERS, mandatory = false)
+    /**
+     * This is a list of documents that you want to generate output. If it is null or empty, the writer
+     * works against all input.
+     */
+    private Integer[] outputDocumentNumberList;
+
+    private Set<Integer> outputDocuments;
+
+    // numbers the documents over all replicas of this writer, bound per run by the pipeline
+    @ExternalResource(key = CollectionStatistics.RESOURCE_KEY, mandatory = false)
+    private CollectionStatistics collectionStatistics;
+
+    private boolean typeSystemWritten;
+
+    @Override
+    public void initialize(UimaContext context) throws ResourceInitializationException {
+        super.initialize(context);
+        outputDocuments = outputDocumentNumberList != null ? new HashSet<Integer>(Arrays.asList(outputDocumentNumberList)) : null;
+        collectionStatistics = CollectionStatistics.ofRun(collectionStatistics);
+        typeSystemWritten = false;
+    }
+
+    @Override
+    public void subInitialize(UimaContext context) {
+    }
+
+    @Override
+    public void process(JCas aJCas) throws AnalysisEngineProcessException {
+        int docCounter = collectionStatistics.nextDocumentNumber();
+
+        JCas srcDocInfoView = null;
+        try {
+            if (!StringUtils.isNullOrEmptyString(srcDocInfoViewName)) {
+                srcDocInfoView = aJCas.getView(srcDocInfoViewName);
+            } else {
+                srcDocInfoView = aJCas;
+            }
+        } catch (Exception e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+
+        if (outputDocuments != null) {
+            if (!outputDocuments.contains(docCounter)) {
+                return;
+            }
+        }
+
+        // Retrieve the filename of the input file from the CAS.
+        FSIterator<?> it = srcDocInfoView.getAnnotationIndex(SourceDocumentInformation.type).iterator();
+        File outputFile = null;
+        if (it.hasNext()) {
+            SourceDocumentInformation fileLoc = (SourceDocumentInformation) it.next();
+            try {
+                File inFile = new File(new URL(fileLoc.getUri()).getPath());
+                StringBuilder buf = new StringBuilder();
+                buf.append(inFile.getName());
+                if (fileLoc.getOffsetInSource() > 0) {
+                    buf.append("_" + fileLoc.getOffsetInSource());
+                }
+                if (StringUtils.isNullOrEmptyString(outputFileSuffix)) {
+                    buf.append(BinaryCasUtils.DEFAULT_FILE_SUFFIX);
+                } else {
+                    buf.append(outputFileSuffix);
+                }
+                outputFile = new File(outputDir, buf.toString());
+            } catch (MalformedURLException e) {
+                throw new AnalysisEngineProcessException(e);
+            }
+        }
+        if (outputFile == null) {
+            outputFile = new File(outputDir, "doc" + docCounter + BinaryCasUtils.DEFAULT_FILE_SUFFIX);
+        }
+
+        try {
+            if (!typeSystemWritten) {
+                BinaryCasUtils.writeTypeSystem(aJCas.getTypeSystem(), outputDir);
+                typeSystemWritten = true;
+            }
+            BinaryCasUtils.serialize(aJCas.getCas(), outputFile);
+        } catch (IOException e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+    }
+}
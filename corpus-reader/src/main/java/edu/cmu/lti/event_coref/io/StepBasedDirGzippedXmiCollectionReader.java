@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -77,6 +78,13 @@ public class StepBasedDirGzippedXmiCollectionReader extends AbstractStepBasedDir
      * @see org.apache.uima.collection.CollectionReader#getNext(org.apache.uima.cas.CAS)
      */
     public void getNext(CAS aCAS) throws IOException, CollectionException {
+        int docIndex = currentDocIndex;
+        currentDocIndex++;
+        loadNext(xmiFiles, docIndex, aCAS);
+    }
+
+    @Override
+    protected void load(File file, CAS aCAS) throws IOException, CollectionException {
         try {
             if (!StringUtils.isNullOrEmptyString(inputViewName)) {
                 aCAS = aCAS.getView(inputViewName);
@@ -85,24 +93,18 @@ public class StepBasedDirGzippedXmiCollectionReader extends AbstractStepBasedDir
             throw new CollectionException(e);
         }
 
-        File currentFile = xmiFiles.get(currentDocIndex);
-        currentDocIndex++;
-
-        GZIPInputStream gzipIn = new GZIPInputStream(new FileInputStream(currentFile));
+        // a large buffer below the gzip stream, which otherwise reads the file in small chunks
+        GZIPInputStream gzipIn = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16),
+                1 << 16);
         try {
             XmiCasDeserializer.deserialize(gzipIn, aCAS, !failOnUnknownType);
-            gzipIn.close();
         } catch (SAXException e) {
             throw new CollectionException(e);
+        } finally {
+            gzipIn.close();
         }
     }
 
-    /**
-     * @see org.apache.uima.collection.base_cpm.BaseCollectionReader#close()
-     */
-    public void close() throws IOException {
-    }
-
     /**
      * @see org.apache.uima.collection.base_cpm.BaseCollectionReader#getProgress()
      */
@@ -1,5 +1,6 @@
 package edu.cmu.lti.event_coref.io;
 
+import edu.cmu.lti.event_coref.utils.CollectionStatistics;
 import edu.cmu.lti.utils.general.StringUtils;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -8,21 +9,30 @@ import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.examples.SourceDocumentInformation;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.util.XMLSerializer;
 import org.xml.sax.SAXException;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Set;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 
 /**
  * This analysis engine outputs gzipped CAS in the XMI format.
+ * <p/>
+ * With {@link #PARAM_NUM_ASYNC_WRITERS} set, the serialization and compression are done by a pool
+ * of writer threads (see {@link AsyncCasWriter}), and collectionProcessComplete returns when all the
+ * files are written. {@link #PARAM_COMPRESSION_LEVEL} trades file size for speed, level 1 is the
+ * fastest.
  *
  * @author Jun Araki
  */
@@ -32,8 +42,14 @@ public class StepBasedDirGzippedXmiWriter extends AbstractStepBasedDirWriter {
 
     public static final String PARAM_OUTPUT_FILE_NUMBERS = "OutputFileNumbers";
 
+    public static final String PARAM_NUM_ASYNC_WRITERS = "NumAsyncWriters";
+
+    public static final String PARAM_COMPRESSION_LEVEL = "CompressionLevel";
+
     private static final String DEFAULT_FILE_SUFFIX = ".xmi.gz";
 
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
     @ConfigurationParameter(name = PARAM_SRC_DOC_INFO_VIEW_NAME, mandatory = false)
     /** The view where you extract source document information */
     private String srcDocInfoViewName;
@@ -46,12 +62,35 @@ public class StepBasedDirGzippedXmiWriter extends AbstractStepBasedDirWriter {
      */
     private Set<String> outputDocumentNumberList;
 
-    private int docCounter;
+    @ConfigurationParameter(name = PARAM_NUM_ASYNC_WRITERS, mandatory = false)
+    /** Number of background writer threads, the CAS is written in process when it is 0 or not set */
+    private Integer numAsyncWriters;
+
+    @ConfigurationParameter(name = PARAM_COMPRESSION_LEVEL, mandatory = false)
+    /** Deflate level from 0 (no compression) to 9 (smallest), the gzip default when not set */
+    private Integer compressionLevel;
+
+    // numbers the documents over all replicas of this writer, bound per run by the pipeline
+    @ExternalResource(key = CollectionStatistics.RESOURCE_KEY, mandatory = false)
+    private CollectionStatistics collectionStatistics;
+
+    private AsyncCasWriter asyncWriter;
 
     @Override
     public void initialize(UimaContext context) throws ResourceInitializationException {
         super.initialize(context);
-        docCounter = 0;
+        collectionStatistics = CollectionStatistics.ofRun(collectionStatistics);
+        if (compressionLevel == null) {
+            compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        }
+        if (numAsyncWriters != null && numAsyncWriters > 0) {
+            asyncWriter = new AsyncCasWriter(numAsyncWriters, new AsyncCasWriter.CasSerializer() {
+                @Override
+                public void write(CAS aCas, File outputFile) throws Exception {
+                    writeXmi(aCas, outputFile);
+                }
+            });
+        }
     }
 
     @Override
@@ -60,7 +99,7 @@ public class StepBasedDirGzippedXmiWriter extends AbstractStepBasedDirWriter {
 
     @Override
     public void process(JCas aJCas) throws AnalysisEngineProcessException {
-        docCounter++;
+        int docCounter = collectionStatistics.nextDocumentNumber();
 
         JCas srcDocInfoView = null;
         try {
@@ -107,6 +146,11 @@ public class StepBasedDirGzippedXmiWriter extends AbstractStepBasedDirWriter {
         if (outputFile == null) {
             outputFile = new File(outputDir, "doc" + docCounter + DEFAULT_FILE_SUFFIX);
         }
+        if (asyncWriter != null) {
+            asyncWriter.submit(aJCas.getCas(), outputFile);
+            return;
+        }
+
         // serialize XCAS and write to output file
         try {
             writeXmi(aJCas.getCas(), outputFile);
@@ -117,28 +161,49 @@ public class StepBasedDirGzippedXmiWriter extends AbstractStepBasedDirWriter {
         }
     }
 
+    @Override
+    public void collectionProcessComplete() throws AnalysisEngineProcessException {
+        if (asyncWriter != null) {
+            asyncWriter.flush();
+        }
+        super.collectionProcessComplete();
+    }
+
+    @Override
+    public void destroy() {
+        if (asyncWriter != null) {
+            asyncWriter.shutdown();
+        }
+        super.destroy();
+    }
+
     /**
-     * Serialize a CAS to a file in XMI format
+     * Serialize a CAS to a file in gzipped XMI format
      *
      * @param aCas       CAS to serialize
      * @param outputFile output file
-     * @throws org.xml.sax.SAXException
-     * @throws Exception
-     * @throws org.apache.uima.resource.ResourceProcessException
+     * @throws IOException
+     * @throws SAXException
      */
     private void writeXmi(CAS aCas, File outputFile) throws IOException, SAXException {
-        GZIPOutputStream gzipOut = null;
-
+        OutputStream out = new BufferedOutputStream(new LeveledGZIPOutputStream(
+                new FileOutputStream(outputFile), compressionLevel), OUTPUT_BUFFER_SIZE);
         try {
-            // write gzipped XMI
-            gzipOut = new GZIPOutputStream(new FileOutputStream(outputFile));
             XmiCasSerializer ser = new XmiCasSerializer(aCas.getTypeSystem());
-            XMLSerializer xmlSer = new XMLSerializer(gzipOut, false);
+            XMLSerializer xmlSer = new XMLSerializer(out, false);
             ser.serialize(aCas, xmlSer.getContentHandler());
+        } finally {
+            out.close();
+        }
+    }
 
-            gzipOut.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * GZIPOutputStream does not take the deflate level in its constructors.
+     */
+    private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+        public LeveledGZIPOutputStream(OutputStream out, int level) throws IOException {
+            super(out, OUTPUT_BUFFER_SIZE);
+            def.setLevel(level);
         }
     }
 
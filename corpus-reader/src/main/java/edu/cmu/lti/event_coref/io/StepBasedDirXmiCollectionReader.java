@@ -1,8 +1,10 @@
 package edu.cmu.lti.event_coref.io;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -67,6 +69,13 @@ public class StepBasedDirXmiCollectionReader extends AbstractStepBasedDirReader
    * @see org.apache.uima.collection.CollectionReader#getNext(org.apache.uima.cas.CAS)
    */
   public void getNext(CAS aCAS) throws IOException, CollectionException {
+    int docIndex = currentDocIndex;
+    currentDocIndex++;
+    loadNext(xmiFiles, docIndex, aCAS);
+  }
+
+  @Override
+  protected void load(File file, CAS aCAS) throws IOException, CollectionException {
     try {
       if (!StringUtils.isNullOrEmptyString(inputViewName)) {
         aCAS = aCAS.getView(inputViewName);
@@ -75,10 +84,7 @@ public class StepBasedDirXmiCollectionReader extends AbstractStepBasedDirReader
       throw new CollectionException(e);
     }
 
-    File currentFile = xmiFiles.get(currentDocIndex);
-    currentDocIndex++;
-
-    FileInputStream inputStream = new FileInputStream(currentFile);
+    InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
     try {
       XmiCasDeserializer.deserialize(inputStream, aCAS, !failOnUnknownType);
     } catch (SAXException e) {
@@ -88,12 +94,6 @@ public class StepBasedDirXmiCollectionReader extends AbstractStepBasedDirReader
     }
   }
 
-  /**
-   * @see org.apache.uima.collection.base_cpm.BaseCollectionReader#close()
-   */
-  public void close() throws IOException {
-  }
-
   /**
    * @see org.apache.uima.collection.base_cpm.BaseCollectionReader#getProgress()
    */
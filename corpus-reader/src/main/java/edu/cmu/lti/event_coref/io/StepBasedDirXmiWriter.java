@@ -1,5 +1,6 @@
 package edu.cmu.lti.event_coref.io;
 
+import edu.cmu.lti.event_coref.utils.CollectionStatistics;
 import edu.cmu.lti.utils.general.StringUtils;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -8,13 +9,16 @@ import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.examples.SourceDocumentInformation;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.util.XMLSerializer;
 import org.xml.sax.SAXException;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -24,6 +28,10 @@ import java.util.Set;
 
 /**
  * This analysis engine outputs CAS in the XMI format.
+ * <p/>
+ * With {@link #PARAM_NUM_ASYNC_WRITERS} set, the serialization is done by a pool of writer threads
+ * (see {@link AsyncCasWriter}), and collectionProcessComplete returns when all the files are
+ * written.
  *
  * @author Jun Araki
  */
@@ -33,6 +41,8 @@ public class StepBasedDirXmiWriter extends AbstractStepBasedDirWriter {
 
     public static final String PARAM_OUTPUT_FILE_NUMBERS = "OutputFileNumbers";
 
+    public static final String PARAM_NUM_ASYNC_WRITERS = "NumAsyncWriters";
+
     @ConfigurationParameter(name = PARAM_SRC_DOC_INFO_VIEW_NAME, mandatory = false)
     /** The view where you extract source document information */
     private String srcDocInfoViewName;
@@ -45,15 +55,31 @@ public class StepBasedDirXmiWriter extends AbstractStepBasedDirWriter {
      */
     private Integer[] outputDocumentNumberList;
 
+    @ConfigurationParameter(name = PARAM_NUM_ASYNC_WRITERS, mandatory = false)
+    /** Number of background writer threads, the CAS is written in process when it is 0 or not set */
+    private Integer numAsyncWriters;
+
     private Set<Integer> outputDocuments;
 
-    private int docCounter;
+    // numbers the documents over all replicas of this writer, bound per run by the pipeline
+    @ExternalResource(key = CollectionStatistics.RESOURCE_KEY, mandatory = false)
+    private CollectionStatistics collectionStatistics;
+
+    private AsyncCasWriter asyncWriter;
 
     @Override
     public void initialize(UimaContext context) throws ResourceInitializationException {
         super.initialize(context);
         outputDocuments = outputDocumentNumberList != null ? new HashSet<>(Arrays.asList(outputDocumentNumberList)) : null;
-        docCounter = 0;
+        collectionStatistics = CollectionStatistics.ofRun(collectionStatistics);
+        if (numAsyncWriters != null && numAsyncWriters > 0) {
+            asyncWriter = new AsyncCasWriter(numAsyncWriters, new AsyncCasWriter.CasSerializer() {
+                @Override
+                public void write(CAS aCas, File outputFile) throws Exception {
+                    writeXmi(aCas, outputFile);
+                }
+            });
+        }
     }
 
     @Override
@@ -62,7 +88,7 @@ public class StepBasedDirXmiWriter extends AbstractStepBasedDirWriter {
 
     @Override
     public void process(JCas aJCas) throws AnalysisEngineProcessException {
-        docCounter++;
+        int docCounter = collectionStatistics.nextDocumentNumber();
 
         JCas srcDocInfoView = null;
         try {
@@ -109,6 +135,11 @@ public class StepBasedDirXmiWriter extends AbstractStepBasedDirWriter {
         if (outputFile == null) {
             outputFile = new File(outputDir, "doc" + docCounter + ".xmi");
         }
+        if (asyncWriter != null) {
+            asyncWriter.submit(aJCas.getCas(), outputFile);
+            return;
+        }
+
         // serialize XCAS and write to output file
         try {
             writeXmi(aJCas.getCas(), outputFile);
@@ -119,6 +150,22 @@ public class StepBasedDirXmiWriter extends AbstractStepBasedDirWriter {
         }
     }
 
+    @Override
+    public void collectionProcessComplete() throws AnalysisEngineProcessException {
+        if (asyncWriter != null) {
+            asyncWriter.flush();
+        }
+        super.collectionProcessComplete();
+    }
+
+    @Override
+    public void destroy() {
+        if (asyncWriter != null) {
+            asyncWriter.shutdown();
+        }
+        super.destroy();
+    }
+
     /**
      * Serialize a CAS to a file in XMI format
      *
@@ -129,11 +176,11 @@ public class StepBasedDirXmiWriter extends AbstractStepBasedDirWriter {
      * @throws org.apache.uima.resource.ResourceProcessException
      */
     private void writeXmi(CAS aCas, File xmiFile) throws IOException, SAXException {
-        FileOutputStream out = null;
+        OutputStream out = null;
 
         try {
             // write XMI
-            out = new FileOutputStream(xmiFile);
+            out = new BufferedOutputStream(new FileOutputStream(xmiFile));
             XmiCasSerializer ser = new XmiCasSerializer(aCas.getTypeSystem());
             XMLSerializer xmlSer = new XMLSerializer(out, false);
             ser.serialize(aCas, xmlSer.getContentHandler());
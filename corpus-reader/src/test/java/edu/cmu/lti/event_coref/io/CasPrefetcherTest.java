@@ -0,0 +1,166 @@
+package edu.cmu.lti.event_coref.io;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Documents must come out of the prefetcher as they come out of a direct read, with all their views,
+ * and a loader must find the views the pipeline created in the CAS it loads into.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class CasPrefetcherTest {
+    private static final String inputViewName = "Input";
+
+    private static final String otherViewName = "Other";
+
+    private static final int numDocuments = 5;
+
+    private final TypeSystemDescription typeSystem = new TypeSystemDescription_impl();
+
+    private final List<File> files = new ArrayList<File>();
+
+    @Before
+    public void writeDocuments() throws Exception {
+        CAS cas = CasCreationUtils.createCas(typeSystem, null, null);
+        for (int i = 0; i < numDocuments; i++) {
+            cas.reset();
+            cas.setDocumentText("Document " + i + " was read.");
+            cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 0, 8));
+            CAS other = cas.createView(otherViewName);
+            other.setDocumentText("Other view of document " + i);
+            other.addFsToIndexes(other.createAnnotation(other.getAnnotationType(), 6, 10));
+
+            File file = File.createTempFile("prefetch-" + i + "-", ".xmi");
+            OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                XmiCasSerializer.serialize(cas, outputStream);
+            } finally {
+                outputStream.close();
+            }
+            files.add(file);
+        }
+    }
+
+    @After
+    public void deleteDocuments() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    /**
+     * @return the text and the annotations of each view that has a text, by view name
+     */
+    private static Map<String, List<String>> describe(CAS aCAS) {
+        Map<String, List<String>> views = new TreeMap<String, List<String>>();
+        Iterator<CAS> viewIter = aCAS.getViewIterator();
+        while (viewIter.hasNext()) {
+            CAS view = viewIter.next();
+            if (view.getDocumentText() == null) {
+                continue;
+            }
+            List<String> contents = new ArrayList<String>();
+            contents.add(view.getDocumentText());
+            FSIterator<AnnotationFS> annotations = view.getAnnotationIndex().iterator();
+            while (annotations.hasNext()) {
+                AnnotationFS annotation = annotations.next();
+                contents.add(annotation.getType().getName() + " " + annotation.getBegin() + " "
+                        + annotation.getEnd());
+            }
+            views.put(view.getViewName(), contents);
+        }
+        return views;
+    }
+
+    /**
+     * Read all files directly and through a prefetcher into CASes that have the given views before
+     * loading, and check that they give the same documents.
+     *
+     * @return the documents read directly
+     */
+    private List<Map<String, List<String>>> checkPrefetchedMatchDirect(CasPrefetcher.Loader loader,
+                                                                      String... pipelineViews) throws Exception {
+        List<Map<String, List<String>>> direct = new ArrayList<Map<String, List<String>>>();
+        for (File file : files) {
+            CAS cas = CasCreationUtils.createCas(typeSystem, null, null);
+            for (String viewName : pipelineViews) {
+                cas.createView(viewName);
+            }
+            loader.load(file, cas);
+            direct.add(describe(cas));
+        }
+
+        CAS cas = CasCreationUtils.createCas(typeSystem, null, null);
+        for (String viewName : pipelineViews) {
+            cas.createView(viewName);
+        }
+        CasPrefetcher prefetcher = new CasPrefetcher(files, 0, cas, null, 2, 2, loader);
+        try {
+            for (int i = 0; i < numDocuments; i++) {
+                cas.reset();
+                for (String viewName : pipelineViews) {
+                    cas.createView(viewName);
+                }
+                prefetcher.next(cas);
+                assertEquals(files.get(i).getName(), direct.get(i), describe(cas));
+            }
+        } finally {
+            prefetcher.shutdown();
+        }
+        return direct;
+    }
+
+    @Test
+    public void multiViewDocumentsMatchDirectReads() throws Exception {
+        List<Map<String, List<String>>> direct = checkPrefetchedMatchDirect(new CasPrefetcher.Loader() {
+            @Override
+            public void load(File file, CAS aCAS) throws Exception {
+                InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+                try {
+                    XmiCasDeserializer.deserialize(inputStream, aCAS);
+                } finally {
+                    inputStream.close();
+                }
+            }
+        });
+
+        for (Map<String, List<String>> document : direct) {
+            assertEquals(new HashSet<String>(Arrays.asList(CAS.NAME_DEFAULT_SOFA, otherViewName)),
+                    document.keySet());
+            // the text and one annotation besides the document annotation
+            assertEquals(3, document.get(otherViewName).size());
+        }
+    }
+
+    @Test
+    public void loaderGetsViewsOfThePipeline() throws Exception {
+        List<Map<String, List<String>>> direct = checkPrefetchedMatchDirect(new CasPrefetcher.Loader() {
+            @Override
+            public void load(File file, CAS aCAS) throws Exception {
+                // as the readers with an input view
+                aCAS.getView(inputViewName).setDocumentText(FileUtils.file2String(file, "UTF-8"));
+            }
+        }, inputViewName);
+
+        for (int i = 0; i < numDocuments; i++) {
+            assertEquals(FileUtils.file2String(files.get(i), "UTF-8"),
+                    direct.get(i).get(inputViewName).get(0));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package edu.cmu.lti.event_coref.benchmarks;
+
+import edu.cmu.lti.event_coref.type.PairwiseEventCoreferenceEvaluation;
+import edu.cmu.lti.event_coref.utils.eval.CorefChecker;
+import edu.cmu.lti.event_coref.utils.ml.FeatureImputator;
+import edu.cmu.lti.event_coref.utils.ml.PairwiseFeatureMatrix;
+import edu.cmu.lti.event_coref.utils.ml.WekaClassifierWrapper;
+import edu.cmu.lti.event_coref.utils.ml.WekaFeatureFactory;
+import edu.cmu.lti.event_coref.utils.ml.WekaRandomForestWrapper;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.javatuples.Triplet;
+import org.openjdk.jmh.annotations.*;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time the steps from the features of a pair to its score, as in WekaArffBasedClassifier: the
+ * imputation of the missing features, the Weka instances, and the class distributions of a random
+ * forest. The forest is trained on the features of one synthetic document and scores a fixed sample
+ * of the pairs of another, so the scores are per pair.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeatureScoringBenchmark {
+    private static final int numPairs = 1024;
+
+    private static final long seed = 17;
+
+    private static final int vocabularySize = 10000;
+
+    private static final int defaultWeight = 1;
+
+    @Param({"50"})
+    public int numMentions;
+
+    @Param({"15"})
+    public int numClusters;
+
+    private Map<String, Triplet<Integer, Boolean, String>> featureInfoMap;
+
+    private List<Map<String, Double>> trainingFeatures;
+
+    // features of the sampled pairs, without imputation
+    private List<Map<String, Double>> pairFeatures;
+
+    // imputed with zeros as in the pipeline
+    private List<Map<String, Double>> imputedFeatures;
+
+    private WekaFeatureFactory scoringFactory;
+
+    private Instances instances;
+
+    private WekaClassifierWrapper wrapper;
+
+    private Classifier wekaClassifier;
+
+    @Setup
+    public void setUp() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(seed, vocabularySize);
+        AnalysisEngine featureEngine = corpus.createFeatureEngine(1);
+        JCas trainingJCas = corpus.createDocument(numMentions, numClusters);
+        JCas testJCas = corpus.createDocument(numMentions, numClusters);
+        for (JCas aJCas : Arrays.asList(trainingJCas, testJCas)) {
+            corpus.annotatePairs(aJCas);
+            featureEngine.process(aJCas);
+        }
+        featureEngine.destroy();
+
+        PairwiseFeatureMatrix trainingMatrix = PairwiseFeatureMatrix.load(trainingJCas);
+        PairwiseFeatureMatrix testMatrix = PairwiseFeatureMatrix.load(testJCas);
+        featureInfoMap = new LinkedHashMap<String, Triplet<Integer, Boolean, String>>();
+        SyntheticCorpus.addFeatureInfo(featureInfoMap, trainingMatrix);
+        SyntheticCorpus.addFeatureInfo(featureInfoMap, testMatrix);
+
+        // labeled like the instances of the feature writer
+        WekaFeatureFactory trainingFactory = new WekaFeatureFactory(featureInfoMap);
+        trainingFeatures = new ArrayList<Map<String, Double>>();
+        for (PairwiseEventCoreferenceEvaluation pece : JCasUtil.select(trainingJCas,
+                PairwiseEventCoreferenceEvaluation.class)) {
+            Map<String, Double> features = trainingMatrix.getFeatureMap(pece);
+            trainingFeatures.add(features);
+            trainingFactory.addInstance(features, CorefChecker.isFullGolden(pece), defaultWeight);
+        }
+        wrapper = new WekaRandomForestWrapper(trainingFactory.getDataset(), false, 5, false, seed, 1);
+        wekaClassifier = wrapper.getClassifier();
+
+        List<PairwiseEventCoreferenceEvaluation> peces = new ArrayList<PairwiseEventCoreferenceEvaluation>(
+                JCasUtil.select(testJCas, PairwiseEventCoreferenceEvaluation.class));
+        Random random = new Random(seed);
+        pairFeatures = new ArrayList<Map<String, Double>>(numPairs);
+        for (int i = 0; i < numPairs; i++) {
+            pairFeatures.add(testMatrix.getFeatureMap(peces.get(random.nextInt(peces.size()))));
+        }
+
+        FeatureImputator zeroImputator = new FeatureImputator(1, featureInfoMap);
+        imputedFeatures = new ArrayList<Map<String, Double>>(numPairs);
+        for (Map<String, Double> features : pairFeatures) {
+            imputedFeatures.add(zeroImputator.imputeOne(features, featureInfoMap.keySet()));
+        }
+        scoringFactory = new WekaFeatureFactory(featureInfoMap);
+        instances = scoringFactory.createUnlabeledInstances(imputedFeatures, defaultWeight);
+    }
+
+    /**
+     * The imputation of the test features, the averages of method 2 come from the training features.
+     */
+    @State(Scope.Benchmark)
+    public static class Imputation {
+        @Param({"0", "1", "2"})
+        public int imputationMethod;
+
+        private FeatureImputator imputator;
+
+        // instances are added to its dataset, so it is new for each iteration
+        private WekaFeatureFactory factory;
+
+        @Setup
+        public void setUp(FeatureScoringBenchmark data) {
+            imputator = new FeatureImputator(imputationMethod, data.featureInfoMap);
+            imputator.imputeAll(data.trainingFeatures);
+        }
+
+        @Setup(Level.Iteration)
+        public void createFactory(FeatureScoringBenchmark data) {
+            factory = new WekaFeatureFactory(data.featureInfoMap);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public int imputeOne(Imputation imputation) {
+        Set<String> featureNames = featureInfoMap.keySet();
+        int numFeatures = 0;
+        for (Map<String, Double> features : pairFeatures) {
+            numFeatures += imputation.imputator.imputeOne(features, featureNames).size();
+        }
+        return numFeatures;
+    }
+
+    /**
+     * The instances of the pairs one by one, as the classifier created them before the batch scoring.
+     */
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double imputeOneAndCreateInstance(Imputation imputation) {
+        Set<String> featureNames = featureInfoMap.keySet();
+        double sum = 0;
+        for (Map<String, Double> features : pairFeatures) {
+            sum += imputation.factory.createInstance(imputation.imputator.imputeOne(features, featureNames),
+                    defaultWeight).weight();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public Instances createUnlabeledInstances() {
+        return scoringFactory.createUnlabeledInstances(imputedFeatures, defaultWeight);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double[][] wrapperClassDistributions() throws Exception {
+        return wrapper.getClassDistributions(instances);
+    }
+
+    /**
+     * The Weka model itself, what the wrapper computes without its compiled forest.
+     */
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double wekaClassDistributions() throws Exception {
+        double sum = 0;
+        for (int i = 0; i < instances.numInstances(); i++) {
+            sum += wekaClassifier.distributionForInstance(instances.instance(i))[1];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,118 @@
+package edu.cmu.lti.event_coref.benchmarks;
+
+import edu.cmu.lti.event_coref.analysis_engine.features.FullCoreferencePairwiseFeatureAnnotator;
+import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
+import edu.cmu.lti.event_coref.model.EventMentionPairIndex;
+import edu.cmu.lti.event_coref.model.EventMentionTable;
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.type.PairwiseEventCoreferenceEvaluation;
+import edu.cmu.lti.event_coref.utils.SimilarityCalculator;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time each feature generator of {@link FullCoreferencePairwiseFeatureAnnotator} on a synthetic
+ * document, with the pair containers and surface similarities of the steps before it. The
+ * generators are created as in the annotator, and the features are created for a fixed sample of the
+ * pairs, so the scores are per pair. The similarity calculator keeps its caches between
+ * invocations, as it does between the documents of a run.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PairwiseFeatureGeneratorBenchmark {
+    private static final int numPairs = 1024;
+
+    private static final long seed = 17;
+
+    // the Senna scores of the surface similarity are not timed here
+    private static final int vocabularySize = 10000;
+
+    @Param({"EventSurfaceStringFeatures", "TitleFeatures", "EventDistanceFeatures",
+            "EventSyntaticDependencyFeatures", "AgentPatientFeatures", "LocationFeatures", "ModifierFeatures",
+            "WordFormFeatures", "SemaforFeatures", "EventStrictStringFeatures", "EventSemanticFeature",
+            "EntityOfEventFeatures", "SemaforRoleFeatures"})
+    public String generatorName;
+
+    @Param({"50"})
+    public int numMentions;
+
+    @Param({"15"})
+    public int numClusters;
+
+    private JCas aJCas;
+
+    private EventMentionPairIndex pairIndex;
+
+    private PairwiseFeatureGenerator generator;
+
+    private EventMention[] events1;
+
+    private EventMention[] events2;
+
+    @Setup
+    public void setUp() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(seed, vocabularySize);
+        aJCas = corpus.createDocument(numMentions, numClusters);
+        corpus.annotatePairs(aJCas);
+
+        EventMentionTable sTable = new EventMentionTable(aJCas);
+        pairIndex = new EventMentionPairIndex(aJCas);
+        // the low confidence annotators of FullCoreferencePairwiseFeatureAnnotator
+        Set<String> lowConfidentAnnotatorNames = new HashSet<String>(Arrays.asList("System-APL-similar-slots"));
+        List<PairwiseFeatureGenerator> generators = FullCoreferencePairwiseFeatureAnnotator.createFeatureGenerators(
+                aJCas, sTable, pairIndex, new SimilarityCalculator(), lowConfidentAnnotatorNames);
+        for (PairwiseFeatureGenerator candidate : generators) {
+            if (candidate.getClass().getSimpleName().equals(generatorName)) {
+                generator = candidate;
+            }
+        }
+        if (generator == null) {
+            throw new IllegalArgumentException("No feature generator named " + generatorName);
+        }
+        generator.prepare(aJCas, pairIndex);
+
+        List<PairwiseEventCoreferenceEvaluation> peces = new ArrayList<PairwiseEventCoreferenceEvaluation>(
+                JCasUtil.select(aJCas, PairwiseEventCoreferenceEvaluation.class));
+        Random random = new Random(seed);
+        events1 = new EventMention[numPairs];
+        events2 = new EventMention[numPairs];
+        for (int i = 0; i < numPairs; i++) {
+            PairwiseEventCoreferenceEvaluation pece = peces.get(random.nextInt(peces.size()));
+            events1[i] = pece.getEventMentionI();
+            events2[i] = pece.getEventMentionJ();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public int createFeatures() {
+        int numFeatures = 0;
+        for (int i = 0; i < numPairs; i++) {
+            numFeatures += generator.createFeatures(aJCas, events1[i], events2[i]).size();
+        }
+        return numFeatures;
+    }
+
+    /**
+     * The per document work of the generator, done once before the pairs.
+     */
+    @Benchmark
+    public void prepare() {
+        generator.prepare(aJCas, pairIndex);
+    }
+}
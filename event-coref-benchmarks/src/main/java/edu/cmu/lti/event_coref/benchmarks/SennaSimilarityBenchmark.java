@@ -0,0 +1,104 @@
+package edu.cmu.lti.event_coref.benchmarks;
+
+import edu.cmu.lti.event_coref.utils.SennaWordSimilarityCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time {@link SennaWordSimilarityCalculator#getCosineSimilarity(String, String)} on synthetic
+ * embeddings, read from the text format into the heap or memory-mapped from the binary store. A
+ * part of the pairs has a word that is not in the vocabulary, like the lemmas of real mentions.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SennaSimilarityBenchmark {
+    private static final int numPairs = 1024;
+
+    // one pair in this many has an unknown word
+    private static final int unknownWordRate = 16;
+
+    @Param({"130000"})
+    public int vocabularySize;
+
+    @Param({"50"})
+    public int dimension;
+
+    @Param({"text", "binary"})
+    public String store;
+
+    private File workingDir;
+
+    private SennaWordSimilarityCalculator calculator;
+
+    private String[] words1;
+
+    private String[] words2;
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(17);
+        Map<String, float[]> wordVectors = new LinkedHashMap<String, float[]>();
+        while (wordVectors.size() < vocabularySize) {
+            wordVectors.put(SyntheticData.randomWord(random), SyntheticData.randomVector(random, dimension));
+        }
+
+        workingDir = Files.createTempDirectory("senna_benchmark").toFile();
+        File textEmbeddings = new File(workingDir, "embeddings.txt");
+        File textWords = new File(workingDir, "words.lst");
+        SyntheticData.writeSennaText(textEmbeddings, textWords, wordVectors);
+        calculator = new SennaWordSimilarityCalculator(textEmbeddings.getPath(), textWords.getPath());
+        if (store.equals("binary")) {
+            File binaryEmbeddings = new File(workingDir, "embeddings.bin");
+            File binaryWords = new File(workingDir, "words.bin.lst");
+            calculator.writeBinary(binaryEmbeddings.getPath(), binaryWords.getPath());
+            calculator = new SennaWordSimilarityCalculator(binaryEmbeddings.getPath(), binaryWords.getPath());
+        } else if (!store.equals("text")) {
+            throw new IllegalArgumentException("Unknown Senna store " + store);
+        }
+
+        List<String> vocabulary = new ArrayList<String>(wordVectors.keySet());
+        words1 = new String[numPairs];
+        words2 = new String[numPairs];
+        for (int i = 0; i < numPairs; i++) {
+            words1[i] = vocabulary.get(random.nextInt(vocabulary.size()));
+            // the synthetic vocabulary only has letters
+            words2[i] = random.nextInt(unknownWordRate) == 0 ? "unknown" + i
+                    : vocabulary.get(random.nextInt(vocabulary.size()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = workingDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        workingDir.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double cosineSimilarity() {
+        double sum = 0;
+        for (int i = 0; i < numPairs; i++) {
+            sum += calculator.getCosineSimilarity(words1[i], words2[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,259 @@
+package edu.cmu.lti.event_coref.benchmarks;
+
+import edu.cmu.lti.event_coref.utils.SimilarityCalculator;
+import edu.cmu.lti.event_coref.utils.SimilarityKernels;
+import edu.cmu.lti.event_coref.utils.SimilarityKernels.BigramProfile;
+import net.ricecode.similarity.DiceCoefficientStrategy;
+import net.ricecode.similarity.StringSimilarityServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the similarity kernels with the implementations they replace: the Dice strategy of
+ * net.ricecode.similarity and the cosine loop over a float buffer. Each invocation scores all the
+ * pairs of a fixed synthetic sample, so the scores are per pair. The setup checks that the kernels
+ * give the same Dice scores as the strategy on the sample.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimilarityKernelsBenchmark {
+    private static final int numPairs = 1024;
+
+    // Senna embeddings have 50 dimensions
+    @Param({"50"})
+    public int dimension;
+
+    @Param({"10000"})
+    public int vocabularySize;
+
+    private String[] words1;
+
+    private String[] words2;
+
+    private BigramProfile[] profiles1;
+
+    private BigramProfile[] profiles2;
+
+    private StringSimilarityServiceImpl riceDice;
+
+    private SimilarityCalculator calculator;
+
+    private int[] rows1;
+
+    private int[] rows2;
+
+    private float[] norms;
+
+    private FloatBuffer heapVectors;
+
+    // big endian like the memory-mapped binary store
+    private FloatBuffer directVectors;
+
+    private float[][] normalizedVectors;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(17);
+        words1 = new String[numPairs];
+        words2 = new String[numPairs];
+        profiles1 = new BigramProfile[numPairs];
+        profiles2 = new BigramProfile[numPairs];
+        for (int i = 0; i < numPairs; i++) {
+            words1[i] = SyntheticData.randomWord(random);
+            // a part of the pairs share a stem, like inflections of one lemma
+            words2[i] = random.nextInt(3) == 0 ? words1[i] + "ed" : SyntheticData.randomWord(random);
+            profiles1[i] = SimilarityKernels.profile(words1[i]);
+            profiles2[i] = SimilarityKernels.profile(words2[i]);
+        }
+        riceDice = new StringSimilarityServiceImpl(new DiceCoefficientStrategy());
+        calculator = new SimilarityCalculator(true);
+
+        for (int i = 0; i < numPairs; i++) {
+            checkSame(riceDice.score(words1[i], words2[i]), SimilarityKernels.dice(words1[i], words2[i]), i);
+            checkSame(riceRelaxedDice(words1[i], words2[i]), calculator.relaxedDiceTest(words1[i], words2[i]), i);
+        }
+
+        float[] matrix = new float[vocabularySize * dimension];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = (float) random.nextGaussian();
+        }
+        norms = new float[vocabularySize];
+        normalizedVectors = new float[vocabularySize][];
+        for (int row = 0; row < vocabularySize; row++) {
+            float[] vector = new float[dimension];
+            System.arraycopy(matrix, row * dimension, vector, 0, dimension);
+            norms[row] = (float) Math.sqrt(SimilarityKernels.dot(vector, 0, vector, 0, dimension));
+            normalizedVectors[row] = SimilarityKernels.normalize(vector);
+        }
+        heapVectors = FloatBuffer.wrap(matrix);
+        directVectors = ByteBuffer.allocateDirect(4 * matrix.length).order(ByteOrder.BIG_ENDIAN).asFloatBuffer();
+        directVectors.put(matrix);
+        directVectors.rewind();
+
+        rows1 = new int[numPairs];
+        rows2 = new int[numPairs];
+        for (int i = 0; i < numPairs; i++) {
+            rows1[i] = random.nextInt(vocabularySize);
+            rows2[i] = random.nextInt(vocabularySize);
+        }
+    }
+
+    private static void checkSame(double expected, double actual, int pair) {
+        if (Math.abs(expected - actual) > 1e-12) {
+            throw new IllegalStateException(String.format("Pair %d scores %f instead of %f", pair, actual, expected));
+        }
+    }
+
+    // the relaxed Dice as it was computed with the strategy
+    private double riceRelaxedDice(String str1, String str2) {
+        str1 = str1.toLowerCase();
+        str2 = str2.toLowerCase();
+        int len1 = str1.length();
+        int len2 = str2.length();
+        int n = Math.min(len1, len2);
+        double suffix = riceDice.score(str1.substring(len1 - n, len1), str2.substring(len2 - n, len2));
+        double full = riceDice.score(str1, str2);
+        double prefix = riceDice.score(str1.substring(0, n), str2.substring(0, n));
+        return Math.max(suffix, Math.max(full, prefix));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double diceStrategy() {
+        double sum = 0;
+        for (int i = 0; i < numPairs; i++) {
+            sum += riceDice.score(words1[i], words2[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double diceKernel() {
+        double sum = 0;
+        for (int i = 0; i < numPairs; i++) {
+            sum += SimilarityKernels.dice(words1[i], words2[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double diceKernelPrecomputedProfiles() {
+        double sum = 0;
+        for (int i = 0; i < numPairs; i++) {
+            sum += SimilarityKernels.dice(profiles1[i], profiles2[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double diceCalculator() {
+        double sum = 0;
+        for (int i = 0; i < numPairs; i++) {
+            sum += calculator.getDiceCoefficient(words1[i], words2[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double relaxedDiceStrategy() {
+        double sum = 0;
+        for (int i = 0; i < numPairs; i++) {
+            sum += riceRelaxedDice(words1[i], words2[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double relaxedDiceKernel() {
+        double sum = 0;
+        for (int i = 0; i < numPairs; i++) {
+            sum += calculator.relaxedDiceTest(words1[i], words2[i]);
+        }
+        return sum;
+    }
+
+    // the loop of SennaWordSimilarityCalculator before the kernels, it multiplies in float where the
+    // kernels widen to double first, so the cosines can differ in the last bits
+    private double bufferLoopCosine(FloatBuffer vectors, int row1, int row2) {
+        int offset1 = row1 * dimension;
+        int offset2 = row2 * dimension;
+        double dotProd = 0.0;
+        for (int i = 0; i < dimension; i++) {
+            dotProd += vectors.get(offset1 + i) * vectors.get(offset2 + i);
+        }
+        return dotProd / ((double) norms[row1] * norms[row2]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double cosineBufferLoopHeap() {
+        double sum = 0;
+        for (int i = 0; i < numPairs; i++) {
+            sum += bufferLoopCosine(heapVectors, rows1[i], rows2[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double cosineBufferLoopDirect() {
+        double sum = 0;
+        for (int i = 0; i < numPairs; i++) {
+            sum += bufferLoopCosine(directVectors, rows1[i], rows2[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double cosineKernelArray() {
+        float[] array = heapVectors.array();
+        double sum = 0;
+        for (int i = 0; i < numPairs; i++) {
+            int row1 = rows1[i];
+            int row2 = rows2[i];
+            sum += SimilarityKernels.dot(array, row1 * dimension, array, row2 * dimension, dimension)
+                    / ((double) norms[row1] * norms[row2]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double cosineKernelDirect() {
+        double sum = 0;
+        for (int i = 0; i < numPairs; i++) {
+            int row1 = rows1[i];
+            int row2 = rows2[i];
+            sum += SimilarityKernels.dot(directVectors, row1 * dimension, row2 * dimension, dimension)
+                    / ((double) norms[row1] * norms[row2]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(numPairs)
+    public double cosineKernelNormalized() {
+        double sum = 0;
+        for (int i = 0; i < numPairs; i++) {
+            sum += SimilarityKernels.cosineOfNormalized(normalizedVectors[rows1[i]], normalizedVectors[rows2[i]]);
+        }
+        return sum;
+    }
+}
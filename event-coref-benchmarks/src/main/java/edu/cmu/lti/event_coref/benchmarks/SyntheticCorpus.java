@@ -0,0 +1,229 @@
+package edu.cmu.lti.event_coref.benchmarks;
+
+import edu.cmu.lti.event_coref.DefaultConfigs;
+import edu.cmu.lti.event_coref.analysis_engine.features.FullCoreferencePairwiseFeatureAnnotator;
+import edu.cmu.lti.event_coref.analysis_engine.features.PairwiseEventFeatureContainerGenerator;
+import edu.cmu.lti.event_coref.analysis_engine.lexical.EventSurfaceSimilarityAnnotator;
+import edu.cmu.lti.event_coref.utils.ml.PairwiseFeatureMatrix;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.javatuples.Triplet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic documents and the resources to run the pairwise coreference engines on them: the type
+ * system, and Senna embeddings in a temporary directory where the synonym of an event verb is close
+ * to the verb, padded with random words to a realistic vocabulary size.
+ * <p/>
+ * The engines are configured as in EventCorefProcessor, except that the gold standard is read from
+ * the default view, where the generator puts it, and that WordNet is not used for the surface
+ * similarity.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class SyntheticCorpus {
+    public static final int sennaDimension = 50;
+
+    // the Senna vocabulary has 130,000 words
+    public static final int defaultVocabularySize = 130000;
+
+    // distance of a synonym from its verb in the embedding space, relative to the unit elements
+    private static final double synonymNoise = 0.5;
+
+    private final TypeSystemDescription typeSystemDescription;
+
+    private final SyntheticDocumentGenerator generator;
+
+    private final File workingDir;
+
+    private final File sennaEmbeddings;
+
+    private final File sennaWords;
+
+    // created on first use and kept for the following documents
+    private AnalysisEngine[] pairEngines;
+
+    public SyntheticCorpus(long seed) throws IOException, ResourceInitializationException {
+        this(seed, defaultVocabularySize);
+    }
+
+    /**
+     * @param seed           seed of the documents and the embeddings
+     * @param vocabularySize number of words of the Senna embeddings
+     * @throws IOException
+     * @throws ResourceInitializationException
+     */
+    public SyntheticCorpus(long seed, int vocabularySize) throws IOException, ResourceInitializationException {
+        typeSystemDescription = TypeSystemDescriptionFactory
+                .createTypeSystemDescription(DefaultConfigs.TypeSystemDescriptorName);
+        generator = new SyntheticDocumentGenerator(seed);
+
+        workingDir = Files.createTempDirectory("synthetic_corpus").toFile();
+        workingDir.deleteOnExit();
+        sennaEmbeddings = new File(workingDir, "embeddings.txt");
+        sennaWords = new File(workingDir, "words.lst");
+        sennaEmbeddings.deleteOnExit();
+        sennaWords.deleteOnExit();
+        SyntheticData.writeSennaText(sennaEmbeddings, sennaWords,
+                createSennaVectors(new Random(seed), vocabularySize));
+    }
+
+    private static Map<String, float[]> createSennaVectors(Random random, int vocabularySize) {
+        Map<String, float[]> wordVectors = new LinkedHashMap<String, float[]>();
+        List<String> eventLemmas = SyntheticDocumentGenerator.getEventLemmas();
+        for (int i = 0; i + 1 < eventLemmas.size(); i += 2) {
+            float[] verbVector = SyntheticData.randomVector(random, sennaDimension);
+            wordVectors.put(eventLemmas.get(i), verbVector);
+            wordVectors.put(eventLemmas.get(i + 1), SyntheticData.perturb(random, verbVector, synonymNoise));
+        }
+        while (wordVectors.size() < vocabularySize) {
+            String word = SyntheticData.randomWord(random);
+            if (!wordVectors.containsKey(word)) {
+                wordVectors.put(word, SyntheticData.randomVector(random, sennaDimension));
+            }
+        }
+        return wordVectors;
+    }
+
+    public TypeSystemDescription getTypeSystemDescription() {
+        return typeSystemDescription;
+    }
+
+    public String getSennaEmbeddingsPath() {
+        return sennaEmbeddings.getAbsolutePath();
+    }
+
+    public String getSennaWordsPath() {
+        return sennaWords.getAbsolutePath();
+    }
+
+    /**
+     * @return the directory of the files of the corpus, deleted on exit if it is left empty
+     */
+    public File getWorkingDir() {
+        return workingDir;
+    }
+
+    /**
+     * @param numMentions
+     * @param numClusters
+     * @return a new CAS holding the next synthetic document
+     * @throws UIMAException
+     */
+    public JCas createDocument(int numMentions, int numClusters) throws UIMAException {
+        JCas aJCas = JCasFactory.createJCas(typeSystemDescription);
+        generator.fill(aJCas, numMentions, numClusters);
+        return aJCas;
+    }
+
+    /**
+     * Reset the CAS and fill it with the next synthetic document, so that a run can reuse one CAS.
+     *
+     * @param aJCas
+     * @param numMentions
+     * @param numClusters
+     */
+    public void fillDocument(JCas aJCas, int numMentions, int numClusters) {
+        aJCas.reset();
+        generator.fill(aJCas, numMentions, numClusters);
+    }
+
+    /**
+     * Create the pair containers of the document and score their surface similarity, as the steps
+     * before the features in EventCorefProcessor.
+     *
+     * @param aJCas
+     * @throws UIMAException
+     */
+    public void annotatePairs(JCas aJCas) throws UIMAException {
+        if (pairEngines == null) {
+            pairEngines = new AnalysisEngine[]{createPairContainerEngine(), createSurfaceSimilarityEngine()};
+        }
+        for (AnalysisEngine engine : pairEngines) {
+            engine.process(aJCas);
+        }
+    }
+
+    /**
+     * Add the feature columns of a matrix that are not in the map yet, numbered after the existing
+     * features like the lines of a feature names file.
+     *
+     * @param featureInfoMap
+     * @param featureMatrix
+     */
+    public static void addFeatureInfo(Map<String, Triplet<Integer, Boolean, String>> featureInfoMap,
+                                      PairwiseFeatureMatrix featureMatrix) {
+        for (int column = 0; column < featureMatrix.getNumColumns(); column++) {
+            String featureName = featureMatrix.getFeatureName(column);
+            if (!featureInfoMap.containsKey(featureName)) {
+                featureInfoMap.put(featureName, new Triplet<Integer, Boolean, String>(featureInfoMap.size() + 1,
+                        featureMatrix.isDefaultZero(column), featureMatrix.getFeatureType(column)));
+            }
+        }
+    }
+
+    /**
+     * @return the engine creating the pair containers of all pairs, with their gold relations
+     * @throws ResourceInitializationException
+     */
+    public AnalysisEngine createPairContainerEngine() throws ResourceInitializationException {
+        return AnalysisEngineFactory.createEngine(createPairContainerEngineDescription());
+    }
+
+    public AnalysisEngineDescription createPairContainerEngineDescription() throws ResourceInitializationException {
+        return AnalysisEngineFactory.createEngineDescription(
+                PairwiseEventFeatureContainerGenerator.class, typeSystemDescription,
+                PairwiseEventFeatureContainerGenerator.PARAM_GOLD_STANDARD_VIEWNAME, CAS.NAME_DEFAULT_SOFA);
+    }
+
+    /**
+     * @return the engine scoring the surface similarity of the pairs of the containers
+     * @throws ResourceInitializationException
+     */
+    public AnalysisEngine createSurfaceSimilarityEngine() throws ResourceInitializationException {
+        return AnalysisEngineFactory.createEngine(createSurfaceSimilarityEngineDescription());
+    }
+
+    public AnalysisEngineDescription createSurfaceSimilarityEngineDescription()
+            throws ResourceInitializationException {
+        return AnalysisEngineFactory.createEngineDescription(
+                EventSurfaceSimilarityAnnotator.class, typeSystemDescription,
+                EventSurfaceSimilarityAnnotator.PARAM_SENNA_EMBEDDINGS, getSennaEmbeddingsPath(),
+                EventSurfaceSimilarityAnnotator.PARAM_SENNA_WORDLIST, getSennaWordsPath(),
+                EventSurfaceSimilarityAnnotator.PARAM_DO_WORDNET, false);
+    }
+
+    /**
+     * @param numThreads threads of the feature computation
+     * @return the engine adding the features of the pairs of the containers
+     * @throws ResourceInitializationException
+     */
+    public AnalysisEngine createFeatureEngine(int numThreads) throws ResourceInitializationException {
+        return AnalysisEngineFactory.createEngine(createFeatureEngineDescription(numThreads));
+    }
+
+    public AnalysisEngineDescription createFeatureEngineDescription(int numThreads)
+            throws ResourceInitializationException {
+        return AnalysisEngineFactory.createEngineDescription(
+                FullCoreferencePairwiseFeatureAnnotator.class, typeSystemDescription,
+                FullCoreferencePairwiseFeatureAnnotator.PARAM_DO_FILTERING, false,
+                FullCoreferencePairwiseFeatureAnnotator.PARAM_TARGET_COMPONENT_ID,
+                PairwiseEventFeatureContainerGenerator.ANNOTATOR_COMPONENT_ID,
+                FullCoreferencePairwiseFeatureAnnotator.PARAM_NUM_THREADS, numThreads);
+    }
+}
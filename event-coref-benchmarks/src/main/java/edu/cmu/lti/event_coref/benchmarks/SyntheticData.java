@@ -0,0 +1,82 @@
+package edu.cmu.lti.event_coref.benchmarks;
+
+import java.io.*;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic inputs of the benchmarks, generated from a seeded random.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class SyntheticData {
+    private static final String letters = "abcdefghijklmnopqrstuvwxyz";
+
+    /**
+     * @param random
+     * @return a lower case word of 3 to 12 letters
+     */
+    public static String randomWord(Random random) {
+        int length = 3 + random.nextInt(10);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        return word.toString();
+    }
+
+    /**
+     * @param random
+     * @param dimension
+     * @return a vector of standard Gaussian elements
+     */
+    public static float[] randomVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    /**
+     * @param random
+     * @param vector
+     * @param noise  standard deviation of the noise added to each element
+     * @return a noisy copy of the vector, e.g. the embedding of a synonym
+     */
+    public static float[] perturb(Random random, float[] vector, double noise) {
+        float[] perturbed = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            perturbed[i] = (float) (vector[i] + noise * random.nextGaussian());
+        }
+        return perturbed;
+    }
+
+    /**
+     * Write embeddings in the text format of Senna: one line of space separated elements per word in
+     * the embeddings file, and the words in the same order in the words file.
+     *
+     * @param embeddingsFile
+     * @param wordsFile
+     * @param wordVectors
+     * @throws IOException
+     */
+    public static void writeSennaText(File embeddingsFile, File wordsFile, Map<String, float[]> wordVectors)
+            throws IOException {
+        PrintWriter embeddingsOut = new PrintWriter(new BufferedWriter(new FileWriter(embeddingsFile)));
+        PrintWriter wordsOut = new PrintWriter(new BufferedWriter(new FileWriter(wordsFile)));
+        for (Map.Entry<String, float[]> wordVector : wordVectors.entrySet()) {
+            wordsOut.println(wordVector.getKey());
+            StringBuilder line = new StringBuilder();
+            for (float element : wordVector.getValue()) {
+                if (line.length() > 0) {
+                    line.append(" ");
+                }
+                line.append(element);
+            }
+            embeddingsOut.println(line);
+        }
+        embeddingsOut.close();
+        wordsOut.close();
+    }
+}
@@ -0,0 +1,519 @@
+package edu.cmu.lti.event_coref.benchmarks;
+
+import edu.cmu.lti.event_coref.model.EventCorefConstants;
+import edu.cmu.lti.event_coref.type.*;
+import edu.cmu.lti.event_coref.utils.APLUtils;
+import edu.cmu.lti.event_coref.utils.EventCoreferenceConstants.EventType;
+import edu.cmu.lti.utils.uima.UimaConstants;
+import org.apache.uima.examples.SourceDocumentInformation;
+import org.apache.uima.fit.util.FSCollectionFactory;
+import org.apache.uima.jcas.JCas;
+
+import java.util.*;
+
+/**
+ * Generate synthetic documents directly as CASes, with the annotations that the pairwise
+ * coreference stages read from the parsers and the argument annotators, so that these stages can be
+ * measured without the external tools.
+ * <p/>
+ * Each sentence holds one event mention: "Agent verbed the (adjective) patient (in Location) .",
+ * with its words, tokens, dependencies, head word and frame, the Semafor frame of the verb with the
+ * head words of the arguments as frame elements, the agent, patient and location arguments with
+ * their entity mentions and entity clusters, and the gold standard cluster of the mention. The
+ * mentions of a cluster mostly share the verb and the arguments, some use a synonym or another
+ * argument, and different clusters may share a verb, so that the pairs are not trivially separable.
+ * The documents only depend on the seed and the order of the calls.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class SyntheticDocumentGenerator {
+    public static final String COMPONENT_ID = "System_" + SyntheticDocumentGenerator.class.getSimpleName();
+
+    // event verbs with a regular past tense, a synonym, the FrameNet frame of both, and the frame
+    // elements of the agent and the patient
+    private static final String[][] eventVerbs = {
+            {"attack", "raid", "Attack", "Assailant", "Victim"},
+            {"kill", "murder", "Killing", "Killer", "Victim"},
+            {"bomb", "blast", "Attack", "Assailant", "Victim"},
+            {"arrest", "detain", "Arrest", "Authorities", "Suspect"},
+            {"injure", "wound", "Cause_harm", "Agent", "Victim"},
+            {"capture", "seize", "Taking_captive", "Captor", "Captive"},
+            {"explode", "detonate", "Explosion", "Agent", "Explosive"},
+            {"charge", "accuse", "Notification_of_charges", "Arraign_authority", "Accused"},
+            {"convict", "sentence", "Verdict", "Judge", "Defendant"},
+            {"release", "free", "Releasing", "Captor", "Captive"},
+            {"visit", "tour", "Visiting", "Agent", "Entity"},
+            {"sign", "approve", "Sign_agreement", "Signatory", "Agreement"},
+            {"announce", "declare", "Statement", "Speaker", "Message"},
+            {"resign", "retire", "Quitting", "Employee", "Position"}};
+
+    private static final String placeFrameElement = "Place";
+
+    private static final String[] agentNames = {"Police", "Rebels", "Army", "Militants", "Government",
+            "Troops", "Protesters", "Officials", "Insurgents", "Guards"};
+
+    private static final String[] patientNouns = {"building", "convoy", "village", "suspect", "leader",
+            "soldier", "station", "embassy", "market", "bridge", "office", "minister", "hostage", "treaty",
+            "company"};
+
+    private static final String[] adjectives = {"small", "large", "main", "old", "new", "local", "central",
+            "northern"};
+
+    // city and its country
+    private static final String[][] locations = {{"Baghdad", "Iraq"}, {"Kabul", "Afghanistan"},
+            {"Cairo", "Egypt"}, {"Mumbai", "India"}, {"Lagos", "Nigeria"}, {"Lima", "Peru"},
+            {"Manila", "Philippines"}, {"Nairobi", "Kenya"}, {"Karachi", "Pakistan"}, {"Bogota", "Colombia"}};
+
+    // chance that a mention uses the synonym of the verb of its cluster
+    private static final double synonymRate = 0.25;
+
+    // chance that an argument of a mention is not the one of its cluster
+    private static final double argumentNoiseRate = 0.2;
+
+    private static final double negationRate = 0.05;
+
+    private static final double adjectiveRate = 0.5;
+
+    private static final double locationRate = 0.7;
+
+    private static final int sentencesPerParagraph = 4;
+
+    private final Random random;
+
+    private int numDocuments = 0;
+
+    /**
+     * What the mentions of one gold cluster share.
+     */
+    private static class ClusterPlan {
+        int verb;
+
+        int agent;
+
+        int patient;
+
+        int location;
+
+        int adjective;
+    }
+
+    private static class Token {
+        final String text;
+
+        final String pos;
+
+        final String lemma;
+
+        final int begin;
+
+        final int end;
+
+        Word word;
+
+        StanfordDependencyNode node;
+
+        final List<StanfordDependencyRelation> headRelations = new ArrayList<StanfordDependencyRelation>();
+
+        final List<StanfordDependencyRelation> childRelations = new ArrayList<StanfordDependencyRelation>();
+
+        Token(String text, String pos, String lemma, int begin) {
+            this.text = text;
+            this.pos = pos;
+            this.lemma = lemma;
+            this.begin = begin;
+            this.end = begin + text.length();
+        }
+    }
+
+    private static class SentencePlan {
+        final List<Token> tokens = new ArrayList<Token>();
+
+        int cluster;
+
+        int verb;
+
+        Token agent;
+
+        Token negation;
+
+        Token auxiliary;
+
+        Token event;
+
+        Token determiner;
+
+        Token adjective;
+
+        Token patient;
+
+        Token location;
+
+        int agentEntity;
+
+        int patientEntity;
+
+        int locationEntity;
+    }
+
+    public SyntheticDocumentGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * @return the lemmas of all the event verbs that can be generated, each verb followed by its synonym
+     */
+    public static List<String> getEventLemmas() {
+        List<String> lemmas = new ArrayList<String>();
+        for (String[] verb : eventVerbs) {
+            lemmas.add(verb[0]);
+            lemmas.add(verb[1]);
+        }
+        return lemmas;
+    }
+
+    /**
+     * Generate the next document into an empty CAS.
+     *
+     * @param aJCas
+     * @param numMentions number of event mentions, one per sentence
+     * @param numClusters number of gold clusters the mentions are spread over, each has at least one
+     */
+    public void fill(JCas aJCas, int numMentions, int numClusters) {
+        if (numClusters < 1 || numClusters > numMentions) {
+            throw new IllegalArgumentException(String.format("Cannot spread %d mentions over %d clusters",
+                    numMentions, numClusters));
+        }
+        numDocuments++;
+
+        ClusterPlan[] clusters = new ClusterPlan[numClusters];
+        for (int c = 0; c < numClusters; c++) {
+            ClusterPlan cluster = new ClusterPlan();
+            cluster.verb = random.nextInt(eventVerbs.length);
+            cluster.agent = random.nextInt(agentNames.length);
+            cluster.patient = random.nextInt(patientNouns.length);
+            cluster.location = random.nextInt(locations.length);
+            cluster.adjective = random.nextInt(adjectives.length);
+            clusters[c] = cluster;
+        }
+
+        // every cluster gets a mention, the others go to random clusters, in random order
+        List<Integer> clusterOfMention = new ArrayList<Integer>(numMentions);
+        for (int i = 0; i < numMentions; i++) {
+            clusterOfMention.add(i < numClusters ? i : random.nextInt(numClusters));
+        }
+        Collections.shuffle(clusterOfMention, random);
+
+        StringBuilder text = new StringBuilder();
+        List<SentencePlan> sentences = new ArrayList<SentencePlan>(numMentions);
+        for (int cluster : clusterOfMention) {
+            if (text.length() > 0) {
+                text.append("\n");
+            }
+            sentences.add(planSentence(clusters[cluster], cluster, text));
+        }
+        aJCas.setDocumentText(text.toString());
+
+        SourceDocumentInformation srcDocInfo = new SourceDocumentInformation(aJCas);
+        srcDocInfo.setUri(String.format("synthetic_%d_%d.txt", numDocuments, numMentions));
+        srcDocInfo.setOffsetInSource(0);
+        srcDocInfo.setDocumentSize(text.length());
+        srcDocInfo.setLastSegment(true);
+        srcDocInfo.addToIndexes();
+
+        Map<String, List<EntityMention>> entityMentions = new LinkedHashMap<String, List<EntityMention>>();
+        List<List<EventMention>> clusterMentions = new ArrayList<List<EventMention>>(numClusters);
+        for (int c = 0; c < numClusters; c++) {
+            clusterMentions.add(new ArrayList<EventMention>());
+        }
+
+        for (int s = 0; s < sentences.size(); s++) {
+            SentencePlan sentence = sentences.get(s);
+            EventMention mention = annotateSentence(aJCas, sentence, s, entityMentions);
+            clusterMentions.get(sentence.cluster).add(mention);
+        }
+
+        for (int begin = 0; begin < sentences.size(); begin += sentencesPerParagraph) {
+            List<Token> firstTokens = sentences.get(begin).tokens;
+            List<Token> lastTokens = sentences.get(Math.min(begin + sentencesPerParagraph, sentences.size()) - 1).tokens;
+            Paragraph paragraph = new Paragraph(aJCas, firstTokens.get(0).begin,
+                    lastTokens.get(lastTokens.size() - 1).end);
+            paragraph.setParagraphId(String.valueOf(begin / sentencesPerParagraph + 1));
+            paragraph.setComponentId(COMPONENT_ID);
+            paragraph.addToIndexes();
+        }
+
+        int entityClusterId = 0;
+        for (List<EntityMention> mentions : entityMentions.values()) {
+            EntityCoreferenceCluster cluster = new EntityCoreferenceCluster(aJCas);
+            cluster.setClusterId(String.valueOf(entityClusterId++));
+            cluster.setClusterType(EventCorefConstants.ENTITY_FULL_COREFERENCE_TYPE);
+            cluster.setEntityMentions(FSCollectionFactory.createFSList(aJCas, mentions));
+            cluster.setComponentId(COMPONENT_ID);
+            cluster.addToIndexes();
+            for (EntityMention mention : mentions) {
+                mention.setEntityCoreferenceClusters(FSCollectionFactory.createFSList(aJCas,
+                        Collections.singletonList(cluster)));
+            }
+        }
+
+        // gold standard clusters only exist for more than one mention
+        for (int c = 0; c < numClusters; c++) {
+            List<EventMention> mentions = clusterMentions.get(c);
+            if (mentions.size() < 2) {
+                continue;
+            }
+            EventCoreferenceCluster cluster = new EventCoreferenceCluster(aJCas);
+            cluster.setClusterId(String.valueOf(c));
+            cluster.setClusterType(EventCorefConstants.FULL_COREFERENCE_TYPE);
+            cluster.setChildEventMentions(FSCollectionFactory.createFSList(aJCas, mentions));
+            cluster.setComponentId(UimaConstants.ComponentId.GOLD_STANDARD.toString());
+            cluster.addToIndexes();
+        }
+    }
+
+    private SentencePlan planSentence(ClusterPlan cluster, int clusterId, StringBuilder text) {
+        SentencePlan sentence = new SentencePlan();
+        sentence.cluster = clusterId;
+
+        sentence.agentEntity = random.nextDouble() < argumentNoiseRate ? random.nextInt(agentNames.length)
+                : cluster.agent;
+        sentence.patientEntity = random.nextDouble() < argumentNoiseRate ? random.nextInt(patientNouns.length)
+                : cluster.patient;
+        sentence.locationEntity = random.nextDouble() < argumentNoiseRate ? random.nextInt(locations.length)
+                : cluster.location;
+        sentence.verb = cluster.verb;
+        String lemma = eventVerbs[cluster.verb][random.nextDouble() < synonymRate ? 1 : 0];
+
+        String agent = agentNames[sentence.agentEntity];
+        sentence.agent = addToken(sentence, text, agent, "NNPS", agent);
+        if (random.nextDouble() < negationRate) {
+            sentence.auxiliary = addToken(sentence, text, "did", "VBD", "do");
+            sentence.negation = addToken(sentence, text, "not", "RB", "not");
+            sentence.event = addToken(sentence, text, lemma, "VB", lemma);
+        } else {
+            sentence.event = addToken(sentence, text, pastTense(lemma), "VBD", lemma);
+        }
+        sentence.determiner = addToken(sentence, text, "the", "DT", "the");
+        if (random.nextDouble() < adjectiveRate) {
+            String adjective = adjectives[cluster.adjective];
+            sentence.adjective = addToken(sentence, text, adjective, "JJ", adjective);
+        }
+        String patient = patientNouns[sentence.patientEntity];
+        sentence.patient = addToken(sentence, text, patient, "NN", patient);
+        if (random.nextDouble() < locationRate) {
+            addToken(sentence, text, "in", "IN", "in");
+            String location = locations[sentence.locationEntity][0];
+            sentence.location = addToken(sentence, text, location, "NNP", location);
+        }
+        addToken(sentence, text, ".", ".", ".");
+        return sentence;
+    }
+
+    private static String pastTense(String lemma) {
+        return lemma.endsWith("e") ? lemma + "d" : lemma + "ed";
+    }
+
+    private static Token addToken(SentencePlan sentence, StringBuilder text, String word, String pos, String lemma) {
+        if (!sentence.tokens.isEmpty()) {
+            text.append(" ");
+        }
+        Token token = new Token(word, pos, lemma, text.length());
+        text.append(word);
+        sentence.tokens.add(token);
+        return token;
+    }
+
+    private EventMention annotateSentence(JCas aJCas, SentencePlan plan, int sentenceIndex,
+                                          Map<String, List<EntityMention>> entityMentions) {
+        List<Token> tokens = plan.tokens;
+        Sentence sentence = new Sentence(aJCas, tokens.get(0).begin, tokens.get(tokens.size() - 1).end);
+        // the first sentence is the title
+        sentence.setSentenceId(String.valueOf(sentenceIndex + 1));
+        sentence.setParagraphId(String.valueOf(sentenceIndex / sentencesPerParagraph + 1));
+        sentence.setComponentId(COMPONENT_ID);
+        sentence.addToIndexes();
+
+        for (int t = 0; t < tokens.size(); t++) {
+            Token token = tokens.get(t);
+
+            Word word = new Word(aJCas, token.begin, token.end);
+            word.setWordId(String.format("%d_%d", sentenceIndex, t));
+            word.setLemma(token.lemma);
+            word.setMorpha(token.lemma);
+            word.setPartOfSpeech(token.pos);
+            word.setComponentId(COMPONENT_ID);
+            word.addToIndexes();
+            token.word = word;
+
+            StanfordCorenlpToken corenlpToken = new StanfordCorenlpToken(aJCas, token.begin, token.end);
+            corenlpToken.setTokenId(t);
+            corenlpToken.setPos(token.pos);
+            corenlpToken.setLemma(token.lemma);
+            corenlpToken.setComponentId(COMPONENT_ID);
+            corenlpToken.addToIndexes();
+
+            StanfordDependencyNode node = new StanfordDependencyNode(aJCas, token.begin, token.end);
+            node.setToken(corenlpToken);
+            node.setComponentId(COMPONENT_ID);
+            node.addToIndexes();
+            token.node = node;
+        }
+
+        addDependency(aJCas, plan.event, plan.agent, "nsubj");
+        if (plan.negation != null) {
+            addDependency(aJCas, plan.event, plan.auxiliary, "aux");
+            addDependency(aJCas, plan.event, plan.negation, "neg");
+        }
+        addDependency(aJCas, plan.event, plan.patient, "dobj");
+        addDependency(aJCas, plan.patient, plan.determiner, "det");
+        if (plan.adjective != null) {
+            addDependency(aJCas, plan.patient, plan.adjective, "amod");
+        }
+        if (plan.location != null) {
+            addDependency(aJCas, plan.event, plan.location, "prep_in");
+        }
+        for (Token token : tokens) {
+            token.node.setHeadRelations(FSCollectionFactory.createFSList(aJCas, token.headRelations));
+            token.node.setChildRelations(FSCollectionFactory.createFSList(aJCas, token.childRelations));
+        }
+
+        annotateFrame(aJCas, plan, sentence);
+
+        EventMention mention = new EventMention(aJCas, plan.event.begin, plan.event.end);
+        mention.setEventType(EventType.DOMAIN.toString());
+        mention.setHeadWord(plan.event.word);
+        mention.setFrameName(eventVerbs[plan.verb][2]);
+        mention.setGoldStandardEventMentionId(String.valueOf(sentenceIndex));
+        mention.setEventMentionIndex(sentenceIndex);
+        mention.setComponentId(COMPONENT_ID);
+        mention.addToIndexes();
+
+        List<EventMentionArgumentLink> arguments = new ArrayList<EventMentionArgumentLink>();
+
+        EntityBasedComponent agent = createComponent(aJCas, plan.agent, plan.agent, "agent:" + plan.agentEntity,
+                "ORG", entityMentions);
+        mention.setAgentLinks(FSCollectionFactory.createFSList(aJCas, Collections.singletonList(
+                APLUtils.createLink(aJCas, mention, agent, APLUtils.AGENT_LINK_TYPE, COMPONENT_ID))));
+        arguments.add(createArgument(aJCas, mention, agent, "Agent"));
+
+        EntityBasedComponent patient = createComponent(aJCas, plan.determiner, plan.patient,
+                "patient:" + plan.patientEntity, "OBJ", entityMentions);
+        mention.setPatientLinks(FSCollectionFactory.createFSList(aJCas, Collections.singletonList(
+                APLUtils.createLink(aJCas, mention, patient, APLUtils.PATIENT_LINK_TYPE, COMPONENT_ID))));
+        arguments.add(createArgument(aJCas, mention, patient, "Patient"));
+
+        ExtendedNPChunk chunk = new ExtendedNPChunk(aJCas, plan.determiner.begin, plan.patient.end);
+        chunk.setComponentId(COMPONENT_ID);
+        chunk.addToIndexes();
+
+        if (plan.location != null) {
+            String[] cityAndCountry = locations[plan.locationEntity];
+            Location location = new Location(aJCas, plan.location.begin, plan.location.end);
+            location.setHeadWord(plan.location.word);
+            location.setCity(cityAndCountry[0]);
+            location.setCountry(cityAndCountry[1]);
+            location.setNames(FSCollectionFactory.createStringList(aJCas, Arrays.asList(cityAndCountry)));
+            location.setContainingEntityMentions(FSCollectionFactory.createFSList(aJCas, Collections.singletonList(
+                    createEntityMention(aJCas, plan.location, "location:" + plan.locationEntity, "LOC",
+                            entityMentions))));
+            location.setComponentId(COMPONENT_ID);
+            location.addToIndexes();
+            mention.setLocationLinks(FSCollectionFactory.createFSList(aJCas, Collections.singletonList(
+                    APLUtils.createLink(aJCas, mention, location, APLUtils.LOCATION_LINK_TYPE, COMPONENT_ID))));
+            arguments.add(createArgument(aJCas, mention, location, "Location"));
+        }
+
+        mention.setArguments(FSCollectionFactory.createFSList(aJCas, arguments));
+        return mention;
+    }
+
+    // the frame as the Semafor annotator adds it, the frame elements only cover head words
+    private static void annotateFrame(JCas aJCas, SentencePlan plan, Sentence sentence) {
+        String[] verb = eventVerbs[plan.verb];
+
+        SemaforAnnotationSet annotationSet = new SemaforAnnotationSet(aJCas, sentence.getBegin(), sentence.getEnd());
+        annotationSet.setFrameName(verb[2]);
+        annotationSet.setComponentId(COMPONENT_ID);
+        annotationSet.addToIndexes();
+
+        SemaforLayer targetLayer = new SemaforLayer(aJCas, plan.event.begin, plan.event.end);
+        targetLayer.setName("Target");
+        targetLayer.setLabels(FSCollectionFactory.createFSArray(aJCas, Collections.singletonList(
+                createFrameLabel(aJCas, plan.event, "Target"))));
+        targetLayer.setComponentId(COMPONENT_ID);
+        targetLayer.addToIndexes();
+
+        List<SemaforLabel> elements = new ArrayList<SemaforLabel>();
+        elements.add(createFrameLabel(aJCas, plan.agent, verb[3]));
+        elements.add(createFrameLabel(aJCas, plan.patient, verb[4]));
+        if (plan.location != null) {
+            elements.add(createFrameLabel(aJCas, plan.location, placeFrameElement));
+        }
+        SemaforLayer elementLayer = new SemaforLayer(aJCas, sentence.getBegin(), sentence.getEnd());
+        elementLayer.setName("FE");
+        elementLayer.setLabels(FSCollectionFactory.createFSArray(aJCas, elements));
+        elementLayer.setComponentId(COMPONENT_ID);
+        elementLayer.addToIndexes();
+
+        annotationSet.setLayers(FSCollectionFactory.createFSArray(aJCas, Arrays.asList(targetLayer, elementLayer)));
+    }
+
+    private static SemaforLabel createFrameLabel(JCas aJCas, Token token, String name) {
+        SemaforLabel label = new SemaforLabel(aJCas, token.begin, token.end);
+        label.setName(name);
+        label.setComponentId(COMPONENT_ID);
+        label.addToIndexes();
+        return label;
+    }
+
+    private static void addDependency(JCas aJCas, Token head, Token child, String relationType) {
+        StanfordDependencyRelation relation = new StanfordDependencyRelation(aJCas);
+        relation.setHead(head.node);
+        relation.setChild(child.node);
+        relation.setRelationType(relationType);
+        relation.setComponentId(COMPONENT_ID);
+        relation.addToIndexes();
+        head.childRelations.add(relation);
+        child.headRelations.add(relation);
+    }
+
+    private static EntityBasedComponent createComponent(JCas aJCas, Token first, Token head, String entityKey,
+                                                        String entityType,
+                                                        Map<String, List<EntityMention>> entityMentions) {
+        EntityBasedComponent component = new EntityBasedComponent(aJCas, first.begin, head.end);
+        component.setHeadWord(head.word);
+        component.setContainingEntityMentions(FSCollectionFactory.createFSList(aJCas, Collections.singletonList(
+                createEntityMention(aJCas, head, entityKey, entityType, entityMentions))));
+        component.setComponentId(COMPONENT_ID);
+        component.addToIndexes();
+        return component;
+    }
+
+    private static EntityMention createEntityMention(JCas aJCas, Token head, String entityKey, String entityType,
+                                                     Map<String, List<EntityMention>> entityMentions) {
+        EntityMention entityMention = new EntityMention(aJCas, head.begin, head.end);
+        entityMention.setHead(head.word);
+        entityMention.setEntityType(entityType);
+        entityMention.setComponentId(COMPONENT_ID);
+        entityMention.addToIndexes();
+
+        List<EntityMention> mentionsOfEntity = entityMentions.get(entityKey);
+        if (mentionsOfEntity == null) {
+            mentionsOfEntity = new ArrayList<EntityMention>();
+            entityMentions.put(entityKey, mentionsOfEntity);
+        }
+        mentionsOfEntity.add(entityMention);
+        return entityMention;
+    }
+
+    private static EventMentionArgumentLink createArgument(JCas aJCas, EventMention mention,
+                                                           EntityBasedComponent argument, String verbNetRoleName) {
+        EventMentionArgumentLink argumentLink = new EventMentionArgumentLink(aJCas);
+        argumentLink.setEventMention(mention);
+        argumentLink.setArgument(argument);
+        argumentLink.setVerbNetRoleName(verbNetRoleName);
+        argumentLink.setComponentId(COMPONENT_ID);
+        argumentLink.addToIndexes();
+        return argumentLink;
+    }
+}
@@ -0,0 +1,374 @@
+package edu.cmu.lti.event_coref.benchmarks;
+
+import edu.cmu.lti.event_coref.analysis_engine.resoluter.SudokuUnificationAnnotator;
+import edu.cmu.lti.event_coref.analysis_engine.resoluter.WekaArffBasedClassifier;
+import edu.cmu.lti.event_coref.pipeline.EventCorefProcessor;
+import edu.cmu.lti.event_coref.type.PairwiseEventCoreferenceEvaluation;
+import edu.cmu.lti.event_coref.utils.ProcessingMetrics;
+import edu.cmu.lti.event_coref.utils.eval.CorefChecker;
+import edu.cmu.lti.event_coref.utils.ml.PairwiseFeatureMatrix;
+import edu.cmu.lti.event_coref.utils.ml.WekaFeatureFactory;
+import edu.cmu.lti.event_coref.utils.ml.WekaRandomForestWrapper;
+import edu.cmu.lti.utils.uima.EngineProbe;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.javatuples.Triplet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import weka.core.SerializationHelper;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs the chain of EventCorefProcessor after the parsers on synthetic documents of growing size and
+ * reports the throughput, so that the scaling of the pair stages can be compared between versions:
+ * the pair engines of {@link EventCorefProcessor#getPairEngineDescriptors(boolean)} (argument
+ * extraction, pair containers, surface similarity and features) on the Senna embeddings of the
+ * synthetic corpus, then the classifier and the Sudoku unification as in
+ * EventCoreferenceResultPostProcessor. The classifier uses a model trained on other synthetic
+ * documents before the runs.
+ * <p/>
+ * For each number of mentions the report has the documents and pairs per second, the p50 and p99
+ * latency of a document, the metrics of every engine from {@link EngineProbe}, and the heap: the
+ * largest used heap sampled after each document, and the peak of each heap pool, which do not peak
+ * at the same time and so are not added up. The argument extraction needs the SemLink mappings and
+ * the FrameNet relations of the resource directory, it is skipped when they are not there.
+ * <p/>
+ * Usage: ThroughputBenchmark reportPath [numDocuments] [mentionCounts] [mentionsPerCluster] [resourceDir]
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class ThroughputBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ThroughputBenchmark.class);
+
+    private static final long seed = 17;
+
+    private static final int numTrainingDocuments = 4;
+
+    private static final int numWarmupDocuments = 3;
+
+    // classification and unification rounds of EventCoreferenceResultPostProcessor
+    private static final int numResolutionRounds = 2;
+
+    private static final int defaultWeight = 1;
+
+    private static final String modelStepDirSuffix = "synthetic";
+
+    private static final String modelStepDirBase = "model";
+
+    private static final int modelStepNumber = 0;
+
+    private static class Run {
+        int numMentions;
+
+        int numClusters;
+
+        int numDocuments;
+
+        long numPairs;
+
+        long[] latencyNanos;
+
+        long wallNanos;
+
+        // largest total heap used after a document
+        long peakHeap;
+
+        Map<String, Long> poolPeaks = new LinkedHashMap<String, Long>();
+
+        String engineMetrics;
+    }
+
+    private static int[] parseCounts(String counts) {
+        String[] fields = counts.split(",");
+        int[] values = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = Integer.parseInt(fields[i].trim());
+        }
+        return values;
+    }
+
+    private static int getNumClusters(int numMentions, int mentionsPerCluster) {
+        return Math.max(1, numMentions / mentionsPerCluster);
+    }
+
+    /**
+     * @return whether the mappings the argument extractor reads are all in the resource directory
+     */
+    private static boolean hasArgumentResources(File resourceDir) {
+        if (resourceDir == null) {
+            logger.warn("No resource directory, the argument extraction is not measured.");
+            return false;
+        }
+        File vn2FnFile = new File(resourceDir, "FrameNet/SemLink_1.2.2c/vn-fn/VN-FNRoleMapping.txt");
+        File vn2pbFile = new File(resourceDir, "FrameNet/SemLink_1.2.2c/vn-pb/vnpbMapping");
+        File frRelationFile = new File(resourceDir, "frRelation.xml");
+        for (File file : Arrays.asList(vn2FnFile, vn2pbFile, frRelationFile)) {
+            if (!file.exists()) {
+                logger.warn(String.format("Cannot find %s, the argument extraction is not measured.", file));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Train a random forest on the features of synthetic documents, and write the model and the
+     * feature names file read by the classifier into the working directory of the corpus.
+     *
+     * @param corpus
+     * @param featureEngines the engines up to the features
+     * @param numMentions
+     * @param numClusters
+     * @return the model file, the feature names file is next to it
+     */
+    private static File trainModel(SyntheticCorpus corpus, List<AnalysisEngineDescription> featureEngines,
+                                   int numMentions, int numClusters) throws Exception {
+        AnalysisEngine engine = AnalysisEngineFactory.createEngine(AnalysisEngineFactory.createEngineDescription(
+                featureEngines.toArray(new AnalysisEngineDescription[featureEngines.size()])));
+        List<JCas> documents = new ArrayList<JCas>();
+        List<PairwiseFeatureMatrix> featureMatrices = new ArrayList<PairwiseFeatureMatrix>();
+        Map<String, Triplet<Integer, Boolean, String>> featureInfoMap =
+                new LinkedHashMap<String, Triplet<Integer, Boolean, String>>();
+        for (int i = 0; i < numTrainingDocuments; i++) {
+            JCas aJCas = corpus.createDocument(numMentions, numClusters);
+            engine.process(aJCas);
+            PairwiseFeatureMatrix featureMatrix = PairwiseFeatureMatrix.load(aJCas);
+            SyntheticCorpus.addFeatureInfo(featureInfoMap, featureMatrix);
+            documents.add(aJCas);
+            featureMatrices.add(featureMatrix);
+        }
+        engine.destroy();
+
+        WekaFeatureFactory factory = new WekaFeatureFactory(featureInfoMap);
+        for (int i = 0; i < documents.size(); i++) {
+            for (PairwiseEventCoreferenceEvaluation pece : JCasUtil.select(documents.get(i),
+                    PairwiseEventCoreferenceEvaluation.class)) {
+                factory.addInstance(featureMatrices.get(i).getFeatureMap(pece), CorefChecker.isFullGolden(pece),
+                        defaultWeight);
+            }
+        }
+        WekaRandomForestWrapper wrapper = new WekaRandomForestWrapper(factory.getDataset(), false, 5, false, seed,
+                1);
+
+        File modelDir = new File(corpus.getWorkingDir(), String.format("%02d_%s_%s", modelStepNumber,
+                modelStepDirSuffix, modelStepDirBase));
+        if (!modelDir.mkdirs()) {
+            throw new IOException("Cannot create " + modelDir);
+        }
+        File modelFile = new File(modelDir, "synthetic.model");
+        File featureNameFile = new File(modelDir, "featureNames.txt");
+        modelDir.deleteOnExit();
+        modelFile.deleteOnExit();
+        featureNameFile.deleteOnExit();
+
+        SerializationHelper.write(modelFile.getAbsolutePath(), wrapper);
+        Writer writer = new BufferedWriter(new FileWriter(featureNameFile));
+        try {
+            writer.write("#id,name,defaultZero,type" + System.lineSeparator());
+            for (Map.Entry<String, Triplet<Integer, Boolean, String>> feature : featureInfoMap.entrySet()) {
+                Triplet<Integer, Boolean, String> info = feature.getValue();
+                writer.write(String.format("%d,%s,%s,%s%s", info.getValue0(), feature.getKey(), info.getValue1(),
+                        info.getValue2(), System.lineSeparator()));
+            }
+        } finally {
+            writer.close();
+        }
+        logger.info(String.format("Trained on %d instances with %d features.", factory.getDataset().numInstances(),
+                featureInfoMap.size()));
+        return modelFile;
+    }
+
+    private static List<AnalysisEngineDescription> createResolutionEngines(SyntheticCorpus corpus, File modelFile)
+            throws Exception {
+        File modelDir = modelFile.getParentFile();
+        AnalysisEngineDescription classifier = AnalysisEngineFactory.createEngineDescription(
+                WekaArffBasedClassifier.class, corpus.getTypeSystemDescription(),
+                WekaArffBasedClassifier.PARAM_PARENT_RESOURCE_INPUT_PATH, modelDir.getParent(),
+                WekaArffBasedClassifier.PARAM_BASE_RESOURCE_INPUT_DIR_NAME, modelStepDirBase,
+                WekaArffBasedClassifier.PARAM_RESOURCE_INPUT_STEP_NUMBER, modelStepNumber,
+                WekaArffBasedClassifier.PARAM_RESOURCE_INPUT_FILE_SUFFIX, modelStepDirSuffix,
+                WekaArffBasedClassifier.PARAM_PRE_SAVED_MODEL_FILE_NAME, modelFile.getAbsolutePath(),
+                WekaArffBasedClassifier.PARAM_FEAUTURE_NAME_PATH,
+                new File(modelDir, "featureNames.txt").getAbsolutePath(),
+                WekaArffBasedClassifier.PARAM_IMPUTATHION_METHOD, 0,
+                WekaArffBasedClassifier.PARAM_ENABLE_FILTERING, false);
+
+        AnalysisEngineDescription unification = AnalysisEngineFactory.createEngineDescription(
+                SudokuUnificationAnnotator.class, corpus.getTypeSystemDescription(),
+                SudokuUnificationAnnotator.PARAM_UPDATE_FEATURES, true,
+                SudokuUnificationAnnotator.PARAM_UNIFICATION_CONFIDENCE_THRESHOLD, 0.5f,
+                SudokuUnificationAnnotator.PARAM_DO_UNIFICATION, true,
+                SudokuUnificationAnnotator.PARAM_VERBOSE_LEVEL, 1,
+                SudokuUnificationAnnotator.PARAM_CLUSTER_METHOD, 0);
+
+        List<AnalysisEngineDescription> engines = new ArrayList<AnalysisEngineDescription>();
+        for (int round = 0; round < numResolutionRounds; round++) {
+            engines.add(classifier);
+            engines.add(unification);
+        }
+        return engines;
+    }
+
+    private static List<MemoryPoolMXBean> getHeapPools() {
+        List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+            }
+        }
+        return heapPools;
+    }
+
+    private static Run measure(SyntheticCorpus corpus, AnalysisEngine pipeline, JCas aJCas, int numDocuments,
+                               int numMentions, int numClusters) throws Exception {
+        for (int i = 0; i < numWarmupDocuments; i++) {
+            corpus.fillDocument(aJCas, numMentions, numClusters);
+            pipeline.process(aJCas);
+        }
+        ProcessingMetrics.reset();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        List<MemoryPoolMXBean> heapPools = getHeapPools();
+        for (MemoryPoolMXBean pool : heapPools) {
+            pool.resetPeakUsage();
+        }
+
+        Run run = new Run();
+        run.numMentions = numMentions;
+        run.numClusters = numClusters;
+        run.numDocuments = numDocuments;
+        run.latencyNanos = new long[numDocuments];
+        for (int i = 0; i < numDocuments; i++) {
+            // the generation is not part of the latency
+            corpus.fillDocument(aJCas, numMentions, numClusters);
+            long start = System.nanoTime();
+            pipeline.process(aJCas);
+            run.latencyNanos[i] = System.nanoTime() - start;
+            run.wallNanos += run.latencyNanos[i];
+            run.numPairs += JCasUtil.select(aJCas, PairwiseEventCoreferenceEvaluation.class).size();
+            run.peakHeap = Math.max(run.peakHeap, memory.getHeapMemoryUsage().getUsed());
+        }
+
+        for (MemoryPoolMXBean pool : heapPools) {
+            run.poolPeaks.put(pool.getName(), pool.getPeakUsage().getUsed());
+        }
+        run.engineMetrics = ProcessingMetrics.toJson().trim();
+        Arrays.sort(run.latencyNanos);
+        return run;
+    }
+
+    // nearest rank percentile of the sorted values
+    private static long percentile(long[] sortedValues, double percent) {
+        int rank = (int) Math.ceil(percent / 100 * sortedValues.length);
+        return sortedValues[Math.max(0, rank - 1)];
+    }
+
+    private static String toJson(Run run) {
+        double wallSeconds = run.wallNanos / 1e9;
+        StringBuilder json = new StringBuilder("    {");
+        json.append(String.format(Locale.US, "\"mentions\": %d, \"clusters\": %d, \"documents\": %d, \"pairs\": %d,",
+                run.numMentions, run.numClusters, run.numDocuments, run.numPairs));
+        json.append(String.format(Locale.US, "\n     \"wall_seconds\": %.3f, \"documents_per_second\": %.2f, \"pairs_per_second\": %.1f,",
+                wallSeconds, run.numDocuments / wallSeconds, run.numPairs / wallSeconds));
+        json.append(String.format(Locale.US, "\n     \"latency_ms\": {\"p50\": %.3f, \"p99\": %.3f, \"mean\": %.3f, \"max\": %.3f},",
+                percentile(run.latencyNanos, 50) / 1e6, percentile(run.latencyNanos, 99) / 1e6,
+                run.wallNanos / 1e6 / run.numDocuments, run.latencyNanos[run.latencyNanos.length - 1] / 1e6));
+        json.append(String.format(Locale.US, "\n     \"peak_heap_mb\": %.1f, \"pool_peak_mb\": {",
+                run.peakHeap / (1024.0 * 1024)));
+        boolean firstPool = true;
+        for (Map.Entry<String, Long> pool : run.poolPeaks.entrySet()) {
+            json.append(firstPool ? "" : ", ").append(String.format(Locale.US, "\"%s\": %.1f", pool.getKey(),
+                    pool.getValue() / (1024.0 * 1024)));
+            firstPool = false;
+        }
+        json.append("},");
+        json.append("\n     \"engines\": ").append(run.engineMetrics.replace("\n", "\n     ")).append("}");
+        return json.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ThroughputBenchmark reportPath [numDocuments] [mentionCounts] [mentionsPerCluster] [resourceDir]");
+            System.exit(1);
+        }
+
+        File reportFile = new File(args[0]);
+        int numDocuments = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int[] mentionCounts = parseCounts(args.length > 2 ? args[2] : "25,50,100,200");
+        int mentionsPerCluster = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        File resourceDir = args.length > 4 ? new File(args[4]) : null;
+
+        SyntheticCorpus corpus = new SyntheticCorpus(seed);
+
+        // the engines of the real chain, on the embeddings of the corpus and its gold standard view
+        boolean withArgumentExtraction = hasArgumentResources(resourceDir);
+        File processorResourceDir = resourceDir == null ? corpus.getWorkingDir() : resourceDir;
+        EventCorefProcessor processor = new EventCorefProcessor(corpus.getWorkingDir().getAbsolutePath(),
+                processorResourceDir.getAbsolutePath());
+        processor.setSennaEmbeddings(corpus.getSennaEmbeddingsPath(), corpus.getSennaWordsPath());
+        processor.setGoldStandardViewName(CAS.NAME_DEFAULT_SOFA);
+        List<AnalysisEngineDescription> engines = new ArrayList<AnalysisEngineDescription>(
+                Arrays.asList(processor.getPairEngineDescriptors(withArgumentExtraction)));
+
+        // trained on documents of the first size, the model only has to be realistic in cost
+        File modelFile = trainModel(corpus, engines, mentionCounts[0],
+                getNumClusters(mentionCounts[0], mentionsPerCluster));
+        engines.addAll(createResolutionEngines(corpus, modelFile));
+
+        AnalysisEngine pipeline = AnalysisEngineFactory.createEngine(AnalysisEngineFactory.createEngineDescription(
+                EngineProbe.instrument(engines.toArray(new AnalysisEngineDescription[engines.size()]), null)));
+        JCas aJCas = JCasFactory.createJCas(corpus.getTypeSystemDescription());
+
+        List<Run> runs = new ArrayList<Run>();
+        for (int numMentions : mentionCounts) {
+            runs.add(measure(corpus, pipeline, aJCas, numDocuments, numMentions,
+                    getNumClusters(numMentions, mentionsPerCluster)));
+        }
+        pipeline.collectionProcessComplete();
+        pipeline.destroy();
+
+        StringBuilder json = new StringBuilder("{");
+        json.append(String.format(Locale.US, "\n  \"seed\": %d, \"documents\": %d, \"mentions_per_cluster\": %d, \"argument_extraction\": %s,",
+                seed, numDocuments, mentionsPerCluster, withArgumentExtraction));
+        json.append("\n  \"runs\": [");
+        for (int i = 0; i < runs.size(); i++) {
+            json.append(i == 0 ? "\n" : ",\n").append(toJson(runs.get(i)));
+        }
+        json.append("\n  ]\n}\n");
+        Writer writer = new BufferedWriter(new FileWriter(reportFile));
+        try {
+            writer.write(json.toString());
+        } finally {
+            writer.close();
+        }
+
+        logger.info(String.format("%-9s %8s %10s %12s %10s %10s %10s", "Mentions", "Pairs", "Docs/s", "Pairs/s",
+                "p50 (ms)", "p99 (ms)", "Heap (MB)"));
+        for (Run run : runs) {
+            double wallSeconds = run.wallNanos / 1e9;
+            logger.info(String.format("%-9d %8d %10.2f %12.1f %10.3f %10.3f %10.1f", run.numMentions, run.numPairs,
+                    run.numDocuments / wallSeconds, run.numPairs / wallSeconds, percentile(run.latencyNanos, 50) / 1e6,
+                    percentile(run.latencyNanos, 99) / 1e6, run.peakHeap / (1024.0 * 1024)));
+        }
+        logger.info("Report written to " + reportFile.getAbsolutePath());
+    }
+}
@@ -2,17 +2,15 @@ package edu.cmu.lti.event_coref.analysis_engine.features;
 
 import edu.cmu.lti.event_coref.io.AbstractPlainTextAggregator;
 import edu.cmu.lti.event_coref.type.PairwiseEventCoreferenceEvaluation;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.utils.ConstantUtils;
 import edu.cmu.lti.event_coref.utils.ml.Feature;
 import edu.cmu.lti.event_coref.utils.ml.FeatureConstants.FeatureType;
 import edu.cmu.lti.event_coref.utils.ml.FeatureSet;
+import edu.cmu.lti.event_coref.utils.ml.PairwiseFeatureMatrix;
 import edu.cmu.lti.utils.uima.UimaConvenience;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
-import org.apache.uima.fit.util.FSCollectionFactory;
-import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,7 +20,7 @@ import java.util.List;
 /**
  * This is a simple writer to generate a sorted list of all distinct feature names.
  * <p/>
- * Prerequisite annotation: PairwiseEventCoreferenceEvaluation
+ * Prerequisite annotation: PairwiseEventCoreferenceEvaluation, PairwiseEventFeatureMatrix
  *
  * @author Jun Araki
  */
@@ -44,19 +42,25 @@ public class FeatureListGenerator extends AbstractPlainTextAggregator {
     public void process(JCas aJCas) throws AnalysisEngineProcessException {
         UimaConvenience.printProcessLog(aJCas, logger);
 
-        for (PairwiseEventCoreferenceEvaluation pece : JCasUtil.select(aJCas, PairwiseEventCoreferenceEvaluation.class)) {
+        PairwiseFeatureMatrix featureMatrix = PairwiseFeatureMatrix.load(aJCas);
+        boolean[] columnAdded = new boolean[featureMatrix.getNumColumns()];
+        for (int row = 0; row < featureMatrix.getNumRows(); row++) {
+            PairwiseEventCoreferenceEvaluation pece = featureMatrix.getPair(row);
             // only process on certain pece if specified. null will process all peces
             if (!(targetPeceComponentId == null || targetPeceComponentId.equals(pece.getComponentId()))) {
                 continue;
             }
 
-            for (PairwiseEventFeature pef : FSCollectionFactory.create(pece.getPairwiseEventFeatures(),
-                    PairwiseEventFeature.class)) {
+            for (int column = 0; column < columnAdded.length; column++) {
+                if (columnAdded[column] || !featureMatrix.isPresent(row, column)) {
+                    continue;
+                }
+                columnAdded[column] = true;
 
-                String featureName = pef.getName();
+                String featureName = featureMatrix.getFeatureName(column);
                 FeatureType featureType = ConstantUtils
-                        .getConstant(FeatureType.class, pef.getFeatureType());
-                boolean defaultZero = pef.getDefaultZero();
+                        .getConstant(FeatureType.class, featureMatrix.getFeatureType(column));
+                boolean defaultZero = featureMatrix.isDefaultZero(column);
 
                 Feature f = new Feature.Builder(featureName, featureType).defaultZero(defaultZero).build();
                 featureSet.addFeature(f);
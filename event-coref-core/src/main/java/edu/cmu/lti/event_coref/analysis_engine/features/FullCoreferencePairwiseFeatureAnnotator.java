@@ -1,7 +1,6 @@
 package edu.cmu.lti.event_coref.analysis_engine.features;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
 import edu.cmu.lti.event_coref.features.discourse.EventDistanceFeatures;
 import edu.cmu.lti.event_coref.features.discourse.TitleFeatures;
@@ -11,16 +10,18 @@ import edu.cmu.lti.event_coref.features.semantic.*;
 import edu.cmu.lti.event_coref.features.syntactic.EventSyntaticDependencyFeatures;
 import edu.cmu.lti.event_coref.features.syntactic.ModifierFeatures;
 import edu.cmu.lti.event_coref.features.syntactic.WordFormFeatures;
+import edu.cmu.lti.event_coref.model.EventMentionPairIndex;
 import edu.cmu.lti.event_coref.model.EventMentionTable;
 import edu.cmu.lti.event_coref.type.*;
 import edu.cmu.lti.event_coref.utils.EventCoreferenceConstants;
+import edu.cmu.lti.event_coref.utils.ProcessingMetrics;
 import edu.cmu.lti.event_coref.utils.SimilarityCalculator;
+import edu.cmu.lti.event_coref.utils.ml.PairwiseFeatureMatrix;
 import edu.cmu.lti.utils.uima.UimaConvenience;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
-import org.apache.uima.fit.util.FSCollectionFactory;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -28,8 +29,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Create pairwise features for all the pairwise containers of the target component.
+ * <p/>
+ * Feature computation is done in two steps: the feature generators only read the CAS and return
+ * plain feature values, then all of them are written to the {@link PairwiseFeatureMatrix} of the
+ * document in one single threaded step.
+ * This allows the first step to be spread over a fork-join pool by setting
+ * {@link #PARAM_NUM_THREADS} to a number larger than 1. In that mode no other annotator should
+ * modify the CAS concurrently.
+ * <p/>
+ * Before the pairs, each generator is prepared once on the document, which lets it compute what it
+ * needs from every single mention only once (see
+ * {@link edu.cmu.lti.event_coref.features.MentionCachedFeatureGenerator}).
+ * <p/>
+ * The time spent in each feature generator over a document is recorded in
+ * {@link ProcessingMetrics} as "feature.GeneratorName.wall_us", and the preparation as
+ * "feature.GeneratorName.prepare_us".
+ *
  * @author Zhengzhong Liu, Hector
  */
 public class FullCoreferencePairwiseFeatureAnnotator extends
@@ -38,12 +59,18 @@ public class FullCoreferencePairwiseFeatureAnnotator extends
 
     public static final String PARAM_TARGET_COMPONENT_ID = "targetComponentId";
 
+    public static final String PARAM_NUM_THREADS = "NumThreads";
+
     @ConfigurationParameter(name = PARAM_TARGET_COMPONENT_ID, mandatory = true)
     String targetComponentId;
 
     @ConfigurationParameter(name = PARAM_DO_FILTERING)
     Boolean doFiltering;
 
+    @ConfigurationParameter(name = PARAM_NUM_THREADS, mandatory = false, defaultValue = "1",
+            description = "Number of threads used to compute features, 1 means computing on the calling thread")
+    int numThreads;
+
     // this thing will get faster when used more because it caches things
     SimilarityCalculator simCalc = new SimilarityCalculator();
 
@@ -51,6 +78,14 @@ public class FullCoreferencePairwiseFeatureAnnotator extends
 
     Set<String> lowConfidentAnnotatorNames = new HashSet<String>(guessAnnotatorNames);
 
+    private ForkJoinPool featurePool;
+
+    // pairwise annotations of the document being processed, read only during feature computation
+    private EventMentionPairIndex pairIndex;
+
+    // number of pairs handled by one fork join task before it stops splitting
+    private static final int pairsPerTask = 32;
+
     private static final Logger logger = LoggerFactory.getLogger(FullCoreferencePairwiseFeatureAnnotator.class);
 
     @Override
@@ -61,9 +96,15 @@ public class FullCoreferencePairwiseFeatureAnnotator extends
         if (doFiltering) {
             logger.info("Please note that feature annotator is initialized with filtering on!");
         }
+
+        if (numThreads > 1) {
+            logger.info(String.format("Features will be computed with %d threads.", numThreads));
+            featurePool = new ForkJoinPool(numThreads);
+        }
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void process(JCas aJCas) throws AnalysisEngineProcessException {
         logger.info(String.format("Processing article: %s with [%s]",
                 UimaConvenience.getShortDocumentName(aJCas), this.getClass()
@@ -73,13 +114,77 @@ public class FullCoreferencePairwiseFeatureAnnotator extends
         logger.info("#Non epistemic domain events: "
                 + sTable.getNumOfNonEpistemicdDomainEvents());
 
+        // Pairwise lookups of all the generators and the filter share one index
+        pairIndex = new EventMentionPairIndex(aJCas);
+
         logger.info("Creating features");
         // Step 1: Create each features
+        List<PairwiseFeatureGenerator> allFeatureGenerators = createFeatureGenerators(aJCas, sTable, pairIndex,
+                simCalc, lowConfidentAnnotatorNames);
+
+        // Get all pairwise event coreference evaluations, only add features to the specific peces
+        List<PairwiseEventCoreferenceEvaluation> peceList = new ArrayList<PairwiseEventCoreferenceEvaluation>();
+        for (PairwiseEventCoreferenceEvaluation pece : JCasUtil.select(aJCas, PairwiseEventCoreferenceEvaluation.class)) {
+            if (pece.getComponentId() == null || pece.getComponentId().equals(targetComponentId)) {
+                peceList.add(pece);
+            }
+        }
+
+        int numberPairs = peceList.size();
+
+        logger.debug(String.format("Setting pairwise features for %d pair of events.", numberPairs));
+
+        // Step 2: let the generators compute their per mention values, once for the document
+        for (PairwiseFeatureGenerator generator : allFeatureGenerators) {
+            long start = System.nanoTime();
+            generator.prepare(aJCas, pairIndex);
+            ProcessingMetrics.record("feature." + generator.getClass().getSimpleName() + ".prepare_us",
+                    (System.nanoTime() - start) / 1000);
+        }
+
+        // Step 3: compute features without modifying the CAS, null means the pair is filtered
+        List<PairwiseFeature>[] pairFeatures = new List[numberPairs];
+        long[] generatorNanos = computeAllFeatures(aJCas, peceList, allFeatureGenerators, pairFeatures);
+        for (int g = 0; g < allFeatureGenerators.size(); g++) {
+            ProcessingMetrics.record("feature." + allFeatureGenerators.get(g).getClass().getSimpleName() + ".wall_us",
+                    generatorNanos[g] / 1000);
+        }
+
+        // Step 4: commit all features to the feature matrix of the document on this thread
+        PairwiseFeatureMatrix featureMatrix = PairwiseFeatureMatrix.load(aJCas);
+        for (int i = 0; i < numberPairs; i++) {
+            PairwiseEventCoreferenceEvaluation pece = peceList.get(i);
+            List<PairwiseFeature> features = pairFeatures[i];
+
+            if (features != null) {
+                featureMatrix.setFeatures(pece, features);
+            } else {
+                // directly set as NO
+                pece.setEventCoreferenceRelationSystem(EventCoreferenceConstants.EventCoreferenceRelationType.NO.toString());
+            }
+        }
+        featureMatrix.save(aJCas);
+    }
+
+    /**
+     * Create the feature generators of one document, the features of a pair are added in this order.
+     *
+     * @param aJCas
+     * @param sTable
+     * @param pairIndex
+     * @param simCalc
+     * @param lowConfidentAnnotatorNames annotators whose arguments are not counted as confident
+     * @return
+     */
+    public static List<PairwiseFeatureGenerator> createFeatureGenerators(JCas aJCas, EventMentionTable sTable,
+                                                                         EventMentionPairIndex pairIndex,
+                                                                         SimilarityCalculator simCalc,
+                                                                         Set<String> lowConfidentAnnotatorNames) {
         List<PairwiseFeatureGenerator> allFeatureGenerators = new ArrayList<PairwiseFeatureGenerator>();
-        allFeatureGenerators.add(new EventSurfaceStringFeatures(aJCas));
+        allFeatureGenerators.add(new EventSurfaceStringFeatures(pairIndex));
         allFeatureGenerators.add(new TitleFeatures(sTable));
         allFeatureGenerators.add(new EventDistanceFeatures(sTable));
-        allFeatureGenerators.add(new EventSyntaticDependencyFeatures(aJCas));
+        allFeatureGenerators.add(new EventSyntaticDependencyFeatures(pairIndex));
         allFeatureGenerators.add(new AgentPatientFeatures(aJCas, sTable,
                 simCalc, lowConfidentAnnotatorNames));
         allFeatureGenerators.add(new LocationFeatures(sTable, simCalc,
@@ -93,93 +198,186 @@ public class FullCoreferencePairwiseFeatureAnnotator extends
         allFeatureGenerators.add(new SemaforRoleFeatures(simCalc));
 
         // allFeatureGenerators.add(new DbpediaNamedEventFeatures(aJCas));
+        return allFeatureGenerators;
+    }
 
-        // Get all pairwise event coreference evaluations.
-        List<PairwiseEventCoreferenceEvaluation> peceList = new ArrayList<PairwiseEventCoreferenceEvaluation>(
-                JCasUtil.select(aJCas, PairwiseEventCoreferenceEvaluation.class));
+    /**
+     * Compute the features of all pairs into pairFeatures.
+     *
+     * @return the time spent in each feature generator, summed over the threads
+     */
+    private long[] computeAllFeatures(JCas aJCas, List<PairwiseEventCoreferenceEvaluation> peceList,
+                                      List<PairwiseFeatureGenerator> featureGenerators,
+                                      List<PairwiseFeature>[] pairFeatures)
+            throws AnalysisEngineProcessException {
+        ProgressCounter progress = new ProgressCounter(peceList.size());
 
-        int numberPairs = peceList.size();
+        if (featurePool == null) {
+            long[] generatorNanos = new long[featureGenerators.size()];
+            for (int i = 0; i < peceList.size(); i++) {
+                pairFeatures[i] = computePairFeatures(aJCas, peceList.get(i), featureGenerators, generatorNanos);
+                progress.increment();
+            }
+            return generatorNanos;
+        }
 
-        logger.debug(String.format("Setting pairwise features for %d pair of events.", numberPairs));
+        try {
+            return featurePool.invoke(new FeatureTask(aJCas, peceList, featureGenerators, pairFeatures, progress,
+                    0, peceList.size()));
+        } catch (FeatureComputationException e) {
+            throw e.getCause();
+        }
+    }
 
-        int pairCounter = 0;
-        int tenPercent = numberPairs / 10;
-        int percentCounter = 0;
+    /**
+     * Compute all features of one pair, this method must not modify the CAS.
+     *
+     * @param generatorNanos the time of each generator is added here, owned by the calling task
+     * @return the features, or null if the pair is discarded by filtering
+     */
+    private List<PairwiseFeature> computePairFeatures(JCas aJCas, PairwiseEventCoreferenceEvaluation pece,
+                                                      List<PairwiseFeatureGenerator> featureGenerators,
+                                                      long[] generatorNanos)
+            throws AnalysisEngineProcessException {
+        EventMention event1 = pece.getEventMentionI();
+        EventMention event2 = pece.getEventMentionJ();
 
-        for (PairwiseEventCoreferenceEvaluation pece : peceList) {
-            // only add features to the specific peces
-            if (pece.getComponentId() != null) {
-                if (!pece.getComponentId().equals(targetComponentId))
-                    continue;
+        if (doFiltering && isDiscarded(event1, event2)) {
+            return null;
+        }
+
+        List<PairwiseFeature> allFeatures = new ArrayList<PairwiseFeature>();
+        // the end of a generator is the start of the next one, one clock read per generator
+        long start = System.nanoTime();
+        for (int g = 0; g < featureGenerators.size(); g++) {
+            List<PairwiseFeature> currentFeatures = featureGenerators.get(g)
+                    .createFeatures(aJCas, event1, event2);
+            long end = System.nanoTime();
+            generatorNanos[g] += end - start;
+            start = end;
+            if (currentFeatures == null) {
+                logger.info("Some feature generator is returning NULL!");
+                throw new AnalysisEngineProcessException();
             }
+            allFeatures.addAll(currentFeatures);
+        }
+        return allFeatures;
+    }
 
-            EventMention event1 = pece.getEventMentionI();
-            EventMention event2 = pece.getEventMentionJ();
+    private boolean isDiscarded(EventMention event1, EventMention event2) {
+        EventSurfaceSimilarity surfaceSim = pairIndex.getSurfaceSimilarity(event1, event2);
+        if (surfaceSim == null) {
+            // without a surface similarity there is nothing to filter on
+            return false;
+        }
 
-            List<PairwiseEventFeature> allFeatures = new ArrayList<PairwiseEventFeature>();
+        double wordNetSim = surfaceSim.getWordNetWuPalmer();
+        double sennaSim = surfaceSim.getSennaSimilarity();
+        double diceSim = surfaceSim.getDiceCoefficient();
 
-            boolean discardExample = false;
+        boolean isFullBySemanticDb = Boolean.TRUE.equals(pairIndex.getSemanticDbDecision(event1, event2));
 
-            if (doFiltering) {
-                Table<EventMention, EventMention, EventSurfaceSimilarity> surfaceSimilarityTable = HashBasedTable.create();
+        return !(wordNetSim > 0.4 || sennaSim > 0.2 || diceSim > 0.4 || isFullBySemanticDb);
+    }
 
-                for (EventSurfaceSimilarity ess : JCasUtil.select(aJCas,
-                        EventSurfaceSimilarity.class)) {
-                    EventMention eevm1 = ess.getEventMentionI();
-                    EventMention eevm2 = ess.getEventMentionJ();
-                    surfaceSimilarityTable.put(eevm1, eevm2, ess);
-                }
+    /**
+     * Compute features of a range of pairs, split the range until it is small enough. Each task only
+     * writes to its own slots of the result array, and returns the time of each generator on its
+     * range.
+     */
+    private class FeatureTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 4513316384232467931L;
 
-                Table<EventMention, EventMention, Boolean> semanticDbDecisions = HashBasedTable.create();
+        private final JCas aJCas;
 
-                for (SemanticDatabasePairwiseDecision sdpd : JCasUtil.select(
-                        aJCas, SemanticDatabasePairwiseDecision.class)) {
-                    EventMention eevm1 = sdpd.getEventI();
-                    EventMention eevm2 = sdpd.getEventJ();
-                    semanticDbDecisions.put(eevm1, eevm2, sdpd.getIsFullCoref());
-                }
+        private final List<PairwiseEventCoreferenceEvaluation> peceList;
 
-                EventSurfaceSimilarity surfaceSim = surfaceSimilarityTable.get(event1, event2);
+        private final List<PairwiseFeatureGenerator> featureGenerators;
 
-                double wordNetSim = surfaceSim.getWordNetWuPalmer();
-                double sennaSim = surfaceSim.getSennaSimilarity();
-                double diceSim = surfaceSim.getDiceCoefficient();
+        private final List<PairwiseFeature>[] pairFeatures;
 
-                boolean isFullBySemanticDb = semanticDbDecisions.get(event1, event2);
+        private final ProgressCounter progress;
 
-                if (!(wordNetSim > 0.4 || sennaSim > 0.2 || diceSim > 0.4 || isFullBySemanticDb)) {
-                    discardExample = true;
-                }
-            }
+        private final int begin;
+
+        private final int end;
 
-            if (!discardExample) {
-                for (PairwiseFeatureGenerator featureGenerator : allFeatureGenerators) {
-                    List<PairwiseEventFeature> currentFeatures = featureGenerator
-                            .createFeatures(aJCas, event1, event2);
-                    if (currentFeatures == null) {
-                        logger.info("Some feature generator is returning NULL!");
-                        throw new AnalysisEngineProcessException();
+        FeatureTask(JCas aJCas, List<PairwiseEventCoreferenceEvaluation> peceList,
+                    List<PairwiseFeatureGenerator> featureGenerators, List<PairwiseFeature>[] pairFeatures,
+                    ProgressCounter progress, int begin, int end) {
+            this.aJCas = aJCas;
+            this.peceList = peceList;
+            this.featureGenerators = featureGenerators;
+            this.pairFeatures = pairFeatures;
+            this.progress = progress;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (end - begin <= pairsPerTask) {
+                long[] generatorNanos = new long[featureGenerators.size()];
+                for (int i = begin; i < end; i++) {
+                    try {
+                        pairFeatures[i] = computePairFeatures(aJCas, peceList.get(i), featureGenerators,
+                                generatorNanos);
+                    } catch (AnalysisEngineProcessException e) {
+                        throw new FeatureComputationException(e);
                     }
-                    allFeatures.addAll(currentFeatures);
-                }
-                if (pece.getPairwiseEventFeatures() == null) {
-                    pece.setPairwiseEventFeatures(FSCollectionFactory.createFSList(aJCas, allFeatures));
-                } else {
-                    pece.setPairwiseEventFeatures(UimaConvenience.appendAllFSList(aJCas,
-                            pece.getPairwiseEventFeatures(), allFeatures, PairwiseEventFeature.class));
+                    progress.increment();
                 }
-            } else {
-                // directly set as NO
-                pece.setEventCoreferenceRelationSystem(EventCoreferenceConstants.EventCoreferenceRelationType.NO.toString());
+                return generatorNanos;
             }
 
-            pairCounter++;
+            int middle = (begin + end) >>> 1;
+            FeatureTask left = new FeatureTask(aJCas, peceList, featureGenerators, pairFeatures, progress, begin,
+                    middle);
+            FeatureTask right = new FeatureTask(aJCas, peceList, featureGenerators, pairFeatures, progress, middle,
+                    end);
+            invokeAll(left, right);
+            long[] generatorNanos = left.join();
+            long[] rightNanos = right.join();
+            for (int g = 0; g < generatorNanos.length; g++) {
+                generatorNanos[g] += rightNanos[g];
+            }
+            return generatorNanos;
+        }
+    }
 
-            if (tenPercent > 0) {
-                if (pairCounter % tenPercent == 0) {
-                    percentCounter++;
-                    logger.info(String.format("%d0 %s (%d pairs) of the event pairs finished", percentCounter, "%", pairCounter));
-                }
+    /**
+     * Carry the checked exception out of the fork join pool.
+     */
+    private static class FeatureComputationException extends RuntimeException {
+        private static final long serialVersionUID = -6870419375766366297L;
+
+        FeatureComputationException(AnalysisEngineProcessException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized AnalysisEngineProcessException getCause() {
+            return (AnalysisEngineProcessException) super.getCause();
+        }
+    }
+
+    /**
+     * Log every ten percent of the pairs finished, can be shared by threads.
+     */
+    private static class ProgressCounter {
+        private final AtomicInteger pairCounter = new AtomicInteger();
+
+        private final int tenPercent;
+
+        ProgressCounter(int numberPairs) {
+            tenPercent = numberPairs / 10;
+        }
+
+        void increment() {
+            int finished = pairCounter.incrementAndGet();
+            if (tenPercent > 0 && finished % tenPercent == 0) {
+                logger.info(String.format("%d0 %s (%d pairs) of the event pairs finished", finished / tenPercent,
+                        "%", finished));
             }
         }
     }
@@ -189,4 +387,12 @@ public class FullCoreferencePairwiseFeatureAnnotator extends
             throws AnalysisEngineProcessException {
         super.collectionProcessComplete();
     }
-}
\ No newline at end of file
+
+    @Override
+    public void destroy() {
+        if (featurePool != null) {
+            featurePool.shutdown();
+        }
+        super.destroy();
+    }
+}
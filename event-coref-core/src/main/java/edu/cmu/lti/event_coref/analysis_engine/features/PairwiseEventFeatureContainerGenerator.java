@@ -1,24 +1,31 @@
 package edu.cmu.lti.event_coref.analysis_engine.features;
 
+import edu.cmu.lti.event_coref.analysis_engine.features.blocking.CandidatePairBlocker;
+import edu.cmu.lti.event_coref.analysis_engine.features.blocking.LemmaBucketBlocker;
+import edu.cmu.lti.event_coref.analysis_engine.features.blocking.SennaLshBucketBlocker;
+import edu.cmu.lti.event_coref.analysis_engine.features.blocking.SentenceWindowBlocker;
 import edu.cmu.lti.event_coref.model.EventCorefConstants;
+import edu.cmu.lti.event_coref.model.EventRelationIndex;
 import edu.cmu.lti.event_coref.type.*;
+import edu.cmu.lti.event_coref.utils.CollectionStatistics;
 import edu.cmu.lti.event_coref.utils.EventCoreferenceClusterUtils;
 import edu.cmu.lti.event_coref.utils.EventCoreferenceConstants.DetailedEventCoreferenceRelationType;
 import edu.cmu.lti.event_coref.utils.EventMentionUtils;
-import edu.cmu.lti.event_coref.utils.EventRelationUtils;
+import edu.cmu.lti.event_coref.utils.SennaWordSimilarityCalculator;
 import edu.cmu.lti.utils.general.ErrorUtils;
 import edu.cmu.lti.utils.general.MapUtils;
 import edu.cmu.lti.utils.uima.BaseAnalysisEngine;
 import edu.cmu.lti.utils.uima.UimaConvenience;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.CASRuntimeException;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
-import org.apache.uima.fit.util.FSCollectionFactory;
+import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
-import org.apache.uima.jcas.cas.FSList;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,15 +44,75 @@ public class PairwiseEventFeatureContainerGenerator extends BaseAnalysisEngine {
 
     public static final String PARAM_GOLD_STANDARD_VIEWNAME = "GoldStandardViewName";
 
+    public static final String PARAM_CANDIDATE_BLOCKERS = "CandidateBlockers";
+
+    public static final String PARAM_SENTENCE_WINDOW_SIZE = "SentenceWindowSize";
+
+    public static final String PARAM_SENNA_EMBEDDINGS = "Senna_Embeddings_Path";
+
+    public static final String PARAM_SENNA_WORDLIST = "Senna_Wordlist_Path";
+
+    public static final String PARAM_LSH_NUM_BANDS = "LshNumberOfBands";
+
+    public static final String PARAM_LSH_BITS_PER_BAND = "LshBitsPerBand";
+
+    public static final String PARAM_LSH_SEED = "LshSeed";
+
+    /**
+     * Names of the blockers that can be given to {@link #PARAM_CANDIDATE_BLOCKERS}
+     */
+    public static final String LEMMA_BLOCKER = "lemma";
+
+    public static final String SENNA_LSH_BLOCKER = "senna_lsh";
+
+    public static final String SENTENCE_WINDOW_BLOCKER = "sentence_window";
+
     private static final Logger logger = LoggerFactory.getLogger(PairwiseEventFeatureContainerGenerator.class);
 
     @ConfigurationParameter(mandatory = false, name = PARAM_GOLD_STANDARD_VIEWNAME)
     private String goldViewName;
 
+    @ConfigurationParameter(mandatory = false, name = PARAM_CANDIDATE_BLOCKERS,
+            description = "Blockers used to select candidate pairs, the union of their pairs are kept. Give nothing to keep all pairs")
+    private String[] blockerNames;
+
+    @ConfigurationParameter(mandatory = false, name = PARAM_SENTENCE_WINDOW_SIZE, defaultValue = "3")
+    private int sentenceWindowSize;
+
+    @ConfigurationParameter(mandatory = false, name = PARAM_SENNA_EMBEDDINGS)
+    private String embeddingsPath;
+
+    @ConfigurationParameter(mandatory = false, name = PARAM_SENNA_WORDLIST)
+    private String sennaWordListPath;
+
+    @ConfigurationParameter(mandatory = false, name = PARAM_LSH_NUM_BANDS, defaultValue = "8")
+    private int lshNumBands;
+
+    @ConfigurationParameter(mandatory = false, name = PARAM_LSH_BITS_PER_BAND, defaultValue = "6")
+    private int lshBitsPerBand;
+
+    @ConfigurationParameter(mandatory = false, name = PARAM_LSH_SEED, defaultValue = "17")
+    private int lshSeed;
+
+    private List<CandidatePairBlocker> blockers;
+
+    // number of Senna calculators acquired from the model registry by the blockers
+    private int numSennaAcquired = 0;
+
     private Map<String, Integer> relationCounter;
 
     private int totalNumOfEventPairs;
 
+    private int totalNumOfPrunedEventPairs;
+
+    // the counts of all replicas of this annotator, bound per run by the pipeline
+    @ExternalResource(key = CollectionStatistics.RESOURCE_KEY, mandatory = false)
+    private CollectionStatistics collectionStatistics;
+
+    private static final String TOTAL_EVENT_PAIRS = "totalEventPairs";
+
+    private static final String TOTAL_PRUNED_EVENT_PAIRS = "totalPrunedEventPairs";
+
     @Override
     public void initialize(UimaContext aContext)
             throws ResourceInitializationException {
@@ -53,13 +120,47 @@ public class PairwiseEventFeatureContainerGenerator extends BaseAnalysisEngine {
 
         relationCounter = new LinkedHashMap<String, Integer>();
         totalNumOfEventPairs = 0;
+        totalNumOfPrunedEventPairs = 0;
+        collectionStatistics = CollectionStatistics.register(collectionStatistics);
+
+        blockers = new ArrayList<CandidatePairBlocker>();
+        if (blockerNames != null) {
+            for (String blockerName : blockerNames) {
+                blockers.add(createBlocker(blockerName));
+            }
+        }
+
+        if (blockers.isEmpty()) {
+            logger.info("No candidate blocker specified, all event pairs will be kept.");
+        }
+    }
+
+    private CandidatePairBlocker createBlocker(String blockerName) throws ResourceInitializationException {
+        if (blockerName.equals(LEMMA_BLOCKER)) {
+            return new LemmaBucketBlocker();
+        } else if (blockerName.equals(SENTENCE_WINDOW_BLOCKER)) {
+            return new SentenceWindowBlocker(sentenceWindowSize);
+        } else if (blockerName.equals(SENNA_LSH_BLOCKER)) {
+            if (embeddingsPath == null || sennaWordListPath == null) {
+                throw new ResourceInitializationException(new IllegalArgumentException(
+                        "Senna LSH blocker requires both the embedding and the word list path."));
+            }
+            SennaWordSimilarityCalculator senna = SennaWordSimilarityCalculator.acquire(embeddingsPath,
+                    sennaWordListPath);
+            numSennaAcquired++;
+            return new SennaLshBucketBlocker(senna, lshNumBands, lshBitsPerBand, lshSeed);
+        } else {
+            throw new ResourceInitializationException(new IllegalArgumentException(
+                    "Unknown candidate blocker: " + blockerName));
+        }
     }
 
     @Override
     public void process(JCas aJCas) throws AnalysisEngineProcessException {
         UimaConvenience.printProcessLog(aJCas, logger);
 
-        JCas goldStandardView = null;
+        // without a gold standard view, e.g. for plain text documents, the mentions of the document are used
+        JCas goldStandardView = aJCas;
 
         if (goldViewName != null) {
             try {
@@ -91,6 +192,9 @@ public class PairwiseEventFeatureContainerGenerator extends BaseAnalysisEngine {
         logger.debug(String.format("Number of full clusters : %d. Number of member clusters : %d. Number of subevent clusters : %d",
                 fullClusterList.size(), memberClusterList.size(), subeventClusterList.size()));
 
+        EventRelationIndex relationIndex = new EventRelationIndex(fullClusterList, memberClusterList,
+                subeventClusterList);
+
         // Gets only non-elliptical domain events.
         List<EventMention> nonEllipticalDomainEventMentionList;
 
@@ -100,35 +204,59 @@ public class PairwiseEventFeatureContainerGenerator extends BaseAnalysisEngine {
 
         // In the code below, event1 precedes event2 in terms of discourse.
         int eventMentionSize = nonEllipticalDomainEventMentionList.size();
-        for (int i = 0; i < eventMentionSize; i++) {
+
+        // Find the system mentions once, blockers work on them because they carry the annotations.
+        List<EventMention> systemMentions = new ArrayList<EventMention>(eventMentionSize);
+        for (EventMention goldMention : nonEllipticalDomainEventMentionList) {
+            systemMentions.add(findCorrespondingEventMention(aJCas, goldMention));
+        }
+
+        long[] candidatePairs = getCandidatePairs(aJCas, systemMentions);
+
+        int numAllPairs = eventMentionSize * (eventMentionSize - 1) / 2;
+        int numPrunedPairs = numAllPairs - candidatePairs.length;
+        totalNumOfEventPairs += numAllPairs;
+        totalNumOfPrunedEventPairs += numPrunedPairs;
+
+        logger.debug(String.format("%d candidate pairs kept, %d pairs pruned by blocking.", candidatePairs.length,
+                numPrunedPairs));
+        recordMetric("candidate_pairs", candidatePairs.length);
+        recordMetric("pruned_pairs", numPrunedPairs);
+
+        for (long pairKey : candidatePairs) {
+            int i = CandidatePairBlocker.getFirstIndex(pairKey);
+            int j = CandidatePairBlocker.getSecondIndex(pairKey);
+
             EventMention event1 = nonEllipticalDomainEventMentionList.get(i);
-            for (int j = i + 1; j < eventMentionSize; j++) {
-                totalNumOfEventPairs++;
-                EventMention event2 = nonEllipticalDomainEventMentionList.get(j);
-
-                DetailedEventCoreferenceRelationType relationType =
-                        EventRelationUtils.getRelation(fullClusterList, memberClusterList, subeventClusterList, event1, event2, true);
-
-                String relationTypeStr = relationType.toString();
-
-                MapUtils.incrementCounter(relationCounter, relationTypeStr);
-
-                EventMention systemMention1 = findCorrespondingEventMention(aJCas, event1);
-                EventMention systemMention2 = findCorrespondingEventMention(aJCas, event2);
-
-                if (systemMention1 != null && systemMention2 != null &&
-                        systemMention1.getHeadWord() != null && systemMention2.getHeadWord() != null) {
-                    PairwiseEventCoreferenceEvaluation pece = new PairwiseEventCoreferenceEvaluation(aJCas);
-                    pece.setEventMentionI(findCorrespondingEventMention(aJCas, event1));
-                    pece.setEventMentionJ(findCorrespondingEventMention(aJCas, event2));
-                    pece.setEventCoreferenceRelationGoldStandard(relationTypeStr);
-                    List<PairwiseEventFeature> pairwiseEventFeatures = new ArrayList<PairwiseEventFeature>();
-                    FSList pairwiseEventFeatureList = FSCollectionFactory.createFSList(aJCas, pairwiseEventFeatures);
-                    pece.setPairwiseEventFeatures(pairwiseEventFeatureList);
-                    pece.setComponentId(ANNOTATOR_COMPONENT_ID);
-                    pece.addToIndexes();
+            EventMention event2 = nonEllipticalDomainEventMentionList.get(j);
+
+            DetailedEventCoreferenceRelationType relationType = relationIndex.getRelation(event1, event2, true);
+
+            if (logger.isTraceEnabled()) {
+                DetailedEventCoreferenceRelationType scannedRelationType =
+                        relationIndex.getRelationByScan(event1, event2, true);
+                if (scannedRelationType != relationType) {
+                    logger.warn(String.format("Relation index gives %s but cluster scan gives %s for [%s] and [%s]",
+                            relationType, scannedRelationType, event1.getCoveredText(), event2.getCoveredText()));
                 }
             }
+
+            String relationTypeStr = relationType.toString();
+
+            MapUtils.incrementCounter(relationCounter, relationTypeStr);
+
+            EventMention systemMention1 = systemMentions.get(i);
+            EventMention systemMention2 = systemMentions.get(j);
+
+            if (systemMention1 != null && systemMention2 != null &&
+                    systemMention1.getHeadWord() != null && systemMention2.getHeadWord() != null) {
+                PairwiseEventCoreferenceEvaluation pece = new PairwiseEventCoreferenceEvaluation(aJCas);
+                pece.setEventMentionI(systemMention1);
+                pece.setEventMentionJ(systemMention2);
+                pece.setEventCoreferenceRelationGoldStandard(relationTypeStr);
+                pece.setComponentId(ANNOTATOR_COMPONENT_ID);
+                pece.addToIndexes();
+            }
         }
 
 //        logger.info(String.format("There are %d gold standard full clusters, %d system full clusters",
@@ -137,10 +265,42 @@ public class PairwiseEventFeatureContainerGenerator extends BaseAnalysisEngine {
         logger.info(String.format("%d relations created.", JCasUtil.select(aJCas, PairwiseEventCoreferenceEvaluation.class).size()));
 
         DocumentStatistics annDocumentStatistics = new DocumentStatistics(aJCas);
-        annDocumentStatistics.setNumberOfEventPairs(totalNumOfEventPairs);
+        annDocumentStatistics.setNumberOfEventPairs(numAllPairs);
+        annDocumentStatistics.setNumberOfCandidateEventPairs(candidatePairs.length);
+        annDocumentStatistics.setNumberOfPrunedEventPairs(numPrunedPairs);
         annDocumentStatistics.addToIndexes();
     }
 
+    /**
+     * Get the candidate pairs from all blockers, sorted in discourse order. If no blockers are
+     * specified, all pairs are candidates.
+     *
+     * @param aJCas
+     * @param systemMentions
+     * @return the sorted pair keys, see {@link CandidatePairBlocker#toPairKey(int, int)}
+     */
+    private long[] getCandidatePairs(JCas aJCas, List<EventMention> systemMentions) {
+        int eventMentionSize = systemMentions.size();
+        long[] candidatePairs;
+        if (blockers.isEmpty()) {
+            candidatePairs = new long[eventMentionSize * (eventMentionSize - 1) / 2];
+            int index = 0;
+            for (int i = 0; i < eventMentionSize; i++) {
+                for (int j = i + 1; j < eventMentionSize; j++) {
+                    candidatePairs[index++] = CandidatePairBlocker.toPairKey(i, j);
+                }
+            }
+        } else {
+            TLongSet candidatePairSet = new TLongHashSet();
+            for (CandidatePairBlocker blocker : blockers) {
+                blocker.addCandidatePairs(aJCas, systemMentions, candidatePairSet);
+            }
+            candidatePairs = candidatePairSet.toArray();
+            Arrays.sort(candidatePairs);
+        }
+        return candidatePairs;
+    }
+
     /**
      * This is the oversimplified version of finding the system event mention
      * regarding the gold standard event mention
@@ -172,15 +332,30 @@ public class PairwiseEventFeatureContainerGenerator extends BaseAnalysisEngine {
             }
         }
 
+        collectionStatistics.addAll(relationCounter);
+        collectionStatistics.add(TOTAL_EVENT_PAIRS, totalNumOfEventPairs);
+        collectionStatistics.add(TOTAL_PRUNED_EVENT_PAIRS, totalNumOfPrunedEventPairs);
+
+        // only the last replica reports, with the counts of the whole collection
+        if (!collectionStatistics.complete()) {
+            return;
+        }
+
         for (DetailedEventCoreferenceRelationType relationType : DetailedEventCoreferenceRelationType.values()) {
             String relationTypeStr = relationType.toString();
-            int count = 0;
-            if (relationCounter.containsKey(relationTypeStr)) {
-                count = relationCounter.get(relationTypeStr);
-            }
+            int count = collectionStatistics.getCount(relationTypeStr);
             logger.info("# of " + relationTypeStr + " relations: " + count);
         }
-        logger.info("The total number of event pairs: " + totalNumOfEventPairs);
+        logger.info("The total number of event pairs: " + collectionStatistics.getCount(TOTAL_EVENT_PAIRS));
+        logger.info("The total number of event pairs pruned by blocking: "
+                + collectionStatistics.getCount(TOTAL_PRUNED_EVENT_PAIRS));
     }
 
+    @Override
+    public void destroy() {
+        for (int i = 0; i < numSennaAcquired; i++) {
+            SennaWordSimilarityCalculator.release(embeddingsPath, sennaWordListPath);
+        }
+        super.destroy();
+    }
 }
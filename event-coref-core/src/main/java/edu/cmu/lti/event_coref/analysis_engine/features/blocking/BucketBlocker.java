@@ -0,0 +1,56 @@
+package edu.cmu.lti.event_coref.analysis_engine.features.blocking;
+
+import edu.cmu.lti.event_coref.type.EventMention;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.TLongSet;
+import org.apache.uima.jcas.JCas;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A blocker that put each mention into one or more buckets, and only pairs mentions sharing at
+ * least one bucket. The cost is linear in the number of mentions plus the size of the buckets.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public abstract class BucketBlocker extends CandidatePairBlocker {
+    /**
+     * Return the bucket keys of the given mention, return an empty collection if the mention should
+     * not be blocked with anything
+     *
+     * @param mention
+     * @return
+     */
+    protected abstract Collection<String> getBucketKeys(EventMention mention);
+
+    @Override
+    public void addCandidatePairs(JCas aJCas, List<EventMention> mentions, TLongSet candidatePairs) {
+        Map<String, TIntArrayList> buckets = new HashMap<String, TIntArrayList>();
+
+        for (int i = 0; i < mentions.size(); i++) {
+            EventMention mention = mentions.get(i);
+            if (mention == null) {
+                continue;
+            }
+            for (String key : getBucketKeys(mention)) {
+                TIntArrayList bucket = buckets.get(key);
+                if (bucket == null) {
+                    bucket = new TIntArrayList();
+                    buckets.put(key, bucket);
+                }
+                bucket.add(i);
+            }
+        }
+
+        for (TIntArrayList bucket : buckets.values()) {
+            for (int a = 0; a < bucket.size(); a++) {
+                for (int b = a + 1; b < bucket.size(); b++) {
+                    candidatePairs.add(toPairKey(bucket.get(a), bucket.get(b)));
+                }
+            }
+        }
+    }
+}
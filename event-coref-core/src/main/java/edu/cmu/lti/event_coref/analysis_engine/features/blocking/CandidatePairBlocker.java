@@ -0,0 +1,51 @@
+package edu.cmu.lti.event_coref.analysis_engine.features.blocking;
+
+import edu.cmu.lti.event_coref.type.EventMention;
+import gnu.trove.set.TLongSet;
+import org.apache.uima.jcas.JCas;
+
+import java.util.List;
+
+/**
+ * A blocker decides which event mention pairs are worth creating a pairwise container for. Blockers
+ * work on positions of the given mention list, and report candidate pairs (i < j) through a shared
+ * set of pair keys, so that the results of several blockers can simply be unioned.
+ * <p/>
+ * Entries in the mention list can be null (e.g. no system mention found for a gold mention), such
+ * entries should never be paired.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public abstract class CandidatePairBlocker {
+    /**
+     * Add the keys of the candidate pairs found by this blocker to the given set.
+     *
+     * @param aJCas          The JCas where the mentions live in
+     * @param mentions       Event mentions in discourse order
+     * @param candidatePairs Set of pair keys created by {@link #toPairKey(int, int)}
+     */
+    public abstract void addCandidatePairs(JCas aJCas, List<EventMention> mentions, TLongSet candidatePairs);
+
+    /**
+     * Encode a pair of positions into a long, the smaller one is always put into the high bits, so
+     * that sorting the keys gives the discourse order of pairs.
+     *
+     * @param i
+     * @param j
+     * @return
+     */
+    public static long toPairKey(int i, int j) {
+        if (i > j) {
+            return toPairKey(j, i);
+        }
+        return ((long) i << 32) | (j & 0xFFFFFFFFL);
+    }
+
+    public static int getFirstIndex(long pairKey) {
+        return (int) (pairKey >>> 32);
+    }
+
+    public static int getSecondIndex(long pairKey) {
+        return (int) pairKey;
+    }
+}
@@ -0,0 +1,36 @@
+package edu.cmu.lti.event_coref.analysis_engine.features.blocking;
+
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.type.Word;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bucket mentions by the lemma and the morpha of their head words, mentions sharing either of them
+ * will be paired.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class LemmaBucketBlocker extends BucketBlocker {
+    @Override
+    protected Collection<String> getBucketKeys(EventMention mention) {
+        List<String> keys = new ArrayList<String>(2);
+        Word headWord = mention.getHeadWord();
+        if (headWord == null) {
+            return keys;
+        }
+
+        String lemma = headWord.getLemma();
+        if (lemma != null) {
+            keys.add("lemma:" + lemma.toLowerCase());
+        }
+
+        String morpha = headWord.getMorpha();
+        if (morpha != null) {
+            keys.add("morpha:" + morpha.toLowerCase());
+        }
+        return keys;
+    }
+}
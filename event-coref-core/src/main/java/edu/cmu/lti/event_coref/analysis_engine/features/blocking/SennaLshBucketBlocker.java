@@ -0,0 +1,83 @@
+package edu.cmu.lti.event_coref.analysis_engine.features.blocking;
+
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.type.Word;
+import edu.cmu.lti.event_coref.utils.SennaWordSimilarityCalculator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Bucket mentions using random hyperplane locality sensitive hashing over the Senna embedding of
+ * the head word lemma. Each band hashes the embedding into a bit signature, mentions with the same
+ * signature in any band fall into the same bucket, so pairs with high cosine similarity are very
+ * likely to be paired.
+ * <p/>
+ * More bands increase recall, more bits per band increase precision.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class SennaLshBucketBlocker extends BucketBlocker {
+    private final SennaWordSimilarityCalculator sennaCal;
+
+    private final int numBands;
+
+    private final int bitsPerBand;
+
+    // hyperplanes[band][bit] is a normal vector of one random hyperplane
+    private double[][][] hyperplanes;
+
+    public SennaLshBucketBlocker(SennaWordSimilarityCalculator sennaCal, int numBands, int bitsPerBand, long seed) {
+        if (bitsPerBand > 63) {
+            throw new IllegalArgumentException("Cannot use more than 63 bits per band.");
+        }
+
+        this.sennaCal = sennaCal;
+        this.numBands = numBands;
+        this.bitsPerBand = bitsPerBand;
+
+        int dimension = sennaCal.getDimension();
+        Random random = new Random(seed);
+        hyperplanes = new double[numBands][bitsPerBand][dimension];
+        for (int band = 0; band < numBands; band++) {
+            for (int bit = 0; bit < bitsPerBand; bit++) {
+                for (int d = 0; d < dimension; d++) {
+                    hyperplanes[band][bit][d] = random.nextGaussian();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected Collection<String> getBucketKeys(EventMention mention) {
+        List<String> keys = new ArrayList<String>(numBands);
+
+        Word headWord = mention.getHeadWord();
+        if (headWord == null || headWord.getLemma() == null) {
+            return keys;
+        }
+
+        double[] vector = sennaCal.getVector(headWord.getLemma().toLowerCase());
+        if (vector == null) {
+            return keys;
+        }
+
+        for (int band = 0; band < numBands; band++) {
+            long signature = 0;
+            for (int bit = 0; bit < bitsPerBand; bit++) {
+                double[] plane = hyperplanes[band][bit];
+                double dot = 0;
+                for (int d = 0; d < vector.length; d++) {
+                    dot += plane[d] * vector[d];
+                }
+                if (dot >= 0) {
+                    signature |= 1L << bit;
+                }
+            }
+            keys.add("lsh" + band + ":" + signature);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,67 @@
+package edu.cmu.lti.event_coref.analysis_engine.features.blocking;
+
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.type.Sentence;
+import gnu.trove.set.TLongSet;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pair mentions that are at most a given number of sentences away from each other. Mentions are
+ * assumed to be in discourse order, so the pairs are found with a single sweep.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class SentenceWindowBlocker extends CandidatePairBlocker {
+    private final int windowSize;
+
+    public SentenceWindowBlocker(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public void addCandidatePairs(JCas aJCas, List<EventMention> mentions, TLongSet candidatePairs) {
+        Map<EventMention, Collection<Sentence>> coveringSentences = JCasUtil.indexCovering(aJCas,
+                EventMention.class, Sentence.class);
+
+        Map<Sentence, Integer> sentenceOrdinals = new HashMap<Sentence, Integer>();
+        int ordinal = 0;
+        for (Sentence sentence : JCasUtil.select(aJCas, Sentence.class)) {
+            sentenceOrdinals.put(sentence, ordinal++);
+        }
+
+        int[] sentenceIndices = new int[mentions.size()];
+        for (int i = 0; i < mentions.size(); i++) {
+            EventMention mention = mentions.get(i);
+            sentenceIndices[i] = -1;
+            if (mention == null) {
+                continue;
+            }
+
+            Collection<Sentence> sentences = coveringSentences.get(mention);
+            if (sentences != null && !sentences.isEmpty()) {
+                sentenceIndices[i] = sentenceOrdinals.get(sentences.iterator().next());
+            }
+        }
+
+        for (int i = 0; i < mentions.size(); i++) {
+            if (sentenceIndices[i] < 0) {
+                continue;
+            }
+            for (int j = i + 1; j < mentions.size(); j++) {
+                if (sentenceIndices[j] < 0) {
+                    continue;
+                }
+                if (sentenceIndices[j] - sentenceIndices[i] > windowSize) {
+                    break;
+                }
+                candidatePairs.add(toPairKey(i, j));
+            }
+        }
+    }
+}
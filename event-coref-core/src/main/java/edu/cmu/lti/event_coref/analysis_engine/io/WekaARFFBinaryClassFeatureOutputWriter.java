@@ -3,22 +3,25 @@ package edu.cmu.lti.event_coref.analysis_engine.io;
 import edu.cmu.lti.event_coref.type.EventCoreferenceCluster;
 import edu.cmu.lti.event_coref.type.EventMention;
 import edu.cmu.lti.event_coref.type.PairwiseEventCoreferenceEvaluation;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
+import edu.cmu.lti.event_coref.utils.CollectionStatistics;
 import edu.cmu.lti.event_coref.utils.eval.CorefChecker;
 import edu.cmu.lti.event_coref.utils.io.AbstractStepBasedFolderWriter;
 import edu.cmu.lti.event_coref.utils.ml.FeatureUtils;
+import edu.cmu.lti.event_coref.utils.ml.PairwiseFeatureMatrix;
+import edu.cmu.lti.event_coref.utils.ml.StreamingInstanceWriter;
 import edu.cmu.lti.event_coref.utils.ml.WekaFeatureFactory;
 import edu.cmu.lti.utils.uima.UimaConvenience;
+import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.fit.util.FSCollectionFactory;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
-import org.apache.uima.jcas.cas.FSList;
+import org.apache.uima.resource.ResourceInitializationException;
 import org.javatuples.Triplet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import weka.core.converters.ArffSaver;
 
 import java.io.File;
 import java.io.IOException;
@@ -28,7 +31,14 @@ import java.util.Map;
 import java.util.Set;
 
 /**
- * This writer will write features using Weka ARFF format
+ * This writer will write features using Weka ARFF format. The instances of each document are
+ * appended to the file when the document is processed (see {@link StreamingInstanceWriter}), so the
+ * dataset is never held in memory. The output can also be sparse ARFF or the compact binary format,
+ * and a run with {@link #PARAM_RESUME} continues the output of a crashed run.
+ * <p/>
+ * All documents go to one file, so there must be one instance of the writer: with
+ * edu.cmu.lti.event_coref.pipeline.MultiThreadedPipeline it is given as a collection engine, and
+ * initialize fails if it is replicated as a document engine.
  *
  * @author Zhengzhong Liu, Hector
  */
@@ -48,6 +58,10 @@ public class WekaARFFBinaryClassFeatureOutputWriter extends AbstractStepBasedFol
 
     public static final String PARAM_TARGET_PECE_COMPONENT_ID = "targetPeceComponentId";
 
+    public static final String PARAM_OUTPUT_FORMAT = "OutputFormat";
+
+    public static final String PARAM_RESUME = "Resume";
+
     @ConfigurationParameter(name = PARAM_TARGET_PECE_COMPONENT_ID, mandatory = true, description = "Target Pece to output, give null will output everything")
     private String targetPeceComponentId;
 
@@ -63,6 +77,12 @@ public class WekaARFFBinaryClassFeatureOutputWriter extends AbstractStepBasedFol
     @ConfigurationParameter(name = PARAM_FEATURE_FILE_OUTPUT_FILE_NAME, mandatory = true)
     private String featureOutputFileName;
 
+    @ConfigurationParameter(name = PARAM_OUTPUT_FORMAT, mandatory = false, description = "One of DENSE_ARFF (default), SPARSE_ARFF or BINARY")
+    private String outputFormat;
+
+    @ConfigurationParameter(name = PARAM_RESUME, mandatory = false, description = "Continue the output of a previous run, skipping its documents")
+    private Boolean resume;
+
     private Map<String, Triplet<Integer, Boolean, String>> featureNameMap;
 
     private String featureFileOutputFullPath;
@@ -71,6 +91,12 @@ public class WekaARFFBinaryClassFeatureOutputWriter extends AbstractStepBasedFol
 
     private WekaFeatureFactory featureFactory;
 
+    private StreamingInstanceWriter instanceWriter;
+
+    // numbers the documents, and tells whether the writer is replicated
+    @ExternalResource(key = CollectionStatistics.RESOURCE_KEY, mandatory = false)
+    private CollectionStatistics collectionStatistics;
+
     private HashMap<EventMention, Integer> anaphoricPositions;
 
     @Override
@@ -90,9 +116,39 @@ public class WekaARFFBinaryClassFeatureOutputWriter extends AbstractStepBasedFol
                 postiveClassName);
     }
 
+    @Override
+    public void initialize(UimaContext aContext) throws ResourceInitializationException {
+        super.initialize(aContext);
+        collectionStatistics = CollectionStatistics.register(collectionStatistics);
+        if (collectionStatistics.getNumActiveReplicas() > 1) {
+            throw new ResourceInitializationException(new IllegalStateException(String.format(
+                    "Several replicas would write %s, run the writer as a collection engine",
+                    featureFileOutputFullPath)));
+        }
+
+        StreamingInstanceWriter.Format format = outputFormat == null ? StreamingInstanceWriter.Format.DENSE_ARFF
+                : StreamingInstanceWriter.Format.valueOf(outputFormat);
+        try {
+            instanceWriter = new StreamingInstanceWriter(new File(featureFileOutputFullPath),
+                    featureFactory.getDataset(), format, resume != null && resume);
+        } catch (IOException e) {
+            throw new ResourceInitializationException(e);
+        }
+    }
+
     @Override
     public void process(JCas aJCas) throws AnalysisEngineProcessException {
         UimaConvenience.printProcessLog(aJCas, logger);
+        int docCounter = collectionStatistics.nextDocumentNumber();
+        String docId = UimaConvenience.getDocId(aJCas, true, true);
+        if (docId == null) {
+            docId = "doc" + docCounter;
+        }
+        if (instanceWriter.isFinished(docId)) {
+            logger.info("Features of " + docId + " are already written, skipping");
+            return;
+        }
+
         anaphoricPositions = new HashMap<EventMention, Integer>();
 
         for (EventCoreferenceCluster clusters : JCasUtil.select(aJCas, EventCoreferenceCluster.class)) {
@@ -119,33 +175,32 @@ public class WekaARFFBinaryClassFeatureOutputWriter extends AbstractStepBasedFol
             }
         }
 
-        for (PairwiseEventCoreferenceEvaluation pece : JCasUtil.select(aJCas, PairwiseEventCoreferenceEvaluation.class)) {
-            if (targetPeceComponentId == null || pece.getComponentId().equals(targetPeceComponentId)) {
-                FSList featuresFS = pece.getPairwiseEventFeatures();
-                Map<String, Double> featuresMap = new HashMap<String, Double>();
-                if (featuresFS != null) {
-                    for (PairwiseEventFeature feature : FSCollectionFactory.create(featuresFS, PairwiseEventFeature.class)) {
-                        featuresMap.put(feature.getName(), feature.getScore());
-                    }
-                }
+        PairwiseFeatureMatrix featureMatrix = PairwiseFeatureMatrix.load(aJCas);
+        try {
+            for (PairwiseEventCoreferenceEvaluation pece : JCasUtil.select(aJCas, PairwiseEventCoreferenceEvaluation.class)) {
+                if (targetPeceComponentId == null || pece.getComponentId().equals(targetPeceComponentId)) {
+                    Map<String, Double> featuresMap = featureMatrix.getFeatureMap(pece);
 
-                // the feature is automatically added inside the factory
-                featureFactory.addInstance(featuresMap, coreferenceTypes.contains(CorefChecker.getCorefTypeGolden(pece)), defaultWeight);
+                    instanceWriter.add(featureFactory.buildLabeledInstance(featuresMap,
+                            coreferenceTypes.contains(CorefChecker.getCorefTypeGolden(pece)), defaultWeight));
+                }
             }
+            instanceWriter.finishDocument(docId);
+        } catch (IOException e) {
+            throw new AnalysisEngineProcessException(e);
         }
     }
 
     @Override
     public void collectionProcessComplete()
             throws AnalysisEngineProcessException {
-        ArffSaver saver = new ArffSaver();
-        saver.setInstances(featureFactory.getDataset());
+        logger.info(String.format("Wrote %d instances to %s", instanceWriter.getNumInstances(),
+                featureFileOutputFullPath));
+        collectionStatistics.complete();
         try {
-            saver.setFile(new File(featureFileOutputFullPath));
-            saver.writeBatch();
-            // featureSieveWriter.close();
+            instanceWriter.close();
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new AnalysisEngineProcessException(e);
         }
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,7 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Iterators;
 import edu.cmu.lti.event_coref.type.*;
 import edu.cmu.lti.event_coref.utils.APLUtils;
+import edu.cmu.lti.event_coref.utils.ModelRegistry;
 import edu.cmu.lti.event_coref.utils.SimilarityCalculator;
 import edu.cmu.lti.event_coref.utils.WorldGazetteer;
 import edu.cmu.lti.event_coref.utils.WorldGazetteerRecord;
@@ -26,6 +27,7 @@ import org.apache.uima.resource.ResourceInitializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.*;
 
 /**
@@ -75,8 +77,23 @@ public class IntegratedLocationAnnotator extends JCasAnnotator_ImplBase {
 //		geonameService = new GeonamesServices(geonameServiceUserName);
         sim = new SimilarityCalculator(true);
 
-        // Get config. parameter values
-        wg = new WorldGazetteer(gazetteerPath);
+        // Get config. parameter values, the gazetteer is shared by all instances of the annotator
+        wg = ModelRegistry.acquire(getGazetteerKey(), new ModelRegistry.Loader<WorldGazetteer>() {
+            @Override
+            public WorldGazetteer load() {
+                return new WorldGazetteer(gazetteerPath);
+            }
+        });
+    }
+
+    private String getGazetteerKey() {
+        return "world-gazetteer:" + new File(gazetteerPath).getAbsolutePath();
+    }
+
+    @Override
+    public void destroy() {
+        ModelRegistry.release(getGazetteerKey());
+        super.destroy();
     }
 
     @Override
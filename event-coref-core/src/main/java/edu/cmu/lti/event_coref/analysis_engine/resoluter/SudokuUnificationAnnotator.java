@@ -8,20 +8,27 @@ import edu.cmu.lti.event_coref.features.semantic.EntityOfEventFeatures;
 import edu.cmu.lti.event_coref.features.semantic.LocationFeatures;
 import edu.cmu.lti.event_coref.features.semantic.SemaforRoleFeatures;
 import edu.cmu.lti.event_coref.model.EventCorefConstants;
+import edu.cmu.lti.event_coref.model.EventMentionPairIndex;
 import edu.cmu.lti.event_coref.model.EventMentionRow;
 import edu.cmu.lti.event_coref.model.EventMentionRowPair;
 import edu.cmu.lti.event_coref.model.EventMentionTable;
+import edu.cmu.lti.event_coref.model.PairDependencyIndex;
 import edu.cmu.lti.event_coref.pipeline.SudokuInferencePipelineControllerPool;
 import edu.cmu.lti.event_coref.type.*;
 import edu.cmu.lti.event_coref.utils.APLUtils;
 import edu.cmu.lti.event_coref.utils.ClusterUtils;
+import edu.cmu.lti.event_coref.utils.CollectionStatistics;
 import edu.cmu.lti.event_coref.utils.SimilarityCalculator;
+import edu.cmu.lti.event_coref.utils.UnionFind;
 import edu.cmu.lti.event_coref.utils.eval.CorefChecker;
+import edu.cmu.lti.event_coref.utils.ml.PairwiseFeatureMatrix;
 import edu.cmu.lti.utils.uima.UimaConvenience;
+import gnu.trove.list.array.TIntArrayList;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.fit.util.FSCollectionFactory;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -89,6 +96,16 @@ public class SudokuUnificationAnnotator extends JCasAnnotator_ImplBase {
 
     private int unifyPairCount = 0;
 
+    private int dirtyPairCount = 0;
+
+    // the counts of all replicas of this annotator, bound per run by the pipeline
+    @ExternalResource(key = CollectionStatistics.RESOURCE_KEY, mandatory = false)
+    private CollectionStatistics collectionStatistics;
+
+    private static final String UNIFIED_PAIRS = "unifiedPairs";
+
+    private static final String DIRTY_PAIRS = "dirtyPairs";
+
     private Set<EventMention> changedEvents = new HashSet<EventMention>();
 
     private Set<EntityMention> changedEntities = new HashSet<EntityMention>();
@@ -97,6 +114,7 @@ public class SudokuUnificationAnnotator extends JCasAnnotator_ImplBase {
     public void initialize(UimaContext aContext) throws ResourceInitializationException {
         super.initialize(aContext);
         rowFiller = new SimilarityCalculator();
+        collectionStatistics = CollectionStatistics.register(collectionStatistics);
 
         if (doUnification) {
             System.err.println("Unification function is activated");
@@ -147,21 +165,27 @@ public class SudokuUnificationAnnotator extends JCasAnnotator_ImplBase {
 
         int directTransferCount = 0;
 
+        // changes are tracked per document
+        changedEvents.clear();
+        changedEntities.clear();
+
+        // NOTE: built before unification, merging entity clusters changes the related entities
+        PairDependencyIndex dependencyIndex = buildDependencyIndex(peceCorefEvals);
+
         // NOTE: clean out cluster result produced by last iteration
         clearSystemClusters(aJCas);
-        List<Set<EventMention>> fullCorefClusters = createCluster(peceCorefEvals, aJCas);
+        EventMentionPairIndex mentionIndex = new EventMentionPairIndex(aJCas);
+        UnionFind fullCorefClusters = createCluster(peceCorefEvals, mentionIndex, aJCas);
 
         for (PairwiseEventCoreferenceEvaluation pece : peceCorefEvals) {
             EventMention event1 = pece.getEventMentionI();
             EventMention event2 = pece.getEventMentionJ();
 
             if (!CorefChecker.isFullSystem(pece)) {
-                for (Set<EventMention> fullCorefCluster : fullCorefClusters) {
-                    if (fullCorefCluster.contains(event1) && fullCorefCluster.contains(event2)) {
-                        pece.setEventCoreferenceRelationSystem(EventCorefConstants.FULL_COREFERENCE_TYPE_IN_PECE);
-                        directTransferCount++;
-                        break;
-                    }
+                if (fullCorefClusters.connected(mentionIndex.requireMentionIndex(event1),
+                        mentionIndex.requireMentionIndex(event2))) {
+                    pece.setEventCoreferenceRelationSystem(EventCorefConstants.FULL_COREFERENCE_TYPE_IN_PECE);
+                    directTransferCount++;
                 }
             }
 
@@ -180,7 +204,7 @@ public class SudokuUnificationAnnotator extends JCasAnnotator_ImplBase {
         }
 
         Map<EventMentionRowPair, PairwiseEventCoreferenceEvaluation> affectedRowPairs = findAffectedRowPairs(
-                aJCas, peceCorefEvals, sTable);
+                peceCorefEvals, dependencyIndex, sTable);
 
         if (verboseLevel >= 1) {
             logger.debug("#Changed events : " + changedEvents.size());
@@ -188,12 +212,18 @@ public class SudokuUnificationAnnotator extends JCasAnnotator_ImplBase {
             logger.debug("#Affected pairs :" + affectedRowPairs.size());
         }
 
+        dirtyPairCount += affectedRowPairs.size();
+
         if (needUpdateFeatures) {
             if (verboseLevel >= 1) {
                 logger.debug("Updating features...");
             }
             updateNeccessaryFeatures(aJCas, affectedRowPairs.values(), sTable, rowFiller,
                     lowConfidentAnnotatorNames);
+            // features changed, ask the classifier to score these pairs again
+            for (PairwiseEventCoreferenceEvaluation pece : affectedRowPairs.values()) {
+                pece.setIsScored(false);
+            }
             if (verboseLevel >= 1)
                 logger.debug("Finish update");
         }
@@ -215,25 +245,29 @@ public class SudokuUnificationAnnotator extends JCasAnnotator_ImplBase {
     }
 
     /**
-     * Create cluster
+     * Create cluster, the clusters are stored as disjoint sets over the mention indices
      *
      * @param peceCorefEvals
+     * @param mentionIndex
      * @return
      */
-    private List<Set<EventMention>> createCluster(
-            Collection<PairwiseEventCoreferenceEvaluation> peceCorefEvals, JCas aJCas) {
-
-        List<Set<EventMention>> clusters = new ArrayList<Set<EventMention>>();
+    private UnionFind createCluster(Collection<PairwiseEventCoreferenceEvaluation> peceCorefEvals,
+                                    EventMentionPairIndex mentionIndex, JCas aJCas) {
+        UnionFind clusters = new UnionFind(mentionIndex.getNumberOfMentions());
 
         if (clusterMethod == 0) {
-            clusters = bestLinkCluster(peceCorefEvals);
+            bestLinkCluster(peceCorefEvals, mentionIndex, clusters);
         } else if (clusterMethod == 1) {
-            clusters = transtiveClosureCluster(peceCorefEvals);
+            transtiveClosureCluster(peceCorefEvals, mentionIndex, clusters);
         }
 
-        for (Set<EventMention> clusterSet : clusters) {
+        for (TIntArrayList clusterIndices : clusters.getSets(2)) {
+            List<EventMention> clusterMentions = new ArrayList<EventMention>(clusterIndices.size());
+            for (int i = 0; i < clusterIndices.size(); i++) {
+                clusterMentions.add(mentionIndex.getMention(clusterIndices.get(i)));
+            }
             EventCoreferenceCluster cluster = new EventCoreferenceCluster(aJCas);
-            cluster.setChildEventMentions(FSCollectionFactory.createFSList(aJCas, clusterSet));
+            cluster.setChildEventMentions(FSCollectionFactory.createFSList(aJCas, clusterMentions));
             cluster.setComponentId(ANNOTATOR_COMPONENT_ID);
             cluster.setClusterType(EventCorefConstants.FULL_COREFERENCE_TYPE);
             cluster.addToIndexes();
@@ -246,10 +280,11 @@ public class SudokuUnificationAnnotator extends JCasAnnotator_ImplBase {
      * Best link method, usually used in Entity coreference, which assume
      *
      * @param peceCorefEvals
-     * @return
+     * @param mentionIndex
+     * @param clusters
      */
-    private List<Set<EventMention>> bestLinkCluster(
-            Collection<PairwiseEventCoreferenceEvaluation> peceCorefEvals) {
+    private void bestLinkCluster(Collection<PairwiseEventCoreferenceEvaluation> peceCorefEvals,
+                                 EventMentionPairIndex mentionIndex, UnionFind clusters) {
         Map<EventMention, Pair<EventMention, Double>> bestLinks = new HashMap<EventMention, Pair<EventMention, Double>>();
 
         for (PairwiseEventCoreferenceEvaluation pece : peceCorefEvals) {
@@ -269,105 +304,81 @@ public class SudokuUnificationAnnotator extends JCasAnnotator_ImplBase {
             }
         }
 
-        List<Set<EventMention>> fullCorefClusters = new ArrayList<Set<EventMention>>();
-
         for (Entry<EventMention, Pair<EventMention, Double>> bestLink : bestLinks.entrySet()) {
-            EventMention event1 = bestLink.getKey();
-            EventMention event2 = bestLink.getValue().getValue0();
-
-            boolean inPreviousCluster = false;
-            for (Set<EventMention> cluster : fullCorefClusters) {
-                if (cluster.contains(event1) || cluster.contains(event2)) {
-                    cluster.add(event1);
-                    cluster.add(event2);
-                    inPreviousCluster = true;
-                }
-            }
+            clusters.union(mentionIndex.requireMentionIndex(bestLink.getKey()),
+                    mentionIndex.requireMentionIndex(bestLink.getValue().getValue0()));
+        }
+    }
 
-            if (!inPreviousCluster) {
-                // create a new cluster
-                Set<EventMention> cluster = new HashSet<EventMention>();
-                cluster.add(event1);
-                cluster.add(event2);
-                fullCorefClusters.add(cluster);
+    /**
+     * A simple transitive closure method
+     *
+     * @param peceCorefEvals
+     * @param mentionIndex
+     * @param clusters
+     */
+    private void transtiveClosureCluster(Collection<PairwiseEventCoreferenceEvaluation> peceCorefEvals,
+                                         EventMentionPairIndex mentionIndex, UnionFind clusters) {
+        for (PairwiseEventCoreferenceEvaluation pece : peceCorefEvals) {
+            if (CorefChecker.isFullSystem(pece)) {
+                clusters.union(mentionIndex.requireMentionIndex(pece.getEventMentionI()),
+                        mentionIndex.requireMentionIndex(pece.getEventMentionJ()));
             }
         }
-
-        return fullCorefClusters;
     }
 
     /**
-     * A simple transitive closure method
+     * Index the pairs by the events and entities their features depend on
      *
      * @param peceCorefEvals
      * @return
      */
-    private List<Set<EventMention>> transtiveClosureCluster(
-            Collection<PairwiseEventCoreferenceEvaluation> peceCorefEvals) {
-        int goldenLotteryCount = 0;
+    private PairDependencyIndex buildDependencyIndex(Collection<PairwiseEventCoreferenceEvaluation> peceCorefEvals) {
+        PairDependencyIndex dependencyIndex = new PairDependencyIndex();
+        Map<EventMention, Set<EntityMention>> relatedEntitiesOfEvent = new HashMap<EventMention, Set<EntityMention>>();
 
-        List<Set<EventMention>> fullCorefClusters = new ArrayList<Set<EventMention>>();
         for (PairwiseEventCoreferenceEvaluation pece : peceCorefEvals) {
-            EventMention event1 = pece.getEventMentionI();
-            EventMention event2 = pece.getEventMentionJ();
-
-            if (CorefChecker.isFullSystem(pece)) {
-                boolean inPreviousCluster = false;
-                for (Set<EventMention> cluster : fullCorefClusters) {
-                    if (cluster.contains(event1) || cluster.contains(event2)) {
-                        cluster.add(event1);
-                        cluster.add(event2);
-                        inPreviousCluster = true;
-                    }
-                }
-
-                if (!inPreviousCluster) {
-                    // create a new cluster
-                    Set<EventMention> cluster = new HashSet<EventMention>();
-                    cluster.add(event1);
-                    cluster.add(event2);
-                    fullCorefClusters.add(cluster);
+            Set<EntityMention> relatedEntities = new HashSet<EntityMention>();
+            for (EventMention event : Arrays.asList(pece.getEventMentionI(), pece.getEventMentionJ())) {
+                Set<EntityMention> eventEntities = relatedEntitiesOfEvent.get(event);
+                if (eventEntities == null) {
+                    eventEntities = getRelatedEntities(event);
+                    relatedEntitiesOfEvent.put(event, eventEntities);
                 }
+                relatedEntities.addAll(eventEntities);
             }
+            dependencyIndex.addPair(pece, relatedEntities);
         }
 
-        if (verboseLevel >= 1) {
-            logger.debug("#Golden helps : " + goldenLotteryCount);
-        }
-        return fullCorefClusters;
+        return dependencyIndex;
     }
 
-    private Map<EventMentionRowPair, PairwiseEventCoreferenceEvaluation> findAffectedRowPairs(JCas aJCas,
-                                                                                              Collection<PairwiseEventCoreferenceEvaluation> peceCorefEvals, EventMentionTable sTable) {
+    private Map<EventMentionRowPair, PairwiseEventCoreferenceEvaluation> findAffectedRowPairs(
+            Collection<PairwiseEventCoreferenceEvaluation> peceCorefEvals, PairDependencyIndex dependencyIndex,
+            EventMentionTable sTable) {
         Map<EventMention, EventMentionRow> sudokuTable = sTable.getTableView();
 
         Map<EventMentionRowPair, PairwiseEventCoreferenceEvaluation> affectedPair2Pece = new HashMap<EventMentionRowPair, PairwiseEventCoreferenceEvaluation>();
 
-        for (PairwiseEventCoreferenceEvaluation pece : peceCorefEvals) {
-            EventMention event1 = pece.getEventMentionI();
-            EventMention event2 = pece.getEventMentionJ();
-
-            boolean eventAffected = changedEvents.contains(event1) || changedEvents.contains(event2);
+        Set<PairwiseEventCoreferenceEvaluation> dirtyPairs = dependencyIndex.getDirtyPairs(changedEvents,
+                changedEntities);
+        if (dirtyPairs.isEmpty()) {
+            return affectedPair2Pece;
+        }
 
-            boolean entityAffected = false;
-            for (EntityMention entity : getRelatedEntities(event1)) {
-                if (changedEntities.contains(entity)) {
-                    entityAffected = true;
-                }
+        // follow the order of the pairs in the document
+        for (PairwiseEventCoreferenceEvaluation pece : peceCorefEvals) {
+            if (!dirtyPairs.contains(pece)) {
+                continue;
             }
 
-            for (EntityMention entity : getRelatedEntities(event2)) {
-                if (changedEntities.contains(entity)) {
-                    entityAffected = true;
-                }
-            }
+            EventMention event1 = pece.getEventMentionI();
+            EventMention event2 = pece.getEventMentionJ();
 
-            if (eventAffected || entityAffected) {
-                if (event1.getEventType().equals("event") && event2.getEventType().equals("event")) {
-                    EventMentionRow row1 = sudokuTable.get(event1);
-                    EventMentionRow row2 = sudokuTable.get(event2);
-                    affectedPair2Pece.put(new EventMentionRowPair(row1, row2), pece);
-                }
+            if (event1.getEventType().equals("event") && event2.getEventType().equals("event")) {
+                EventMentionRow row1 = sudokuTable.get(event1);
+                EventMentionRow row2 = sudokuTable.get(event2);
+                affectedPair2Pece.put(new EventMentionRowPair(row1, row2), pece);
             }
         }
 
@@ -411,8 +422,15 @@ public class SudokuUnificationAnnotator extends JCasAnnotator_ImplBase {
 
     @Override
     public void collectionProcessComplete() throws AnalysisEngineProcessException {
-        System.out.println("Number of unifications " + unifyPairCount);
-        SudokuInferencePipelineControllerPool.unifiedEventCount = unifyPairCount;
+        collectionStatistics.add(UNIFIED_PAIRS, unifyPairCount);
+        collectionStatistics.add(DIRTY_PAIRS, dirtyPairCount);
+
+        // only the last replica reports, with the counts of the whole collection
+        if (collectionStatistics.complete()) {
+            System.out.println("Number of unifications " + collectionStatistics.getCount(UNIFIED_PAIRS));
+            SudokuInferencePipelineControllerPool.unifiedEventCount = collectionStatistics.getCount(UNIFIED_PAIRS);
+            SudokuInferencePipelineControllerPool.dirtyPairCount = collectionStatistics.getCount(DIRTY_PAIRS);
+        }
     }
 
     /**
@@ -437,34 +455,17 @@ public class SudokuUnificationAnnotator extends JCasAnnotator_ImplBase {
         affectedFeatureGenerators.add(new SemaforRoleFeatures(simCalc));
         affectedFeatureGenerators.add(new EntityOfEventFeatures(aJCas));
 
+        PairwiseFeatureMatrix featureMatrix = PairwiseFeatureMatrix.load(aJCas);
         for (PairwiseEventCoreferenceEvaluation pece : peceList) {
-            Collection<PairwiseEventFeature> features = FSCollectionFactory.create(
-                    pece.getPairwiseEventFeatures(), PairwiseEventFeature.class);
-
-            HashMap<String, PairwiseEventFeature> featureByName = new HashMap<String, PairwiseEventFeature>();
-            for (PairwiseEventFeature feature : features) {
-                featureByName.put(feature.getName(), feature);
-            }
-
             EventMention event1 = pece.getEventMentionI();
             EventMention event2 = pece.getEventMentionJ();
 
+            // new values replace the old values of the same feature
             for (PairwiseFeatureGenerator generator : affectedFeatureGenerators) {
-                for (PairwiseEventFeature feature : generator.createFeatures(aJCas, event1, event2)) {
-                    String featureName = feature.getName();
-                    if (featureByName.containsKey(featureName)) {
-                        PairwiseEventFeature oldFeature = featureByName.get(featureName);
-                        oldFeature.removeFromIndexes(aJCas); // remove the old feature
-                    }
-                    featureByName.put(feature.getName(), feature); // put in the new feature
-                }
+                featureMatrix.setFeatures(pece, generator.createFeatures(aJCas, event1, event2));
             }
-
-            FSList oldFeatureFS = pece.getPairwiseEventFeatures();
-            oldFeatureFS.removeFromIndexes(aJCas);// let's remove this too
-            pece.setPairwiseEventFeatures(FSCollectionFactory.createFSList(aJCas, featureByName.values()));
         }
-
+        featureMatrix.save(aJCas);
     }
 
     private void unifyEvents(JCas aJCas, PairwiseEventCoreferenceEvaluation pece) {
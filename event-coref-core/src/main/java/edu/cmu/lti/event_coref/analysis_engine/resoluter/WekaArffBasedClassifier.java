@@ -1,8 +1,11 @@
 package edu.cmu.lti.event_coref.analysis_engine.resoluter;
 
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 import edu.cmu.lti.event_coref.model.EventCorefConstants;
 import edu.cmu.lti.event_coref.pipeline.SudokuInferencePipelineControllerPool;
 import edu.cmu.lti.event_coref.type.PairwiseEventCoreferenceEvaluation;
+import edu.cmu.lti.event_coref.utils.CollectionStatistics;
 import edu.cmu.lti.event_coref.utils.eval.BlancScore;
 import edu.cmu.lti.event_coref.utils.eval.CorefChecker;
 import edu.cmu.lti.event_coref.utils.eval.PairwiseScore;
@@ -11,16 +14,21 @@ import edu.cmu.lti.event_coref.utils.ml.*;
 import edu.cmu.lti.utils.uima.UimaConvenience;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.javatuples.Triplet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import weka.core.Instance;
 import weka.core.Instances;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * A Weka based classifier.
@@ -46,6 +54,8 @@ public class WekaArffBasedClassifier extends AbstractStepBasedFolderConsumer {
 
     public static final String PARAM_NUMBER_OF_FOLDS = "NumberOfFoldForTuning";
 
+    public static final String PARAM_NUM_THREADS = "NumThreads";
+
     @ConfigurationParameter(name = PARAM_PRE_SAVED_MODEL_FILE_NAME)
     private String preSavedModelFileName;
 
@@ -58,6 +68,10 @@ public class WekaArffBasedClassifier extends AbstractStepBasedFolderConsumer {
     @ConfigurationParameter(name = PARAM_FEAUTURE_NAME_PATH)
     private String featureNamePath;
 
+    @ConfigurationParameter(name = PARAM_NUM_THREADS, mandatory = false, defaultValue = "1",
+            description = "Number of threads used to score the pairs of a document")
+    private int numThreads;
+
     private int trueFullPositiveCount = 0;
 
     private int falseFullPositiveCount = 0;
@@ -78,12 +92,31 @@ public class WekaArffBasedClassifier extends AbstractStepBasedFolderConsumer {
 
     private WekaClassifierWrapper overallClsWrapper;
 
+    // digest of the model file, scores of pairs are reused only if they come from the same model
+    private String modelId;
+
     private WekaFeatureFactory topTestingFeatureFactory;
 
     private int defaultWeight = 1;
 
     private int testInstanceCount = 0;
 
+    private ExecutorService scoringExecutor;
+
+    // the counts of all replicas of this classifier, bound per run by the pipeline
+    @ExternalResource(key = CollectionStatistics.RESOURCE_KEY, mandatory = false)
+    private CollectionStatistics collectionStatistics;
+
+    private static final String TRUE_POSITIVE = "truePositive";
+
+    private static final String FALSE_POSITIVE = "falsePositive";
+
+    private static final String TRUE_NEGATIVE = "trueNegative";
+
+    private static final String FALSE_NEGATIVE = "falseNegative";
+
+    private static final String PRE_FILTER_ERROR = "preFilterError";
+
     @Override
     public void subInitialize() throws Exception {
         featureNameMap = FeatureUtils.getFeatureInfoMap(featureNamePath);
@@ -95,8 +128,23 @@ public class WekaArffBasedClassifier extends AbstractStepBasedFolderConsumer {
 
         logger.info("Loading classifier from file...");
         overallClsWrapper = WekaUtils.loadWrapper(preSavedModelFileName);
+        modelId = Files.hash(new File(preSavedModelFileName), Hashing.md5()).toString();
 
         logger.info("Initialized with " + overallClsWrapper.getClassifierType());
+
+        if (numThreads > 1) {
+            scoringExecutor = Executors.newFixedThreadPool(numThreads);
+        }
+
+        collectionStatistics = CollectionStatistics.register(collectionStatistics);
+    }
+
+    @Override
+    public void destroy() {
+        if (scoringExecutor != null) {
+            scoringExecutor.shutdown();
+        }
+        super.destroy();
     }
 
     @Override
@@ -106,101 +154,149 @@ public class WekaArffBasedClassifier extends AbstractStepBasedFolderConsumer {
         try {
             testByDocument(aJCas);
         } catch (Exception e) {
-            e.printStackTrace();
+            throw new AnalysisEngineProcessException(e);
         }
     }
 
     @Override
     public void collectionProcessComplete()
             throws AnalysisEngineProcessException {
-        // these numbers only concerns the number in this particular step
-        SudokuInferencePipelineControllerPool.numberNewCoreference = trueFullPositiveCount
-                + falseFullPositiveCount;
-        SudokuInferencePipelineControllerPool.preFilterErrorCount = preFilterErrorCount;
-        SudokuInferencePipelineControllerPool.truePositiveCount = trueFullPositiveCount;
-        SudokuInferencePipelineControllerPool.trueNegativeCount = trueNoCorefCount;
-        SudokuInferencePipelineControllerPool.falsePositiveCount = falseFullPositiveCount;
-        SudokuInferencePipelineControllerPool.falseNegativeCount = falseNoCorefCount;
-
-        logger.info("Doing a quick evaluation on overall");
-        quickEval(trueFullPositiveCount, falseNoCorefCount,
-                falseFullPositiveCount, trueNoCorefCount);
+        collectionStatistics.add(TRUE_POSITIVE, trueFullPositiveCount);
+        collectionStatistics.add(FALSE_POSITIVE, falseFullPositiveCount);
+        collectionStatistics.add(TRUE_NEGATIVE, trueNoCorefCount);
+        collectionStatistics.add(FALSE_NEGATIVE, falseNoCorefCount);
+        collectionStatistics.add(PRE_FILTER_ERROR, preFilterErrorCount);
+
+        // only the last replica reports, with the counts of the whole collection
+        if (collectionStatistics.complete()) {
+            int tp = collectionStatistics.getCount(TRUE_POSITIVE);
+            int fp = collectionStatistics.getCount(FALSE_POSITIVE);
+            int tn = collectionStatistics.getCount(TRUE_NEGATIVE);
+            int fn = collectionStatistics.getCount(FALSE_NEGATIVE);
+
+            // these numbers only concerns the number in this particular step
+            SudokuInferencePipelineControllerPool.numberNewCoreference = tp + fp;
+            SudokuInferencePipelineControllerPool.preFilterErrorCount = collectionStatistics.getCount(PRE_FILTER_ERROR);
+            SudokuInferencePipelineControllerPool.truePositiveCount = tp;
+            SudokuInferencePipelineControllerPool.trueNegativeCount = tn;
+            SudokuInferencePipelineControllerPool.falsePositiveCount = fp;
+            SudokuInferencePipelineControllerPool.falseNegativeCount = fn;
+
+            logger.info("Doing a quick evaluation on overall");
+            quickEval(tp, fn, fp, tn);
+        }
         super.collectionProcessComplete();
     }
 
     private void testByDocument(JCas aJCas) throws Exception {
         Collection<PairwiseEventCoreferenceEvaluation> allPairs = JCasUtil.select(aJCas, PairwiseEventCoreferenceEvaluation.class);
+        PairwiseFeatureMatrix featureMatrix = PairwiseFeatureMatrix.load(aJCas);
 
+        // collect the pairs to classify, and score all of them in one batch
+        List<PairwiseEventCoreferenceEvaluation> scoredPairs = new ArrayList<PairwiseEventCoreferenceEvaluation>();
+        List<Map<String, Double>> scoredFeatures = new ArrayList<Map<String, Double>>();
         for (PairwiseEventCoreferenceEvaluation pece : allPairs) {
             testInstanceCount++;
 
             // if (pece.getIsUnified())
             // continue;
 
-            Map<String, Double> features = FeatureUtils
-                    .getPairwiseFeatureMap(pece);
-
             // only do test on those not classified as coreference
-            if (CorefChecker.coreferenceSystemNotSet(pece)) {
-                boolean isGoldenFullCoref = CorefChecker.isFullGolden(pece);
-                boolean topIsCoref;
+            if (!CorefChecker.coreferenceSystemNotSet(pece)) {
+                continue;
+            }
+
+            // the pairs scored by this model with the current features keep their decision, the
+            // unification step resets the pairs it changed
+            if (pece.getIsScored() && modelId.equals(pece.getScoringModelId())) {
+                countKeptDecision(pece, featureMatrix);
+                continue;
+            }
 
-                double confidence = 0;
-                if (!enableFiltering
-                        || FeatureUtils.highPrecisionFiltering(features)) {
-                    Map<String, Double> normalizedFeaturesMap = imputer
-                            .imputeOne(features, featureNameMap.keySet());
+            Map<String, Double> features = featureMatrix.getFeatureMap(pece);
+            if (!enableFiltering
+                    || FeatureUtils.highPrecisionFiltering(features)) {
+                scoredPairs.add(pece);
+                scoredFeatures.add(imputer.imputeOne(features, featureNameMap.keySet()));
+            } else {
+                // so no matter coref or not (judge by the classifier), we just
+                // put the confidence score here, then we decide something later
+                // during clustering, note that filtering will affect this, if
+                // the instance is filtered, the confidence is set to 0
+                pece.setConfidence(0);
+                markScored(pece);
+                if (CorefChecker.isFullGolden(pece)) {
+                    preFilterErrorCount++;
+                    falseNoCorefCount++;
+                } else {
+                    trueNoCorefCount++;
+                }
+            }
+        }
 
-                    Instance instance = topTestingFeatureFactory
-                            .createInstance(normalizedFeaturesMap,
-                                    defaultWeight);
+        Instances testInstances = topTestingFeatureFactory.createUnlabeledInstances(scoredFeatures, defaultWeight);
+        double[][] distributions = overallClsWrapper.getClassDistributions(testInstances, scoringExecutor);
 
-                    topIsCoref = overallClsWrapper.classifyAsPositive(instance);
+        for (int i = 0; i < scoredPairs.size(); i++) {
+            PairwiseEventCoreferenceEvaluation pece = scoredPairs.get(i);
+            boolean isGoldenFullCoref = CorefChecker.isFullGolden(pece);
 
-                    // add positive class distribution add confidence
-                    confidence = overallClsWrapper
-                            .getPositiveClassDistribution(instance);
+            // label and confidence both come from the same distribution
+            boolean topIsCoref = overallClsWrapper.isPositive(distributions[i]);
+            double confidence = distributions[i][1];
 
-                    logger.info(pece.getEventMentionI().getCoveredText()
-                            + " : " + pece.getEventMentionJ().getCoveredText()
-                            + " : " + confidence);
+            logger.info(pece.getEventMentionI().getCoveredText()
+                    + " : " + pece.getEventMentionJ().getCoveredText()
+                    + " : " + confidence);
 
+            pece.setConfidence(confidence);
+            // only marked once its distribution is written, so a failed batch is scored again
+            markScored(pece);
+
+            if (topIsCoref) {
+                pece.setEventCoreferenceRelationSystem(EventCorefConstants.FULL_COREFERENCE_TYPE_IN_PECE);
+                if (isGoldenFullCoref) {
+                    trueFullPositiveCount++;
                 } else {
-                    topIsCoref = false;
-                    if (isGoldenFullCoref) {
-                        preFilterErrorCount++;
-                    }
+                    falseFullPositiveCount++;
                 }
-
-                // so no matter coref or not (judge by the classifier), we just
-                // put the confidence score here, then we decide something later
-                // during clustering, note that filtering will affect this, if
-                // the instance is filtered, the confidence is set to 0
-                pece.setConfidence(confidence);
-
-                if (topIsCoref) {
-                    pece.setEventCoreferenceRelationSystem(EventCorefConstants.FULL_COREFERENCE_TYPE_IN_PECE);
-                    if (isGoldenFullCoref) {
-                        trueFullPositiveCount++;
-                    } else {
-                        falseFullPositiveCount++;
-                    }
+            } else {
+                // this line is neccessary because during iterations,
+                // previous decision could be
+                // overwritten
+                // pece.setEventCoreferenceRelationSystem(EventCorefConstants.NO_COREFERENCE_TYPE);
+
+                if (isGoldenFullCoref) {
+                    falseNoCorefCount++;
                 } else {
-                    // this line is neccessary because during iterations,
-                    // previous decision could be
-                    // overwritten
-                    // pece.setEventCoreferenceRelationSystem(EventCorefConstants.NO_COREFERENCE_TYPE);
-
-                    if (isGoldenFullCoref) {
-                        falseNoCorefCount++;
-                    } else {
-                        trueNoCorefCount++;
-                    }
+                    trueNoCorefCount++;
                 }
             }
         }
     }
 
+    private void markScored(PairwiseEventCoreferenceEvaluation pece) {
+        pece.setIsScored(true);
+        pece.setScoringModelId(modelId);
+    }
+
+    /**
+     * Count a pair that is not scored again: it is still not coreferent, either because it was
+     * filtered or because the classifier said so.
+     */
+    private void countKeptDecision(PairwiseEventCoreferenceEvaluation pece, PairwiseFeatureMatrix featureMatrix) {
+        boolean isGoldenFullCoref = CorefChecker.isFullGolden(pece);
+        if (isGoldenFullCoref && enableFiltering
+                && !FeatureUtils.highPrecisionFiltering(featureMatrix.getFeatureMap(pece))) {
+            preFilterErrorCount++;
+        }
+        if (isGoldenFullCoref) {
+            falseNoCorefCount++;
+        } else {
+            trueNoCorefCount++;
+        }
+    }
+
     private static void quickEval(int tp, int fn, int fp, int tn) {
         PairwiseScore pw = new PairwiseScore(tp, fn, fp, tn);
         BlancScore blanc = new BlancScore(tp, fp, fn, tn);
@@ -9,6 +9,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Table;
 import edu.cmu.lti.event_coref.type.*;
 import edu.cmu.lti.event_coref.utils.APLUtils;
+import edu.cmu.lti.event_coref.utils.ModelRegistry;
 import edu.cmu.lti.utils.ling.FrameDataReader;
 import edu.cmu.lti.utils.uima.UimaConvenience;
 import org.apache.uima.UimaContext;
@@ -25,6 +26,7 @@ import org.javatuples.Triplet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.*;
 import java.util.Map.Entry;
 
@@ -71,9 +73,40 @@ public class FrameBasedEventArgumentExtractor extends JCasAnnotator_ImplBase {
     @Override
     public void initialize(UimaContext aContext) throws ResourceInitializationException {
         super.initialize(aContext);
-        fn2VnMapping = FrameDataReader.getFN2VNRoleMap(vn2FnMappingPath, false);
-        frameRelationMappings = FrameDataReader.getFrameRelations(fnRelatonPath);
-        vn2pbMapping = FrameDataReader.getVN2PBRoleMap(vn2pbMappingPath, false);
+        // the mappings are read only, they are shared by all instances of the annotator
+        fn2VnMapping = ModelRegistry.acquire(getMappingKey("fn2vn", vn2FnMappingPath),
+                new ModelRegistry.Loader<Map<Pair<String, String>, Pair<String, String>>>() {
+                    @Override
+                    public Map<Pair<String, String>, Pair<String, String>> load() {
+                        return FrameDataReader.getFN2VNRoleMap(vn2FnMappingPath, false);
+                    }
+                });
+        frameRelationMappings = ModelRegistry.acquire(getMappingKey("fn-relation", fnRelatonPath),
+                new ModelRegistry.Loader<Map<String, Table<String, String, Map<String, String>>>>() {
+                    @Override
+                    public Map<String, Table<String, String, Map<String, String>>> load() {
+                        return FrameDataReader.getFrameRelations(fnRelatonPath);
+                    }
+                });
+        vn2pbMapping = ModelRegistry.acquire(getMappingKey("vn2pb", vn2pbMappingPath),
+                new ModelRegistry.Loader<Map<Pair<String, String>, Pair<String, String>>>() {
+                    @Override
+                    public Map<Pair<String, String>, Pair<String, String>> load() {
+                        return FrameDataReader.getVN2PBRoleMap(vn2pbMappingPath, false);
+                    }
+                });
+    }
+
+    private static String getMappingKey(String mappingName, String path) {
+        return mappingName + ":" + new File(path).getAbsolutePath();
+    }
+
+    @Override
+    public void destroy() {
+        ModelRegistry.release(getMappingKey("fn2vn", vn2FnMappingPath));
+        ModelRegistry.release(getMappingKey("fn-relation", fnRelatonPath));
+        ModelRegistry.release(getMappingKey("vn2pb", vn2pbMappingPath));
+        super.destroy();
     }
 
     @Override
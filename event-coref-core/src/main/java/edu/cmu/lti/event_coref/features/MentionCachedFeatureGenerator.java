@@ -0,0 +1,72 @@
+package edu.cmu.lti.event_coref.features;
+
+import edu.cmu.lti.event_coref.model.EventMentionPairIndex;
+import edu.cmu.lti.event_coref.type.EventMention;
+import org.apache.uima.jcas.JCas;
+
+import java.util.List;
+
+/**
+ * A feature generator that works in two phases: what can be derived from one mention alone (the
+ * mention features, e.g. its dependency children or its argument map) is computed once for each
+ * mention of the document in {@link #prepare(JCas, EventMentionPairIndex)} and kept in an array
+ * indexed by the mention index, and the features of a pair only combine the mention features of
+ * both mentions. This replaces one annotation scan per pair with one scan per mention.
+ * <p/>
+ * The cache is filled before the pairs are computed and only read afterwards, so the features of
+ * different pairs can still be created concurrently. A mention that is not in the cache has its
+ * mention features computed on the fly.
+ *
+ * @param <T> the type of the mention features
+ * @author Zhengzhong Liu, Hector
+ */
+public abstract class MentionCachedFeatureGenerator<T> extends PairwiseFeatureGenerator {
+    private EventMentionPairIndex pairIndex;
+
+    private Object[] mentionFeatures = new Object[0];
+
+    @Override
+    public void prepare(JCas aJCas, EventMentionPairIndex pairIndex) {
+        this.pairIndex = pairIndex;
+        mentionFeatures = new Object[pairIndex.getNumberOfMentions()];
+        for (int index = 0; index < mentionFeatures.length; index++) {
+            mentionFeatures[index] = createMentionFeatures(aJCas, pairIndex.getMention(index));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected T getMentionFeatures(JCas aJCas, EventMention mention) {
+        int index = pairIndex == null ? -1 : pairIndex.getMentionIndex(mention);
+        if (index >= 0 && index < mentionFeatures.length) {
+            return (T) mentionFeatures[index];
+        }
+        return createMentionFeatures(aJCas, mention);
+    }
+
+    @Override
+    public List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1, EventMention event2) {
+        return combineFeatures(event1, getMentionFeatures(aJCas, event1), event2,
+                getMentionFeatures(aJCas, event2));
+    }
+
+    /**
+     * Compute what the pairwise features need from one mention, this should only read the JCas.
+     *
+     * @param aJCas
+     * @param mention
+     * @return the mention features
+     */
+    protected abstract T createMentionFeatures(JCas aJCas, EventMention mention);
+
+    /**
+     * Create the features of a pair from the mention features of both mentions.
+     *
+     * @param event1
+     * @param mentionFeatures1 the mention features of event1
+     * @param event2
+     * @param mentionFeatures2 the mention features of event2
+     * @return the features of the pair
+     */
+    protected abstract List<PairwiseFeature> combineFeatures(EventMention event1, T mentionFeatures1,
+                                                             EventMention event2, T mentionFeatures2);
+}
@@ -0,0 +1,45 @@
+package edu.cmu.lti.event_coref.features;
+
+/**
+ * A plain value holder of one pairwise feature, created by {@link PairwiseFeatureGenerator}s. It
+ * does not touch the CAS, use PairwiseFeatureMatrix#setFeatures to store them for a pair.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class PairwiseFeature {
+    private final String name;
+
+    private final double score;
+
+    private final String featureType;
+
+    private final boolean defaultZero;
+
+    public PairwiseFeature(String name, double score, String featureType, boolean defaultZero) {
+        this.name = name;
+        this.score = score;
+        this.featureType = featureType;
+        this.defaultZero = defaultZero;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public String getFeatureType() {
+        return featureType;
+    }
+
+    public boolean getDefaultZero() {
+        return defaultZero;
+    }
+
+    @Override
+    public String toString() {
+        return name + ":" + score;
+    }
+}
@@ -1,22 +1,39 @@
 package edu.cmu.lti.event_coref.features;
 
+import edu.cmu.lti.event_coref.model.EventMentionPairIndex;
 import edu.cmu.lti.event_coref.type.EventMention;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import org.apache.uima.jcas.JCas;
 
 import java.util.List;
 
 public abstract class PairwiseFeatureGenerator {
+  /**
+   * Called once per document before the features of any pair are created, on a single thread.
+   * Generators that derive something from each mention alone can compute it here, so it is not
+   * computed again for every pair the mention is in, see {@link MentionCachedFeatureGenerator}.
+   * Does nothing by default.
+   * 
+   * @param aJCas
+   * @param pairIndex
+   *          the index of the event mentions of the document
+   */
+  public void prepare(JCas aJCas, EventMentionPairIndex pairIndex) {
+  }
+
   /**
    * This method take the JCas and a pair of events, it will generate a list of features for this.
    * It is expected that different feature generator implementation just override this method to
    * give a consistent interface
+   * <p/>
+   * Implementations should only read the JCas, the returned features are plain objects and are
+   * written to the CAS by the caller, which allows the features of different pairs to be computed
+   * concurrently.
    * 
    * @param aJCas
    * @param event1
    * @param event2
    * @return
    */
-  public abstract List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
+  public abstract List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1,
           EventMention event2);
 }
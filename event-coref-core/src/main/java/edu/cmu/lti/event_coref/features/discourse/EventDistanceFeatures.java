@@ -1,10 +1,10 @@
 package edu.cmu.lti.event_coref.features.discourse;
 
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
 import edu.cmu.lti.event_coref.model.EventMentionRow;
 import edu.cmu.lti.event_coref.model.EventMentionTable;
 import edu.cmu.lti.event_coref.type.EventMention;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.utils.ml.FeatureUtils;
 import org.apache.uima.jcas.JCas;
 
@@ -26,17 +26,17 @@ public class EventDistanceFeatures extends PairwiseFeatureGenerator {
   }
 
   @Override
-  public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
+  public List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1,
           EventMention event2) {
-    List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
 
     EventMentionRow row1 = domainTable.get(event1);
     EventMentionRow row2 = domainTable.get(event2);
 
     double domainEventInBetweenCount = countEventMentionsInBetween(allRows, row1.getId(),
             row2.getId());
-    PairwiseEventFeature eventInBetweenByTotalEvent = FeatureUtils
-            .createPairwiseEventNumericFeature(aJCas, "eventInBetweenByTotalEvent",
+    PairwiseFeature eventInBetweenByTotalEvent = FeatureUtils
+            .createPairwiseNumericFeature("eventInBetweenByTotalEvent",
                     domainEventInBetweenCount / sTable.getNumOfNonEpistemicdDomainEvents(), false);
 
     features.add(eventInBetweenByTotalEvent);
@@ -1,10 +1,10 @@
 package edu.cmu.lti.event_coref.features.discourse;
 
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
 import edu.cmu.lti.event_coref.model.EventMentionRow;
 import edu.cmu.lti.event_coref.model.EventMentionTable;
 import edu.cmu.lti.event_coref.type.EventMention;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.utils.ml.FeatureUtils;
 import org.apache.uima.jcas.JCas;
 
@@ -21,9 +21,9 @@ public class TitleFeatures extends PairwiseFeatureGenerator {
   }
 
   @Override
-  public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
+  public List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1,
           EventMention event2) {
-    List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
 
     EventMentionRow row1 = domainTable.get(event1);
     EventMentionRow row2 = domainTable.get(event2);
@@ -34,13 +34,11 @@ public class TitleFeatures extends PairwiseFeatureGenerator {
     // event2.getEnd());
 
     // first one is title
-    PairwiseEventFeature firstOneIsTitle = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-            "firstOneIsTitle", row1.isTitle(), false);
+    PairwiseFeature firstOneIsTitle = FeatureUtils.createPairwiseBinaryFeature("firstOneIsTitle", row1.isTitle(), false);
     features.add(firstOneIsTitle);
 
     // second one is the first non-title
-    PairwiseEventFeature latterIsFirstSentence = FeatureUtils.createPairwiseEventBinaryFeature(
-            aJCas, "latterIsFirstSentence", row2.getSentenceId() == 2, false);
+    PairwiseFeature latterIsFirstSentence = FeatureUtils.createPairwiseBinaryFeature("latterIsFirstSentence", row2.getSentenceId() == 2, false);
 
     features.add(latterIsFirstSentence);
 
@@ -3,6 +3,7 @@
  */
 package edu.cmu.lti.event_coref.features.lexical;
 
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
 import edu.cmu.lti.event_coref.type.*;
 import edu.cmu.lti.event_coref.utils.FanseDependencyUtils;
@@ -74,9 +75,9 @@ public class EventStrictStringFeatures extends PairwiseFeatureGenerator {
      * edu.cmu.lti.event_coref.type.EventMention)
      */
     @Override
-    public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
-                                                     EventMention event2) {
-        List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    public List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1,
+                                                EventMention event2) {
+        List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
 
         createExactChunkMatch(aJCas, features, event1, event2);
         // createSubTreeWordOverlap(aJCas, features, event1, event2);
@@ -88,7 +89,7 @@ public class EventStrictStringFeatures extends PairwiseFeatureGenerator {
      * Chunk match is mimic to the stanford multi-sieve exact match (sieve 1), but it is only active
      * for noun phrases, thus only active for nominal events
      */
-    private void createExactChunkMatch(JCas aJCas, List<PairwiseEventFeature> features,
+    private void createExactChunkMatch(JCas aJCas, List<PairwiseFeature> features,
                                        EventMention event1, EventMention event2) {
         boolean chunkExactMath = false;
 
@@ -103,12 +104,12 @@ public class EventStrictStringFeatures extends PairwiseFeatureGenerator {
                 chunkExactMath = true;
                 logger.debug("Chunk match triggered" + " " + chunk1 + " " + chunk2);
             }
-            features.add(FeatureUtils.createPairwiseEventBinaryFeature(aJCas, "ExactLongChunkMatch",
+            features.add(FeatureUtils.createPairwiseBinaryFeature("ExactLongChunkMatch",
                     chunkExactMath, false));
         }
     }
 
-    private void createSubTreeWordOverlap(JCas aJCas, List<PairwiseEventFeature> features,
+    private void createSubTreeWordOverlap(JCas aJCas, List<PairwiseFeature> features,
                                           EventMention event1, EventMention event2) {
         List<Word> event1ChildWords = FanseDependencyUtils.getAllChildrenWords(event1.getHeadWord());
         List<Word> event2ChildWords = FanseDependencyUtils.getAllChildrenWords(event2.getHeadWord());
@@ -161,7 +162,7 @@ public class EventStrictStringFeatures extends PairwiseFeatureGenerator {
             }
         }
 
-        features.add(FeatureUtils.createPairwiseEventNumericFeature(aJCas, "EventSubtreeTfIdf", cos,
+        features.add(FeatureUtils.createPairwiseNumericFeature("EventSubtreeTfIdf", cos,
                 false));
     }
 }
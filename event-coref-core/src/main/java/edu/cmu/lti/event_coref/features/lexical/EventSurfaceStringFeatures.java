@@ -1,17 +1,14 @@
 package edu.cmu.lti.event_coref.features.lexical;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
+import edu.cmu.lti.event_coref.model.EventMentionPairIndex;
 import edu.cmu.lti.event_coref.type.EventMention;
 import edu.cmu.lti.event_coref.type.EventSurfaceSimilarity;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.utils.ml.FeatureUtils;
 import org.apache.uima.jcas.JCas;
-import org.uimafit.util.JCasUtil;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 /**
@@ -20,29 +17,19 @@ import java.util.List;
  * @author Zhengzhong Liu, Hector
  */
 public class EventSurfaceStringFeatures extends PairwiseFeatureGenerator {
-    Collection<EventSurfaceSimilarity> eventSurfaceSimilarities;
+    EventMentionPairIndex pairIndex;
 
-    Table<EventMention, EventMention, EventSurfaceSimilarity> surfaceSimilarityTable;
-
-    public EventSurfaceStringFeatures(JCas aJCas) {
-        eventSurfaceSimilarities = JCasUtil.select(aJCas, EventSurfaceSimilarity.class);
-        surfaceSimilarityTable = HashBasedTable.create();
-
-        for (EventSurfaceSimilarity ess : eventSurfaceSimilarities) {
-            EventMention eevm1 = ess.getEventMentionI();
-            EventMention eevm2 = ess.getEventMentionJ();
-            surfaceSimilarityTable.put(eevm1, eevm2, ess);
-        }
+    public EventSurfaceStringFeatures(EventMentionPairIndex pairIndex) {
+        this.pairIndex = pairIndex;
     }
 
     @Override
-    public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
-                                                     EventMention event2) {
-        List<PairwiseEventFeature> pairFeatures = new ArrayList<PairwiseEventFeature>();
-
-        if (surfaceSimilarityTable.contains(event1, event2)) {
-            EventSurfaceSimilarity surfaceSim = surfaceSimilarityTable.get(event1, event2);
+    public List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1,
+                                                EventMention event2) {
+        List<PairwiseFeature> pairFeatures = new ArrayList<PairwiseFeature>();
 
+        EventSurfaceSimilarity surfaceSim = pairIndex.getSurfaceSimilarity(event1, event2);
+        if (surfaceSim != null) {
             double sennaSim = surfaceSim.getSennaSimilarity();
             double diceSim = surfaceSim.getDiceCoefficient();
             double wordNetSim = adjustWordNetScore(surfaceSim.getWordNetWuPalmer());
@@ -57,10 +44,9 @@ public class EventSurfaceStringFeatures extends PairwiseFeatureGenerator {
         return pairFeatures;
     }
 
-    private void addFeature(JCas aJCas, double score, String featureName, List<PairwiseEventFeature> pairFeatures) {
+    private void addFeature(JCas aJCas, double score, String featureName, List<PairwiseFeature> pairFeatures) {
         if (score >= 0) {
-            PairwiseEventFeature wordNetFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                    featureName, score, false);
+            PairwiseFeature wordNetFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
             pairFeatures.add(wordNetFeature);
         }
     }
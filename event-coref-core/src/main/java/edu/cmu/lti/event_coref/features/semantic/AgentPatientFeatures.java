@@ -1,6 +1,7 @@
 package edu.cmu.lti.event_coref.features.semantic;
 
-import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
+import edu.cmu.lti.event_coref.features.MentionCachedFeatureGenerator;
 import edu.cmu.lti.event_coref.model.EventMentionRow;
 import edu.cmu.lti.event_coref.model.EventMentionTable;
 import edu.cmu.lti.event_coref.type.*;
@@ -17,9 +18,12 @@ import java.util.*;
 import java.util.Map.Entry;
 
 /**
+ * Compare the agents of two events. What the similarities need from an agent (its text, entities,
+ * lemmas and word bag) is collected once per mention.
+ *
  * @author Zhengzhong Liu, Hector
  */
-public class AgentPatientFeatures extends PairwiseFeatureGenerator {
+public class AgentPatientFeatures extends MentionCachedFeatureGenerator<AgentPatientFeatures.ArgumentProfile> {
     Map<EventMention, EventMentionRow> domainTable;
 
     SimilarityCalculator calc;
@@ -46,108 +50,141 @@ public class AgentPatientFeatures extends PairwiseFeatureGenerator {
 
     }
 
+    /**
+     * The first agent of a mention, with the parts of it that are compared.
+     */
+    static class ArgumentProfile {
+        int numArguments = 0;
+
+        EntityBasedComponent argument;
+
+        String text;
+
+        Collection<EntityMention> entities;
+
+        String lemmas;
+
+        // null if the argument has no head word, e.g. a location
+        String headLemma;
+
+        Set<String> wordBag;
+    }
+
     @Override
-    public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
-                                                     EventMention event2) {
-        List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    protected ArgumentProfile createMentionFeatures(JCas aJCas, EventMention mention) {
+        ArgumentProfile profile = new ArgumentProfile();
+        EventMentionRow row = domainTable.get(mention);
+        if (row == null || row.getAgents().isEmpty()) {
+            return profile;
+        }
 
-        features.addAll(createAgentFeatures(aJCas, domainTable.get(event1), domainTable.get(event2),
-                lowConfidentAnnotatorNames));
+        EntityBasedComponent argument = row.getAgents().get(0);
+        profile.numArguments = row.getAgents().size();
+        profile.argument = argument;
+        profile.text = argument.getCoveredText();
+        profile.entities = argument.getContainingEntityMentions() == null ? new ArrayList<EntityMention>()
+                : FSCollectionFactory.create(argument.getContainingEntityMentions(), EntityMention.class);
 
-        features.addAll(createPatientFeatures(aJCas, domainTable.get(event1), domainTable.get(event2),
-                lowConfidentAnnotatorNames));
+        List<Word> words = JCasUtil.selectCovered(Word.class, argument);
+        profile.lemmas = calc.getLemma(words);
+        Word headWord = argument.getHeadWord();
+        profile.headLemma = headWord == null ? null : headWord.getLemma();
 
-        return features;
+        profile.wordBag = new HashSet<String>();
+        for (Word word : words) {
+            String lemma = word.getLemma().toLowerCase();
+            if (!minimalStopWord.contains(lemma)) {
+                profile.wordBag.add(lemma);
+            }
+        }
+        return profile;
     }
 
-    public List<PairwiseEventFeature> createAgentFeatures(JCas aJCas, EventMentionRow row1, EventMentionRow row2,
-                                                          Set<String> lowConfidentAnnotatorNames) {
-        List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    @Override
+    protected List<PairwiseFeature> combineFeatures(EventMention event1, ArgumentProfile profile1,
+                                                    EventMention event2, ArgumentProfile profile2) {
+        List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
+
+        features.addAll(createAgentFeatures(profile1, profile2));
+
+        features.addAll(createPatientFeatures(profile1, profile2));
+
+        return features;
+    }
 
-        List<EntityBasedComponent> agents1 = row1.getAgents();
-        List<EntityBasedComponent> agents2 = row2.getAgents();
+    private List<PairwiseFeature> createAgentFeatures(ArgumentProfile profile1, ArgumentProfile profile2) {
+        List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
 
-        if (agents1.size() > 0 && agents2.size() > 0) {
-            EntityBasedComponent agent1 = agents1.get(0);
-            EntityBasedComponent agent2 = agents2.get(0);
+        if (profile1.numArguments > 0 && profile2.numArguments > 0) {
+            EntityBasedComponent agent1 = profile1.argument;
+            EntityBasedComponent agent2 = profile2.argument;
 
-            PairwiseEventFeature bothHasAgent = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                    "bothAnnotatedWithAgent", true, true);
+            PairwiseFeature bothHasAgent = FeatureUtils.createPairwiseBinaryFeature("bothAnnotatedWithAgent", true, true);
             features.add(bothHasAgent);
 
-            for (Entry<String, Double> scoreEntry : checkComponentSimilarity(agent1, agent2).entrySet()) {
+            for (Entry<String, Double> scoreEntry : checkComponentSimilarity(profile1, profile2).entrySet()) {
 
                 String scoreName = scoreEntry.getKey();
                 Double score = scoreEntry.getValue();
 
                 if (scoreName.equals("surfaceDice")) {
                     String featureName = "agentSurfaceDice";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("surfaceRelaxedDice")) {
                     String featureName = "agentSurfaceRelaxedDice";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("maxEntityStringSim")) {
                     String featureName = "agentMaxEntityStringSimilarity";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("maxEntityClusterTypeMatch")) {
                     String featureName = "agentMaxEntityClusterTypeMatch";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("wordnetSim")) {
                     String featureName = "agentWordnetSim";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("headWordNetSim")) {
                     String featureName = "agentHeadWordnetSim";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("wordOverlap")) {
                     String featureName = "agentOverlapSimilarity";
 
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 // some binary features
                 if (scoreName.equals("exactSurfaceMath")) {
                     String featureName = "agentExactSurfaceMatch";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                            featureName, score == 1.0, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseBinaryFeature(featureName, score == 1.0, false);
                     features.add(aFeature);
                 }
                 if (scoreName.equals("entityCoref")) {
                     String featureName = "agentCoref";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                            featureName, score == 1.0, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseBinaryFeature(featureName, score == 1.0, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("substring")) {
                     String featureName = "agentSubString";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                            featureName, score == 1.0, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseBinaryFeature(featureName, score == 1.0, false);
                     features.add(aFeature);
                 }
 
@@ -162,14 +199,11 @@ public class AgentPatientFeatures extends PairwiseFeatureGenerator {
             }
 
             if (numberMatchResult != null) {
-                PairwiseEventFeature sameQuantityFeature = FeatureUtils.createPairwiseEventBinaryFeature(
-                        aJCas, "QuantityFeature_agentSameQuantity", numberMatchResult == 0.0, false);
+                PairwiseFeature sameQuantityFeature = FeatureUtils.createPairwiseBinaryFeature("QuantityFeature_agentSameQuantity", numberMatchResult == 0.0, false);
 
-                PairwiseEventFeature firstSmallerFeature = FeatureUtils.createPairwiseEventBinaryFeature(
-                        aJCas, "QuantityFeature_firstAgentSmaller", numberMatchResult < 0, false);
+                PairwiseFeature firstSmallerFeature = FeatureUtils.createPairwiseBinaryFeature("QuantityFeature_firstAgentSmaller", numberMatchResult < 0, false);
 
-                PairwiseEventFeature secondSmallerFeature = FeatureUtils.createPairwiseEventBinaryFeature(
-                        aJCas, "QuantityFeature_secondAgentSmaller", numberMatchResult > 0, false);
+                PairwiseFeature secondSmallerFeature = FeatureUtils.createPairwiseBinaryFeature("QuantityFeature_secondAgentSmaller", numberMatchResult > 0, false);
 
                 features.add(sameQuantityFeature);
                 features.add(firstSmallerFeature);
@@ -179,93 +213,79 @@ public class AgentPatientFeatures extends PairwiseFeatureGenerator {
         return features;
     }
 
-    public List<PairwiseEventFeature> createPatientFeatures(JCas aJCas, EventMentionRow row1,
-                                                            EventMentionRow row2, Set<String> lowConfidentAnnotatorNames) {
-        List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
-
-        List<EntityBasedComponent> patients1 = row1.getAgents();
-        List<EntityBasedComponent> patients2 = row2.getAgents();
+    // like before, the patient features compare the agents, when each event has exactly one
+    private List<PairwiseFeature> createPatientFeatures(ArgumentProfile profile1, ArgumentProfile profile2) {
+        List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
 
-        if (patients1.size() == 1 && patients2.size() == 1) {
-            EntityBasedComponent patient1 = patients1.get(0);
-            EntityBasedComponent patient2 = patients2.get(0);
+        if (profile1.numArguments == 1 && profile2.numArguments == 1) {
+            EntityBasedComponent patient1 = profile1.argument;
+            EntityBasedComponent patient2 = profile2.argument;
 
-            PairwiseEventFeature bothHasPatient = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                    "bothAnnotatedWithPatient", true, true);
+            PairwiseFeature bothHasPatient = FeatureUtils.createPairwiseBinaryFeature("bothAnnotatedWithPatient", true, true);
             features.add(bothHasPatient);
 
-            for (Entry<String, Double> scoreEntry : checkComponentSimilarity(patient1, patient2)
+            for (Entry<String, Double> scoreEntry : checkComponentSimilarity(profile1, profile2)
                     .entrySet()) {
                 String scoreName = scoreEntry.getKey();
                 Double score = scoreEntry.getValue();
 
                 if (scoreName.equals("surfaceDice")) {
                     String featureName = "patientSurfaceDice";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("surfaceRelaxedDice")) {
                     String featureName = "patientSurfaceRelaxedDice";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("maxEntityStringSim")) {
                     String featureName = "patientMaxEntityStringSimilarity";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("maxEntityClusterTypeMatch")) {
                     String featureName = "patientMaxEntityClusterTypeMatch";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("wordnetSim")) {
                     String featureName = "patientWordnetSim";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("headWordNetSim")) {
                     String featureName = "patientHeadWordnetSim";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("wordOverlap")) {
                     String featureName = "patientOverlapSimilarity";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                            featureName, score, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                     features.add(aFeature);
                 }
 
                 // some binary features
                 if (scoreName.equals("exactSurfaceMath")) {
                     String featureName = "patientExactSurfaceMatch";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                            featureName, score == 1.0, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseBinaryFeature(featureName, score == 1.0, false);
                     features.add(aFeature);
                 }
                 if (scoreName.equals("entityCoref")) {
                     String featureName = "patientCoref";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                            featureName, score == 1.0, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseBinaryFeature(featureName, score == 1.0, false);
                     features.add(aFeature);
                 }
 
                 if (scoreName.equals("substring")) {
                     String featureName = "patientSubString";
-                    PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                            featureName, score == 1.0, false);
+                    PairwiseFeature aFeature = FeatureUtils.createPairwiseBinaryFeature(featureName, score == 1.0, false);
                     features.add(aFeature);
                 }
 
@@ -279,14 +299,11 @@ public class AgentPatientFeatures extends PairwiseFeatureGenerator {
                 logger.info(e.getMessage());
             }
             if (numberMatchResult != null) {
-                PairwiseEventFeature sameQuantityFeature = FeatureUtils.createPairwiseEventBinaryFeature(
-                        aJCas, "QuantityFeature_patientSameQuantity", numberMatchResult == 0.0, false);
+                PairwiseFeature sameQuantityFeature = FeatureUtils.createPairwiseBinaryFeature("QuantityFeature_patientSameQuantity", numberMatchResult == 0.0, false);
 
-                PairwiseEventFeature firstSmallerFeature = FeatureUtils.createPairwiseEventBinaryFeature(
-                        aJCas, "QuantityFeature_firstPatientSmaller", numberMatchResult < 0, false);
+                PairwiseFeature firstSmallerFeature = FeatureUtils.createPairwiseBinaryFeature("QuantityFeature_firstPatientSmaller", numberMatchResult < 0, false);
 
-                PairwiseEventFeature secondSmallerFeature = FeatureUtils.createPairwiseEventBinaryFeature(
-                        aJCas, "QuantityFeature_secondPatientSmaller", numberMatchResult > 0, false);
+                PairwiseFeature secondSmallerFeature = FeatureUtils.createPairwiseBinaryFeature("QuantityFeature_secondPatientSmaller", numberMatchResult > 0, false);
 
                 features.add(sameQuantityFeature);
                 features.add(firstSmallerFeature);
@@ -296,11 +313,11 @@ public class AgentPatientFeatures extends PairwiseFeatureGenerator {
         return features;
     }
 
-    private Map<String, Double> checkComponentSimilarity(EntityBasedComponent anno1,
-                                                         EntityBasedComponent anno2) {
+    private Map<String, Double> checkComponentSimilarity(ArgumentProfile profile1,
+                                                         ArgumentProfile profile2) {
         Map<String, Double> scoreMap = new HashMap<String, Double>();
-        String str1 = anno1.getCoveredText();
-        String str2 = anno2.getCoveredText();
+        String str1 = profile1.text;
+        String str2 = profile2.text;
 
         if (str1.equals(str2))
             scoreMap.put("exactSurfaceMath", 1.0);
@@ -311,11 +328,9 @@ public class AgentPatientFeatures extends PairwiseFeatureGenerator {
 
         scoreMap.put("surfaceRelaxedDice", calc.relaxedDiceTest(str1, str2));
 
-        Collection<EntityMention> anno1Entities = FSCollectionFactory.create(
-                anno1.getContainingEntityMentions(), EntityMention.class);
+        Collection<EntityMention> anno1Entities = profile1.entities;
 
-        Collection<EntityMention> anno2Entities = FSCollectionFactory.create(
-                anno2.getContainingEntityMentions(), EntityMention.class);
+        Collection<EntityMention> anno2Entities = profile2.entities;
 
         double maxEntitySim = 0.0;
 //        double maxSireEntityTypeMatch = 0.0;
@@ -347,18 +362,14 @@ public class AgentPatientFeatures extends PairwiseFeatureGenerator {
             scoreMap.put("entityCoref", 0.0);
         }
 
-        double wordNetSim = calc.getLemmaWordNetSimilarity(JCasUtil.selectCovered(Word.class, anno1),
-                JCasUtil.selectCovered(Word.class, anno2));
+        double wordNetSim = calc.getWordNetSimilarity(profile1.lemmas, profile2.lemmas);
         if (wordNetSim > 1.0)
             scoreMap.put("wordnetSim", 1.0);
         else
             scoreMap.put("wordnetSim", wordNetSim);
 
-        Word headWord1 = anno1.getHeadWord();
-        Word headWord2 = anno2.getHeadWord();
-
-        if (headWord1 != null && headWord2 != null) { // location doesn't have head word
-            double headWordNetSim = calc.getLemmaWordNetSimilarity(headWord1, headWord2);
+        if (profile1.headLemma != null && profile2.headLemma != null) { // location doesn't have head word
+            double headWordNetSim = calc.getWordNetSimilarity(profile1.headLemma, profile2.headLemma);
 
             if (headWordNetSim > 1.0)
                 scoreMap.put("headWordNetSim", 1.0);
@@ -375,21 +386,9 @@ public class AgentPatientFeatures extends PairwiseFeatureGenerator {
             scoreMap.put("substring", 0.0);
         }
 
-        Set<String> wordBag1 = new HashSet<String>();
-        for (Word word : JCasUtil.selectCovered(Word.class, anno1)) {
-            String lemma = word.getLemma().toLowerCase();
-            if (!minimalStopWord.contains(lemma)) {
-                wordBag1.add(lemma);
-            }
-        }
+        Set<String> wordBag1 = profile1.wordBag;
 
-        Set<String> wordBag2 = new HashSet<String>();
-        for (Word word : JCasUtil.selectCovered(Word.class, anno2)) {
-            String lemma = word.getLemma().toLowerCase();
-            if (!minimalStopWord.contains(lemma)) {
-                wordBag2.add(lemma);
-            }
-        }
+        Set<String> wordBag2 = profile2.wordBag;
 
         int overlapCount = 0;
         for (String word : wordBag1) {
@@ -3,11 +3,11 @@
  */
 package edu.cmu.lti.event_coref.features.semantic;
 
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
 import edu.cmu.lti.event_coref.type.EntityCoreferenceCluster;
 import edu.cmu.lti.event_coref.type.EntityMention;
 import edu.cmu.lti.event_coref.type.EventMention;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.utils.ClusterUtils;
 import edu.cmu.lti.event_coref.utils.ml.FeatureUtils;
 import org.apache.uima.jcas.JCas;
@@ -54,9 +54,9 @@ public class EntityOfEventFeatures extends PairwiseFeatureGenerator {
      * edu.cmu.lti.event_coref.type.EventMention)
      */
     @Override
-    public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
-                                                     EventMention event2) {
-        List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    public List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1,
+                                                EventMention event2) {
+        List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
         EntityMention entity1 = event2EntityMapping.get(event1);
         EntityMention entity2 = event2EntityMapping.get(event2);
 
@@ -71,7 +71,7 @@ public class EntityOfEventFeatures extends PairwiseFeatureGenerator {
                     logger.debug("Entity corefer triggered " + event1.getCoveredText() + " " + event2.getCoveredText());
                 }
 
-                features.add(FeatureUtils.createPairwiseEventBinaryFeature(aJCas, "EntityOfEventCorefer",
+                features.add(FeatureUtils.createPairwiseBinaryFeature("EntityOfEventCorefer",
                         clusterCorefer, false));
             }
         }
@@ -3,9 +3,9 @@
  */
 package edu.cmu.lti.event_coref.features.semantic;
 
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
 import edu.cmu.lti.event_coref.type.EventMention;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.utils.ml.FeatureUtils;
 import edu.cmu.lti.event_coref.utils.QuantityUtils;
 import org.apache.uima.jcas.JCas;
@@ -30,9 +30,9 @@ public class EventSemanticFeature extends PairwiseFeatureGenerator {
      * edu.cmu.lti.event_coref.type.EventMention)
      */
     @Override
-    public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
-                                                     EventMention event2) {
-        List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    public List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1,
+                                                EventMention event2) {
+        List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
 
         // event quantity features
         Double numberMatchResult = null;
@@ -44,14 +44,11 @@ public class EventSemanticFeature extends PairwiseFeatureGenerator {
         }
 
         if (numberMatchResult != null) {
-            PairwiseEventFeature sameQuantityFeature = FeatureUtils.createPairwiseEventBinaryFeature(
-                    aJCas, "QuantityFeature_eventMentionSameQuantity", numberMatchResult == 0.0, false);
+            PairwiseFeature sameQuantityFeature = FeatureUtils.createPairwiseBinaryFeature("QuantityFeature_eventMentionSameQuantity", numberMatchResult == 0.0, false);
 
-            PairwiseEventFeature firstSmallerFeature = FeatureUtils.createPairwiseEventBinaryFeature(
-                    aJCas, "QuantityFeature_firstEventMentionSmaller", numberMatchResult < 0, false);
+            PairwiseFeature firstSmallerFeature = FeatureUtils.createPairwiseBinaryFeature("QuantityFeature_firstEventMentionSmaller", numberMatchResult < 0, false);
 
-            PairwiseEventFeature secondSmallerFeature = FeatureUtils.createPairwiseEventBinaryFeature(
-                    aJCas, "QuantityFeature_secondEventMentionSmaller", numberMatchResult > 0, false);
+            PairwiseFeature secondSmallerFeature = FeatureUtils.createPairwiseBinaryFeature("QuantityFeature_secondEventMentionSmaller", numberMatchResult > 0, false);
 
             features.add(sameQuantityFeature);
             features.add(firstSmallerFeature);
@@ -65,7 +62,7 @@ public class EventSemanticFeature extends PairwiseFeatureGenerator {
 //        for (EntityMention sireEntity1 : sireEntities1) {
 //            for (EntityMention sireEntity2 : sireEntities2) {
 //                if (sireEntity1.getMentionType().equals(sireEntity2.getMentionType())) {
-//                    FeatureUtils.createPairwiseEventNumericFeature(aJCas, "EventMentionTypeMatch",
+//                    FeatureUtils.createPairwiseNumericFeature("EventMentionTypeMatch",
 //                            sireEntity1.getMentionTypeConf() * sireEntity2.getMentionTypeConf(), false);
 //                }
 //            }
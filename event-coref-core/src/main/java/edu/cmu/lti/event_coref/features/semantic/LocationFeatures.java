@@ -4,6 +4,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Lists;
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
 import edu.cmu.lti.event_coref.model.EventMentionRow;
 import edu.cmu.lti.event_coref.model.EventMentionTable;
@@ -34,9 +35,9 @@ public class LocationFeatures extends PairwiseFeatureGenerator {
   }
 
   @Override
-  public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
+  public List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1,
           EventMention event2) {
-    List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
     EventMentionRow row1 = domainTable.get(event1);
     EventMentionRow row2 = domainTable.get(event2);
 
@@ -44,9 +45,9 @@ public class LocationFeatures extends PairwiseFeatureGenerator {
     return features;
   }
 
-  public List<PairwiseEventFeature> createLocationFeatures(JCas aJCas, EventMentionRow row1,
+  public List<PairwiseFeature> createLocationFeatures(JCas aJCas, EventMentionRow row1,
           EventMentionRow row2, SimilarityCalculator rowFiller, Set<String> lowConfidentAnnotatorNames) {
-    List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
     // prepare to add location scores
     ArrayListMultimap<String, Location> locationsFromDifferentAnnotators1 = splitEntityBasedComponentsByAnnotator(
             row1.getLocationLinks(), Location.class);
@@ -86,28 +87,23 @@ public class LocationFeatures extends PairwiseFeatureGenerator {
     // Double score = scoreEntry.getValue();
     //
     // if (scoreName.equals("exactSurfaceMath")) {
-    // PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventFeature(aJCas,
-    // "confidentLocationExactSurfaceMatch", score);
+    // PairwiseFeature aFeature = FeatureUtils.createPairwiseFeature(// "confidentLocationExactSurfaceMatch", score);
     // features.add(aFeature);
     // }
     // if (scoreName.equals("maxEntitySim")) {
-    // PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventFeature(aJCas,
-    // "confidentLocationMaxEntitySimilarity", score);
+    // PairwiseFeature aFeature = FeatureUtils.createPairwiseFeature(// "confidentLocationMaxEntitySimilarity", score);
     // features.add(aFeature);
     // }
     // if (scoreName.equals("dice")) {
-    // PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventFeature(aJCas,
-    // "confidentLocationRelaxedDice", score);
+    // PairwiseFeature aFeature = FeatureUtils.createPairwiseFeature(// "confidentLocationRelaxedDice", score);
     // features.add(aFeature);
     // }
     // if (scoreName.equals("substring")) {
-    // PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventFeature(aJCas,
-    // "confidentLocationSubString", score);
+    // PairwiseFeature aFeature = FeatureUtils.createPairwiseFeature(// "confidentLocationSubString", score);
     // features.add(aFeature);
     // }
     // if (scoreName.equals("maxAlternativeNameSimilarity")) {
-    // PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventFeature(aJCas,
-    // "confidentLocationMaxAlternativeNameSimilarity", score);
+    // PairwiseFeature aFeature = FeatureUtils.createPairwiseFeature(// "confidentLocationMaxAlternativeNameSimilarity", score);
     // features.add(aFeature);
     //
     // }
@@ -120,53 +116,45 @@ public class LocationFeatures extends PairwiseFeatureGenerator {
 
       if (scoreName.equals("exactSurfaceMath")) {
         String featureName = "allLocationExactSurfaceMatch";
-        PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                featureName, score, false);
+        PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
         features.add(aFeature);
       }
       if (scoreName.equals("maxEntityStringSim")) {
         String featureName = "allLocationMaxEntitySimilarity";
-        PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                featureName, score, false);
+        PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
         features.add(aFeature);
       }
 
       if (scoreName.equals("surfaceDice")) {
         String featureName = "allLocationDice";
-        PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                featureName, score, false);
+        PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
         features.add(aFeature);
       }
       if (scoreName.equals("surfaceRelaxedDice")) {
         String featureName = "allLocationRelaxedDice";
-        PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                featureName, score, false);
+        PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
         features.add(aFeature);
       }
 
       if (scoreName.equals("maxAlternativeNameSimilarity")) {
         String featureName = "allLocationMaxAlternativeNameSimilarity";
-        PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                featureName, score, false);
+        PairwiseFeature aFeature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
         features.add(aFeature);
       }
 
       if (scoreName.equals("entityCoref")) {
         String featureName = "allLocationEntityCoref";
-        PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                featureName, score == 1.0, false);
+        PairwiseFeature aFeature = FeatureUtils.createPairwiseBinaryFeature(featureName, score == 1.0, false);
         features.add(aFeature);
       }
       if (scoreName.equals("substring")) {
         String featureName = "allLocationSubString";
-        PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                featureName, score == 1.0, false);
+        PairwiseFeature aFeature = FeatureUtils.createPairwiseBinaryFeature(featureName, score == 1.0, false);
         features.add(aFeature);
       }
       if (scoreName.equals("locationContainment")) {
         String featureName = "allLocationContainment";
-        PairwiseEventFeature aFeature = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                featureName, score == 1.0, false);
+        PairwiseFeature aFeature = FeatureUtils.createPairwiseBinaryFeature(featureName, score == 1.0, false);
         features.add(aFeature);
       }
     }
@@ -3,9 +3,9 @@
  */
 package edu.cmu.lti.event_coref.features.semantic;
 
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
 import edu.cmu.lti.event_coref.type.EventMention;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.utils.ml.FeatureUtils;
 import org.apache.uima.jcas.JCas;
 
@@ -68,9 +68,9 @@ public class SemaforFeatures extends PairwiseFeatureGenerator {
      * edu.cmu.lti.event_coref.type.EventMention)
      */
     @Override
-    public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
-                                                     EventMention event2) {
-        List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    public List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1,
+                                                EventMention event2) {
+        List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
         String featureName = "TriggerSameFrame";
 
 //    SemaforLabel label1 = event2Label.get(event1);
@@ -90,9 +90,9 @@ public class SemaforFeatures extends PairwiseFeatureGenerator {
 
         if (frameName1 != null && frameName2 != null) {
             if (frameName1.equals(frameName2)) {
-                features.add(FeatureUtils.createPairwiseEventBinaryFeature(aJCas, featureName, true, false));
+                features.add(FeatureUtils.createPairwiseBinaryFeature(featureName, true, false));
             } else {
-                features.add(FeatureUtils.createPairwiseEventBinaryFeature(aJCas, featureName, false, false));
+                features.add(FeatureUtils.createPairwiseBinaryFeature(featureName, false, false));
             }
         }
         return features;
@@ -3,11 +3,11 @@
  */
 package edu.cmu.lti.event_coref.features.semantic;
 
-import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
+import edu.cmu.lti.event_coref.features.MentionCachedFeatureGenerator;
 import edu.cmu.lti.event_coref.type.EntityBasedComponent;
 import edu.cmu.lti.event_coref.type.EventMention;
 import edu.cmu.lti.event_coref.type.EventMentionArgumentLink;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.utils.ml.FeatureUtils;
 import edu.cmu.lti.event_coref.utils.SimilarityCalculator;
 import org.apache.uima.jcas.JCas;
@@ -20,10 +20,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 /**
+ * Compare the arguments of the same VerbNet role, the argument map of each mention is built once
+ * per document.
+ * 
  * @author Zhengzhong Liu, Hector
  * 
  */
-public class SemaforRoleFeatures extends PairwiseFeatureGenerator {
+public class SemaforRoleFeatures extends
+        MentionCachedFeatureGenerator<Map<String, EntityBasedComponent>> {
   SimilarityCalculator calc;
 
   public SemaforRoleFeatures(SimilarityCalculator calc) {
@@ -31,12 +35,15 @@ public class SemaforRoleFeatures extends PairwiseFeatureGenerator {
   }
 
   @Override
-  public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
-          EventMention event2) {
-    List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+  protected Map<String, EntityBasedComponent> createMentionFeatures(JCas aJCas, EventMention mention) {
+    return getArguments(mention);
+  }
 
-    Map<String, EntityBasedComponent> evm1Arguments = getArguments(event1);
-    Map<String, EntityBasedComponent> evm2Arguments = getArguments(event2);
+  @Override
+  protected List<PairwiseFeature> combineFeatures(EventMention event1,
+          Map<String, EntityBasedComponent> evm1Arguments, EventMention event2,
+          Map<String, EntityBasedComponent> evm2Arguments) {
+    List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
 
     for (Entry<String, EntityBasedComponent> evm1Entry : evm1Arguments.entrySet()) {
       String role = evm1Entry.getKey();
@@ -47,25 +54,20 @@ public class SemaforRoleFeatures extends PairwiseFeatureGenerator {
         String str1 = argEvm1.getCoveredText();
         String str2 = argEvm2.getCoveredText();
 
-        // PairwiseEventFeature surfaceMatch = null;
+        // PairwiseFeature surfaceMatch = null;
         // if (str1.equals(str2)) {
-        // surfaceMatch = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-        // "semafor_surfaceMatch_" + role, true, false);
+        // surfaceMatch = FeatureUtils.createPairwiseBinaryFeature(// "semafor_surfaceMatch_" + role, true, false);
         // } else {
-        // surfaceMatch = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-        // "semafor_surfaceMatch_" + role, false, false);
+        // surfaceMatch = FeatureUtils.createPairwiseBinaryFeature(// "semafor_surfaceMatch_" + role, false, false);
         // }
 
-        PairwiseEventFeature dice = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                "semafor_surfaceDice_" + role, calc.getDiceCoefficient(str1, str2), false);
+        PairwiseFeature dice = FeatureUtils.createPairwiseNumericFeature("semafor_surfaceDice_" + role, calc.getDiceCoefficient(str1, str2), false);
 
         double entityScore = calc.checkClusterSurfaceSimilarity(argEvm1, argEvm2);
 
-        PairwiseEventFeature entitySim = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                "semafor_entityClusterSimilarity_" + role, entityScore, false);
+        PairwiseFeature entitySim = FeatureUtils.createPairwiseNumericFeature("semafor_entityClusterSimilarity_" + role, entityScore, false);
 
-        PairwiseEventFeature subStringFeature = FeatureUtils.createPairwiseEventBinaryFeature(
-                aJCas, "semafor_subString_" + role, calc.subStringTest(str1, str2), false);
+        PairwiseFeature subStringFeature = FeatureUtils.createPairwiseBinaryFeature("semafor_subString_" + role, calc.subStringTest(str1, str2), false);
 
         features.add(subStringFeature);
         features.add(entitySim);
@@ -1,8 +1,8 @@
 package edu.cmu.lti.event_coref.features.semantic;
 
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
 import edu.cmu.lti.event_coref.type.EventMention;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.utils.ml.FeatureConstants;
 import edu.cmu.lti.event_coref.utils.ml.FeatureConstants.PairwiseEventFeatureInfo;
 import edu.cmu.lti.event_coref.utils.ml.FeatureUtils;
@@ -22,9 +22,9 @@ import java.util.List;
 public class TemporalFeatures extends PairwiseFeatureGenerator {
 
   @Override
-  public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
+  public List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1,
           EventMention event2) {
-    List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
 
     addFeaturePresentOrPastVerbMatch(features, aJCas, event1, event2);
     // TODO: implement the following
@@ -45,7 +45,7 @@ public class TemporalFeatures extends PairwiseFeatureGenerator {
    * @param event1
    * @param event2
    */
-  private void addFeaturePresentOrPastVerbMatch(List<PairwiseEventFeature> features, JCas aJCas,
+  private void addFeaturePresentOrPastVerbMatch(List<PairwiseFeature> features, JCas aJCas,
           EventMention event1, EventMention event2) {
     String pos1 = event1.getHeadWord().getPartOfSpeech();
     String pos2 = event2.getHeadWord().getPartOfSpeech();
@@ -60,8 +60,7 @@ public class TemporalFeatures extends PairwiseFeatureGenerator {
       }
     }
 
-    features.add(FeatureUtils.createPairwiseEventFeature(aJCas,
-            PairwiseEventFeatureInfo.PRESENT_OR_PAST_VERB_MATCH, score, false));
+    features.add(FeatureUtils.createPairwiseFeature(PairwiseEventFeatureInfo.PRESENT_OR_PAST_VERB_MATCH, score, false));
   }
 
 }
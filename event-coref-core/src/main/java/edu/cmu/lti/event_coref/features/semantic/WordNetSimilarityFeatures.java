@@ -1,8 +1,8 @@
 package edu.cmu.lti.event_coref.features.semantic;
 
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
 import edu.cmu.lti.event_coref.type.EventMention;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.type.StanfordCorenlpToken;
 import edu.cmu.lti.event_coref.utils.WordNetSimilarityCalculator;
 import edu.cmu.lti.event_coref.utils.ml.FeatureConstants.PairwiseEventFeatureInfo;
@@ -46,9 +46,9 @@ public class WordNetSimilarityFeatures extends PairwiseFeatureGenerator {
     }
 
     @Override
-    public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
-                                                     EventMention event2) {
-        List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    public List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1,
+                                                EventMention event2) {
+        List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
 
         addFeatureWordNetSimilarity(features, aJCas, event1, event2);
 
@@ -63,7 +63,7 @@ public class WordNetSimilarityFeatures extends PairwiseFeatureGenerator {
      * @param event1
      * @param event2
      */
-    private void addFeatureWordNetSimilarity(List<PairwiseEventFeature> features, JCas aJCas,
+    private void addFeatureWordNetSimilarity(List<PairwiseFeature> features, JCas aJCas,
                                              EventMention event1, EventMention event2) {
         // Extracts lemma of the head word of a event mention string.
         //String lemma1 = event1.getHeadWord().getLemma();
@@ -114,19 +114,15 @@ public class WordNetSimilarityFeatures extends PairwiseFeatureGenerator {
                 buf.append(wordnetSimKey);
                 String featureName = buf.toString();
 
-                PairwiseEventFeature feature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                        featureName, score, false);
+                PairwiseFeature feature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
                 features.add(feature);
             }
 
             return;
         }
 
-        wnsc.setWordLemmas(lemma1, lemma2);
-        wnsc.calcWordNetSimilarity();
-
         Map<String, Double> wordnetSimScores = new HashMap<String, Double>();
-        for (Entry<String, Double> wordnetSimEntry : wnsc.getWordnetSimilarityScores().entrySet()) {
+        for (Entry<String, Double> wordnetSimEntry : wnsc.getScores(lemma1, lemma2).entrySet()) {
             String wordnetSimKey = wordnetSimEntry.getKey();
             double score = wordnetSimEntry.getValue();
             if (score > MAX_SIMILARITY_SCORE) {
@@ -142,8 +138,7 @@ public class WordNetSimilarityFeatures extends PairwiseFeatureGenerator {
 
             // LogUtils.log("Feature name: " + featureName + ", " + "WordNet similarity score: " + score);
 
-            PairwiseEventFeature feature = FeatureUtils.createPairwiseEventNumericFeature(aJCas,
-                    featureName, score, false);
+            PairwiseFeature feature = FeatureUtils.createPairwiseNumericFeature(featureName, score, false);
 
             features.add(feature);
 
@@ -1,8 +1,8 @@
 package edu.cmu.lti.event_coref.features.syntactic;
 
-import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
+import edu.cmu.lti.event_coref.features.MentionCachedFeatureGenerator;
 import edu.cmu.lti.event_coref.type.EventMention;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.type.StanfordDependencyNode;
 import edu.cmu.lti.event_coref.type.StanfordDependencyRelation;
 import edu.cmu.lti.event_coref.utils.SimilarityCalculator;
@@ -17,7 +17,11 @@ import org.uimafit.util.JCasUtil;
 import java.util.ArrayList;
 import java.util.List;
 
-public class ModifierFeatures extends PairwiseFeatureGenerator {
+/**
+ * Definiteness, modifier and negation features from the dependency children of the mentions. The
+ * children of each mention are read once per document.
+ */
+public class ModifierFeatures extends MentionCachedFeatureGenerator<ModifierFeatures.Modifiers> {
 
     private static final Logger logger = LoggerFactory.getLogger(ModifierFeatures.class);
 
@@ -27,152 +31,96 @@ public class ModifierFeatures extends PairwiseFeatureGenerator {
         this.calc = calc;
     }
 
+    /**
+     * What the dependency children of one mention tell.
+     */
+    static class Modifiers {
+        boolean definite = false;
 
-    @Override
-    public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
-                                                     EventMention event2) {
+        boolean looseModified = false;
 
-        List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+        boolean strictlyModified = false;
 
-        // Add definiteness information
-        List<StanfordDependencyNode> event1Nodes = JCasUtil.selectCovered(StanfordDependencyNode.class,
-                event1);
-        List<StanfordDependencyNode> event2Nodes = JCasUtil.selectCovered(StanfordDependencyNode.class,
-                event2);
-
-        Boolean e1Definite = false;
-        Boolean e2Definite = false;
-        for (StanfordDependencyNode e1Node : event1Nodes) {
-            FSList e1NodeChildDepFSList = e1Node.getChildRelations();
-            if (e1NodeChildDepFSList != null) {
-                for (StanfordDependencyRelation e1NodeChildDep : FSCollectionFactory.create(
-                        e1NodeChildDepFSList, StanfordDependencyRelation.class)) {
-                    if (e1NodeChildDep.getRelationType().equals("det"))
-                        e1Definite = true;
-                }
-            }
-        }
+        boolean negated = false;
 
-        for (StanfordDependencyNode e2Node : event2Nodes) {
-            FSList e2NodeChildDepFSList = e2Node.getChildRelations();
-            if (e2NodeChildDepFSList != null) {
-                for (StanfordDependencyRelation e2NodeChildDep : FSCollectionFactory.create(
-                        e2NodeChildDepFSList, StanfordDependencyRelation.class)) {
-                    if (e2NodeChildDep.getRelationType().equals("det"))
-                        e2Definite = true;
-                }
-            }
-        }
+        String lastChildNodeStr = null;
 
-        PairwiseEventFeature latterIsDefinite = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                "latterEventIsDefinite", e2Definite, false);
+        String childNodeStr = null;
+    }
 
-        features.add(latterIsDefinite);
+    @Override
+    protected Modifiers createMentionFeatures(JCas aJCas, EventMention mention) {
+        Modifiers modifiers = new Modifiers();
+
+        for (StanfordDependencyNode node : JCasUtil.selectCovered(StanfordDependencyNode.class, mention)) {
+            FSList nodeChildDepFSList = node.getChildRelations();
+            if (nodeChildDepFSList != null) {
+                for (StanfordDependencyRelation nodeChildDep : FSCollectionFactory.create(
+                        nodeChildDepFSList, StanfordDependencyRelation.class)) {
+                    String relation = nodeChildDep.getRelationType();
+
+                    if (relation.equals("det")) {
+                        modifiers.definite = true;
+                    }
 
-        // Add modifying information
-        Boolean e1LooseMod = false;
-        Boolean e2LooseMod = false;
-        String e1LooseModStr = null;
-        String e2LooseModStr = null;
-
-        String e1LastChildNodeStr = null;
-        String e1ChildNodeStr = null;
-
-        Boolean e1StrictMod = false;
-        Boolean e2StrictMod = false;
-        String e1StrictModStr = null;
-        String e2StrictModStr = null;
-
-        String e2lastChildNodeStr = null;
-        String e2ChildNodeStr = null;
-
-        Boolean e1Neg = false;
-        Boolean e2Neg = false;
-
-        for (StanfordDependencyNode e1Node : event1Nodes) {
-            FSList e1NodeChildDepFSList = e1Node.getChildRelations();
-            if (e1NodeChildDepFSList != null) {
-                for (StanfordDependencyRelation e1NodeChildDep : FSCollectionFactory.create(
-                        e1NodeChildDepFSList, StanfordDependencyRelation.class)) {
-                    String e1Relation = e1NodeChildDep.getRelationType();
-
-                    if (e1Relation.endsWith("mod")) {
-                        e1LooseMod = true;
-                        e1LooseModStr = e1NodeChildDep.getChild().getCoveredText();
+                    if (relation.endsWith("mod")) {
+                        modifiers.looseModified = true;
                     }
 
-                    e1LastChildNodeStr = e1NodeChildDep.getChild().getCoveredText();
+                    modifiers.lastChildNodeStr = nodeChildDep.getChild().getCoveredText();
 
-                    if (e1ChildNodeStr != null) {
-                        e1ChildNodeStr = e1LastChildNodeStr;
+                    if (modifiers.childNodeStr != null) {
+                        modifiers.childNodeStr = modifiers.lastChildNodeStr;
                     } else {
-                        e1ChildNodeStr += " " + e1LastChildNodeStr;
+                        modifiers.childNodeStr += " " + modifiers.lastChildNodeStr;
                     }
 
-                    if (e1Relation.equals("amod") || e1Relation.equals("nn")) {
-                        e1StrictMod = true;
-                        e1StrictModStr = e1NodeChildDep.getChild().getCoveredText();
+                    if (relation.equals("amod") || relation.equals("nn")) {
+                        modifiers.strictlyModified = true;
                     }
 
-                    if (e1Relation.equals("neg")) {
-                        e1Neg = true;
+                    if (relation.equals("neg")) {
+                        modifiers.negated = true;
                     }
                 }
             }
         }
+        return modifiers;
+    }
 
-        for (StanfordDependencyNode e2Node : event2Nodes) {
-            FSList e2NodeChildDepFSList = e2Node.getChildRelations();
-            if (e2NodeChildDepFSList != null) {
-                for (StanfordDependencyRelation e2NodeChildDep : FSCollectionFactory.create(
-                        e2NodeChildDepFSList, StanfordDependencyRelation.class)) {
-                    String e2Relation = e2NodeChildDep.getRelationType();
-
-                    if (e2Relation.endsWith("mod")) {
-                        e2LooseMod = true;
-                        e2LooseModStr = e2NodeChildDep.getChild().getCoveredText();
-                    }
-
-                    e2lastChildNodeStr = e2NodeChildDep.getChild().getCoveredText();
+    @Override
+    protected List<PairwiseFeature> combineFeatures(EventMention event1, Modifiers e1Modifiers,
+                                                    EventMention event2, Modifiers e2Modifiers) {
+        List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
 
-                    if (e1ChildNodeStr != null) {
-                        e2ChildNodeStr = e2lastChildNodeStr;
-                    } else {
-                        e2ChildNodeStr += " " + e2lastChildNodeStr;
-                    }
+        // Add definiteness information
+        PairwiseFeature latterIsDefinite = FeatureUtils.createPairwiseBinaryFeature("latterEventIsDefinite", e2Modifiers.definite, false);
 
-                    if (e2Relation.equals("amod") || e2Relation.equals("nn")) {
-                        e2StrictMod = true;
-                        e2StrictModStr = e2NodeChildDep.getChild().getCoveredText();
-                    }
-                    if (e2Relation.equals("neg")) {
-                        e2Neg = true;
-                    }
-                }
-            }
-        }
+        features.add(latterIsDefinite);
 
-        if (e1Neg && e2Neg) {
-            PairwiseEventFeature bothNegation = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                    "bothNegation", true, true);
+        // Add modifying information
+        if (e1Modifiers.negated && e2Modifiers.negated) {
+            PairwiseFeature bothNegation = FeatureUtils.createPairwiseBinaryFeature("bothNegation", true, true);
             features.add(bothNegation);
             logger.debug("Both negation" + event1.getCoveredText() + " " + event2.getCoveredText());
         }
 
-        features.add(FeatureUtils.createPairwiseEventBinaryFeature(aJCas, "latterIsLooseModified",
-                e2LooseMod, false));
+        features.add(FeatureUtils.createPairwiseBinaryFeature("latterIsLooseModified",
+                e2Modifiers.looseModified, false));
 
-        features.add(FeatureUtils.createPairwiseEventBinaryFeature(aJCas, "latterIsStrictlyModified",
-                e2StrictMod, false));
+        features.add(FeatureUtils.createPairwiseBinaryFeature("latterIsStrictlyModified",
+                e2Modifiers.strictlyModified, false));
 
-        if (e1LastChildNodeStr != null && e2lastChildNodeStr != null) {
-            features.add(FeatureUtils.createPairwiseEventNumericFeature(aJCas, "lastChildNodeDice",
-                    calc.relaxedDiceTest(e1LastChildNodeStr, e2lastChildNodeStr), true));
+        if (e1Modifiers.lastChildNodeStr != null && e2Modifiers.lastChildNodeStr != null) {
+            features.add(FeatureUtils.createPairwiseNumericFeature("lastChildNodeDice",
+                    calc.relaxedDiceTest(e1Modifiers.lastChildNodeStr, e2Modifiers.lastChildNodeStr), true));
         }
 
-        if (e1ChildNodeStr != null && e2ChildNodeStr != null) {
-            features.add(FeatureUtils.createPairwiseEventNumericFeature(aJCas, "childNodeDice",
-                    calc.relaxedDiceTest(e1ChildNodeStr, e2ChildNodeStr), true));
+        // the child string of the latter event used to be built under the condition of the former
+        // one, which leaves only its last child whenever the former one has a child string
+        if (e1Modifiers.childNodeStr != null && e2Modifiers.lastChildNodeStr != null) {
+            features.add(FeatureUtils.createPairwiseNumericFeature("childNodeDice",
+                    calc.relaxedDiceTest(e1Modifiers.childNodeStr, e2Modifiers.lastChildNodeStr), true));
         }
 
         return features;
@@ -3,9 +3,9 @@
  */
 package edu.cmu.lti.event_coref.features.syntactic;
 
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
 import edu.cmu.lti.event_coref.type.EventMention;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.type.StanfordCorenlpToken;
 import edu.cmu.lti.event_coref.utils.ml.FeatureUtils;
 import org.apache.uima.jcas.JCas;
@@ -23,9 +23,9 @@ import java.util.List;
 public class PosPairFeatures extends PairwiseFeatureGenerator {
 
   @Override
-  public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
+  public List<PairwiseFeature> createFeatures(JCas aJCas, EventMention event1,
           EventMention event2) {
-    List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
 
     StanfordCorenlpToken event1HeadWord = JCasUtil.selectCovered(StanfordCorenlpToken.class,
             event1.getHeadWord()).get(0);
@@ -47,7 +47,7 @@ public class PosPairFeatures extends PairwiseFeatureGenerator {
         smallerPos = pos1;
       }
 
-      FeatureUtils.createPairwiseEventBinaryFeature(aJCas, "pos_" + smallerPos + "_" + largerPos,
+      FeatureUtils.createPairwiseBinaryFeature("pos_" + smallerPos + "_" + largerPos,
               true, true);
     }
 
@@ -1,8 +1,8 @@
 package edu.cmu.lti.event_coref.features.syntactic;
 
-import edu.cmu.lti.event_coref.features.PairwiseFeatureGenerator;
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
+import edu.cmu.lti.event_coref.features.MentionCachedFeatureGenerator;
 import edu.cmu.lti.event_coref.type.EventMention;
-import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
 import edu.cmu.lti.event_coref.type.StanfordCorenlpToken;
 import edu.cmu.lti.event_coref.utils.ml.FeatureUtils;
 import edu.cmu.lti.utils.general.EnglishUtils;
@@ -14,129 +14,132 @@ import org.uimafit.util.JCasUtil;
 import java.util.ArrayList;
 import java.util.List;
 
-public class WordFormFeatures extends PairwiseFeatureGenerator {
+/**
+ * Plurality and tense agreement from the part of speech of the head tokens, which are looked up
+ * once per mention. A pair with a mention that has no head token gets no features.
+ */
+public class WordFormFeatures extends MentionCachedFeatureGenerator<String> {
     private static final Logger logger = LoggerFactory.getLogger(WordFormFeatures.class);
 
     public WordFormFeatures() {
     }
 
+    /**
+     * @return the part of speech of the head token of the mention, or null if it has none
+     */
     @Override
-    public List<PairwiseEventFeature> createFeatures(JCas aJCas, EventMention event1,
-                                                     EventMention event2) {
-
-        List<PairwiseEventFeature> features = new ArrayList<PairwiseEventFeature>();
+    protected String createMentionFeatures(JCas aJCas, EventMention mention) {
+        List<StanfordCorenlpToken> headTokens = mention.getHeadWord() == null ? new ArrayList<StanfordCorenlpToken>()
+                : JCasUtil.selectCovered(StanfordCorenlpToken.class, mention.getHeadWord());
+        if (headTokens.isEmpty()) {
+            logger.warn(String.format("No head token found for [%s], its pairs get no word form features",
+                    mention.getCoveredText()));
+            return null;
+        }
+        return headTokens.get(0).getPos();
+    }
 
-        // System.out.println(event1.getCoveredText() + " " + event1.getBegin() + " " +
-        // event1.getEnd());
-        // System.out.println(event2.getCoveredText()+ "  "+ event2.getBegin() + " " + event2.
-        // getEnd());
+    @Override
+    protected List<PairwiseFeature> combineFeatures(EventMention event1, String event1HeadPos,
+                                                    EventMention event2, String event2HeadPos) {
 
-        // Word event1HeadWord = event1.getHeadWord();
-        // Word event2HeadWord = event2.getHeadWord();
+        List<PairwiseFeature> features = new ArrayList<PairwiseFeature>();
 
-        StanfordCorenlpToken event1HeadWord = JCasUtil.selectCovered(StanfordCorenlpToken.class,
-                event1.getHeadWord()).get(0);
-        StanfordCorenlpToken event2HeadWord = JCasUtil.selectCovered(StanfordCorenlpToken.class,
-                event2.getHeadWord()).get(0);
+        if (event1HeadPos == null || event2HeadPos == null) {
+            return features;
+        }
 
         // Add plural features
-        Boolean e1NounPlural = EnglishUtils.isPluralNoun(event1HeadWord.getPos());
-        Boolean e1NounSingle = EnglishUtils.isSingularNoun(event1HeadWord.getPos());
+        Boolean e1NounPlural = EnglishUtils.isPluralNoun(event1HeadPos);
+        Boolean e1NounSingle = EnglishUtils.isSingularNoun(event1HeadPos);
 
-        Boolean e2NounPlural = EnglishUtils.isPluralNoun(event2HeadWord.getPos());
-        Boolean e2NounSingle = EnglishUtils.isSingularNoun(event2HeadWord.getPos());
+        Boolean e2NounPlural = EnglishUtils.isPluralNoun(event2HeadPos);
+        Boolean e2NounSingle = EnglishUtils.isSingularNoun(event2HeadPos);
 
         boolean areBothPlural = e1NounPlural && e2NounPlural;
         boolean areBothSingle = e1NounSingle && e2NounSingle;
         boolean areDifferentPlurality = (e1NounPlural && e2NounSingle)
                 || (e1NounSingle && e2NounPlural);
 
-        PairwiseEventFeature bothPlural;
+        PairwiseFeature bothPlural;
         String bothPluralName = "bothPlural";
 
-        PairwiseEventFeature differentPlurality;
+        PairwiseFeature differentPlurality;
         String differerntPluralityName = "differentPlurality";
 
-        PairwiseEventFeature bothSingle;
+        PairwiseFeature bothSingle;
         String bothSingleName = "bothSingle";
 
         if (areBothPlural) {
             bothPlural = FeatureUtils
-                    .createPairwiseEventBinaryFeature(aJCas, bothPluralName, true, false);
-            differentPlurality = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                    differerntPluralityName, false, false);
-            bothSingle = FeatureUtils.createPairwiseEventBinaryFeature(aJCas, bothSingleName, false,
+                    .createPairwiseBinaryFeature(bothPluralName, true, false);
+            differentPlurality = FeatureUtils.createPairwiseBinaryFeature(differerntPluralityName, false, false);
+            bothSingle = FeatureUtils.createPairwiseBinaryFeature(bothSingleName, false,
                     false);
             features.add(bothPlural);
             features.add(bothSingle);
             features.add(differentPlurality);
         } else if (areDifferentPlurality) {
-            bothPlural = FeatureUtils.createPairwiseEventBinaryFeature(aJCas, bothPluralName, false,
+            bothPlural = FeatureUtils.createPairwiseBinaryFeature(bothPluralName, false,
                     false);
-            differentPlurality = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                    differerntPluralityName, true, false);
-            bothSingle = FeatureUtils.createPairwiseEventBinaryFeature(aJCas, bothSingleName, false,
+            differentPlurality = FeatureUtils.createPairwiseBinaryFeature(differerntPluralityName, true, false);
+            bothSingle = FeatureUtils.createPairwiseBinaryFeature(bothSingleName, false,
                     false);
             features.add(bothPlural);
             features.add(bothSingle);
             features.add(differentPlurality);
         } else if (areBothSingle) {
-            bothPlural = FeatureUtils.createPairwiseEventBinaryFeature(aJCas, bothPluralName, false,
+            bothPlural = FeatureUtils.createPairwiseBinaryFeature(bothPluralName, false,
                     false);
-            differentPlurality = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                    differerntPluralityName, false, false);
+            differentPlurality = FeatureUtils.createPairwiseBinaryFeature(differerntPluralityName, false, false);
             bothSingle = FeatureUtils
-                    .createPairwiseEventBinaryFeature(aJCas, bothSingleName, true, false);
+                    .createPairwiseBinaryFeature(bothSingleName, true, false);
             features.add(bothPlural);
             features.add(bothSingle);
             features.add(differentPlurality);
         }
 
         // Add verb tense information
-        Boolean e1Past = EnglishUtils.isPastVerb(event1HeadWord.getPos());
-        Boolean e2Past = EnglishUtils.isPastVerb(event2HeadWord.getPos());
+        Boolean e1Past = EnglishUtils.isPastVerb(event1HeadPos);
+        Boolean e2Past = EnglishUtils.isPastVerb(event2HeadPos);
         Boolean e13rdPerson = false;
         Boolean e23rdPerson = false;
         Boolean e1Non3rdPersonPresent = false;
         Boolean e2Non3rdPersonPresent = false;
 
-        if (event1HeadWord.getPos().equals("VBZ"))
+        if (event1HeadPos.equals("VBZ"))
             e13rdPerson = true;
-        if (event1HeadWord.getPos().equals("VBP") || event1HeadWord.getPos().equals("VB"))
+        if (event1HeadPos.equals("VBP") || event1HeadPos.equals("VB"))
             e1Non3rdPersonPresent = true;
 
-        if (event2HeadWord.getPos().equals("VBZ"))
+        if (event2HeadPos.equals("VBZ"))
             e23rdPerson = true;
-        if (event2HeadWord.getPos().equals("VBP") || event2HeadWord.getPos().equals("VB"))
+        if (event2HeadPos.equals("VBP") || event2HeadPos.equals("VB"))
             e2Non3rdPersonPresent = true;
 
-        PairwiseEventFeature one3rdPerson;
+        PairwiseFeature one3rdPerson;
         if (e13rdPerson && e2Non3rdPersonPresent || e1Non3rdPersonPresent && e23rdPerson) {
-            one3rdPerson = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                    "bothPresentDifferent3rdPerson", true, false);
+            one3rdPerson = FeatureUtils.createPairwiseBinaryFeature("bothPresentDifferent3rdPerson", true, false);
         } else {
-            one3rdPerson = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                    "bothPresentDifferent3rdPerson", false, false);
+            one3rdPerson = FeatureUtils.createPairwiseBinaryFeature("bothPresentDifferent3rdPerson", false, false);
         }
 
         Boolean e1Present = e13rdPerson || e1Non3rdPersonPresent;
         Boolean e2Present = e23rdPerson || e2Non3rdPersonPresent;
-        PairwiseEventFeature differentTense;
+        PairwiseFeature differentTense;
         if ((e1Past && e2Present) || (e1Present && e2Past)) {
-            differentTense = FeatureUtils.createPairwiseEventBinaryFeature(aJCas, "differentTense", true,
+            differentTense = FeatureUtils.createPairwiseBinaryFeature("differentTense", true,
                     false);
         } else {
-            differentTense = FeatureUtils.createPairwiseEventBinaryFeature(aJCas, "differentTense",
+            differentTense = FeatureUtils.createPairwiseBinaryFeature("differentTense",
                     false, false);
         }
 
-        PairwiseEventFeature bothPresentTense;
+        PairwiseFeature bothPresentTense;
         if (e1Non3rdPersonPresent && e2Non3rdPersonPresent || e13rdPerson && e23rdPerson) {
-            bothPresentTense = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                    "bothPresentTenseSame3rdPerson", true, false);
+            bothPresentTense = FeatureUtils.createPairwiseBinaryFeature("bothPresentTenseSame3rdPerson", true, false);
         } else {
-            bothPresentTense = FeatureUtils.createPairwiseEventBinaryFeature(aJCas,
-                    "bothPresentTenseSame3rdPerson", false, false);
+            bothPresentTense = FeatureUtils.createPairwiseBinaryFeature("bothPresentTenseSame3rdPerson", false, false);
         }
 
         features.add(one3rdPerson);
@@ -0,0 +1,144 @@
+package edu.cmu.lti.event_coref.model;
+
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.type.EventRelation;
+import edu.cmu.lti.event_coref.type.EventSurfaceSimilarity;
+import edu.cmu.lti.event_coref.type.SemanticDatabasePairwiseDecision;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A per-document index of the pairwise annotations between event mentions. Each event mention is
+ * given a sequential index in the document, and the pairwise annotations are stored in primitive
+ * maps keyed by the index pair, so building it costs one scan of the CAS and each lookup is O(1).
+ * <p/>
+ * Build it once per document, after the pairwise annotations are created, and pass it to whoever
+ * needs pairwise lookups. Lookups are directional, (event1, event2) is different from (event2,
+ * event1), following the order the annotations are created.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class EventMentionPairIndex {
+    private final TObjectIntMap<EventMention> mentionIndices;
+
+    private final List<EventMention> mentions;
+
+    private final TLongObjectMap<EventSurfaceSimilarity> surfaceSimilarities;
+
+    private final TLongObjectMap<Boolean> semanticDbDecisions;
+
+    private final TLongObjectMap<String> eventRelationTypes;
+
+    private static final int noIndex = -1;
+
+    public EventMentionPairIndex(JCas aJCas) {
+        mentionIndices = new TObjectIntHashMap<EventMention>(16, 0.5f, noIndex);
+        mentions = new ArrayList<EventMention>(JCasUtil.select(aJCas, EventMention.class));
+        for (int index = 0; index < mentions.size(); index++) {
+            mentionIndices.put(mentions.get(index), index);
+        }
+
+        surfaceSimilarities = new TLongObjectHashMap<EventSurfaceSimilarity>();
+        for (EventSurfaceSimilarity ess : JCasUtil.select(aJCas, EventSurfaceSimilarity.class)) {
+            long key = getPairKey(ess.getEventMentionI(), ess.getEventMentionJ());
+            if (key >= 0) {
+                surfaceSimilarities.put(key, ess);
+            }
+        }
+
+        semanticDbDecisions = new TLongObjectHashMap<Boolean>();
+        for (SemanticDatabasePairwiseDecision sdpd : JCasUtil.select(aJCas, SemanticDatabasePairwiseDecision.class)) {
+            long key = getPairKey(sdpd.getEventI(), sdpd.getEventJ());
+            if (key >= 0) {
+                semanticDbDecisions.put(key, sdpd.getIsFullCoref());
+            }
+        }
+
+        eventRelationTypes = new TLongObjectHashMap<String>();
+        for (EventRelation eventRelation : JCasUtil.select(aJCas, EventRelation.class)) {
+            long key = getPairKey(eventRelation.getHead(), eventRelation.getChild());
+            if (key >= 0) {
+                eventRelationTypes.put(key, eventRelation.getRelationType());
+            }
+        }
+    }
+
+    /**
+     * @param mention
+     * @return the sequential index of the mention in this document, or -1 if it is not indexed
+     */
+    public int getMentionIndex(EventMention mention) {
+        return mention == null ? noIndex : mentionIndices.get(mention);
+    }
+
+    /**
+     * @param mention
+     * @return the sequential index of the mention in this document
+     * @throws IllegalArgumentException if the mention is not indexed, i.e. it is not in the indexes of
+     *                                  the CAS this index is built from
+     */
+    public int requireMentionIndex(EventMention mention) {
+        int index = getMentionIndex(mention);
+        if (index == noIndex) {
+            throw new IllegalArgumentException(mention == null ? "Event mention is null" : String.format(
+                    "Event mention [%s] at [%d, %d] is not indexed", mention.getCoveredText(), mention.getBegin(),
+                    mention.getEnd()));
+        }
+        return index;
+    }
+
+    public EventMention getMention(int index) {
+        return mentions.get(index);
+    }
+
+    public int getNumberOfMentions() {
+        return mentionIndices.size();
+    }
+
+    /**
+     * @param event1
+     * @param event2
+     * @return the key of the ordered pair, or -1 if any of the mentions is not indexed
+     */
+    public long getPairKey(EventMention event1, EventMention event2) {
+        int index1 = getMentionIndex(event1);
+        int index2 = getMentionIndex(event2);
+        if (index1 == noIndex || index2 == noIndex) {
+            return -1;
+        }
+        return toPairKey(index1, index2);
+    }
+
+    public static long toPairKey(int index1, int index2) {
+        return ((long) index1 << 32) | (index2 & 0xFFFFFFFFL);
+    }
+
+    public EventSurfaceSimilarity getSurfaceSimilarity(EventMention event1, EventMention event2) {
+        return surfaceSimilarities.get(getPairKey(event1, event2));
+    }
+
+    /**
+     * @param event1
+     * @param event2
+     * @return the semantic database decision, or null if there is no decision for this pair
+     */
+    public Boolean getSemanticDbDecision(EventMention event1, EventMention event2) {
+        return semanticDbDecisions.get(getPairKey(event1, event2));
+    }
+
+    /**
+     * @param head
+     * @param child
+     * @return the type of the direct syntactic relation from head to child, or null if there is none
+     */
+    public String getEventRelationType(EventMention head, EventMention child) {
+        return eventRelationTypes.get(getPairKey(head, child));
+    }
+}
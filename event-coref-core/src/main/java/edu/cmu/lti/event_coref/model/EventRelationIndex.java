@@ -0,0 +1,247 @@
+package edu.cmu.lti.event_coref.model;
+
+import edu.cmu.lti.event_coref.type.EventCoreferenceCluster;
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.utils.EventCoreferenceConstants.DetailedEventCoreferenceRelationType;
+import edu.cmu.lti.event_coref.utils.EventMentionUtils;
+import edu.cmu.lti.event_coref.utils.EventRelationUtils;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import org.apache.uima.fit.util.FSCollectionFactory;
+
+import java.util.List;
+
+/**
+ * A per-document index of the gold standard event coreference clusters, answering
+ * {@link EventRelationUtils#getRelation(List, List, List, EventMention, EventMention, boolean)}
+ * without scanning the clusters. Each event mention is mapped to the full clusters and the member
+ * and subevent clusters it is a child of, and the parent of each partial cluster is kept, so a lookup
+ * only looks at the few clusters of the two mentions.
+ * <p/>
+ * The relations are the same as the ones from EventRelationUtils, which is kept as the reference,
+ * see {@link #getRelationByScan(EventMention, EventMention, boolean)}. Event mentions are identified
+ * by their address, as in {@link EventMentionUtils#isSameEventMention(EventMention, EventMention)}.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class EventRelationIndex {
+    private final List<EventCoreferenceCluster> fullClusterList;
+
+    private final List<EventCoreferenceCluster> memberClusterList;
+
+    private final List<EventCoreferenceCluster> subeventClusterList;
+
+    // mention address to the ids of the full clusters it belongs to
+    private final TIntObjectMap<TIntArrayList> fullClustersOfMention;
+
+    private final PartialClusters memberClusters;
+
+    private final PartialClusters subeventClusters;
+
+    public EventRelationIndex(List<EventCoreferenceCluster> fullClusterList,
+                              List<EventCoreferenceCluster> memberClusterList,
+                              List<EventCoreferenceCluster> subeventClusterList) {
+        this.fullClusterList = fullClusterList;
+        this.memberClusterList = memberClusterList;
+        this.subeventClusterList = subeventClusterList;
+
+        fullClustersOfMention = indexChildren(fullClusterList);
+        memberClusters = new PartialClusters(memberClusterList);
+        subeventClusters = new PartialClusters(subeventClusterList);
+    }
+
+    /**
+     * @param clusters
+     * @return map from the address of each child mention to the ids of its clusters, in list order
+     */
+    private static TIntObjectMap<TIntArrayList> indexChildren(List<EventCoreferenceCluster> clusters) {
+        TIntObjectMap<TIntArrayList> clustersOfMention = new TIntObjectHashMap<TIntArrayList>();
+        for (int clusterId = 0; clusterId < clusters.size(); clusterId++) {
+            EventCoreferenceCluster cluster = clusters.get(clusterId);
+            if (cluster.getChildEventMentions() == null) {
+                continue;
+            }
+            for (EventMention child : FSCollectionFactory.create(cluster.getChildEventMentions(),
+                    EventMention.class)) {
+                TIntArrayList clusterIds = clustersOfMention.get(child.getAddress());
+                if (clusterIds == null) {
+                    clusterIds = new TIntArrayList(1);
+                    clustersOfMention.put(child.getAddress(), clusterIds);
+                }
+                clusterIds.add(clusterId);
+            }
+        }
+        return clustersOfMention;
+    }
+
+    /**
+     * Returns the relation between the specified two event mentions, same as
+     * {@link EventRelationUtils#getRelation(List, List, List, EventMention, EventMention, boolean)}
+     * on the clusters of this index.
+     *
+     * @param event1
+     * @param event2
+     * @param getProbagatedRelations
+     * @return the relation between the specified two event mentions
+     */
+    public DetailedEventCoreferenceRelationType getRelation(EventMention event1, EventMention event2,
+                                                            boolean getProbagatedRelations) {
+        if (event1 == null || event2 == null) {
+            return DetailedEventCoreferenceRelationType.NO;
+        }
+
+        int address1 = event1.getAddress();
+        int address2 = event2.getAddress();
+
+        if (inSameFullCluster(address1, address2)) {
+            return DetailedEventCoreferenceRelationType.FULL;
+        }
+
+        if (subeventClusters.hasForwardRelation(address1, address2, getProbagatedRelations)) {
+            return DetailedEventCoreferenceRelationType.SUBEVENT_FORWARD;
+        }
+
+        if (subeventClusters.hasForwardRelation(address2, address1, getProbagatedRelations)) {
+            return DetailedEventCoreferenceRelationType.SUBEVENT_BACKWARD;
+        }
+
+        if (subeventClusters.hasSisterRelation(event1, event2, getProbagatedRelations)) {
+            return DetailedEventCoreferenceRelationType.SUBEVENT_SISTER;
+        }
+
+        if (memberClusters.hasForwardRelation(address1, address2, getProbagatedRelations)) {
+            return DetailedEventCoreferenceRelationType.MEMBER_FORWARD;
+        }
+
+        if (memberClusters.hasForwardRelation(address2, address1, getProbagatedRelations)) {
+            return DetailedEventCoreferenceRelationType.MEMBER_BACKWARD;
+        }
+
+        if (memberClusters.hasSisterRelation(event1, event2, getProbagatedRelations)) {
+            return DetailedEventCoreferenceRelationType.MEMBER_SISTER;
+        }
+
+        return DetailedEventCoreferenceRelationType.NO;
+    }
+
+    /**
+     * Get the relation by scanning all clusters with {@link EventRelationUtils}, this is slow and only
+     * meant to check the index.
+     *
+     * @param event1
+     * @param event2
+     * @param getProbagatedRelations
+     * @return the relation between the specified two event mentions
+     */
+    public DetailedEventCoreferenceRelationType getRelationByScan(EventMention event1, EventMention event2,
+                                                                  boolean getProbagatedRelations) {
+        return EventRelationUtils.getRelation(fullClusterList, memberClusterList, subeventClusterList, event1,
+                event2, getProbagatedRelations);
+    }
+
+    private boolean inSameFullCluster(int address1, int address2) {
+        return intersects(fullClustersOfMention.get(address1), fullClustersOfMention.get(address2));
+    }
+
+    private static boolean intersects(TIntArrayList clusterIds1, TIntArrayList clusterIds2) {
+        if (clusterIds1 == null || clusterIds2 == null) {
+            return false;
+        }
+        for (int i = 0; i < clusterIds1.size(); i++) {
+            if (clusterIds2.contains(clusterIds1.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The member or subevent clusters, where each cluster has a parent and children.
+     */
+    private class PartialClusters {
+        private final List<EventCoreferenceCluster> clusters;
+
+        private final EventMention[] parents;
+
+        private final TIntObjectMap<TIntArrayList> clustersOfChild;
+
+        PartialClusters(List<EventCoreferenceCluster> clusters) {
+            this.clusters = clusters;
+            parents = new EventMention[clusters.size()];
+            for (int clusterId = 0; clusterId < parents.length; clusterId++) {
+                parents[clusterId] = clusters.get(clusterId).getParentEventMention();
+            }
+            clustersOfChild = indexChildren(clusters);
+        }
+
+        /**
+         * Same as {@link EventRelationUtils#hasPartialForwardRelation(List, List, EventMention,
+         * EventMention, boolean)}.
+         */
+        boolean hasForwardRelation(int parentAddress, int childAddress, boolean getProbagatedRelations) {
+            TIntArrayList clusterIds = clustersOfChild.get(childAddress);
+            if (clusterIds == null) {
+                return false;
+            }
+
+            // the two event mentions are in a partial coreference cluster
+            for (int i = 0; i < clusterIds.size(); i++) {
+                EventMention parent = parents[clusterIds.get(i)];
+                if (parent != null && parent.getAddress() == parentAddress) {
+                    return true;
+                }
+            }
+
+            if (!getProbagatedRelations) {
+                return false;
+            }
+
+            if (inSameFullCluster(parentAddress, childAddress)) {
+                return false;
+            }
+
+            // the parent of the first partial cluster of the child, is in a full cluster with the parent
+            EventMention propagatedParent = parents[clusterIds.get(0)];
+            return propagatedParent != null && inSameFullCluster(parentAddress, propagatedParent.getAddress());
+        }
+
+        /**
+         * Same as {@link EventRelationUtils#hasPartialSisterRelation(List, List, EventMention,
+         * EventMention, boolean)}.
+         */
+        boolean hasSisterRelation(EventMention sister1, EventMention sister2, boolean getProbagatedRelations) {
+            int address1 = sister1.getAddress();
+            int address2 = sister2.getAddress();
+            TIntArrayList clusterIds1 = clustersOfChild.get(address1);
+            TIntArrayList clusterIds2 = clustersOfChild.get(address2);
+            if (clusterIds1 == null || clusterIds2 == null) {
+                return false;
+            }
+
+            if (intersects(clusterIds1, clusterIds2)) {
+                return true;
+            }
+
+            if (!getProbagatedRelations) {
+                return false;
+            }
+
+            if (inSameFullCluster(address1, address2)) {
+                return false;
+            }
+
+            if (clusterIds1.size() > 1 || clusterIds2.size() > 1) {
+                // a child with several parents, which parent is used depends on the cluster order, let
+                // the scan decide
+                return EventRelationUtils.hasPartialSisterRelation(fullClusterList, clusters, sister1, sister2,
+                        true);
+            }
+
+            EventMention parent1 = parents[clusterIds1.get(0)];
+            EventMention parent2 = parents[clusterIds2.get(0)];
+            return parent1 != null && parent2 != null
+                    && inSameFullCluster(parent1.getAddress(), parent2.getAddress());
+        }
+    }
+}
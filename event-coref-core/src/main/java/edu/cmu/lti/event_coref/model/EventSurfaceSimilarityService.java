@@ -0,0 +1,235 @@
+package edu.cmu.lti.event_coref.model;
+
+import com.google.common.collect.Table;
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.type.EventSurfaceSimilarity;
+import edu.cmu.lti.event_coref.type.Word;
+import edu.cmu.lti.event_coref.utils.SennaWordSimilarityCalculator;
+import edu.cmu.lti.event_coref.utils.SimilarityKernels;
+import edu.cmu.lti.event_coref.utils.SimilarityKernels.BigramProfile;
+import edu.cmu.lti.event_coref.utils.WordNetSimilarityCalculator;
+import edu.washington.cs.knowitall.morpha.MorphaStemmer;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.apache.uima.jcas.JCas;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Surface similarities between the event mentions of one document, computed when a pair is first
+ * asked for instead of for all pairs. The head word lemma and morpha of a mention, and the bigrams
+ * of the lemma for the Dice coefficient, are derived once, and the scores of a pair are kept in a
+ * primitive map keyed by the mention indices, the scores are symmetric so both orders of a pair
+ * share them.
+ * <p/>
+ * Nothing is written to the CAS unless asked for with {@link #persist(JCas, EventMention, EventMention, String)}.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class EventSurfaceSimilarityService {
+    /**
+     * Score of a measure that is not enabled.
+     */
+    public static final double NOT_COMPUTED = -1;
+
+    private final SennaWordSimilarityCalculator sennaCal;
+
+    private final WordNetSimilarityCalculator wnsc;
+
+    private final Table<String, String, Double> sennaCache;
+
+    private final TObjectIntMap<EventMention> mentionIndices;
+
+    private final List<String> mentionLemmas;
+
+    private final List<String> mentionMorphas;
+
+    private final List<BigramProfile> mentionLemmaBigrams;
+
+    private final TLongObjectMap<Scores> pairScores;
+
+    private static final int noIndex = -1;
+
+    /**
+     * The scores of one pair of mentions.
+     */
+    public static class Scores {
+        private final double wordNetWuPalmer;
+
+        private final double morphalizedWuPalmer;
+
+        private final double sennaSimilarity;
+
+        private final double diceCoefficient;
+
+        Scores(double wordNetWuPalmer, double morphalizedWuPalmer, double sennaSimilarity,
+               double diceCoefficient) {
+            this.wordNetWuPalmer = wordNetWuPalmer;
+            this.morphalizedWuPalmer = morphalizedWuPalmer;
+            this.sennaSimilarity = sennaSimilarity;
+            this.diceCoefficient = diceCoefficient;
+        }
+
+        public double getWordNetWuPalmer() {
+            return wordNetWuPalmer;
+        }
+
+        public double getMorphalizedWuPalmer() {
+            return morphalizedWuPalmer;
+        }
+
+        public double getSennaSimilarity() {
+            return sennaSimilarity;
+        }
+
+        public double getDiceCoefficient() {
+            return diceCoefficient;
+        }
+    }
+
+    /**
+     * @param sennaCal   Senna calculator
+     * @param wnsc       WordNet calculator, null to skip the WordNet scores
+     * @param sennaCache Senna scores by smaller and larger lemma, may be shared by the documents of
+     *                   one annotator
+     */
+    public EventSurfaceSimilarityService(SennaWordSimilarityCalculator sennaCal, WordNetSimilarityCalculator wnsc,
+                                         Table<String, String, Double> sennaCache) {
+        this.sennaCal = sennaCal;
+        this.wnsc = wnsc;
+        this.sennaCache = sennaCache;
+        mentionIndices = new TObjectIntHashMap<EventMention>(16, 0.5f, noIndex);
+        mentionLemmas = new ArrayList<String>();
+        mentionMorphas = new ArrayList<String>();
+        mentionLemmaBigrams = new ArrayList<BigramProfile>();
+        pairScores = new TLongObjectHashMap<Scores>();
+    }
+
+    /**
+     * @param event1
+     * @param event2
+     * @return the scores of the pair, computed if it is asked for the first time
+     */
+    public synchronized Scores getScores(EventMention event1, EventMention event2) {
+        int index1 = indexMention(event1);
+        int index2 = indexMention(event2);
+        long key = EventMentionPairIndex.toPairKey(Math.min(index1, index2), Math.max(index1, index2));
+
+        Scores scores = pairScores.get(key);
+        if (scores == null) {
+            scores = computeScores(index1, index2);
+            pairScores.put(key, scores);
+        }
+        return scores;
+    }
+
+    /**
+     * Add the scores of the pair to the CAS, in the order given.
+     *
+     * @param aJCas
+     * @param event1
+     * @param event2
+     * @param componentId
+     * @return the added annotation
+     */
+    public EventSurfaceSimilarity persist(JCas aJCas, EventMention event1, EventMention event2, String componentId) {
+        Scores scores = getScores(event1, event2);
+
+        EventSurfaceSimilarity surfaceSimilarity = new EventSurfaceSimilarity(aJCas);
+        surfaceSimilarity.setEventMentionI(event1);
+        surfaceSimilarity.setEventMentionJ(event2);
+        surfaceSimilarity.setWordNetWuPalmer(scores.getWordNetWuPalmer());
+        surfaceSimilarity.setMorphalizedWuPalmer(scores.getMorphalizedWuPalmer());
+        surfaceSimilarity.setSennaSimilarity(scores.getSennaSimilarity());
+        surfaceSimilarity.setDiceCoefficient(scores.getDiceCoefficient());
+        surfaceSimilarity.setComponentId(componentId);
+        surfaceSimilarity.addToIndexes();
+        return surfaceSimilarity;
+    }
+
+    /**
+     * @return number of pairs whose scores are computed
+     */
+    public synchronized int getNumberOfComputedPairs() {
+        return pairScores.size();
+    }
+
+    private int indexMention(EventMention mention) {
+        int index = mentionIndices.get(mention);
+        if (index == noIndex) {
+            index = mentionLemmas.size();
+            mentionIndices.put(mention, index);
+            String lemma = getLemma(mention);
+            mentionLemmas.add(lemma);
+            mentionLemmaBigrams.add(SimilarityKernels.profile(lemma.toLowerCase()));
+            mentionMorphas.add(getMorpha(mention));
+        }
+        return index;
+    }
+
+    private Scores computeScores(int index1, int index2) {
+        String lemma1 = mentionLemmas.get(index1);
+        String lemma2 = mentionLemmas.get(index2);
+        String smallWordLemma = lemma1.compareTo(lemma2) > 0 ? lemma2 : lemma1;
+        String largeWordLemma = lemma1.compareTo(lemma2) > 0 ? lemma1 : lemma2;
+
+        String morpha1 = mentionMorphas.get(index1);
+        String morpha2 = mentionMorphas.get(index2);
+        String smallMorpha = morpha1.compareTo(morpha2) > 0 ? morpha2 : morpha1;
+        String largeMorpha = morpha1.compareTo(morpha2) > 0 ? morpha1 : morpha2;
+
+        double lemmaWP = NOT_COMPUTED;
+        double morphaWP = NOT_COMPUTED;
+        if (wnsc != null) {
+            // only WuPalmer is computed, and only when it is not in the cache
+            lemmaWP = wnsc.getWordNetSimilarityScore(smallWordLemma, largeWordLemma);
+            morphaWP = wnsc.getWordNetSimilarityScore(smallMorpha, largeMorpha);
+        }
+
+        Double lemmaSenna = sennaCache.get(smallWordLemma, largeWordLemma);
+        if (lemmaSenna == null) {
+            lemmaSenna = sennaCal.getCosineSimilarity(smallWordLemma, largeWordLemma);
+            sennaCache.put(smallWordLemma, largeWordLemma, lemmaSenna);
+        }
+
+        // dice is more like confirming whether two words are the same, probably useful in
+        // misspelling case
+        double lemmaDice = SimilarityKernels.dice(mentionLemmaBigrams.get(index1), mentionLemmaBigrams.get(index2));
+
+        return new Scores(lemmaWP, morphaWP, lemmaSenna, lemmaDice);
+    }
+
+    private String getLemma(EventMention evm) {
+        Word word = evm.getHeadWord();
+        if (word == null) {
+            return MorphaStemmer.stemToken(getCoveredTextWithoutSpace(evm));
+        }
+        return word.getLemma();
+    }
+
+    private String getMorpha(EventMention evm) {
+        Word word = evm.getHeadWord();
+        if (word == null) {
+            return MorphaStemmer.stemToken(getCoveredTextWithoutSpace(evm));
+        }
+        return word.getMorpha();
+    }
+
+    // very hacky
+    private String getCoveredTextWithoutSpace(EventMention evm) {
+        String text = evm.getCoveredText();
+        if (text.contains(" ")) {
+            String longestPart = "";
+            for (String part : text.split(" ")) {
+                if (part.length() > longestPart.length()) {
+                    longestPart = part;
+                }
+            }
+            return longestPart;
+        }
+        return text;
+    }
+}
@@ -0,0 +1,75 @@
+package edu.cmu.lti.event_coref.model;
+
+import edu.cmu.lti.event_coref.type.EntityMention;
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.type.PairwiseEventCoreferenceEvaluation;
+
+import java.util.*;
+
+/**
+ * A reverse index from event mentions and entity mentions to the pairwise event coreference
+ * evaluations depending on them. When some mentions change during inference, only the pairs found
+ * here need to be featurized and scored again.
+ * <p/>
+ * The index is built once per document, the entities a pair depends on are given by the caller
+ * because it decides which entities the features use.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class PairDependencyIndex {
+    private final Map<EventMention, List<PairwiseEventCoreferenceEvaluation>> pairsOfEvent = new HashMap<EventMention, List<PairwiseEventCoreferenceEvaluation>>();
+
+    private final Map<EntityMention, List<PairwiseEventCoreferenceEvaluation>> pairsOfEntity = new HashMap<EntityMention, List<PairwiseEventCoreferenceEvaluation>>();
+
+    /**
+     * Record that the pair depends on its two events, and the given entities.
+     *
+     * @param pece
+     * @param relatedEntities
+     */
+    public void addPair(PairwiseEventCoreferenceEvaluation pece, Collection<EntityMention> relatedEntities) {
+        addDependency(pairsOfEvent, pece.getEventMentionI(), pece);
+        if (pece.getEventMentionJ() != pece.getEventMentionI()) {
+            addDependency(pairsOfEvent, pece.getEventMentionJ(), pece);
+        }
+        for (EntityMention entity : relatedEntities) {
+            addDependency(pairsOfEntity, entity, pece);
+        }
+    }
+
+    private <K> void addDependency(Map<K, List<PairwiseEventCoreferenceEvaluation>> dependencies, K key,
+                                   PairwiseEventCoreferenceEvaluation pece) {
+        List<PairwiseEventCoreferenceEvaluation> pairs = dependencies.get(key);
+        if (pairs == null) {
+            pairs = new ArrayList<PairwiseEventCoreferenceEvaluation>();
+            dependencies.put(key, pairs);
+        }
+        // pairs are added one after another, so a repeated dependency is always the last one
+        if (pairs.isEmpty() || pairs.get(pairs.size() - 1) != pece) {
+            pairs.add(pece);
+        }
+    }
+
+    /**
+     * @param changedEvents
+     * @param changedEntities
+     * @return the pairs depending on any of the changed mentions, without duplicates
+     */
+    public Set<PairwiseEventCoreferenceEvaluation> getDirtyPairs(Collection<EventMention> changedEvents,
+                                                                Collection<EntityMention> changedEntities) {
+        Set<PairwiseEventCoreferenceEvaluation> dirtyPairs = new LinkedHashSet<PairwiseEventCoreferenceEvaluation>();
+        for (EventMention event : changedEvents) {
+            List<PairwiseEventCoreferenceEvaluation> pairs = pairsOfEvent.get(event);
+            if (pairs != null) {
+                dirtyPairs.addAll(pairs);
+            }
+        }
+        for (EntityMention entity : changedEntities) {
+            List<PairwiseEventCoreferenceEvaluation> pairs = pairsOfEntity.get(entity);
+            if (pairs != null) {
+                dirtyPairs.addAll(pairs);
+            }
+        }
+        return dirtyPairs;
+    }
+}
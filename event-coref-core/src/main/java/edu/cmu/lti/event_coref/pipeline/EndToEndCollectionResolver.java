@@ -8,6 +8,7 @@ import org.apache.uima.collection.CollectionReaderDescription;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Created with IntelliJ IDEA.
@@ -20,10 +21,41 @@ public class EndToEndCollectionResolver {
     public void resolveCollection(CollectionReaderDescription reader,
                                   AnalysisEngineDescription[] preprocessers,
                                   String processDir, String resourceDir) throws UIMAException, IOException {
+        resolveCollection(reader, preprocessers, processDir, resourceDir, 1);
+    }
+
+    /**
+     * Resolve the collection, processing several documents at the same time when more than one
+     * thread is given. The output is the same as the one of the single thread run.
+     *
+     * @param reader
+     * @param preprocessers
+     * @param processDir
+     * @param resourceDir
+     * @param numThreads    number of documents processed in parallel
+     * @throws UIMAException
+     * @throws IOException
+     */
+    public void resolveCollection(CollectionReaderDescription reader,
+                                  AnalysisEngineDescription[] preprocessers,
+                                  String processDir, String resourceDir, int numThreads) throws UIMAException, IOException {
         EventCorefProcessor processor = new EventCorefProcessor(processDir, resourceDir);
         EventCoreferenceResultPostProcessor postprocessor = new EventCoreferenceResultPostProcessor(processDir, resourceDir);
-        AnalysisEngineDescription[] allProcessors = joinProcessors(preprocessers, processor.getDefaultEngineDescriptors(), postprocessor.buildPostprocessors());
-        SimplePipeline.runPipeline(reader, allProcessors);
+        AnalysisEngineDescription[] postprocessors = postprocessor.buildPostprocessors();
+
+        if (numThreads <= 1) {
+            AnalysisEngineDescription[] allProcessors = joinProcessors(preprocessers, processor.getDefaultEngineDescriptors(), postprocessors);
+            SimplePipeline.runPipeline(reader, allProcessors);
+            return;
+        }
+
+        // the collection writers at the end of the postprocessors see the documents one by one
+        int numDocumentPostprocessors = postprocessors.length - postprocessor.getNumberOfCollectionPostprocessors();
+        AnalysisEngineDescription[] documentPostprocessors = Arrays.copyOfRange(postprocessors, 0, numDocumentPostprocessors);
+        AnalysisEngineDescription[] collectionPostprocessors = Arrays.copyOfRange(postprocessors, numDocumentPostprocessors, postprocessors.length);
+
+        AnalysisEngineDescription[] documentProcessors = joinProcessors(preprocessers, processor.getDefaultEngineDescriptors(), documentPostprocessors);
+        MultiThreadedPipeline.runPipeline(reader, numThreads, documentProcessors, collectionPostprocessors);
     }
 
     private AnalysisEngineDescription[] joinProcessors(AnalysisEngineDescription[]... allAEs) {
@@ -48,11 +80,12 @@ public class EndToEndCollectionResolver {
         final String corpusDir = "data/corpus/IC_domain/IC_domain_65_articles/gold_standard";
         final String processDir = "data/processed/IC_domain/IC_domain_65_articles";
         final String resourceDir = "data/resources";
+        final int numThreads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
 
         IcDomainPreprocessor preprocessor = new IcDomainPreprocessor(corpusDir);
         EndToEndCollectionResolver resolver = new EndToEndCollectionResolver();
         try {
-            resolver.resolveCollection(preprocessor.buildCollectionReader(), preprocessor.buildPreprocessers(), processDir, resourceDir);
+            resolver.resolveCollection(preprocessor.buildCollectionReader(), preprocessor.buildPreprocessers(), processDir, resourceDir, numThreads);
         } catch (UIMAException e) {
             e.printStackTrace();
         }
@@ -1,13 +1,25 @@
 package edu.cmu.lti.event_coref.pipeline;
 
+import edu.cmu.lti.event_coref.DefaultConfigs;
+import edu.cmu.lti.event_coref.model.EventCorefConstants;
 import edu.cmu.lti.event_coref.pipeline.postprocessor.EventCoreferenceResultPostProcessor;
+import edu.cmu.lti.event_coref.type.EventCoreferenceCluster;
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.examples.SourceDocumentInformation;
+import org.apache.uima.fit.component.ViewCreatorAnnotator;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.Resource;
+import org.apache.uima.resource.metadata.ResourceMetaData;
+import org.apache.uima.util.CasCreationUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created with IntelliJ IDEA.
@@ -22,18 +34,90 @@ public class EndToEndSingleDocumentResolver {
 
     public void initialize(AnalysisEngineDescription[] preprocessers, String parentOutputDir, String resourceDir) throws UIMAException {
         //"data/processed/IC_domain/IC_domain_65_articles"
+        processor = new EventCorefProcessor(parentOutputDir, resourceDir);
         EventCoreferenceResultPostProcessor postprocessor = new EventCoreferenceResultPostProcessor(parentOutputDir, resourceDir);
         AnalysisEngineDescription[] allProcessors = joinProcessors(preprocessers, processor.getDefaultEngineDescriptors(), postprocessor.buildPostprocessors());
         engines = createEngines(allProcessors);
     }
 
 
-    public void initialize(AnalysisEngineDescription[] preprocessers,
+    public void initialize(AnalysisEngineDescription[] preprocessers, EventCorefProcessor processor,
                            AnalysisEngineDescription[] postprocessors) throws UIMAException {
+        this.processor = processor;
         AnalysisEngineDescription[] allProcessors = joinProcessors(preprocessers, processor.getDefaultEngineDescriptors(), postprocessors);
         engines = createEngines(allProcessors);
     }
 
+    /**
+     * Initialize with engine chains that are already built, e.g. the plain text chain of
+     * {@link EventCorefProcessor#getPlainTextEngineDescriptors()}.
+     */
+    public void initialize(AnalysisEngineDescription[] preprocessers, AnalysisEngineDescription[] processors,
+                           AnalysisEngineDescription[] postprocessors) throws UIMAException {
+        AnalysisEngineDescription[] allProcessors = joinProcessors(preprocessers, processors, postprocessors);
+        engines = createEngines(allProcessors);
+    }
+
+    /**
+     * Create a CAS with the type system and indexes of all the engines. A CAS can be reused for
+     * many documents by resetting it, which is much cheaper than creating a new one per document.
+     *
+     * @return a new CAS for this resolver
+     * @throws UIMAException
+     */
+    public JCas createJCas() throws UIMAException {
+        List<ResourceMetaData> metaData = new ArrayList<ResourceMetaData>();
+        for (AnalysisEngine engine : engines) {
+            metaData.add(engine.getMetaData());
+        }
+        return CasCreationUtils.createCas(metaData).getJCas();
+    }
+
+    /**
+     * Put a plain text document in the CAS, with the same views as the plain text reader followed by
+     * the detagger.
+     *
+     * @param aJCas an empty CAS, e.g. from {@link #createJCas()}
+     * @param name  name of the document, gives its URI
+     * @param text  plain text of the document
+     * @throws UIMAException
+     */
+    public static void prepareDocument(JCas aJCas, String name, String text) throws UIMAException {
+        List<JCas> views = new ArrayList<JCas>();
+        views.add(aJCas);
+        views.add(ViewCreatorAnnotator.createViewSafely(aJCas, DefaultConfigs.inputViewName));
+        for (String srcDocInfoViewName : DefaultConfigs.srcDocInfoViewNames) {
+            views.add(ViewCreatorAnnotator.createViewSafely(aJCas, srcDocInfoViewName));
+        }
+
+        for (JCas view : views) {
+            view.setDocumentText(text);
+            SourceDocumentInformation srcDocInfo = new SourceDocumentInformation(view);
+            srcDocInfo.setUri(new File(name).toURI().toString());
+            srcDocInfo.setOffsetInSource(0);
+            srcDocInfo.setDocumentSize(text.length());
+            srcDocInfo.setLastSegment(true);
+            srcDocInfo.addToIndexes();
+        }
+    }
+
+    /**
+     * @param aJCas a resolved document
+     * @return the full coreference clusters found by the system, not those of the gold standard
+     */
+    public static List<EventCoreferenceCluster> selectSystemClusters(JCas aJCas) {
+        List<EventCoreferenceCluster> systemClusters = new ArrayList<EventCoreferenceCluster>();
+        for (EventCoreferenceCluster cluster : JCasUtil.select(aJCas, EventCoreferenceCluster.class)) {
+            if (cluster.getComponentId() != null
+                    && cluster.getComponentId().startsWith(DefaultConfigs.systemComponentPrefix)
+                    && EventCorefConstants.FULL_COREFERENCE_TYPE.equals(cluster.getClusterType())
+                    && cluster.getChildEventMentions() != null) {
+                systemClusters.add(cluster);
+            }
+        }
+        return systemClusters;
+    }
+
     public void process(JCas jcas) throws AnalysisEngineProcessException {
         for (AnalysisEngine engine : engines) {
             engine.process(jcas);
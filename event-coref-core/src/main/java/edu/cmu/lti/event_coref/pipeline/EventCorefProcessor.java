@@ -8,6 +8,7 @@ import edu.cmu.lti.event_coref.analysis_engine.features.FullCoreferencePairwiseF
 import edu.cmu.lti.event_coref.analysis_engine.features.PairwiseEventFeatureContainerGenerator;
 import edu.cmu.lti.event_coref.analysis_engine.lexical.EventSurfaceSimilarityAnnotator;
 import edu.cmu.lti.event_coref.analysis_engine.location.IntegratedLocationAnnotator;
+import edu.cmu.lti.event_coref.analysis_engine.mention.ArgumentBasedEventMentionAnnotator;
 import edu.cmu.lti.event_coref.analysis_engine.mention.GoldStandardBasedEventMentionAnnotator;
 import edu.cmu.lti.event_coref.analysis_engine.mention.NaiveReportingEventAnnotator;
 import edu.cmu.lti.event_coref.analysis_engine.prerequisite.*;
@@ -15,6 +16,7 @@ import edu.cmu.lti.event_coref.analysis_engine.semantic.*;
 import edu.cmu.lti.event_coref.analysis_engine.syntatic.EventDirectSyntaticRelationAnnotator;
 import edu.cmu.lti.event_coref.analysis_engine.syntatic.ExtendedChunkerAnnotator;
 import edu.cmu.lti.event_coref.io.ReaderWriterFactory;
+import edu.cmu.lti.utils.uima.EngineProbe;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
@@ -25,6 +27,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created with IntelliJ IDEA.
@@ -45,8 +49,8 @@ public class EventCorefProcessor {
     private final String frRelataionPath;
     private final String fanseResourceDir;
     private final String semaforModelDir;
-    private final String sennaEmbedding;
-    private final String sennaWordlist;
+    private String sennaEmbedding;
+    private String sennaWordlist;
     private final String wordGazetteer;
     private final String stringRuleFile;
     private final String suTimeConfPath;
@@ -60,6 +64,9 @@ public class EventCorefProcessor {
     private static final String outputFileSuffix = null;
     private static final int outputStepNumber = 1;
 
+    // per engine time, annotation counts and heap, written as csv and json under the output directory
+    private static final String metricsReportName = "processing_metrics";
+
     private String goldStandardViewName = DefaultConfigs.goldStandardViewName;
     private String targetEventType = DefaultConfigs.targetEventType;
     private String[] viewsToAnnotate = {CAS.NAME_DEFAULT_SOFA};
@@ -67,6 +74,8 @@ public class EventCorefProcessor {
     public static final Boolean doWordNet = false;
     public static final Boolean DoFilteringWhenFeatureGeneration = false;
     public static final String targetComponentId = PairwiseEventFeatureContainerGenerator.ANNOTATOR_COMPONENT_ID;
+    // empty means all event pairs are kept, see PairwiseEventFeatureContainerGenerator for available blockers
+    public static final String[] candidatePairBlockers = {};
 
     public EventCorefProcessor(String parentOutputDir, String resourceDir) {
         this.parentOutputDir = parentOutputDir;
@@ -76,15 +85,119 @@ public class EventCorefProcessor {
         this.frRelataionPath = new File(resourceDir, "frRelation.xml").getAbsolutePath();
         this.fanseResourceDir = new File(resourceDir, "fanse").getAbsolutePath();
         this.semaforModelDir = new File(resourceDir, "semafor/semafor_malt_model_20121129").getAbsolutePath();
-        this.sennaEmbedding = new File(resourceDir, "senna/embeddings.txt").getAbsolutePath();
-        this.sennaWordlist = new File(resourceDir, "senna/words.lst").getAbsolutePath();
+        // the binary store is created by SennaWordSimilarityCalculator, use it when it is there
+        File sennaBinary = new File(resourceDir, "senna/embeddings.bin");
+        if (sennaBinary.exists()) {
+            this.sennaEmbedding = sennaBinary.getAbsolutePath();
+            this.sennaWordlist = new File(resourceDir, "senna/words.sorted.lst").getAbsolutePath();
+        } else {
+            this.sennaEmbedding = new File(resourceDir, "senna/embeddings.txt").getAbsolutePath();
+            this.sennaWordlist = new File(resourceDir, "senna/words.lst").getAbsolutePath();
+        }
         this.wordGazetteer = new File(resourceDir, "the_world_gazetteer/dataen.txt").getAbsolutePath();
         this.stringRuleFile = new File(resourceDir, "biu/string_rules.txt").getAbsolutePath();
         this.suTimeConfPath = new File(resourceDir, "sutime").getAbsolutePath();
         this.featureNamePath = new File(resourceDir, "feature_lists/featureNames.txt").getAbsolutePath();
     }
 
+    /**
+     * Use other Senna embeddings than the ones of the resource directory.
+     *
+     * @param embeddingPath the embeddings, text or binary store
+     * @param wordlistPath  the words of the embeddings
+     */
+    public void setSennaEmbeddings(String embeddingPath, String wordlistPath) {
+        this.sennaEmbedding = embeddingPath;
+        this.sennaWordlist = wordlistPath;
+    }
+
+    /**
+     * @param goldStandardViewName the view holding the gold standard annotations
+     */
+    public void setGoldStandardViewName(String goldStandardViewName) {
+        this.goldStandardViewName = goldStandardViewName;
+    }
+
     public AnalysisEngineDescription[] getDefaultEngineDescriptors() throws ResourceInitializationException {
+        return buildEngineDescriptors(true);
+    }
+
+    /**
+     * The engines for plain text documents that have no gold standard view, e.g. the requests of
+     * {@link EventCorefService}: the event mentions are found from the Semafor frames instead of
+     * copied from the gold standard, and nothing is written to the output directory.
+     *
+     * @return the engine descriptions
+     * @throws ResourceInitializationException
+     */
+    public AnalysisEngineDescription[] getPlainTextEngineDescriptors() throws ResourceInitializationException {
+        return buildEngineDescriptors(false);
+    }
+
+    /**
+     * The pair stages of the default chain, configured as in {@link #getDefaultEngineDescriptors()}:
+     * the argument extraction, the pair containers with their gold standard relations, the surface
+     * similarity and the features. They expect the documents to have the event mentions and the
+     * annotations of the parsers. The engines are not instrumented.
+     *
+     * @param withArgumentExtraction whether to start with the argument extraction, which needs the
+     *                               SemLink mappings and the FrameNet relations of the resource directory
+     * @return the engine descriptions
+     * @throws ResourceInitializationException
+     */
+    public AnalysisEngineDescription[] getPairEngineDescriptors(boolean withArgumentExtraction)
+            throws ResourceInitializationException {
+        List<AnalysisEngineDescription> engines = new ArrayList<AnalysisEngineDescription>();
+        if (withArgumentExtraction) {
+            engines.add(createArgumentExtractor());
+        }
+        engines.add(createFeatureContainerEngine(true));
+        engines.add(createEventSurfaceEngine());
+        engines.add(createFeatureGenEngine());
+        return engines.toArray(new AnalysisEngineDescription[engines.size()]);
+    }
+
+    private AnalysisEngineDescription createArgumentExtractor() throws ResourceInitializationException {
+        return AnalysisEngineFactory.createEngineDescription(
+                FrameBasedEventArgumentExtractor.class, typeSystemDescription,
+                FrameBasedEventArgumentExtractor.PARAM_REDUCE_TO_VERB_NET, true,
+                FrameBasedEventArgumentExtractor.PARAM_VN2FN_MAP_PATH, vn2FnPath,
+                FrameBasedEventArgumentExtractor.PARAM_VN2PB_MAP_PATH, vn2pbPath,
+                FrameBasedEventArgumentExtractor.PARAM_FN_RELATION_PATH, frRelataionPath);
+    }
+
+    private AnalysisEngineDescription createEventSurfaceEngine() throws ResourceInitializationException {
+        return AnalysisEngineFactory.createEngineDescription(
+                EventSurfaceSimilarityAnnotator.class, typeSystemDescription,
+                EventSurfaceSimilarityAnnotator.PARAM_SENNA_EMBEDDINGS, sennaEmbedding,
+                EventSurfaceSimilarityAnnotator.PARAM_SENNA_WORDLIST, sennaWordlist,
+                EventSurfaceSimilarityAnnotator.PARAM_DO_WORDNET, doWordNet);
+    }
+
+    private AnalysisEngineDescription createFeatureContainerEngine(boolean useGoldStandard)
+            throws ResourceInitializationException {
+        AnalysisEngineDescription featureContainerEngine = AnalysisEngineFactory.createEngineDescription(
+                PairwiseEventFeatureContainerGenerator.class, typeSystemDescription,
+                PairwiseEventFeatureContainerGenerator.PARAM_CANDIDATE_BLOCKERS, candidatePairBlockers,
+                PairwiseEventFeatureContainerGenerator.PARAM_SENNA_EMBEDDINGS, sennaEmbedding,
+                PairwiseEventFeatureContainerGenerator.PARAM_SENNA_WORDLIST, sennaWordlist);
+        if (useGoldStandard) {
+            featureContainerEngine.getAnalysisEngineMetaData().getConfigurationParameterSettings().setParameterValue(
+                    PairwiseEventFeatureContainerGenerator.PARAM_GOLD_STANDARD_VIEWNAME, goldStandardViewName);
+        }
+        return featureContainerEngine;
+    }
+
+    private AnalysisEngineDescription createFeatureGenEngine() throws ResourceInitializationException {
+        return AnalysisEngineFactory.createEngineDescription(
+                FullCoreferencePairwiseFeatureAnnotator.class, typeSystemDescription,
+                FullCoreferencePairwiseFeatureAnnotator.PARAM_DO_FILTERING, DoFilteringWhenFeatureGeneration,
+                FullCoreferencePairwiseFeatureAnnotator.PARAM_TARGET_COMPONENT_ID, targetComponentId
+        );
+    }
+
+    private AnalysisEngineDescription[] buildEngineDescriptors(boolean useGoldStandard)
+            throws ResourceInitializationException {
         AnalysisEngineDescription goldStandardLuEngine = AnalysisEngineFactory.createEngineDescription(
                 GoldStandardBasedBasicLanguageUnitAnnotator.class, typeSystemDescription,
                 GoldStandardBasedBasicLanguageUnitAnnotator.PARAM_GOLD_STANDARD_VIEWNAME, goldStandardViewName);
@@ -115,15 +228,15 @@ public class EventCorefProcessor {
                 GoldStandardBasedEventMentionAnnotator.class, typeSystemDescription,
                 GoldStandardBasedEventMentionAnnotator.PARAM_GOLD_STANDARD_VIEWNAME, goldStandardViewName);
 
+        AnalysisEngineDescription systemEventMentionEngine = AnalysisEngineFactory.createEngineDescription(
+                ArgumentBasedEventMentionAnnotator.class, typeSystemDescription,
+                ArgumentBasedEventMentionAnnotator.PARAM_EVENT_FRAME_NAME_PATH, eventFrameNamePath,
+                ArgumentBasedEventMentionAnnotator.PARAM_VN2FN_MAP_PATH, vn2FnPath);
+
         AnalysisEngineDescription eventMentionHeadwordEngine = AnalysisEngineFactory.createEngineDescription(
                 HeadWordAnnotator.class, typeSystemDescription);
 
-        AnalysisEngineDescription argumentExtractor = AnalysisEngineFactory.createEngineDescription(
-                FrameBasedEventArgumentExtractor.class, typeSystemDescription,
-                FrameBasedEventArgumentExtractor.PARAM_REDUCE_TO_VERB_NET, true,
-                FrameBasedEventArgumentExtractor.PARAM_VN2FN_MAP_PATH, vn2FnPath,
-                FrameBasedEventArgumentExtractor.PARAM_VN2PB_MAP_PATH, vn2pbPath,
-                FrameBasedEventArgumentExtractor.PARAM_FN_RELATION_PATH, frRelataionPath);
+        AnalysisEngineDescription argumentExtractor = createArgumentExtractor();
 
         AnalysisEngineDescription naiveReportingEventTypeAnnotator = AnalysisEngineFactory.createEngineDescription(
                 NaiveReportingEventAnnotator.class, typeSystemDescription,
@@ -133,11 +246,7 @@ public class EventCorefProcessor {
         AnalysisEngineDescription eventMorphaEngine = AnalysisEngineFactory.createEngineDescription(
                 WordMorphaAnnotator.class, typeSystemDescription);
 
-        AnalysisEngineDescription eventSurfaceEngine = AnalysisEngineFactory.createEngineDescription(
-                EventSurfaceSimilarityAnnotator.class, typeSystemDescription,
-                EventSurfaceSimilarityAnnotator.PARAM_SENNA_EMBEDDINGS, sennaEmbedding,
-                EventSurfaceSimilarityAnnotator.PARAM_SENNA_WORDLIST, sennaWordlist,
-                EventSurfaceSimilarityAnnotator.PARAM_DO_WORDNET, doWordNet);
+        AnalysisEngineDescription eventSurfaceEngine = createEventSurfaceEngine();
 
         AnalysisEngineDescription eventSyntacticRelationEngine = AnalysisEngineFactory.createEngineDescription(
                 EventDirectSyntaticRelationAnnotator.class, typeSystemDescription);
@@ -170,50 +279,49 @@ public class EventCorefProcessor {
         AnalysisEngineDescription droppedSemanticRoleFiller = AnalysisEngineFactory.createEngineDescription(
                 DroppedSemanticRoleFiller.class, typeSystemDescription);
 
-        AnalysisEngineDescription featureContainerEngine = AnalysisEngineFactory.createEngineDescription(
-                PairwiseEventFeatureContainerGenerator.class, typeSystemDescription,
-                PairwiseEventFeatureContainerGenerator.PARAM_GOLD_STANDARD_VIEWNAME, goldStandardViewName);
+        AnalysisEngineDescription featureContainerEngine = createFeatureContainerEngine(useGoldStandard);
 
-        AnalysisEngineDescription featureGenEngine = AnalysisEngineFactory.createEngineDescription(
-                FullCoreferencePairwiseFeatureAnnotator.class, typeSystemDescription,
-                FullCoreferencePairwiseFeatureAnnotator.PARAM_DO_FILTERING, DoFilteringWhenFeatureGeneration,
-                FullCoreferencePairwiseFeatureAnnotator.PARAM_TARGET_COMPONENT_ID, targetComponentId
-        );
+        AnalysisEngineDescription featureGenEngine = createFeatureGenEngine();
 
         AnalysisEngineDescription writer = ReaderWriterFactory
                 .createXmiWriter(parentOutputDir, baseOutputDirName, outputStepNumber, outputFileSuffix);
 
-        AnalysisEngineDescription[] defaultEngines = new AnalysisEngineDescription[]{
-                goldStandardLuEngine,
-                stanfordEngine,
-                autoLuEngine,
-                fanseEngine,
-                semaforAnnotator,
-                tokenAlignmentEngine,
-                goldEventMentionEngine,
-                eventMorphaEngine,
-                eventMentionHeadwordEngine,
-                argumentExtractor,
-                naiveReportingEventTypeAnnotator,
-                eventSurfaceEngine,
-                eventSyntacticRelationEngine,
-                chunkEngine,
-                entityUnifyEngine,
-                roleEngine,
-                locationEngine,
-                xcompEngine,
-                adjacentEngine,
-                numberEngine,
-                droppedSemanticRoleFiller,
-                featureContainerEngine,
-                featureGenEngine,
-                writer
-        };
+        List<AnalysisEngineDescription> engines = new ArrayList<AnalysisEngineDescription>();
+        if (useGoldStandard) {
+            engines.add(goldStandardLuEngine);
+        }
+        engines.add(stanfordEngine);
+        engines.add(autoLuEngine);
+        engines.add(fanseEngine);
+        engines.add(semaforAnnotator);
+        engines.add(tokenAlignmentEngine);
+        engines.add(useGoldStandard ? goldEventMentionEngine : systemEventMentionEngine);
+        engines.add(eventMorphaEngine);
+        engines.add(eventMentionHeadwordEngine);
+        engines.add(argumentExtractor);
+        engines.add(naiveReportingEventTypeAnnotator);
+        engines.add(eventSyntacticRelationEngine);
+        engines.add(chunkEngine);
+        engines.add(entityUnifyEngine);
+        engines.add(roleEngine);
+        engines.add(locationEngine);
+        engines.add(xcompEngine);
+        engines.add(adjacentEngine);
+        engines.add(numberEngine);
+        engines.add(droppedSemanticRoleFiller);
+        engines.add(featureContainerEngine);
+        // scores only the pairs of the containers
+        engines.add(eventSurfaceEngine);
+        engines.add(featureGenEngine);
+        if (useGoldStandard) {
+            engines.add(writer);
+        }
+        AnalysisEngineDescription[] defaultEngines = engines.toArray(new AnalysisEngineDescription[engines.size()]);
 
         for (AnalysisEngineDescription description : defaultEngines) {
             logger.debug("Using analysis engine : " + description.getAnnotatorImplementationName());
         }
 
-        return defaultEngines;
+        return EngineProbe.instrument(defaultEngines, new File(parentOutputDir, metricsReportName).getAbsolutePath());
     }
 }
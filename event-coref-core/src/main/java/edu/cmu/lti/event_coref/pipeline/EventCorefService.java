@@ -0,0 +1,434 @@
+package edu.cmu.lti.event_coref.pipeline;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import edu.cmu.lti.event_coref.pipeline.postprocessor.EventCoreferenceResultPostProcessor;
+import edu.cmu.lti.event_coref.type.EventCoreferenceCluster;
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.utils.ProcessingMetrics;
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.fit.util.FSCollectionFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A resident event coreference service, so that interactive users do not pay for the JVM start and
+ * the model loading on every document.
+ * <p/>
+ * The service keeps a number of warm resolvers, each with its own engine chain and its own CAS, which
+ * is reset and reused for every request. The read-only models are shared by the chains through the
+ * {@link edu.cmu.lti.event_coref.utils.ModelRegistry}, each chain has its own parsers. Requests wait
+ * in a bounded queue when all resolvers are busy, and are rejected when the queue is full, so a burst
+ * of requests gets a quick "busy" answer instead of piling up.
+ * <p/>
+ * The HTTP endpoint listens on localhost:
+ * <ul>
+ * <li>POST /resolve?name=doc_name with the plain text document as the body, returns the event
+ * mentions and the system coreference clusters as JSON, with the latency of the request. Returns 503
+ * when the queue is full. The event mentions are found from the Semafor frames, see
+ * {@link EventCorefProcessor#getPlainTextEngineDescriptors()}, and nothing is written to disk per
+ * request.</li>
+ * <li>GET /stats returns the request counts and latencies.</li>
+ * <li>GET /metrics returns the time, annotation counts and heap use of each engine, see
+ * {@link edu.cmu.lti.utils.uima.EngineProbe}.</li>
+ * </ul>
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class EventCorefService {
+    private static final Logger logger = LoggerFactory.getLogger(EventCorefService.class);
+
+    private static final String ENCODING = "UTF-8";
+
+    private final BlockingQueue<Worker> workers;
+
+    private final List<Worker> allWorkers = new ArrayList<Worker>();
+
+    private final ThreadPoolExecutor executor;
+
+    private HttpServer server;
+
+    private final AtomicLong numResolved = new AtomicLong();
+
+    private final AtomicLong numRejected = new AtomicLong();
+
+    private final AtomicLong numFailed = new AtomicLong();
+
+    private final AtomicLong totalLatencyMs = new AtomicLong();
+
+    private final AtomicLong maxLatencyMs = new AtomicLong();
+
+    // numbers the requests without a document name
+    private final AtomicLong unnamedDocumentCounter = new AtomicLong();
+
+    /**
+     * A warm resolver with the CAS it reuses.
+     */
+    private static class Worker {
+        private final EndToEndSingleDocumentResolver resolver;
+
+        private final JCas jcas;
+
+        private Worker(EndToEndSingleDocumentResolver resolver) throws UIMAException {
+            this.resolver = resolver;
+            this.jcas = resolver.createJCas();
+        }
+    }
+
+    /**
+     * The resolution of one document, copied out of the CAS so that the CAS can be reused.
+     */
+    public static class Result {
+        private final String name;
+
+        private final List<int[]> mentionSpans = new ArrayList<int[]>();
+
+        private final List<String> mentionTexts = new ArrayList<String>();
+
+        private final List<int[]> clusters = new ArrayList<int[]>();
+
+        private long queueMs;
+
+        private long latencyMs;
+
+        private Result(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the time spent waiting for a free resolver
+         */
+        public long getQueueMs() {
+            return queueMs;
+        }
+
+        /**
+         * @return the time from the submission of the request to its resolution
+         */
+        public long getLatencyMs() {
+            return latencyMs;
+        }
+
+        public String toJson() {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"name\":").append(quote(name));
+            json.append(",\"mentions\":[");
+            for (int i = 0; i < mentionSpans.size(); i++) {
+                if (i > 0) {
+                    json.append(",");
+                }
+                int[] span = mentionSpans.get(i);
+                json.append(String.format("{\"id\":%d,\"begin\":%d,\"end\":%d,\"text\":%s}", i, span[0],
+                        span[1], quote(mentionTexts.get(i))));
+            }
+            json.append("],\"clusters\":[");
+            for (int i = 0; i < clusters.size(); i++) {
+                if (i > 0) {
+                    json.append(",");
+                }
+                json.append(Arrays.toString(clusters.get(i)).replace(" ", ""));
+            }
+            json.append("],\"queue_ms\":").append(queueMs);
+            json.append(",\"latency_ms\":").append(latencyMs);
+            json.append("}");
+            return json.toString();
+        }
+    }
+
+    /**
+     * Start the resolvers, this loads all the models and may take a while.
+     *
+     * @param processDir    the output directory of the resolvers
+     * @param resourceDir   the resource directory
+     * @param numWorkers    number of documents resolved at the same time
+     * @param queueCapacity number of requests waiting for a resolver before new ones are rejected
+     * @throws UIMAException
+     */
+    public EventCorefService(String processDir, String resourceDir, int numWorkers, int queueCapacity)
+            throws UIMAException {
+        EventCorefProcessor processor = new EventCorefProcessor(processDir, resourceDir);
+        EventCoreferenceResultPostProcessor postprocessor = new EventCoreferenceResultPostProcessor(processDir,
+                resourceDir);
+
+        // the requests are plain text, so the chain has no gold standard engines and no XMI writer, and
+        // the collection writers (e.g. the CoNLL writer) are dropped, a service has no end of collection
+        AnalysisEngineDescription[] postprocessors = postprocessor.buildPostprocessors();
+        AnalysisEngineDescription[] documentPostprocessors = Arrays.copyOfRange(postprocessors, 0,
+                postprocessors.length - postprocessor.getNumberOfCollectionPostprocessors());
+
+        workers = new ArrayBlockingQueue<Worker>(numWorkers);
+        for (int i = 0; i < numWorkers; i++) {
+            EndToEndSingleDocumentResolver resolver = new EndToEndSingleDocumentResolver();
+            resolver.initialize(new AnalysisEngineDescription[0], processor.getPlainTextEngineDescriptors(),
+                    documentPostprocessors);
+            Worker worker = new Worker(resolver);
+            workers.add(worker);
+            allWorkers.add(worker);
+        }
+        logger.info(String.format("Started %d resolvers.", numWorkers));
+
+        executor = new ThreadPoolExecutor(numWorkers, numWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity));
+    }
+
+    /**
+     * Submit a document to the resolvers.
+     *
+     * @param name name of the document
+     * @param text plain text of the document
+     * @return the pending result
+     * @throws RejectedExecutionException when the request queue is full
+     */
+    public Future<Result> submit(final String name, final String text) {
+        final long submitTime = System.currentTimeMillis();
+        try {
+            return executor.submit(new Callable<Result>() {
+                @Override
+                public Result call() throws Exception {
+                    Result result = new Result(name);
+                    Worker worker = workers.take();
+                    result.queueMs = System.currentTimeMillis() - submitTime;
+                    try {
+                        resolve(worker, text, result);
+                    } catch (Exception e) {
+                        numFailed.incrementAndGet();
+                        throw e;
+                    } finally {
+                        workers.put(worker);
+                    }
+                    result.latencyMs = System.currentTimeMillis() - submitTime;
+                    recordLatency(result.latencyMs);
+                    logger.info(String.format("Resolved [%s] in %d ms, %d ms in queue.", name,
+                            result.latencyMs, result.queueMs));
+                    return result;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            numRejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private void recordLatency(long latencyMs) {
+        numResolved.incrementAndGet();
+        totalLatencyMs.addAndGet(latencyMs);
+        long max = maxLatencyMs.get();
+        while (latencyMs > max && !maxLatencyMs.compareAndSet(max, latencyMs)) {
+            max = maxLatencyMs.get();
+        }
+    }
+
+    private void resolve(Worker worker, String text, Result result) throws UIMAException {
+        JCas aJCas = worker.jcas;
+        aJCas.reset();
+        EndToEndSingleDocumentResolver.prepareDocument(aJCas, result.name, text);
+        worker.resolver.process(aJCas);
+
+        Map<EventMention, Integer> mentionIds = new HashMap<EventMention, Integer>();
+        for (EventMention mention : JCasUtil.select(aJCas, EventMention.class)) {
+            mentionIds.put(mention, result.mentionSpans.size());
+            result.mentionSpans.add(new int[]{mention.getBegin(), mention.getEnd()});
+            result.mentionTexts.add(mention.getCoveredText());
+        }
+
+        for (EventCoreferenceCluster cluster : EndToEndSingleDocumentResolver.selectSystemClusters(aJCas)) {
+            Collection<EventMention> children = FSCollectionFactory.create(cluster.getChildEventMentions(),
+                    EventMention.class);
+            int[] clusterMentionIds = new int[children.size()];
+            int index = 0;
+            for (EventMention child : children) {
+                Integer id = mentionIds.get(child);
+                clusterMentionIds[index++] = id == null ? -1 : id;
+            }
+            result.clusters.add(clusterMentionIds);
+        }
+    }
+
+    /**
+     * @return the request counts and latencies as JSON
+     */
+    public String getStatistics() {
+        long resolved = numResolved.get();
+        return String.format("{\"resolved\":%d,\"rejected\":%d,\"failed\":%d,\"queued\":%d,"
+                        + "\"mean_latency_ms\":%.1f,\"max_latency_ms\":%d}", resolved, numRejected.get(),
+                numFailed.get(), executor.getQueue().size(),
+                resolved == 0 ? 0.0 : (double) totalLatencyMs.get() / resolved, maxLatencyMs.get());
+    }
+
+    /**
+     * Start the HTTP endpoint on localhost.
+     *
+     * @param port
+     * @throws IOException
+     */
+    public void startHttpServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/resolve", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleResolve(exchange);
+            }
+        });
+        server.createContext("/stats", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, getStatistics());
+            }
+        });
+        server.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, ProcessingMetrics.toJson());
+            }
+        });
+        // the handlers only wait for the resolvers, the queue of the executor is the real bound
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        logger.info(String.format("Event coreference service listening on port %d.", port));
+    }
+
+    private void handleResolve(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+            respond(exchange, 405, "{\"error\":\"POST the document text to /resolve\"}");
+            return;
+        }
+
+        String name = getQueryParameter(exchange, "name");
+        if (name == null) {
+            name = "document_" + unnamedDocumentCounter.incrementAndGet();
+        }
+        String text = IOUtils.toString(exchange.getRequestBody(), ENCODING);
+
+        Future<Result> result;
+        try {
+            result = submit(name, text);
+        } catch (RejectedExecutionException e) {
+            respond(exchange, 503, "{\"error\":\"too many pending requests\"}");
+            return;
+        }
+
+        try {
+            respond(exchange, 200, result.get().toJson());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 500, "{\"error\":\"interrupted\"}");
+        } catch (ExecutionException e) {
+            logger.error(String.format("Cannot resolve [%s]", name), e.getCause());
+            respond(exchange, 500, "{\"error\":" + quote(String.valueOf(e.getCause())) + "}");
+        }
+    }
+
+    private static String getQueryParameter(HttpExchange exchange, String parameter) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            String[] keyValue = pair.split("=", 2);
+            if (keyValue.length == 2 && keyValue[0].equals(parameter)) {
+                return URLDecoder.decode(keyValue[1], ENCODING);
+            }
+        }
+        return null;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(ENCODING);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=" + ENCODING);
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    private static String quote(String str) {
+        if (str == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : str.toCharArray()) {
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append("\"").toString();
+    }
+
+    /**
+     * Stop accepting requests, finish the pending ones and release the resolvers.
+     */
+    public void shutdown() {
+        if (server != null) {
+            server.stop(0);
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Worker worker : allWorkers) {
+            try {
+                worker.resolver.complete();
+            } catch (UIMAException e) {
+                logger.warn("Cannot complete resolver", e);
+            }
+        }
+        logger.info("Event coreference service stopped. " + getStatistics());
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : 8090;
+        final int numWorkers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        final int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        final String processDir = "data/processed/service";
+        final String resourceDir = "data/resources";
+
+        final EventCorefService service = new EventCorefService(processDir, resourceDir, numWorkers, queueCapacity);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                service.shutdown();
+            }
+        });
+        service.startHttpServer(port);
+    }
+}
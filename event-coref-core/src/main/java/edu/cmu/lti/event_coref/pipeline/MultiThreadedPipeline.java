@@ -0,0 +1,227 @@
+package edu.cmu.lti.event_coref.pipeline;
+
+import edu.cmu.lti.event_coref.utils.CollectionStatistics;
+import org.apache.uima.UIMAException;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.examples.SourceDocumentInformation;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceManager;
+import org.apache.uima.resource.metadata.ResourceMetaData;
+import org.apache.uima.util.CasCreationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Run a collection through an engine chain with several threads, as a replacement of
+ * SimplePipeline.runPipeline. Each thread has its own replica of the document engines, which process
+ * one CAS at a time from a bounded CAS pool, so several documents go through the chain at the same
+ * time.
+ * <p/>
+ * Engines that write the whole collection into one output (e.g. the CoNLL writer) are given
+ * separately as collection engines. There is only one instance of them and they see the documents in
+ * the order of the reader, so the output is the same as the one of a sequential run. Collection
+ * level counters of the document engines are aggregated over the replicas with
+ * {@link CollectionStatistics}, which are created for each run. The engines are destroyed at the end
+ * of the run, also when it fails.
+ * <p/>
+ * The writers name their output after the source document URI. A document read without one is given
+ * the URI "doc&lt;N&gt;", N being its position in the reader, so its name does not depend on which
+ * thread finishes first.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class MultiThreadedPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(MultiThreadedPipeline.class);
+
+    // number of CASes per thread, so a thread does not wait for the reader
+    private static final int casesPerThread = 2;
+
+    // how long an aborted run waits for the running documents before destroying the engines
+    private static final long abortTimeoutSeconds = 60;
+
+    /**
+     * Run the collection with the given number of threads.
+     *
+     * @param readerDesc        the collection reader
+     * @param numThreads        number of replicas of the document engines
+     * @param documentEngines   engines that only depend on the current document
+     * @param collectionEngines engines that need all documents in order, run after the document
+     *                          engines on a single thread
+     * @throws UIMAException
+     * @throws IOException
+     */
+    public static void runPipeline(CollectionReaderDescription readerDesc, int numThreads,
+                                   AnalysisEngineDescription[] documentEngines,
+                                   AnalysisEngineDescription[] collectionEngines) throws UIMAException, IOException {
+        CollectionReader reader = CollectionReaderFactory.createReader(readerDesc);
+
+        AnalysisEngineDescription documentChainDesc = AnalysisEngineFactory.createEngineDescription(documentEngines);
+        // new statistics for this run, shared by the replicas through the resource manager
+        CollectionStatistics.bind(documentChainDesc);
+        ResourceManager resourceManager = UIMAFramework.newDefaultResourceManager();
+
+        final BlockingQueue<AnalysisEngine> replicas = new ArrayBlockingQueue<AnalysisEngine>(numThreads);
+        List<AnalysisEngine> allReplicas = new ArrayList<AnalysisEngine>();
+        AnalysisEngine collectionChain = null;
+        ExecutorService executor = null;
+        try {
+            for (int i = 0; i < numThreads; i++) {
+                AnalysisEngine replica = UIMAFramework.produceAnalysisEngine(documentChainDesc, resourceManager,
+                        null);
+                replicas.add(replica);
+                allReplicas.add(replica);
+            }
+            logger.info(String.format("Created %d replicas of the document engines.", numThreads));
+
+            if (collectionEngines.length > 0) {
+                collectionChain = AnalysisEngineFactory.createEngine(AnalysisEngineFactory
+                        .createEngineDescription(collectionEngines));
+            }
+
+            List<ResourceMetaData> metaData = new ArrayList<ResourceMetaData>();
+            metaData.add(reader.getMetaData());
+            metaData.add(allReplicas.get(0).getMetaData());
+            if (collectionChain != null) {
+                metaData.add(collectionChain.getMetaData());
+            }
+            BlockingQueue<CAS> casPool = new ArrayBlockingQueue<CAS>(numThreads * casesPerThread);
+            for (int i = 0; i < numThreads * casesPerThread; i++) {
+                casPool.add(CasCreationUtils.createCas(metaData));
+            }
+
+            executor = Executors.newFixedThreadPool(numThreads);
+            // documents being processed, in reader order
+            LinkedList<Future<CAS>> pending = new LinkedList<Future<CAS>>();
+            int numDocuments = 0;
+            while (reader.hasNext()) {
+                // wait for the oldest document when all CASes are in use
+                while (casPool.isEmpty()) {
+                    finishDocument(pending.removeFirst(), collectionChain, casPool);
+                }
+
+                final CAS cas = casPool.take();
+                cas.reset();
+                reader.getNext(cas);
+                numDocuments++;
+                nameUnnamedDocument(cas, numDocuments);
+
+                pending.add(executor.submit(new Callable<CAS>() {
+                    @Override
+                    public CAS call() throws Exception {
+                        AnalysisEngine replica = replicas.take();
+                        try {
+                            replica.process(cas);
+                        } finally {
+                            replicas.put(replica);
+                        }
+                        return cas;
+                    }
+                }));
+
+                while (!pending.isEmpty() && pending.getFirst().isDone()) {
+                    finishDocument(pending.removeFirst(), collectionChain, casPool);
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                finishDocument(pending.removeFirst(), collectionChain, casPool);
+            }
+            logger.info(String.format("Processed %d documents with %d threads.", numDocuments, numThreads));
+
+            for (AnalysisEngine replica : allReplicas) {
+                replica.collectionProcessComplete();
+            }
+            if (collectionChain != null) {
+                collectionChain.collectionProcessComplete();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UIMAException(e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+                awaitReplicas(executor);
+            }
+            // also when the run is aborted, so that the models of the replicas are released
+            for (AnalysisEngine replica : allReplicas) {
+                replica.destroy();
+            }
+            if (collectionChain != null) {
+                collectionChain.destroy();
+            }
+            reader.close();
+            reader.destroy();
+        }
+    }
+
+    /**
+     * Wait for the documents still in the replicas, which are interrupted, so that no replica is
+     * destroyed while it is processing.
+     */
+    private static void awaitReplicas(ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(abortTimeoutSeconds, TimeUnit.SECONDS)) {
+                logger.warn(String.format("Replicas still running after %d seconds, destroying them anyway.",
+                        abortTimeoutSeconds));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Give the views of a document without source document information the URI "doc&lt;N&gt;" of its
+     * position in the reader.
+     */
+    private static void nameUnnamedDocument(CAS cas, int documentNumber) throws UIMAException {
+        Iterator<CAS> views = cas.getViewIterator();
+        while (views.hasNext()) {
+            JCas view = views.next().getJCas();
+            if (JCasUtil.select(view, SourceDocumentInformation.class).isEmpty()) {
+                SourceDocumentInformation srcDocInfo = new SourceDocumentInformation(view);
+                // a relative file URL, so that the writers take "doc<N>" as the file name
+                srcDocInfo.setUri("file:doc" + documentNumber);
+                srcDocInfo.setOffsetInSource(0);
+                srcDocInfo.setLastSegment(true);
+                srcDocInfo.addToIndexes();
+            }
+        }
+    }
+
+    /**
+     * Wait for the document, pass it to the collection engines and put the CAS back to the pool.
+     */
+    private static void finishDocument(Future<CAS> processing, AnalysisEngine collectionChain,
+                                       BlockingQueue<CAS> casPool) throws UIMAException, InterruptedException {
+        CAS cas;
+        try {
+            cas = processing.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UIMAException) {
+                throw (UIMAException) cause;
+            }
+            throw new UIMAException(cause);
+        }
+
+        if (collectionChain != null) {
+            collectionChain.process(cas);
+        }
+        casPool.put(cas);
+    }
+}
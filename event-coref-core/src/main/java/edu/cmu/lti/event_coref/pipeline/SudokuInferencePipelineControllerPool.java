@@ -19,6 +19,9 @@ public class SudokuInferencePipelineControllerPool {
 
   public static int unifiedEventCount = 0;
 
+  // number of pairs whose features changed in the last unification step
+  public static int dirtyPairCount = 0;
+
   // public static ClassifierLearner learner;
   public static Classifier classifier;
 
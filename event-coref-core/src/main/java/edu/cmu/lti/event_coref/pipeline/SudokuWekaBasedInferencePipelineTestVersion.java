@@ -172,6 +172,7 @@ public class SudokuWekaBasedInferencePipelineTestVersion {
                 // Instantiate the unification engine
                 CollectionReaderDescription uniReader = ReaderWriterFactory.createXmiReader(paramParentInputDir,
                         unificationInputBase, paramInputStepNumber, paramFailUnknown);
+                ReaderWriterFactory.setPrefetching(uniReader, 4, 2);
                 AnalysisEngineDescription uniEngine = AnalysisEngineFactory.createEngineDescription(
                         SudokuUnificationAnnotator.class, typeSystemDescription,
                         SudokuUnificationAnnotator.PARAM_UPDATE_FEATURES, needToUpdateFeature,
@@ -190,6 +191,11 @@ public class SudokuWekaBasedInferencePipelineTestVersion {
                     break;
                 }
 
+                if (needToUpdateFeature && SudokuInferencePipelineControllerPool.dirtyPairCount == 0) {
+                    logger.info("Stop when no pair features changed");
+                    break;
+                }
+
                 iter++;
 
                 // also dump the temporary result without transitive closure
@@ -18,7 +18,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -38,15 +37,16 @@ public class TrainerPipeline {
         String processDir = "data/processed/IC_domain/IC_domain_65_articles";
         String paramBaseInitialInputDirName = "xmi_processed";
 
-        String paramTrainDocumentDirName = "xmi_of_training_documents";
-        String paramTestDocumentDirName = "xmi_of_testing_documents";
+        // the split is only read by this pipeline, so it is kept as binary CASes which load much faster
+        String paramTrainDocumentDirName = "cas_of_training_documents";
+        String paramTestDocumentDirName = "cas_of_testing_documents";
         int featureGeneratedStepNumber = 1;
         int trainingTestStepNumber = featureGeneratedStepNumber + 1;
 
         String paramTypeSystemDescriptor = DefaultConfigs.TypeSystemDescriptorName;
         Boolean paramFailUnknown = false;
         String paramParentOutputDir = processDir; // Default: same as the input directory
-        String paramOutputFileSuffix = ""; // already xmi extension
+        String paramOutputFileSuffix = ""; // use the default extension of the writer
 
         Boolean doTuning = true; // tuning only active when training active
         Boolean useCvForTuning = true;
@@ -57,12 +57,6 @@ public class TrainerPipeline {
         Integer[] trainingDocumentIndicesArr = documentIndices.getValue0();
         Integer[] testingDocumentIndicesArr = documentIndices.getValue1();
 
-        Set<Integer> testingDocumentIndices = new HashSet<Integer>(
-                Arrays.asList(testingDocumentIndicesArr));
-
-        Set<Integer> trainingDocumentIndices = new HashSet<Integer>(
-                Arrays.asList(trainingDocumentIndicesArr));
-
         TypeSystemDescription typeSystemDescription = TypeSystemDescriptionFactory.createTypeSystemDescription(paramTypeSystemDescriptor);
 
         String featureListPath = new File(resourceDir, DefaultConfigs.featureListName).getAbsolutePath(); //"data/resources/feature_lists/featureNames_IC_full.txt";
@@ -90,17 +84,19 @@ public class TrainerPipeline {
         // prepare training and testing documents
         CollectionReaderDescription trainTestSplitReader = ReaderWriterFactory.createXmiReader(typeSystemDescription,
                 processDir, paramBaseInitialInputDirName, featureGeneratedStepNumber, paramFailUnknown);
+        // parse the large XMI files ahead while the writers work, the document order is kept
+        ReaderWriterFactory.setPrefetching(trainTestSplitReader, 4, 2);
 
-        AnalysisEngineDescription trainSplitWriter = ReaderWriterFactory.createSelectiveXmiWriter(
-                processDir, paramTrainDocumentDirName, trainingTestStepNumber, paramOutputFileSuffix, trainingDocumentIndices);
+        AnalysisEngineDescription trainSplitWriter = ReaderWriterFactory.createSelectiveBinaryCasWriter(
+                processDir, paramTrainDocumentDirName, trainingTestStepNumber, paramOutputFileSuffix, trainingDocumentIndicesArr);
 
-        AnalysisEngineDescription testSplitWriter = ReaderWriterFactory.createSelectiveXmiWriter(
-                paramParentOutputDir, paramTestDocumentDirName, trainingTestStepNumber, paramOutputFileSuffix, testingDocumentIndices);
+        AnalysisEngineDescription testSplitWriter = ReaderWriterFactory.createSelectiveBinaryCasWriter(
+                paramParentOutputDir, paramTestDocumentDirName, trainingTestStepNumber, paramOutputFileSuffix, testingDocumentIndicesArr);
 
-        CollectionReaderDescription trainReader = ReaderWriterFactory.createXmiReader(typeSystemDescription,
+        CollectionReaderDescription trainReader = ReaderWriterFactory.createBinaryCasReader(typeSystemDescription,
                 processDir, paramTrainDocumentDirName, trainingTestStepNumber, paramFailUnknown);
 
-        CollectionReaderDescription testReader = ReaderWriterFactory.createXmiReader(typeSystemDescription,
+        CollectionReaderDescription testReader = ReaderWriterFactory.createBinaryCasReader(typeSystemDescription,
                 processDir, paramTestDocumentDirName, trainingTestStepNumber, paramFailUnknown);
 
         AnalysisEngineDescription wekaStyleTrainingWriter = AnalysisEngineFactory.createEngineDescription(
@@ -2,6 +2,7 @@ package edu.cmu.lti.event_coref.pipeline.component;
 
 import com.google.common.base.Joiner;
 import edu.cmu.lti.event_coref.utils.ml.FeatureUtils;
+import edu.cmu.lti.event_coref.utils.ml.WekaClassifierWrapper;
 import edu.cmu.lti.event_coref.utils.ml.WekaFeatureFactory;
 import edu.cmu.lti.event_coref.utils.ml.WekaRandomForestWrapper;
 import edu.cmu.lti.event_coref.utils.ml.WekaUtils;
@@ -26,6 +27,13 @@ public class Trainer {
     private static final Logger logger = LoggerFactory.getLogger(Trainer.class);
 
     public void train(String featureNameFile, String trainingFilePath, boolean doTuning, boolean useCv, int numberOfFolds, String modelOutputPath) throws Exception {
+        train(featureNameFile, trainingFilePath, doTuning, useCv, numberOfFolds, modelOutputPath, 1);
+    }
+
+    /**
+     * Train the model with the given number of threads, the model does not depend on it.
+     */
+    public void train(String featureNameFile, String trainingFilePath, boolean doTuning, boolean useCv, int numberOfFolds, String modelOutputPath, int numThreads) throws Exception {
 
         File modelDir = new File(modelOutputPath).getParentFile();
         if (!modelDir.exists()) {
@@ -35,7 +43,8 @@ public class Trainer {
         Map<String, Triplet<Integer, Boolean, String>> featureNameMap = FeatureUtils.getFeatureInfoMap(featureNameFile);
         WekaFeatureFactory topTestingFeatureFactory = new WekaFeatureFactory(featureNameMap);
         Instances fullTrainingData = WekaUtils.readArffData(trainingFilePath, topTestingFeatureFactory);
-        WekaRandomForestWrapper overallClsWrapper = new WekaRandomForestWrapper(fullTrainingData, doTuning, numberOfFolds, useCv);
+        WekaRandomForestWrapper overallClsWrapper = new WekaRandomForestWrapper(fullTrainingData, doTuning, numberOfFolds, useCv,
+                WekaClassifierWrapper.DEFAULT_SEED, numThreads);
         SerializationHelper.write(modelOutputPath, overallClsWrapper);
     }
 
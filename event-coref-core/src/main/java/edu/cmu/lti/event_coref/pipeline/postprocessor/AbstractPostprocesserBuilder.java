@@ -12,4 +12,15 @@ import org.apache.uima.resource.ResourceInitializationException;
  */
 public abstract class AbstractPostprocesserBuilder {
     public abstract AnalysisEngineDescription[] buildPostprocessors() throws ResourceInitializationException;
+
+    /**
+     * The postprocessors that write all documents into shared outputs, they must be the last ones
+     * returned by {@link #buildPostprocessors()}. Pipelines running documents in parallel use a single
+     * instance of them.
+     *
+     * @return the number of such postprocessors
+     */
+    public int getNumberOfCollectionPostprocessors() {
+        return 0;
+    }
 }
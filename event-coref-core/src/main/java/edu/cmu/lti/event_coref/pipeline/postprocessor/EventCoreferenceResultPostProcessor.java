@@ -99,4 +99,10 @@ public class EventCoreferenceResultPostProcessor extends AbstractPostprocesserBu
 
         return processors.toArray(new AnalysisEngineDescription[processors.size()]);
     }
+
+    @Override
+    public int getNumberOfCollectionPostprocessors() {
+        // the CoNLL writer writes all documents in the same files
+        return 1;
+    }
 }
@@ -0,0 +1,103 @@
+package edu.cmu.lti.event_coref.utils;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Disjoint sets over the integers 0 to n-1, with union by size and path halving, so a sequence of
+ * unions and finds takes nearly linear time. Used to build transitive coreference clusters over
+ * mention indices.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class UnionFind {
+    private final int[] parent;
+
+    private final int[] size;
+
+    public UnionFind(int numElements) {
+        parent = new int[numElements];
+        size = new int[numElements];
+        for (int i = 0; i < numElements; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+    }
+
+    /**
+     * @param element
+     * @return the representative of the set containing the element
+     */
+    public int find(int element) {
+        while (parent[element] != element) {
+            parent[element] = parent[parent[element]];
+            element = parent[element];
+        }
+        return element;
+    }
+
+    /**
+     * Merge the sets containing the two elements.
+     *
+     * @param element1
+     * @param element2
+     * @return true if the two elements were in different sets
+     */
+    public boolean union(int element1, int element2) {
+        int root1 = find(element1);
+        int root2 = find(element2);
+        if (root1 == root2) {
+            return false;
+        }
+        if (size[root1] < size[root2]) {
+            int tmp = root1;
+            root1 = root2;
+            root2 = tmp;
+        }
+        parent[root2] = root1;
+        size[root1] += size[root2];
+        return true;
+    }
+
+    public boolean connected(int element1, int element2) {
+        return find(element1) == find(element2);
+    }
+
+    public int getSetSize(int element) {
+        return size[find(element)];
+    }
+
+    /**
+     * @return the parent of the element, without shortening its path, only for tests
+     */
+    int getParent(int element) {
+        return parent[element];
+    }
+
+    /**
+     * @param minSize sets smaller than this are skipped
+     * @return the elements of each set, in increasing order of the smallest element
+     */
+    public List<TIntArrayList> getSets(int minSize) {
+        List<TIntArrayList> sets = new ArrayList<TIntArrayList>();
+        int[] setIndex = new int[parent.length];
+        for (int i = 0; i < parent.length; i++) {
+            setIndex[i] = -1;
+        }
+
+        for (int element = 0; element < parent.length; element++) {
+            int root = find(element);
+            if (size[root] < minSize) {
+                continue;
+            }
+            if (setIndex[root] < 0) {
+                setIndex[root] = sets.size();
+                sets.add(new TIntArrayList(size[root]));
+            }
+            sets.get(setIndex[root]).add(element);
+        }
+        return sets;
+    }
+}
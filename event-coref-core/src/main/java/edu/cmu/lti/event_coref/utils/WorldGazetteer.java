@@ -22,7 +22,8 @@ public class WorldGazetteer {
   public List<WorldGazetteerRecord> getNaiveRecord(String name) {
     // LogUtils.log(String.format("Looking for record for name: %s ", name));
     name = name.toLowerCase();
-    List<String> possibleIds = aliasMap.get(name);
+    // copy the ids, the list from the multimap is a view, adding to it would change the gazetteer
+    List<String> possibleIds = new ArrayList<String>(aliasMap.get(name));
     if (possibleIds.isEmpty()) {
       for (String partialName : name.split(" ")) {
         List<String> partialNameMatches = aliasMap.get(partialName);
@@ -1,5 +1,6 @@
 package edu.cmu.lti.event_coref.utils.ml;
 
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
 import edu.cmu.lti.event_coref.type.*;
 import edu.cmu.lti.event_coref.utils.ConstantUtils;
 import edu.cmu.lti.event_coref.utils.ml.FeatureConstants.FeatureType;
@@ -22,56 +23,49 @@ import java.util.*;
 public class FeatureUtils {
 
     /**
-     * Creates a pairwise numeric feature with the specified feature name, pairwise value and score.
+     * Creates a pairwise numeric feature value without touching the CAS.
      *
-     * @param aJCas
      * @param featureName
      * @param score
-     * @return a pairwise numeric feature with the specified feature name, pairwise value and score
+     * @param defaultZero
+     * @return
      */
-    public static PairwiseEventFeature createPairwiseEventNumericFeature(JCas aJCas,
-                                                                         String featureName, Double score, boolean defaultZero) {
-        PairwiseEventFeature feature = new PairwiseEventFeature(aJCas);
-        feature.setName(featureName);
-        feature.setScore(score);
-        feature.setFeatureType(FeatureConstants.FeatureType.NUMERIC.name());
-        feature.setDefaultZero(defaultZero);
-        feature.addToIndexes(aJCas);
-        return feature;
+    public static PairwiseFeature createPairwiseNumericFeature(String featureName, Double score,
+                                                               boolean defaultZero) {
+        return new PairwiseFeature(featureName, score, FeatureType.NUMERIC.name(), defaultZero);
     }
 
-    public static PairwiseEventFeature createPairwiseEventBinaryFeature(JCas aJCas,
-                                                                        String featureName, boolean isPositive, boolean defaultZero) {
-        PairwiseEventFeature feature = new PairwiseEventFeature(aJCas);
-        feature.setName(featureName);
-
+    /**
+     * Creates a pairwise binary feature value without touching the CAS.
+     *
+     * @param featureName
+     * @param isPositive
+     * @param defaultZero
+     * @return
+     */
+    public static PairwiseFeature createPairwiseBinaryFeature(String featureName, boolean isPositive,
+                                                              boolean defaultZero) {
         double score = isPositive ? FeatureConstants.POSITIVE_BINARY_FEATURE_VALUE
                 : FeatureConstants.NEGATIVE_BINARY_FEATURE_VALUE;
-
-        feature.setScore(score);
-        feature.setFeatureType(FeatureType.BINARY.name());
-        feature.setDefaultZero(defaultZero);
-        feature.addToIndexes(aJCas);
-        return feature;
+        return new PairwiseFeature(featureName, score, FeatureType.BINARY.name(), defaultZero);
     }
 
     /**
-     * Creates a pairwise event feature.
+     * Creates a pairwise feature value without touching the CAS.
      *
-     * @param aJCas
      * @param featureInfo
      * @param score
      * @param defaultZero
-     * @return a pairwise event feature
+     * @return
      */
-    public static PairwiseEventFeature createPairwiseEventFeature(JCas aJCas,
-                                                                  FeatureConstants.PairwiseEventFeatureInfo featureInfo, Double score, boolean defaultZero) {
+    public static PairwiseFeature createPairwiseFeature(FeatureConstants.PairwiseEventFeatureInfo featureInfo,
+                                                        Double score, boolean defaultZero) {
         String featureName = featureInfo.getFeatureName();
         if (featureInfo.isBinaryFeature()) {
             boolean isPositive = (score == FeatureConstants.POSITIVE_BINARY_FEATURE_VALUE);
-            return createPairwiseEventBinaryFeature(aJCas, featureName, isPositive, defaultZero);
+            return createPairwiseBinaryFeature(featureName, isPositive, defaultZero);
         } else if (featureInfo.isNumericFeature()) {
-            return createPairwiseEventNumericFeature(aJCas, featureName, score, defaultZero);
+            return createPairwiseNumericFeature(featureName, score, defaultZero);
         } else {
             ErrorUtils.terminate("Invalid feature: feature + " + featureName
                     + " is specified as neither binary nor numeric.");
@@ -80,30 +74,6 @@ public class FeatureUtils {
         }
     }
 
-    /**
-     * Adds the specified feature to the specified pairwise event coreference evaluation.
-     *
-     * @param aJCas
-     * @param pece
-     * @param newFeature
-     */
-    public static void addPairwiseEventFeatures(JCas aJCas, PairwiseEventCoreferenceEvaluation pece,
-                                                PairwiseEventFeature newFeature) {
-        List<PairwiseEventFeature> pairwiseEventFeatures = null;
-        FSList pairwiseEventFeatureList = pece.getPairwiseEventFeatures();
-        if (pairwiseEventFeatureList == null) {
-            pairwiseEventFeatures = new ArrayList<PairwiseEventFeature>();
-        } else {
-            pairwiseEventFeatures = new ArrayList<PairwiseEventFeature>(FSCollectionFactory.create(
-                    pairwiseEventFeatureList, PairwiseEventFeature.class));
-        }
-
-        pairwiseEventFeatures.add(newFeature);
-        pairwiseEventFeatureList = FSCollectionFactory.createFSList(aJCas, pairwiseEventFeatures);
-        pece.setPairwiseEventFeatures(pairwiseEventFeatureList);
-        pece.addToIndexes();
-    }
-
     public static SingleEventFeature createSingleEventBinaryFeature(JCas aJCas, String featureName,
                                                                     boolean isPositive, boolean defaultZero) {
         SingleEventFeature feature = new SingleEventFeature(aJCas);
@@ -239,25 +209,6 @@ public class FeatureUtils {
         return featureInfoMap;
     }
 
-    /**
-     * Create a featureMap from PairwiseCoreferenceEvaluation, null is not checked, the pece must come
-     * with a feature annotated
-     *
-     * @param pece
-     * @return
-     */
-    public static Map<String, Double> getPairwiseFeatureMap(PairwiseEventCoreferenceEvaluation pece) {
-        FSList featuresFS = pece.getPairwiseEventFeatures();
-
-        HashMap<String, Double> featureMap = new HashMap<String, Double>();
-        for (PairwiseEventFeature feature : FSCollectionFactory.create(featuresFS,
-                PairwiseEventFeature.class)) {
-            featureMap.put(feature.getName(), feature.getScore());
-        }
-
-        return featureMap;
-    }
-
     public static Map<String, Double> createSingleEventFeatureMap(EventMention evm) {
         FSList featuresFs = evm.getSingleEventFeatures();
         Map<String, Double> featuresMap = new HashMap<String, Double>();
@@ -302,74 +253,46 @@ public class FeatureUtils {
         return (binaryFeatureValue == FeatureConstants.NEGATIVE_BINARY_FEATURE_VALUE);
     }
 
-    public static String getFeatureEntry(PairwiseEventCoreferenceEvaluation pece, int classLabel,
+    public static String getFeatureEntry(PairwiseFeatureMatrix featureMatrix,
+                                         PairwiseEventCoreferenceEvaluation pece, int classLabel,
                                          Map<String, Triplet<Integer, Boolean, String>> featureInfoMap) {
         StringBuilder buf = new StringBuilder();
 
         buf.append(classLabel);
-        FSList pairwiseEventFeatureList = pece.getPairwiseEventFeatures();
-        Collection<PairwiseEventFeature> pairwiseEventFeatures = FSCollectionFactory.create(
-                pairwiseEventFeatureList, PairwiseEventFeature.class);
-        for (PairwiseEventFeature pairwiseEventFeature : pairwiseEventFeatures) {
-            String featureName = pairwiseEventFeature.getName();
+        int row = featureMatrix.getRow(pece);
+        if (row < 0) {
+            return buf.toString();
+        }
+
+        int[] featureIds = featureMatrix.getColumnFeatureIds(featureInfoMap);
+        for (int column = 0; column < featureIds.length; column++) {
             // Do nothing against feature names out of the list.
-            if (!featureInfoMap.containsKey(featureName)) {
+            if (featureIds[column] < 0 || !featureMatrix.isPresent(row, column)) {
                 continue;
             }
 
-            double score = pairwiseEventFeature.getScore();
-
-            int featureId = featureInfoMap.get(featureName).getValue0();
-
             buf.append(" ");
-            buf.append(featureId);
+            buf.append(featureIds[column]);
             buf.append(":");
-            buf.append(score);
+            buf.append(featureMatrix.getValue(row, column));
         }
 
         return buf.toString();
     }
 
-    public static String getFeatureEntryFromFeatureIdToFeatureInfoMap(
+    public static String getFeatureEntryFromFeatureIdToFeatureInfoMap(PairwiseFeatureMatrix featureMatrix,
             PairwiseEventCoreferenceEvaluation pece, int classLabel,
             Map<Integer, Triplet<String, Boolean, String>> featureInfoMap) {
-        StringBuilder buf = new StringBuilder();
-
-        buf.append(classLabel);
-        FSList pairwiseEventFeatureList = pece.getPairwiseEventFeatures();
-        Collection<PairwiseEventFeature> pairwiseEventFeatures = FSCollectionFactory.create(
-                pairwiseEventFeatureList, PairwiseEventFeature.class);
-        for (PairwiseEventFeature pairwiseEventFeature : pairwiseEventFeatures) {
-            String featureName = pairwiseEventFeature.getName();
-
-            boolean foundFeature = false;
-            int featureId = 0;
-            for (int _featureId : featureInfoMap.keySet()) {
-                String _featureName = featureInfoMap.get(_featureId).getValue0();
-                if (featureName.equals(_featureName)) {
-                    foundFeature = true;
-                    featureId = _featureId;
-                    break;
-                }
-            }
-
-            // Do nothing against feature names out of the list.
-            if (!foundFeature) {
-                continue;
-            }
-
-            double score = pairwiseEventFeature.getScore();
-
-            buf.append(" ");
-            buf.append(featureId);
-            buf.append(":");
-            buf.append(score);
+        Map<String, Triplet<Integer, Boolean, String>> featureNameToInfoMap = new HashMap<String, Triplet<Integer, Boolean, String>>();
+        for (Map.Entry<Integer, Triplet<String, Boolean, String>> featureInfo : featureInfoMap.entrySet()) {
+            Triplet<String, Boolean, String> info = featureInfo.getValue();
+            featureNameToInfoMap.put(info.getValue0(), new Triplet<Integer, Boolean, String>(featureInfo.getKey(),
+                    info.getValue1(), info.getValue2()));
         }
-
-        return buf.toString();
+        return getFeatureEntry(featureMatrix, pece, classLabel, featureNameToInfoMap);
     }
 
-    public static String getFeatureEntryWithComment(Article article,
+    public static String getFeatureEntryWithComment(Article article, PairwiseFeatureMatrix featureMatrix,
                                                     PairwiseEventCoreferenceEvaluation pece, int classLabel,
                                                     Map<String, Triplet<Integer, Boolean, String>> featureInfoMap) {
 
@@ -393,7 +316,7 @@ public class FeatureUtils {
         String comment = buf.toString();
 
         buf = new StringBuilder();
-        buf.append(getFeatureEntry(pece, classLabel, featureInfoMap));
+        buf.append(getFeatureEntry(featureMatrix, pece, classLabel, featureInfoMap));
         buf.append(" ");
         buf.append("#");
         buf.append(comment);
@@ -0,0 +1,303 @@
+package edu.cmu.lti.event_coref.utils.ml;
+
+import edu.cmu.lti.event_coref.features.PairwiseFeature;
+import edu.cmu.lti.event_coref.type.PairwiseEventCoreferenceEvaluation;
+import edu.cmu.lti.event_coref.type.PairwiseEventFeature;
+import edu.cmu.lti.event_coref.type.PairwiseEventFeatureMatrix;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.apache.uima.fit.util.FSCollectionFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.BooleanArray;
+import org.apache.uima.jcas.cas.DoubleArray;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.LongArray;
+import org.apache.uima.jcas.cas.StringArray;
+import org.javatuples.Triplet;
+
+import java.util.*;
+
+/**
+ * A column based store of the pairwise event features of one document. Each row is a pairwise
+ * event coreference evaluation and each column is a feature, a column keeps its values in a
+ * double array and a bitmap telling which rows have the feature.
+ * <p/>
+ * In the CAS the whole document is stored as a single PairwiseEventFeatureMatrix, instead of one
+ * PairwiseEventFeature per feature value. Use {@link #load(JCas)} to read it and
+ * {@link #save(JCas)} to write it back after modification.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class PairwiseFeatureMatrix {
+    private static final int noEntry = -1;
+
+    private static final int initialCapacity = 64;
+
+    private final List<PairwiseEventCoreferenceEvaluation> pairs = new ArrayList<PairwiseEventCoreferenceEvaluation>();
+
+    private final TObjectIntMap<PairwiseEventCoreferenceEvaluation> rowOfPair = new TObjectIntHashMap<PairwiseEventCoreferenceEvaluation>(
+            initialCapacity, 0.5f, noEntry);
+
+    private final List<String> featureNames = new ArrayList<String>();
+
+    private final List<String> featureTypes = new ArrayList<String>();
+
+    private final List<Boolean> defaultZeros = new ArrayList<Boolean>();
+
+    private final TObjectIntMap<String> columnOfFeature = new TObjectIntHashMap<String>(initialCapacity, 0.5f,
+            noEntry);
+
+    private final List<double[]> columnValues = new ArrayList<double[]>();
+
+    private final List<long[]> columnPresence = new ArrayList<long[]>();
+
+    private int rowCapacity = initialCapacity;
+
+    /**
+     * Read the feature matrix of the document. Documents annotated before the matrix was introduced
+     * are read from the feature list of each pairwise event coreference evaluation.
+     *
+     * @param aJCas
+     * @return the feature matrix, empty if no feature is found
+     */
+    public static PairwiseFeatureMatrix load(JCas aJCas) {
+        PairwiseFeatureMatrix matrix = new PairwiseFeatureMatrix();
+
+        Iterator<PairwiseEventFeatureMatrix> matrixIter = JCasUtil.iterator(aJCas, PairwiseEventFeatureMatrix.class);
+        if (matrixIter.hasNext()) {
+            matrix.read(matrixIter.next());
+        } else {
+            for (PairwiseEventCoreferenceEvaluation pece : JCasUtil.select(aJCas,
+                    PairwiseEventCoreferenceEvaluation.class)) {
+                if (pece.getPairwiseEventFeatures() == null) {
+                    continue;
+                }
+                int row = matrix.addPair(pece);
+                for (PairwiseEventFeature feature : FSCollectionFactory.create(pece.getPairwiseEventFeatures(),
+                        PairwiseEventFeature.class)) {
+                    matrix.setFeature(row, feature.getName(), feature.getScore(), feature.getFeatureType(),
+                            feature.getDefaultZero());
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Write the matrix into the CAS, replacing the matrix already there.
+     *
+     * @param aJCas
+     */
+    public void save(JCas aJCas) {
+        for (PairwiseEventFeatureMatrix oldMatrix : new ArrayList<PairwiseEventFeatureMatrix>(JCasUtil.select(
+                aJCas, PairwiseEventFeatureMatrix.class))) {
+            oldMatrix.removeFromIndexes(aJCas);
+        }
+
+        int numRows = getNumRows();
+        int numColumns = getNumColumns();
+        int presenceWordsPerColumn = numWords(numRows);
+
+        FSArray pairsFS = new FSArray(aJCas, numRows);
+        for (int row = 0; row < numRows; row++) {
+            pairsFS.set(row, pairs.get(row));
+        }
+
+        StringArray namesFS = new StringArray(aJCas, numColumns);
+        StringArray typesFS = new StringArray(aJCas, numColumns);
+        BooleanArray defaultZerosFS = new BooleanArray(aJCas, numColumns);
+        DoubleArray valuesFS = new DoubleArray(aJCas, numColumns * numRows);
+        LongArray presenceFS = new LongArray(aJCas, numColumns * presenceWordsPerColumn);
+        for (int column = 0; column < numColumns; column++) {
+            namesFS.set(column, featureNames.get(column));
+            typesFS.set(column, featureTypes.get(column));
+            defaultZerosFS.set(column, defaultZeros.get(column));
+            valuesFS.copyFromArray(columnValues.get(column), 0, column * numRows, numRows);
+            presenceFS.copyFromArray(columnPresence.get(column), 0, column * presenceWordsPerColumn,
+                    presenceWordsPerColumn);
+        }
+
+        PairwiseEventFeatureMatrix matrixFS = new PairwiseEventFeatureMatrix(aJCas);
+        matrixFS.setPairs(pairsFS);
+        matrixFS.setFeatureNames(namesFS);
+        matrixFS.setFeatureTypes(typesFS);
+        matrixFS.setDefaultZeros(defaultZerosFS);
+        matrixFS.setValues(valuesFS);
+        matrixFS.setPresence(presenceFS);
+        matrixFS.addToIndexes(aJCas);
+    }
+
+    private void read(PairwiseEventFeatureMatrix matrixFS) {
+        FSArray pairsFS = matrixFS.getPairs();
+        int numRows = pairsFS.size();
+        for (int row = 0; row < numRows; row++) {
+            addPair((PairwiseEventCoreferenceEvaluation) pairsFS.get(row));
+        }
+
+        int numColumns = matrixFS.getFeatureNames().size();
+        int presenceWordsPerColumn = numWords(numRows);
+        DoubleArray valuesFS = matrixFS.getValues();
+        LongArray presenceFS = matrixFS.getPresence();
+        for (int column = 0; column < numColumns; column++) {
+            int newColumn = addColumn(matrixFS.getFeatureNames(column), matrixFS.getFeatureTypes(column),
+                    matrixFS.getDefaultZeros(column));
+            valuesFS.copyToArray(column * numRows, columnValues.get(newColumn), 0, numRows);
+            presenceFS.copyToArray(column * presenceWordsPerColumn, columnPresence.get(newColumn), 0,
+                    presenceWordsPerColumn);
+        }
+    }
+
+    /**
+     * Add a row for the pair, nothing is changed if it already has one.
+     *
+     * @param pece
+     * @return the row of the pair
+     */
+    public int addPair(PairwiseEventCoreferenceEvaluation pece) {
+        int row = rowOfPair.get(pece);
+        if (row != noEntry) {
+            return row;
+        }
+
+        row = pairs.size();
+        if (row == rowCapacity) {
+            rowCapacity *= 2;
+            for (int column = 0; column < columnValues.size(); column++) {
+                columnValues.set(column, Arrays.copyOf(columnValues.get(column), rowCapacity));
+                columnPresence.set(column, Arrays.copyOf(columnPresence.get(column), numWords(rowCapacity)));
+            }
+        }
+        pairs.add(pece);
+        rowOfPair.put(pece, row);
+        return row;
+    }
+
+    /**
+     * @param pece
+     * @return the row of the pair, or -1 if the pair is not in the matrix
+     */
+    public int getRow(PairwiseEventCoreferenceEvaluation pece) {
+        return rowOfPair.get(pece);
+    }
+
+    public PairwiseEventCoreferenceEvaluation getPair(int row) {
+        return pairs.get(row);
+    }
+
+    /**
+     * @param featureName
+     * @return the column of the feature, or -1 if no pair has this feature
+     */
+    public int getColumn(String featureName) {
+        return columnOfFeature.get(featureName);
+    }
+
+    private int addColumn(String featureName, String featureType, boolean defaultZero) {
+        int column = columnOfFeature.get(featureName);
+        if (column != noEntry) {
+            return column;
+        }
+
+        column = featureNames.size();
+        featureNames.add(featureName);
+        featureTypes.add(featureType);
+        defaultZeros.add(defaultZero);
+        columnValues.add(new double[rowCapacity]);
+        columnPresence.add(new long[numWords(rowCapacity)]);
+        columnOfFeature.put(featureName, column);
+        return column;
+    }
+
+    public void setFeature(int row, String featureName, double score, String featureType, boolean defaultZero) {
+        int column = addColumn(featureName, featureType, defaultZero);
+        columnValues.get(column)[row] = score;
+        columnPresence.get(column)[row >>> 6] |= 1L << row;
+    }
+
+    public void setFeature(int row, PairwiseFeature feature) {
+        setFeature(row, feature.getName(), feature.getScore(), feature.getFeatureType(), feature.getDefaultZero());
+    }
+
+    /**
+     * Set the features of the pair, adding a row for it if needed. Features already set for this pair
+     * but not given here are kept.
+     *
+     * @param pece
+     * @param features
+     */
+    public void setFeatures(PairwiseEventCoreferenceEvaluation pece, Collection<PairwiseFeature> features) {
+        int row = addPair(pece);
+        for (PairwiseFeature feature : features) {
+            setFeature(row, feature);
+        }
+    }
+
+    public boolean isPresent(int row, int column) {
+        return (columnPresence.get(column)[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public double getValue(int row, int column) {
+        return columnValues.get(column)[row];
+    }
+
+    /**
+     * Create a map from feature name to value for the pair.
+     *
+     * @param pece
+     * @return the feature map, empty if the pair is not in the matrix
+     */
+    public Map<String, Double> getFeatureMap(PairwiseEventCoreferenceEvaluation pece) {
+        Map<String, Double> featureMap = new HashMap<String, Double>();
+        int row = getRow(pece);
+        if (row == noEntry) {
+            return featureMap;
+        }
+        for (int column = 0; column < getNumColumns(); column++) {
+            if (isPresent(row, column)) {
+                featureMap.put(featureNames.get(column), getValue(row, column));
+            }
+        }
+        return featureMap;
+    }
+
+    /**
+     * Map each column to the feature id in the feature info map, this only need to be done once per
+     * document, instead of looking up feature names for each pair.
+     *
+     * @param featureInfoMap the map from {@link FeatureUtils#getFeatureInfoMap(String)}
+     * @return the feature id of each column, -1 for features out of the map
+     */
+    public int[] getColumnFeatureIds(Map<String, Triplet<Integer, Boolean, String>> featureInfoMap) {
+        int[] featureIds = new int[getNumColumns()];
+        for (int column = 0; column < featureIds.length; column++) {
+            Triplet<Integer, Boolean, String> featureInfo = featureInfoMap.get(featureNames.get(column));
+            featureIds[column] = featureInfo == null ? noEntry : featureInfo.getValue0();
+        }
+        return featureIds;
+    }
+
+    public String getFeatureName(int column) {
+        return featureNames.get(column);
+    }
+
+    public String getFeatureType(int column) {
+        return featureTypes.get(column);
+    }
+
+    public boolean isDefaultZero(int column) {
+        return defaultZeros.get(column);
+    }
+
+    public int getNumRows() {
+        return pairs.size();
+    }
+
+    public int getNumColumns() {
+        return featureNames.size();
+    }
+
+    private static int numWords(int numBits) {
+        return (numBits + 63) >>> 6;
+    }
+}
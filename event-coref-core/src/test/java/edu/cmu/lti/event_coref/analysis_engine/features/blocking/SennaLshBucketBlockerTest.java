@@ -0,0 +1,144 @@
+package edu.cmu.lti.event_coref.analysis_engine.features.blocking;
+
+import edu.cmu.lti.event_coref.DefaultConfigs;
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.type.Word;
+import edu.cmu.lti.event_coref.utils.SennaWordSimilarityCalculator;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The LSH blocker must only keep pairs of the exhaustive pairing. Embeddings of the same direction
+ * get the same signature in every band, so they are always paired, and opposite embeddings differ
+ * in every bit, so they are never paired. Mentions without an embedding are never paired.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class SennaLshBucketBlockerTest {
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    // "assault" has the direction of "attack", "peace" the opposite one
+    private static final String[] words = {"assault", "attack", "bomb", "peace"};
+
+    private static final String[] embeddings = {"2 4 -2 1", "1 2 -1 0.5", "0.3 -1 2 1", "-1 -2 1 -0.5"};
+
+    // head lemmas in discourse order, null for a missing mention, "" for a mention without head word
+    private static final String[] lemmas = {"Attack", "peace", "assault", null, "unseen", "", "bomb", "attack"};
+
+    private static SennaWordSimilarityCalculator senna;
+
+    private static JCas aJCas;
+
+    private static List<EventMention> mentions;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        File embeddingsFile = folder.newFile("embeddings.txt");
+        File wordsFile = folder.newFile("words.lst");
+        writeLines(embeddingsFile, embeddings);
+        writeLines(wordsFile, words);
+        senna = new SennaWordSimilarityCalculator(embeddingsFile.getPath(), wordsFile.getPath());
+        assertEquals(words.length, senna.getVocabularySize());
+
+        aJCas = JCasFactory.createJCas(TypeSystemDescriptionFactory
+                .createTypeSystemDescription(DefaultConfigs.TypeSystemDescriptorName));
+        StringBuilder text = new StringBuilder();
+        for (String lemma : lemmas) {
+            text.append("event ");
+        }
+        aJCas.setDocumentText(text.toString());
+
+        mentions = new ArrayList<EventMention>();
+        for (int i = 0; i < lemmas.length; i++) {
+            if (lemmas[i] == null) {
+                mentions.add(null);
+                continue;
+            }
+            EventMention mention = new EventMention(aJCas, i * 6, i * 6 + 5);
+            if (!lemmas[i].isEmpty()) {
+                Word word = new Word(aJCas, i * 6, i * 6 + 5);
+                word.setLemma(lemmas[i]);
+                word.addToIndexes();
+                mention.setHeadWord(word);
+            }
+            mention.addToIndexes();
+            mentions.add(mention);
+        }
+    }
+
+    @Test
+    public void pairsAreInExhaustivePairing() {
+        for (int bitsPerBand = 1; bitsPerBand <= 8; bitsPerBand++) {
+            for (long seed = 0; seed < 20; seed++) {
+                TLongSet pairs = getCandidatePairs(new SennaLshBucketBlocker(senna, 4, bitsPerBand, seed));
+                String blocker = String.format("%d bits per band, seed %d", bitsPerBand, seed);
+
+                for (long pairKey : pairs.toArray()) {
+                    int i = CandidatePairBlocker.getFirstIndex(pairKey);
+                    int j = CandidatePairBlocker.getSecondIndex(pairKey);
+                    assertTrue(blocker, i < j && j < mentions.size());
+                    assertTrue(blocker, hasEmbedding(i) && hasEmbedding(j));
+                }
+
+                // same direction, with the lemma in another case
+                assertTrue(blocker, pairs.contains(CandidatePairBlocker.toPairKey(0, 2)));
+                assertTrue(blocker, pairs.contains(CandidatePairBlocker.toPairKey(0, 7)));
+                assertTrue(blocker, pairs.contains(CandidatePairBlocker.toPairKey(2, 7)));
+                // opposite directions
+                assertFalse(blocker, pairs.contains(CandidatePairBlocker.toPairKey(0, 1)));
+                assertFalse(blocker, pairs.contains(CandidatePairBlocker.toPairKey(1, 2)));
+                assertFalse(blocker, pairs.contains(CandidatePairBlocker.toPairKey(1, 7)));
+            }
+        }
+    }
+
+    @Test
+    public void moreBandsOnlyAddPairs() {
+        // the first bands of a blocker are the bands of a blocker with fewer bands and the same seed
+        for (long seed = 0; seed < 20; seed++) {
+            TLongSet fewerBands = getCandidatePairs(new SennaLshBucketBlocker(senna, 2, 3, seed));
+            TLongSet moreBands = getCandidatePairs(new SennaLshBucketBlocker(senna, 8, 3, seed));
+            assertTrue("Seed " + seed, moreBands.containsAll(fewerBands));
+        }
+    }
+
+    private static TLongSet getCandidatePairs(CandidatePairBlocker blocker) {
+        TLongSet candidatePairs = new TLongHashSet();
+        blocker.addCandidatePairs(aJCas, mentions, candidatePairs);
+        return candidatePairs;
+    }
+
+    private static boolean hasEmbedding(int i) {
+        return lemmas[i] != null && senna.getVector(lemmas[i].toLowerCase()) != null;
+    }
+
+    private static void writeLines(File file, String[] lines) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        try {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
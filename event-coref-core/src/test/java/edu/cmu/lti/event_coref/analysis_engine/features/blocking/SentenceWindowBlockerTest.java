@@ -0,0 +1,178 @@
+package edu.cmu.lti.event_coref.analysis_engine.features.blocking;
+
+import edu.cmu.lti.event_coref.DefaultConfigs;
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.type.Sentence;
+import edu.cmu.lti.event_coref.type.Word;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The sentence window blocker must keep exactly the pairs of the exhaustive pairing whose mentions
+ * are at most the window size sentences apart, so no gold coreferent pair within the window is
+ * dropped. Missing mentions and mentions outside of any sentence are never paired.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class SentenceWindowBlockerTest {
+    // sentence and head lemma of each mention in discourse order, null for a missing mention, and
+    // sentence -1 for a mention between two sentences
+    private static final Object[][] mentionSpecs = {
+            {0, "attack"}, {0, "bomb"}, null, {1, "attack"}, {2, "kill"}, {-1, "attack"}, {3, "attack"},
+            {4, "bomb"}, {4, "kill"}};
+
+    private static final int numSentences = 5;
+
+    // gold clusters as positions in the mention list
+    private static final int[][] goldClusters = {{0, 3, 6}, {1, 7}, {4, 8}};
+
+    private static JCas aJCas;
+
+    private List<EventMention> mentions;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        aJCas = JCasFactory.createJCas(TypeSystemDescriptionFactory
+                .createTypeSystemDescription(DefaultConfigs.TypeSystemDescriptorName));
+    }
+
+    @Before
+    public void createDocument() {
+        aJCas.reset();
+        mentions = new ArrayList<EventMention>();
+
+        StringBuilder text = new StringBuilder();
+        List<int[]> mentionSpans = new ArrayList<int[]>();
+        List<int[]> sentenceSpans = new ArrayList<int[]>();
+        int currentSentence = -1;
+        for (Object[] spec : mentionSpecs) {
+            if (spec == null) {
+                mentionSpans.add(null);
+                continue;
+            }
+            int sentence = (Integer) spec[0];
+            if (sentence != currentSentence) {
+                if (currentSentence >= 0) {
+                    text.append('.');
+                    sentenceSpans.get(sentenceSpans.size() - 1)[1] = text.length();
+                }
+                text.append(' ');
+                if (sentence >= 0) {
+                    sentenceSpans.add(new int[]{text.length(), -1});
+                }
+                currentSentence = sentence;
+            }
+            int begin = text.length();
+            text.append(spec[1]);
+            mentionSpans.add(new int[]{begin, text.length()});
+            text.append(' ');
+        }
+        text.append('.');
+        sentenceSpans.get(sentenceSpans.size() - 1)[1] = text.length();
+        aJCas.setDocumentText(text.toString());
+        assertEquals(numSentences, sentenceSpans.size());
+
+        for (int[] span : sentenceSpans) {
+            new Sentence(aJCas, span[0], span[1]).addToIndexes();
+        }
+
+        for (int i = 0; i < mentionSpecs.length; i++) {
+            int[] span = mentionSpans.get(i);
+            if (span == null) {
+                mentions.add(null);
+                continue;
+            }
+            Word word = new Word(aJCas, span[0], span[1]);
+            word.setLemma((String) mentionSpecs[i][1]);
+            word.addToIndexes();
+
+            EventMention mention = new EventMention(aJCas, span[0], span[1]);
+            mention.setHeadWord(word);
+            mention.addToIndexes();
+            mentions.add(mention);
+        }
+    }
+
+    @Test
+    public void windowKeepsNearbyPairsOfExhaustivePairing() {
+        for (int windowSize = 0; windowSize <= numSentences; windowSize++) {
+            Set<Long> expected = new TreeSet<Long>();
+            for (int i = 0; i < mentionSpecs.length; i++) {
+                for (int j = i + 1; j < mentionSpecs.length; j++) {
+                    if (isInSentence(i) && isInSentence(j) && getSentence(j) - getSentence(i) <= windowSize) {
+                        expected.add(CandidatePairBlocker.toPairKey(i, j));
+                    }
+                }
+            }
+            assertEquals("Window " + windowSize, expected, getCandidatePairs(new SentenceWindowBlocker(windowSize)));
+        }
+    }
+
+    @Test
+    public void pairsAtWindowBoundary() {
+        Set<Long> pairs = getCandidatePairs(new SentenceWindowBlocker(2));
+        // sentences 1 and 3 are two apart, sentences 0 and 3 are three apart
+        assertTrue(pairs.contains(CandidatePairBlocker.toPairKey(3, 6)));
+        assertFalse(pairs.contains(CandidatePairBlocker.toPairKey(0, 6)));
+        assertFalse(pairs.contains(CandidatePairBlocker.toPairKey(1, 6)));
+
+        // only the pairs of the same sentence with a window of 0
+        assertEquals(new TreeSet<Long>(Arrays.asList(CandidatePairBlocker.toPairKey(0, 1),
+                CandidatePairBlocker.toPairKey(7, 8))), getCandidatePairs(new SentenceWindowBlocker(0)));
+    }
+
+    @Test
+    public void goldPairsWithinWindowAreKept() {
+        for (int windowSize = 0; windowSize <= numSentences; windowSize++) {
+            Set<Long> pairs = getCandidatePairs(new SentenceWindowBlocker(windowSize));
+            // the union with another blocker can only add pairs
+            TLongSet unionPairs = new TLongHashSet();
+            new SentenceWindowBlocker(windowSize).addCandidatePairs(aJCas, mentions, unionPairs);
+            new LemmaBucketBlocker().addCandidatePairs(aJCas, mentions, unionPairs);
+
+            for (int[] cluster : goldClusters) {
+                for (int a = 0; a < cluster.length; a++) {
+                    for (int b = a + 1; b < cluster.length; b++) {
+                        int i = cluster[a];
+                        int j = cluster[b];
+                        if (getSentence(j) - getSentence(i) <= windowSize) {
+                            String pair = String.format("Window %d, gold pair %d and %d", windowSize, i, j);
+                            assertTrue(pair, pairs.contains(CandidatePairBlocker.toPairKey(i, j)));
+                            assertTrue(pair, unionPairs.contains(CandidatePairBlocker.toPairKey(i, j)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private Set<Long> getCandidatePairs(CandidatePairBlocker blocker) {
+        TLongSet candidatePairs = new TLongHashSet();
+        blocker.addCandidatePairs(aJCas, mentions, candidatePairs);
+        Set<Long> pairs = new TreeSet<Long>();
+        for (long pairKey : candidatePairs.toArray()) {
+            pairs.add(pairKey);
+        }
+        return pairs;
+    }
+
+    private static boolean isInSentence(int i) {
+        return mentionSpecs[i] != null && getSentence(i) >= 0;
+    }
+
+    private static int getSentence(int i) {
+        return (Integer) mentionSpecs[i][0];
+    }
+}
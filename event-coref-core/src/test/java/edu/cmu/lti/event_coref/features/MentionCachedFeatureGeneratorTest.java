@@ -0,0 +1,372 @@
+package edu.cmu.lti.event_coref.features;
+
+import edu.cmu.lti.event_coref.DefaultConfigs;
+import edu.cmu.lti.event_coref.features.semantic.AgentPatientFeatures;
+import edu.cmu.lti.event_coref.features.semantic.SemaforRoleFeatures;
+import edu.cmu.lti.event_coref.features.syntactic.ModifierFeatures;
+import edu.cmu.lti.event_coref.features.syntactic.WordFormFeatures;
+import edu.cmu.lti.event_coref.model.EventMentionPairIndex;
+import edu.cmu.lti.event_coref.model.EventMentionTable;
+import edu.cmu.lti.event_coref.type.*;
+import edu.cmu.lti.event_coref.utils.SimilarityCalculator;
+import edu.cmu.lti.event_coref.utils.ml.FeatureConstants.FeatureType;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.fit.util.FSCollectionFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The mention cached generators must create the expected features on a small document, with and
+ * without {@link MentionCachedFeatureGenerator#prepare(JCas, EventMentionPairIndex)}. The expected
+ * features are worked out by hand from the fixture, the Dice scores are 2 * shared bigrams / (bigrams
+ * of both strings), on lower cased strings.
+ * <p/>
+ * Some generators emit their features in the order of a HashMap, so the features are compared as
+ * sorted descriptions.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class MentionCachedFeatureGeneratorTest {
+    // token, part of speech and lemma, mentions at offset 0 are left out of the event mention table
+    private static final String[][] tokens = {
+            {"The", "DT", "the"}, {"police", "NNS", "police"}, {"did", "VBD", "do"}, {"not", "RB", "not"},
+            {"attack", "VB", "attack"}, {"the", "DT", "the"}, {"market", "NN", "market"}, {".", ".", "."},
+            {"Soldiers", "NNS", "soldier"}, {"never", "RB", "never"}, {"bombed", "VBD", "bomb"},
+            {"the", "DT", "the"}, {"markets", "NNS", "market"}, {".", ".", "."},
+            {"The", "DT", "the"}, {"big", "JJ", "big"}, {"attack", "NN", "attack"}, {"caused", "VBD", "cause"},
+            {"market", "NN", "market"}, {"explosions", "NNS", "explosion"}, {".", ".", "."}};
+
+    // head token, relation, child token
+    private static final Object[][] dependencies = {
+            {4, "nsubj", 1}, {4, "neg", 3}, {4, "dobj", 6},
+            {10, "neg", 9}, {10, "dobj", 12},
+            {16, "det", 14}, {16, "amod", 15},
+            {19, "nn", 18}};
+
+    private static JCas aJCas;
+
+    // WordNet is not loaded in the tests, the WordNet similarity is the Dice coefficient instead
+    private static final SimilarityCalculator calc = new SimilarityCalculator(true) {
+        @Override
+        public double getWordNetSimilarity(String str1, String str2) {
+            if (str1.trim().isEmpty() || str2.trim().isEmpty()) {
+                return 0;
+            }
+            return getDiceCoefficient(str1, str2);
+        }
+    };
+
+    // "attack" (VB), "bombed" (VBD), "attack" (NN) and "explosions" (NNS)
+    private EventMention attackVerb;
+
+    private EventMention bombed;
+
+    private EventMention attackNoun;
+
+    private EventMention explosions;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        aJCas = JCasFactory.createJCas(TypeSystemDescriptionFactory
+                .createTypeSystemDescription(DefaultConfigs.TypeSystemDescriptorName));
+    }
+
+    @Before
+    public void createDocument() {
+        aJCas.reset();
+
+        StringBuilder text = new StringBuilder(" ");
+        int[][] spans = new int[tokens.length][2];
+        for (int i = 0; i < tokens.length; i++) {
+            spans[i][0] = text.length();
+            text.append(tokens[i][0]);
+            spans[i][1] = text.length();
+            text.append(' ');
+        }
+        aJCas.setDocumentText(text.toString());
+
+        List<Word> words = new ArrayList<Word>();
+        List<StanfordDependencyNode> nodes = new ArrayList<StanfordDependencyNode>();
+        for (int i = 0; i < tokens.length; i++) {
+            Word word = new Word(aJCas, spans[i][0], spans[i][1]);
+            word.setPartOfSpeech(tokens[i][1]);
+            word.setLemma(tokens[i][2]);
+            word.addToIndexes();
+            words.add(word);
+
+            StanfordCorenlpToken token = new StanfordCorenlpToken(aJCas, spans[i][0], spans[i][1]);
+            token.setPos(tokens[i][1]);
+            token.setLemma(tokens[i][2]);
+            token.addToIndexes();
+
+            StanfordDependencyNode node = new StanfordDependencyNode(aJCas, spans[i][0], spans[i][1]);
+            node.setToken(token);
+            node.addToIndexes();
+            nodes.add(node);
+        }
+
+        Map<StanfordDependencyNode, List<StanfordDependencyRelation>> childRelations =
+                new LinkedHashMap<StanfordDependencyNode, List<StanfordDependencyRelation>>();
+        for (Object[] dependency : dependencies) {
+            StanfordDependencyNode head = nodes.get((Integer) dependency[0]);
+            StanfordDependencyRelation relation = new StanfordDependencyRelation(aJCas);
+            relation.setHead(head);
+            relation.setChild(nodes.get((Integer) dependency[2]));
+            relation.setRelationType((String) dependency[1]);
+            relation.addToIndexes();
+            if (!childRelations.containsKey(head)) {
+                childRelations.put(head, new ArrayList<StanfordDependencyRelation>());
+            }
+            childRelations.get(head).add(relation);
+        }
+        for (Map.Entry<StanfordDependencyNode, List<StanfordDependencyRelation>> entry : childRelations.entrySet()) {
+            entry.getKey().setChildRelations(FSCollectionFactory.createFSList(aJCas, entry.getValue()));
+        }
+
+        // the police and the soldiers corefer, so do the market and the markets
+        EntityCoreferenceCluster people = new EntityCoreferenceCluster(aJCas);
+        EntityCoreferenceCluster places = new EntityCoreferenceCluster(aJCas);
+        EntityBasedComponent police = createComponent(spans, words, 0, 1, people);
+        EntityBasedComponent market = createComponent(spans, words, 5, 6, places);
+        EntityBasedComponent soldiers = createComponent(spans, words, 8, 8, people);
+        EntityBasedComponent markets = createComponent(spans, words, 11, 12, places);
+        setClusterMentions(people, police, soldiers);
+        setClusterMentions(places, market, markets);
+
+        attackVerb = createMention(spans, words, 4, Arrays.asList(police), "Agent", police, "Patient", market);
+        bombed = createMention(spans, words, 10, Arrays.asList(soldiers), "Agent", soldiers, "Patient", markets);
+        // an argument without a VerbNet role is not compared
+        attackNoun = createMention(spans, words, 16, null, "Patient", market, null, soldiers);
+        explosions = createMention(spans, words, 19, Arrays.asList(soldiers, police));
+    }
+
+    @Test
+    public void wordFormFeatures() {
+        assertFeatures(new WordFormFeatures(), new WordFormFeatures(), attackVerb, bombed,
+                binary("bothPresentDifferent3rdPerson", false, false),
+                binary("differentTense", true, false),
+                binary("bothPresentTenseSame3rdPerson", false, false));
+
+        assertFeatures(new WordFormFeatures(), new WordFormFeatures(), attackNoun, explosions,
+                binary("bothPlural", false, false),
+                binary("bothSingle", false, false),
+                binary("differentPlurality", true, false),
+                binary("bothPresentDifferent3rdPerson", false, false),
+                binary("differentTense", false, false),
+                binary("bothPresentTenseSame3rdPerson", false, false));
+    }
+
+    @Test
+    public void modifierFeatures() {
+        // last children "market" and "markets": the prefixes of 6 characters are the same
+        assertFeatures(new ModifierFeatures(calc), new ModifierFeatures(calc), attackVerb, bombed,
+                binary("latterEventIsDefinite", false, false),
+                binary("bothNegation", true, true),
+                binary("latterIsLooseModified", false, false),
+                binary("latterIsStrictlyModified", false, false),
+                numeric("lastChildNodeDice", 1.0, true),
+                numeric("childNodeDice", 1.0, true));
+
+        assertFeatures(new ModifierFeatures(calc), new ModifierFeatures(calc), bombed, attackNoun,
+                binary("latterEventIsDefinite", true, false),
+                binary("latterIsLooseModified", true, false),
+                binary("latterIsStrictlyModified", true, false),
+                numeric("lastChildNodeDice", 0.0, true),
+                numeric("childNodeDice", 0.0, true));
+
+        // the child string of a mention with one child is "null market", its suffix " market" shares 5
+        // of its 6 bigrams with "markets"
+        assertFeatures(new ModifierFeatures(calc), new ModifierFeatures(calc), explosions, bombed,
+                binary("latterEventIsDefinite", false, false),
+                binary("latterIsLooseModified", false, false),
+                binary("latterIsStrictlyModified", false, false),
+                numeric("lastChildNodeDice", 1.0, true),
+                numeric("childNodeDice", 10.0 / 12, true));
+    }
+
+    @Test
+    public void semaforRoleFeatures() {
+        // "the police" (9 bigrams) and "soldiers" (7 bigrams) only share "ol", the relaxed Dice is
+        // the one of the prefixes "the poli" and "soldiers", of 7 bigrams each; "the market" (9
+        // bigrams) and "the markets" (10 bigrams) share 9
+        assertFeatures(new SemaforRoleFeatures(calc), new SemaforRoleFeatures(calc), attackVerb, bombed,
+                binary("semafor_subString_Agent", false, false),
+                numeric("semafor_entityClusterSimilarity_Agent", 2.0 / 14, false),
+                numeric("semafor_surfaceDice_Agent", 2.0 / 16, false),
+                binary("semafor_subString_Patient", true, false),
+                numeric("semafor_entityClusterSimilarity_Patient", 1.0, false),
+                numeric("semafor_surfaceDice_Patient", 18.0 / 19, false));
+
+        assertFeatures(new SemaforRoleFeatures(calc), new SemaforRoleFeatures(calc), attackNoun, attackVerb,
+                binary("semafor_subString_Patient", true, false),
+                numeric("semafor_entityClusterSimilarity_Patient", 1.0, false),
+                numeric("semafor_surfaceDice_Patient", 1.0, false));
+
+        assertFeatures(new SemaforRoleFeatures(calc), new SemaforRoleFeatures(calc), bombed, explosions);
+    }
+
+    @Test
+    public void agentPatientFeatures() {
+        EventMentionTable table = new EventMentionTable(aJCas);
+        Set<String> lowConfidentAnnotatorNames = new HashSet<String>();
+
+        // the agents are "The police" and "Soldiers", with lemmas "the police" and "soldier", and
+        // head lemmas "police" and "soldier" that share "ol" out of 5 and 6 bigrams
+        String[] agentFeatures = {
+                binary("bothAnnotatedWithAgent", true, true),
+                binary("agentExactSurfaceMatch", false, false),
+                numeric("agentSurfaceDice", 2.0 / 16, false),
+                numeric("agentSurfaceRelaxedDice", 2.0 / 14, false),
+                binary("agentCoref", true, false),
+                numeric("agentWordnetSim", 2.0 / 15, false),
+                numeric("agentHeadWordnetSim", 2.0 / 11, false),
+                binary("agentSubString", false, false),
+                numeric("agentOverlapSimilarity", 0.0, false)};
+        String[] patientFeatures = new String[agentFeatures.length];
+        for (int i = 0; i < agentFeatures.length; i++) {
+            patientFeatures[i] = agentFeatures[i].replace("Agent", "Patient").replace("agent", "patient");
+        }
+
+        List<String> bothFeatures = new ArrayList<String>(Arrays.asList(agentFeatures));
+        bothFeatures.addAll(Arrays.asList(patientFeatures));
+        assertFeatures(new AgentPatientFeatures(aJCas, table, calc, lowConfidentAnnotatorNames),
+                new AgentPatientFeatures(aJCas, table, calc, lowConfidentAnnotatorNames), attackVerb, bombed,
+                bothFeatures.toArray(new String[bothFeatures.size()]));
+
+        // the first agent of a mention with two is compared, but only as an agent
+        assertFeatures(new AgentPatientFeatures(aJCas, table, calc, lowConfidentAnnotatorNames),
+                new AgentPatientFeatures(aJCas, table, calc, lowConfidentAnnotatorNames), attackVerb,
+                explosions, agentFeatures);
+
+        assertFeatures(new AgentPatientFeatures(aJCas, table, calc, lowConfidentAnnotatorNames),
+                new AgentPatientFeatures(aJCas, table, calc, lowConfidentAnnotatorNames), attackVerb,
+                attackNoun);
+    }
+
+    @Test
+    public void mentionWithoutHeadTokenHasNoWordFormFeatures() {
+        attackVerb.setHeadWord(null);
+
+        WordFormFeatures generator = new WordFormFeatures();
+        generator.prepare(aJCas, new EventMentionPairIndex(aJCas));
+        assertTrue(generator.createFeatures(aJCas, attackVerb, bombed).isEmpty());
+        assertTrue(generator.createFeatures(aJCas, bombed, attackVerb).isEmpty());
+        // the tense features are always there when both mentions have a head token
+        assertEquals(3, generator.createFeatures(aJCas, bombed, attackNoun).size());
+    }
+
+    /**
+     * Check the features of a pair from a prepared generator and from one that is not prepared.
+     */
+    private static void assertFeatures(MentionCachedFeatureGenerator<?> prepared,
+                                       MentionCachedFeatureGenerator<?> notPrepared, EventMention event1,
+                                       EventMention event2, String... expected) {
+        prepared.prepare(aJCas, new EventMentionPairIndex(aJCas));
+
+        List<String> expectedFeatures = new ArrayList<String>(Arrays.asList(expected));
+        Collections.sort(expectedFeatures);
+        String pair = String.format("%s, mentions [%s] and [%s]", prepared.getClass().getSimpleName(),
+                event1.getCoveredText(), event2.getCoveredText());
+        assertEquals(pair, expectedFeatures, describe(prepared.createFeatures(aJCas, event1, event2)));
+        assertEquals(pair, expectedFeatures, describe(notPrepared.createFeatures(aJCas, event1, event2)));
+    }
+
+    private static List<String> describe(List<PairwiseFeature> features) {
+        List<String> descriptions = new ArrayList<String>();
+        for (PairwiseFeature feature : features) {
+            descriptions.add(describe(feature.getName(), feature.getScore(), feature.getFeatureType(),
+                    feature.getDefaultZero()));
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+    private static String describe(String name, double score, String featureType, boolean defaultZero) {
+        return name + ':' + score + ':' + featureType + ':' + defaultZero;
+    }
+
+    private static String binary(String name, boolean isPositive, boolean defaultZero) {
+        return describe(name, isPositive ? 1.0 : 0.0, FeatureType.BINARY.name(), defaultZero);
+    }
+
+    private static String numeric(String name, double score, boolean defaultZero) {
+        return describe(name, score, FeatureType.NUMERIC.name(), defaultZero);
+    }
+
+    /**
+     * An event mention of one token, with the given agents (no agent links if null) and arguments as
+     * role and component pairs.
+     */
+    private static EventMention createMention(int[][] spans, List<Word> words, int token,
+                                              List<EntityBasedComponent> agents, Object... roleArguments) {
+        EventMention mention = new EventMention(aJCas, spans[token][0], spans[token][1]);
+        mention.setEventType("event");
+        mention.setHeadWord(words.get(token));
+
+        if (agents != null) {
+            List<EntityBasedComponentLink> agentLinks = new ArrayList<EntityBasedComponentLink>();
+            for (EntityBasedComponent agent : agents) {
+                EntityBasedComponentLink link = new EntityBasedComponentLink(aJCas);
+                link.setEventMention(mention);
+                link.setComponent(agent);
+                link.setLinkType("agent");
+                link.addToIndexes();
+                agentLinks.add(link);
+            }
+            mention.setAgentLinks(FSCollectionFactory.createFSList(aJCas, agentLinks));
+        }
+
+        if (roleArguments.length > 0) {
+            List<EventMentionArgumentLink> argumentLinks = new ArrayList<EventMentionArgumentLink>();
+            for (int i = 0; i < roleArguments.length; i += 2) {
+                EventMentionArgumentLink link = new EventMentionArgumentLink(aJCas);
+                link.setEventMention(mention);
+                link.setVerbNetRoleName((String) roleArguments[i]);
+                link.setArgument((EntityBasedComponent) roleArguments[i + 1]);
+                link.addToIndexes();
+                argumentLinks.add(link);
+            }
+            mention.setArguments(FSCollectionFactory.createFSList(aJCas, argumentLinks));
+        }
+
+        mention.addToIndexes();
+        return mention;
+    }
+
+    /**
+     * A component from the first to the last token, headed by the last one, in one entity mention of
+     * the cluster.
+     */
+    private static EntityBasedComponent createComponent(int[][] spans, List<Word> words, int first, int last,
+                                                        EntityCoreferenceCluster cluster) {
+        EntityMention entityMention = new EntityMention(aJCas, spans[first][0], spans[last][1]);
+        entityMention.setEntityCoreferenceClusters(FSCollectionFactory.createFSList(aJCas,
+                Collections.singletonList(cluster)));
+        entityMention.addToIndexes();
+
+        EntityBasedComponent component = new EntityBasedComponent(aJCas, spans[first][0], spans[last][1]);
+        component.setHeadWord(words.get(last));
+        component.setContainingEntityMentions(FSCollectionFactory.createFSList(aJCas,
+                Collections.singletonList(entityMention)));
+        component.addToIndexes();
+        return component;
+    }
+
+    private static void setClusterMentions(EntityCoreferenceCluster cluster, EntityBasedComponent... components) {
+        List<EntityMention> entityMentions = new ArrayList<EntityMention>();
+        for (EntityBasedComponent component : components) {
+            entityMentions.addAll(FSCollectionFactory.create(component.getContainingEntityMentions(),
+                    EntityMention.class));
+        }
+        cluster.setEntityMentions(FSCollectionFactory.createFSList(aJCas, entityMentions));
+        cluster.addToIndexes();
+    }
+}
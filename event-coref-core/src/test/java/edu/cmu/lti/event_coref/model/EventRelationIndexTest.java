@@ -0,0 +1,118 @@
+package edu.cmu.lti.event_coref.model;
+
+import edu.cmu.lti.event_coref.DefaultConfigs;
+import edu.cmu.lti.event_coref.type.EventCoreferenceCluster;
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.utils.EventRelationUtils;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.fit.util.FSCollectionFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The index must give the relations of {@link EventRelationUtils#getRelation(List, List, List,
+ * EventMention, EventMention, boolean)} for every pair of mentions, on random clusters where partial
+ * clusters share children and parents, and parents are in full clusters.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class EventRelationIndexTest {
+    private static final int numMentions = 40;
+
+    private static final int numDocuments = 20;
+
+    @Test
+    public void indexGivesScannedRelations() throws Exception {
+        JCas aJCas = JCasFactory.createJCas(TypeSystemDescriptionFactory
+                .createTypeSystemDescription(DefaultConfigs.TypeSystemDescriptorName));
+        Random random = new Random(11);
+
+        for (int doc = 0; doc < numDocuments; doc++) {
+            aJCas.reset();
+            List<EventMention> mentions = new ArrayList<EventMention>();
+            for (int i = 0; i < numMentions; i++) {
+                EventMention mention = new EventMention(aJCas, i * 2, i * 2 + 1);
+                mention.addToIndexes();
+                mentions.add(mention);
+            }
+
+            List<EventCoreferenceCluster> fullClusters = createFullClusters(aJCas, mentions, random);
+            List<EventCoreferenceCluster> memberClusters = createPartialClusters(aJCas, mentions, random);
+            List<EventCoreferenceCluster> subeventClusters = createPartialClusters(aJCas, mentions, random);
+
+            EventRelationIndex index = new EventRelationIndex(fullClusters, memberClusters, subeventClusters);
+            for (EventMention event1 : mentions) {
+                for (EventMention event2 : mentions) {
+                    if (event1 == event2) {
+                        continue;
+                    }
+                    for (boolean getProbagatedRelations : new boolean[]{true, false}) {
+                        String pair = String.format("Document %d, mentions %d and %d, propagated %s", doc,
+                                event1.getBegin(), event2.getBegin(), getProbagatedRelations);
+                        assertEquals(pair, EventRelationUtils.getRelation(fullClusters, memberClusters,
+                                        subeventClusters, event1, event2, getProbagatedRelations),
+                                index.getRelation(event1, event2, getProbagatedRelations));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Disjoint full clusters over part of the mentions.
+     */
+    private static List<EventCoreferenceCluster> createFullClusters(JCas aJCas, List<EventMention> mentions,
+                                                                    Random random) {
+        List<EventMention> shuffled = new ArrayList<EventMention>(mentions);
+        Collections.shuffle(shuffled, random);
+
+        List<EventCoreferenceCluster> clusters = new ArrayList<EventCoreferenceCluster>();
+        int start = 0;
+        while (start < shuffled.size() * 2 / 3) {
+            int size = 2 + random.nextInt(3);
+            List<EventMention> children = shuffled.subList(start, Math.min(start + size, shuffled.size()));
+            clusters.add(createCluster(aJCas, null, children));
+            start += size;
+        }
+        return clusters;
+    }
+
+    /**
+     * Partial clusters with a random parent each, where a mention can be the child of several clusters.
+     */
+    private static List<EventCoreferenceCluster> createPartialClusters(JCas aJCas, List<EventMention> mentions,
+                                                                       Random random) {
+        List<EventCoreferenceCluster> clusters = new ArrayList<EventCoreferenceCluster>();
+        int numClusters = 3 + random.nextInt(6);
+        for (int i = 0; i < numClusters; i++) {
+            EventMention parent = mentions.get(random.nextInt(mentions.size()));
+            List<EventMention> children = new ArrayList<EventMention>();
+            int size = 1 + random.nextInt(4);
+            while (children.size() < size) {
+                EventMention child = mentions.get(random.nextInt(mentions.size()));
+                if (child != parent && !children.contains(child)) {
+                    children.add(child);
+                }
+            }
+            clusters.add(createCluster(aJCas, parent, children));
+        }
+        return clusters;
+    }
+
+    private static EventCoreferenceCluster createCluster(JCas aJCas, EventMention parent,
+                                                         List<EventMention> children) {
+        EventCoreferenceCluster cluster = new EventCoreferenceCluster(aJCas);
+        cluster.setParentEventMention(parent);
+        cluster.setChildEventMentions(FSCollectionFactory.createFSList(aJCas, children));
+        cluster.addToIndexes();
+        return cluster;
+    }
+}
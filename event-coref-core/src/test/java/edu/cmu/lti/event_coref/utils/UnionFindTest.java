@@ -0,0 +1,285 @@
+package edu.cmu.lti.event_coref.utils;
+
+import gnu.trove.list.array.TIntArrayList;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Union and find must give the transitive closure of the links, finds must shorten the paths they
+ * walk, and the clusters must be the ones of the previous Sudoku clustering whenever that one was
+ * transitive, and merge the clusters it left apart otherwise.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class UnionFindTest {
+    @Test
+    public void unionAndFind() {
+        UnionFind sets = new UnionFind(5);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, sets.find(i));
+            assertEquals(1, sets.getSetSize(i));
+        }
+
+        assertTrue(sets.union(0, 1));
+        assertFalse(sets.union(1, 0));
+        assertTrue(sets.connected(0, 1));
+        assertFalse(sets.connected(0, 2));
+        assertEquals(sets.find(0), sets.find(1));
+        assertEquals(2, sets.getSetSize(1));
+        assertEquals(1, sets.getSetSize(2));
+    }
+
+    @Test
+    public void mergesAreTransitive() {
+        UnionFind sets = new UnionFind(6);
+        sets.union(0, 1);
+        sets.union(2, 3);
+        sets.union(4, 5);
+        assertFalse(sets.connected(0, 3));
+
+        // 1 - 2 bridges the first two sets, then 3 - 4 the third one
+        assertTrue(sets.union(1, 2));
+        assertTrue(sets.connected(0, 3));
+        assertFalse(sets.connected(0, 4));
+        assertTrue(sets.union(3, 4));
+        for (int i = 1; i < 6; i++) {
+            assertTrue(sets.connected(0, i));
+        }
+        assertEquals(6, sets.getSetSize(5));
+        assertFalse(sets.union(5, 0));
+    }
+
+    @Test
+    public void findShortensPath() {
+        UnionFind sets = new UnionFind(8);
+        // equal sizes put the second root under the first, which builds 7 -> 6 -> 4 -> 0
+        sets.union(0, 1);
+        sets.union(2, 3);
+        sets.union(0, 2);
+        sets.union(4, 5);
+        sets.union(6, 7);
+        sets.union(4, 6);
+        sets.union(0, 4);
+        assertEquals(3, getDepth(sets, 7));
+
+        // path halving points every other node of the path to its grand parent
+        assertEquals(0, sets.find(7));
+        assertEquals(2, getDepth(sets, 7));
+        assertEquals(4, sets.getParent(7));
+        assertEquals(0, sets.find(7));
+        assertEquals(1, getDepth(sets, 7));
+        assertEquals(0, sets.getParent(7));
+        assertEquals(8, sets.getSetSize(7));
+    }
+
+    @Test
+    public void setsAreTransitiveClosure() {
+        Random random = new Random(5);
+        int numElements = 30;
+        for (int trial = 0; trial < 50; trial++) {
+            List<int[]> links = createLinks(random, numElements, random.nextInt(40));
+            UnionFind sets = new UnionFind(numElements);
+            for (int[] link : links) {
+                sets.union(link[0], link[1]);
+            }
+
+            Set<Set<Integer>> expected = getConnectedComponents(links, numElements);
+            assertEquals("Trial " + trial, expected, toSets(sets.getSets(2)));
+            for (int i = 0; i < numElements; i++) {
+                for (int j = 0; j < numElements; j++) {
+                    assertEquals(isInSameSet(expected, i, j), sets.connected(i, j));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void setsAreOrderedBySmallestElement() {
+        UnionFind sets = new UnionFind(7);
+        sets.union(5, 6);
+        sets.union(1, 4);
+        sets.union(4, 2);
+
+        List<TIntArrayList> clusters = sets.getSets(2);
+        assertEquals(2, clusters.size());
+        assertEquals(new TIntArrayList(new int[]{1, 2, 4}), clusters.get(0));
+        assertEquals(new TIntArrayList(new int[]{5, 6}), clusters.get(1));
+        assertEquals(4, sets.getSets(1).size());
+    }
+
+    @Test
+    public void clustersOfPreviousClustering() {
+        // the links are added in this order, each one touches at most one earlier cluster, so the
+        // previous clustering was transitive
+        int[][] links = {{0, 1}, {1, 2}, {3, 4}, {5, 3}, {6, 7}, {2, 0}};
+        assertEquals(getPreviousClusters(links), toSets(union(links, 8).getSets(2)));
+
+        // 2 - 3 bridges two earlier clusters, the previous clustering added both mentions to both
+        int[][] bridgedLinks = {{0, 1}, {3, 4}, {2, 3}, {1, 2}, {5, 6}};
+        Set<Set<Integer>> previous = getPreviousClusters(bridgedLinks);
+        assertEquals(new HashSet<Set<Integer>>(Arrays.asList(
+                new HashSet<Integer>(Arrays.asList(0, 1, 2)),
+                new HashSet<Integer>(Arrays.asList(1, 2, 3, 4)),
+                new HashSet<Integer>(Arrays.asList(5, 6)))), previous);
+        assertEquals(new HashSet<Set<Integer>>(Arrays.asList(
+                new HashSet<Integer>(Arrays.asList(0, 1, 2, 3, 4)),
+                new HashSet<Integer>(Arrays.asList(5, 6)))), toSets(union(bridgedLinks, 7).getSets(2)));
+    }
+
+    @Test
+    public void previousClustersAreMerged() {
+        // each cluster of the previous clustering lies in one set, and the sets are the unions of the
+        // overlapping previous clusters
+        Random random = new Random(9);
+        int numElements = 20;
+        for (int trial = 0; trial < 50; trial++) {
+            List<int[]> linkList = createLinks(random, numElements, 1 + random.nextInt(15));
+            int[][] links = linkList.toArray(new int[linkList.size()][]);
+            Set<Set<Integer>> sets = toSets(union(links, numElements).getSets(2));
+            assertEquals("Trial " + trial, mergeOverlapping(getPreviousClusters(links)), sets);
+        }
+    }
+
+    private static int getDepth(UnionFind sets, int element) {
+        int depth = 0;
+        while (sets.getParent(element) != element) {
+            element = sets.getParent(element);
+            depth++;
+        }
+        return depth;
+    }
+
+    private static UnionFind union(int[][] links, int numElements) {
+        UnionFind sets = new UnionFind(numElements);
+        for (int[] link : links) {
+            sets.union(link[0], link[1]);
+        }
+        return sets;
+    }
+
+    private static List<int[]> createLinks(Random random, int numElements, int numLinks) {
+        List<int[]> links = new ArrayList<int[]>();
+        for (int i = 0; i < numLinks; i++) {
+            links.add(new int[]{random.nextInt(numElements), random.nextInt(numElements)});
+        }
+        return links;
+    }
+
+    /**
+     * The clustering of SudokuUnificationAnnotator before union-find: a link is added to every
+     * cluster sharing one of its mentions, or starts a new cluster.
+     */
+    private static Set<Set<Integer>> getPreviousClusters(int[][] links) {
+        List<Set<Integer>> clusters = new ArrayList<Set<Integer>>();
+        for (int[] link : links) {
+            boolean inPreviousCluster = false;
+            for (Set<Integer> cluster : clusters) {
+                if (cluster.contains(link[0]) || cluster.contains(link[1])) {
+                    cluster.add(link[0]);
+                    cluster.add(link[1]);
+                    inPreviousCluster = true;
+                }
+            }
+            if (!inPreviousCluster) {
+                Set<Integer> cluster = new HashSet<Integer>();
+                cluster.add(link[0]);
+                cluster.add(link[1]);
+                clusters.add(cluster);
+            }
+        }
+
+        // a link of a mention with itself is a cluster of one mention, which is not output
+        Set<Set<Integer>> outputClusters = new HashSet<Set<Integer>>();
+        for (Set<Integer> cluster : clusters) {
+            if (cluster.size() >= 2) {
+                outputClusters.add(cluster);
+            }
+        }
+        return outputClusters;
+    }
+
+    private static Set<Set<Integer>> mergeOverlapping(Set<Set<Integer>> clusters) {
+        List<Set<Integer>> merged = new ArrayList<Set<Integer>>();
+        for (Set<Integer> cluster : clusters) {
+            Set<Integer> mergedCluster = new HashSet<Integer>(cluster);
+            for (Iterator<Set<Integer>> iterator = merged.iterator(); iterator.hasNext(); ) {
+                Set<Integer> other = iterator.next();
+                if (!Collections.disjoint(other, mergedCluster)) {
+                    mergedCluster.addAll(other);
+                    iterator.remove();
+                }
+            }
+            merged.add(mergedCluster);
+        }
+        return new HashSet<Set<Integer>>(merged);
+    }
+
+    /**
+     * The connected components of at least two elements, by a depth first search.
+     */
+    private static Set<Set<Integer>> getConnectedComponents(List<int[]> links, int numElements) {
+        List<List<Integer>> neighbors = new ArrayList<List<Integer>>();
+        for (int i = 0; i < numElements; i++) {
+            neighbors.add(new ArrayList<Integer>());
+        }
+        for (int[] link : links) {
+            neighbors.get(link[0]).add(link[1]);
+            neighbors.get(link[1]).add(link[0]);
+        }
+
+        Set<Set<Integer>> components = new HashSet<Set<Integer>>();
+        boolean[] visited = new boolean[numElements];
+        for (int start = 0; start < numElements; start++) {
+            if (visited[start]) {
+                continue;
+            }
+            Set<Integer> component = new HashSet<Integer>();
+            Deque<Integer> stack = new ArrayDeque<Integer>();
+            stack.push(start);
+            visited[start] = true;
+            while (!stack.isEmpty()) {
+                int element = stack.pop();
+                component.add(element);
+                for (int neighbor : neighbors.get(element)) {
+                    if (!visited[neighbor]) {
+                        visited[neighbor] = true;
+                        stack.push(neighbor);
+                    }
+                }
+            }
+            if (component.size() >= 2) {
+                components.add(component);
+            }
+        }
+        return components;
+    }
+
+    private static boolean isInSameSet(Set<Set<Integer>> sets, int i, int j) {
+        if (i == j) {
+            return true;
+        }
+        for (Set<Integer> set : sets) {
+            if (set.contains(i) && set.contains(j)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<Set<Integer>> toSets(List<TIntArrayList> clusters) {
+        Set<Set<Integer>> sets = new HashSet<Set<Integer>>();
+        for (TIntArrayList cluster : clusters) {
+            Set<Integer> set = new HashSet<Integer>();
+            for (int i = 0; i < cluster.size(); i++) {
+                set.add(cluster.get(i));
+            }
+            sets.add(set);
+        }
+        return sets;
+    }
+}
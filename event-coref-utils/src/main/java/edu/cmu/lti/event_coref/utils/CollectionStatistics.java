@@ -0,0 +1,151 @@
+package edu.cmu.lti.event_coref.utils;
+
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.fit.component.Resource_ImplBase;
+import org.apache.uima.fit.factory.ExternalResourceFactory;
+import org.apache.uima.resource.ExternalResourceDependency;
+import org.apache.uima.resource.ResourceSpecifier;
+import org.apache.uima.util.InvalidXMLException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collection level counters of an annotator, shared by all the replicas of it when documents are
+ * processed by several copies of the same engine chain (see
+ * edu.cmu.lti.event_coref.pipeline.MultiThreadedPipeline).
+ * <p/>
+ * The statistics are an external resource of the annotator under {@link #RESOURCE_KEY}. The runner
+ * creates them for each run with {@link #bind(AnalysisEngineDescription)} and creates all the
+ * replicas with one resource manager, so the replicas of an annotator get the same statistics and
+ * other annotators and runs get their own. An annotator that is not bound, e.g. when it is run alone,
+ * gets statistics of its own.
+ * <p/>
+ * Each replica calls {@link #register(CollectionStatistics)} in initialize, adds its counts while
+ * processing, and calls {@link #complete()} in collectionProcessComplete, which returns true only
+ * for the last replica, at which time the counts cover the whole collection. Writers that number the
+ * documents use {@link #nextDocumentNumber()}, so the numbers are unique over the replicas.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class CollectionStatistics extends Resource_ImplBase {
+    public static final String RESOURCE_KEY = "CollectionStatistics";
+
+    private final Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+
+    private final AtomicInteger documentCounter = new AtomicInteger();
+
+    private int activeReplicas = 0;
+
+    /**
+     * Bind new statistics to each annotator of the engine chain that uses them. Replicas created from
+     * the chain with the same resource manager share the statistics of each annotator.
+     *
+     * @param engineDesc the engine chain, primitive or aggregate
+     * @throws InvalidXMLException
+     */
+    public static void bind(AnalysisEngineDescription engineDesc) throws InvalidXMLException {
+        bind(engineDesc, RESOURCE_KEY);
+    }
+
+    private static void bind(AnalysisEngineDescription engineDesc, String resourceName)
+            throws InvalidXMLException {
+        if (engineDesc.isPrimitive()) {
+            ExternalResourceDependency[] dependencies = engineDesc.getExternalResourceDependencies();
+            if (dependencies == null) {
+                return;
+            }
+            for (ExternalResourceDependency dependency : dependencies) {
+                if (RESOURCE_KEY.equals(dependency.getKey())) {
+                    ExternalResourceFactory.bindResource(engineDesc, RESOURCE_KEY, ExternalResourceFactory
+                            .createExternalResourceDescription(resourceName, CollectionStatistics.class));
+                    return;
+                }
+            }
+            return;
+        }
+
+        for (Map.Entry<String, ResourceSpecifier> delegate : engineDesc.getDelegateAnalysisEngineSpecifiers()
+                .entrySet()) {
+            if (delegate.getValue() instanceof AnalysisEngineDescription) {
+                // the delegate key makes the resource name unique to the annotator
+                bind((AnalysisEngineDescription) delegate.getValue(), resourceName + "/" + delegate.getKey());
+            }
+        }
+    }
+
+    /**
+     * @param boundStatistics the statistics injected in the annotator, null if it is not bound
+     * @return the statistics of the annotator for this run
+     */
+    public static CollectionStatistics ofRun(CollectionStatistics boundStatistics) {
+        return boundStatistics == null ? new CollectionStatistics() : boundStatistics;
+    }
+
+    /**
+     * Register a replica of the annotator.
+     *
+     * @param boundStatistics the statistics injected in the annotator, null if it is not bound
+     * @return the statistics of the annotator for this run, registered for this replica
+     */
+    public static CollectionStatistics register(CollectionStatistics boundStatistics) {
+        CollectionStatistics statistics = ofRun(boundStatistics);
+        statistics.addReplica();
+        return statistics;
+    }
+
+    private synchronized void addReplica() {
+        activeReplicas++;
+    }
+
+    /**
+     * @return number of replicas registered and not completed yet
+     */
+    public synchronized int getNumActiveReplicas() {
+        return activeReplicas;
+    }
+
+    /**
+     * @return true if this is the last replica to complete
+     */
+    public synchronized boolean complete() {
+        activeReplicas--;
+        return activeReplicas <= 0;
+    }
+
+    /**
+     * @return the number of the next document over all replicas, starting from 1
+     */
+    public int nextDocumentNumber() {
+        return documentCounter.incrementAndGet();
+    }
+
+    public synchronized void add(String name, int count) {
+        Integer oldCount = counts.get(name);
+        counts.put(name, oldCount == null ? count : oldCount + count);
+    }
+
+    /**
+     * Add all the counts of a replica.
+     *
+     * @param replicaCounts
+     */
+    public synchronized void addAll(Map<String, Integer> replicaCounts) {
+        for (Map.Entry<String, Integer> count : replicaCounts.entrySet()) {
+            add(count.getKey(), count.getValue());
+        }
+    }
+
+    public synchronized int getCount(String name) {
+        Integer count = counts.get(name);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return a copy of the counts, in the order they are first added
+     */
+    public synchronized Map<String, Integer> getCounts() {
+        return new LinkedHashMap<String, Integer>(counts);
+    }
+}
@@ -0,0 +1,108 @@
+package edu.cmu.lti.event_coref.utils;
+
+/**
+ * A histogram of long values with power of two buckets, so it takes constant memory however many
+ * values are recorded. Percentiles are approximated by interpolating linearly inside the bucket that
+ * contains them, so they are within a factor of two of the exact value, and exact when the bucket
+ * only holds one distinct value. Negative values (e.g. a heap delta after a
+ * garbage collection) have their own buckets. The histogram can be shared by threads.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class Histogram {
+    // bucket i holds the values whose magnitude has i significant bits, bucket 0 holds zero
+    private final long[] positiveBuckets = new long[65];
+
+    private final long[] negativeBuckets = new long[65];
+
+    private long count = 0;
+
+    private long sum = 0;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max = Long.MIN_VALUE;
+
+    public synchronized void record(long value) {
+        if (value >= 0) {
+            positiveBuckets[64 - Long.numberOfLeadingZeros(value)]++;
+        } else {
+            // the magnitude of Long.MIN_VALUE is still negative, it has 64 bits
+            long magnitude = -value;
+            negativeBuckets[magnitude < 0 ? 64 : 64 - Long.numberOfLeadingZeros(magnitude)]++;
+        }
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getSum() {
+        return sum;
+    }
+
+    public synchronized double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public synchronized long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public synchronized long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @return the quantile, interpolated between the bounds of its bucket, which are clamped to the
+     * recorded range
+     */
+    public synchronized long getPercentile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = negativeBuckets.length - 1; i >= 1; i--) {
+            if (seen + negativeBuckets[i] >= rank) {
+                // magnitudes from 2^(i-1) to 2^i - 1, the largest magnitude comes first
+                return interpolate(-Math.pow(2, i) + 1, -Math.pow(2, i - 1), rank - seen, negativeBuckets[i]);
+            }
+            seen += negativeBuckets[i];
+        }
+        for (int i = 0; i < positiveBuckets.length; i++) {
+            if (seen + positiveBuckets[i] >= rank) {
+                double lower = i == 0 ? 0 : Math.pow(2, i - 1);
+                return interpolate(lower, Math.pow(2, i) - 1, rank - seen, positiveBuckets[i]);
+            }
+            seen += positiveBuckets[i];
+        }
+        return max;
+    }
+
+    /**
+     * @return the value of the given rank in a bucket, as if its values were evenly spread
+     */
+    private long interpolate(double lower, double upper, long rankInBucket, long bucketCount) {
+        lower = Math.max(min, lower);
+        upper = Math.min(max, upper);
+        double value = lower + (upper - lower) * rankInBucket / bucketCount;
+        return Math.max(min, Math.min(max, Math.round(value)));
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < positiveBuckets.length; i++) {
+            positiveBuckets[i] = 0;
+            negativeBuckets[i] = 0;
+        }
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,218 @@
+package edu.cmu.lti.event_coref.utils;
+
+import org.apache.uima.resource.ResourceInitializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A process wide registry of heavy read-only models (embeddings, gazetteers, frame maps...), so that
+ * each model is loaded once per JVM, however many annotators, pipelines or replicas use it.
+ * <p/>
+ * Models are keyed by a name and the path they are loaded from, and reference counted: an annotator
+ * acquires its models in initialize and releases them in destroy, and a model is dropped (and closed
+ * if it is {@link Closeable}) when its last user releases it. A shared model is used by several
+ * threads at once when documents are processed in parallel, so it must not be modified after
+ * loading. Parsers that keep state while parsing (CoreNLP, FANSE, Semafor...) are registered as a
+ * {@link Pool} of instances instead, from which each document takes an instance for its own use.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class ModelRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(ModelRegistry.class);
+
+    private static final Map<String, Entry> models = new HashMap<String, Entry>();
+
+    /**
+     * Creates a model when it is not in the registry.
+     *
+     * @param <T> type of the model
+     */
+    public interface Loader<T> {
+        T load() throws Exception;
+    }
+
+    /**
+     * Instances of a model that is not thread safe, shared by the annotators of the same configuration.
+     * Each user adds itself in initialize, which loads a new instance when there are fewer instances
+     * than users, so there are never more instances than when each annotator loads its own. A
+     * document takes a free instance with {@link #take()} and gives it back when it is parsed.
+     *
+     * @param <T> type of the model
+     */
+    public static class Pool<T> {
+        private final Loader<T> loader;
+
+        private final Deque<T> freeInstances = new ArrayDeque<T>();
+
+        private int numInstances = 0;
+
+        private int numUsers = 0;
+
+        public Pool(Loader<T> loader) {
+            this.loader = loader;
+        }
+
+        /**
+         * Add a user of the pool, loading an instance for it if needed.
+         *
+         * @throws ResourceInitializationException if the instance cannot be loaded
+         */
+        public void addUser() throws ResourceInitializationException {
+            synchronized (this) {
+                numUsers++;
+                if (numInstances >= numUsers) {
+                    return;
+                }
+                numInstances++;
+            }
+            try {
+                give(loader.load());
+            } catch (Exception e) {
+                synchronized (this) {
+                    numInstances--;
+                    numUsers--;
+                }
+                throw new ResourceInitializationException(e);
+            }
+        }
+
+        /**
+         * Remove a user of the pool, dropping a free instance that is no longer needed.
+         */
+        public synchronized void removeUser() {
+            numUsers--;
+            if (numInstances > numUsers && !freeInstances.isEmpty()) {
+                freeInstances.pop();
+                numInstances--;
+            }
+        }
+
+        /**
+         * @return a free instance, loading a new one if all are in use
+         * @throws Exception if a new instance cannot be loaded
+         */
+        public T take() throws Exception {
+            synchronized (this) {
+                if (!freeInstances.isEmpty()) {
+                    return freeInstances.pop();
+                }
+                numInstances++;
+            }
+            try {
+                return loader.load();
+            } catch (Exception e) {
+                synchronized (this) {
+                    numInstances--;
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Give back an instance taken from the pool.
+         *
+         * @param instance
+         */
+        public synchronized void give(T instance) {
+            freeInstances.push(instance);
+        }
+
+        /**
+         * @return number of instances loaded, free or in use
+         */
+        public synchronized int getNumInstances() {
+            return numInstances;
+        }
+    }
+
+    private static class Entry {
+        private Object model;
+
+        private int referenceCount = 0;
+    }
+
+    /**
+     * Get the model under the key, loading it if this is its first user.
+     *
+     * @param key    unique name of the model, usually the model type followed by the model path
+     * @param loader creates the model
+     * @return the shared model
+     * @throws ResourceInitializationException if the model cannot be loaded
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T acquire(String key, Loader<T> loader) throws ResourceInitializationException {
+        Entry entry;
+        synchronized (models) {
+            entry = models.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                models.put(key, entry);
+            }
+            entry.referenceCount++;
+        }
+
+        // load outside of the registry lock, so that different models can be loaded at the same time
+        synchronized (entry) {
+            if (entry.model == null) {
+                logger.info(String.format("Loading shared model [%s]", key));
+                try {
+                    entry.model = loader.load();
+                } catch (Exception e) {
+                    release(key);
+                    throw new ResourceInitializationException(e);
+                }
+            }
+            return (T) entry.model;
+        }
+    }
+
+    /**
+     * Release the model under the key, which is dropped when it has no more users.
+     *
+     * @param key
+     */
+    public static void release(String key) {
+        Entry entry;
+        synchronized (models) {
+            entry = models.get(key);
+            if (entry == null) {
+                return;
+            }
+            entry.referenceCount--;
+            if (entry.referenceCount > 0) {
+                return;
+            }
+            models.remove(key);
+        }
+
+        synchronized (entry) {
+            if (entry.model instanceof Closeable) {
+                try {
+                    ((Closeable) entry.model).close();
+                } catch (IOException e) {
+                    logger.warn(String.format("Cannot close shared model [%s]", key), e);
+                }
+            }
+            entry.model = null;
+        }
+        logger.info(String.format("Released shared model [%s]", key));
+    }
+
+    /**
+     * @param key
+     * @return the number of users of the model, 0 if it is not loaded
+     */
+    public static int getReferenceCount(String key) {
+        synchronized (models) {
+            Entry entry = models.get(key);
+            return entry == null ? 0 : entry.referenceCount;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package edu.cmu.lti.event_coref.utils;
+
+import au.com.bytecode.opencsv.CSVWriter;
+
+import java.io.*;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Process wide processing metrics, each is a {@link Histogram} under a name. The names are
+ * "component.metric_unit", e.g. "05-FanseAnnotator.wall_us". The replicas of a pipeline record into
+ * the same histograms, which are reported as CSV or JSON, one line or object per metric. The metrics
+ * cover one run: they are dropped when an engine chain instrumented for another run is initialized
+ * (see {@link #startRun(String)}), so the metrics of different pipelines are not merged.
+ * <p/>
+ * The percentiles p50, p90 and p99 are approximations, interpolated inside the power of two bucket
+ * of the histogram that contains them (see {@link Histogram#getPercentile(double)}); count, mean,
+ * min, max and sum are exact.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class ProcessingMetrics {
+    private static final Map<String, Histogram> histograms = new TreeMap<String, Histogram>();
+
+    // the run the metrics belong to, null before the first run
+    private static String currentRun;
+
+    private static final String[] reportColumns = {"metric", "count", "mean", "min", "p50", "p90", "p99", "max",
+            "sum"};
+
+    /**
+     * @param name
+     * @return the histogram of the metric, created when it is first used
+     */
+    public static Histogram get(String name) {
+        synchronized (histograms) {
+            Histogram histogram = histograms.get(name);
+            if (histogram == null) {
+                histogram = new Histogram();
+                histograms.put(name, histogram);
+            }
+            return histogram;
+        }
+    }
+
+    public static void record(String name, long value) {
+        get(name).record(value);
+    }
+
+    /**
+     * Drop all metrics, e.g. before a new run in the same JVM.
+     */
+    public static void reset() {
+        synchronized (histograms) {
+            histograms.clear();
+        }
+    }
+
+    /**
+     * Start recording the metrics of a run, the metrics of the previous run are dropped. All the
+     * replicas of a run call this with the same run id, only the first call of the run drops anything.
+     *
+     * @param runId a name unique to the run
+     */
+    public static void startRun(String runId) {
+        synchronized (histograms) {
+            if (!runId.equals(currentRun)) {
+                histograms.clear();
+                currentRun = runId;
+            }
+        }
+    }
+
+    /**
+     * @return the metrics, sorted by name
+     */
+    public static Map<String, Histogram> getAll() {
+        synchronized (histograms) {
+            return new TreeMap<String, Histogram>(histograms);
+        }
+    }
+
+    private static String[] summarize(String name, Histogram histogram) {
+        return new String[]{name, String.valueOf(histogram.getCount()), String.format(Locale.US, "%.2f", histogram.getMean()),
+                String.valueOf(histogram.getMin()), String.valueOf(histogram.getPercentile(0.5)),
+                String.valueOf(histogram.getPercentile(0.9)), String.valueOf(histogram.getPercentile(0.99)),
+                String.valueOf(histogram.getMax()), String.valueOf(histogram.getSum())};
+    }
+
+    public static void writeCsv(File outputFile) throws IOException {
+        CSVWriter csvWriter = new CSVWriter(new BufferedWriter(new FileWriter(outputFile)));
+        try {
+            csvWriter.writeNext(reportColumns);
+            for (Map.Entry<String, Histogram> metric : getAll().entrySet()) {
+                csvWriter.writeNext(summarize(metric.getKey(), metric.getValue()));
+            }
+        } finally {
+            csvWriter.close();
+        }
+    }
+
+    /**
+     * @return the metrics as a JSON object keyed by metric name
+     */
+    public static String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        boolean firstMetric = true;
+        for (Map.Entry<String, Histogram> metric : getAll().entrySet()) {
+            String[] summary = summarize(metric.getKey(), metric.getValue());
+            json.append(firstMetric ? "" : ",").append("\n  \"").append(summary[0]).append("\": {");
+            for (int i = 1; i < reportColumns.length; i++) {
+                json.append(i == 1 ? "" : ", ").append('"').append(reportColumns[i]).append("\": ").append(summary[i]);
+            }
+            json.append("}");
+            firstMetric = false;
+        }
+        return json.append("\n}\n").toString();
+    }
+
+    public static void writeJson(File outputFile) throws IOException {
+        Writer writer = new BufferedWriter(new FileWriter(outputFile));
+        try {
+            writer.write(toJson());
+        } finally {
+            writer.close();
+        }
+    }
+}
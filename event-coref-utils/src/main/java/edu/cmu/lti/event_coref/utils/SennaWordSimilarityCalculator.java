@@ -1,104 +1,311 @@
 package edu.cmu.lti.event_coref.utils;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Lists;
+import org.apache.uima.resource.ResourceInitializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 
+/**
+ * Cosine similarity between Senna word embeddings.
+ * <p/>
+ * The embeddings can be read from the original Senna text files (embeddings.txt and words.lst), or
+ * from the binary store written by {@link #writeBinary(String, String)}, which is memory-mapped
+ * instead of parsed. The binary store is a float32 matrix with one row per word, following a header
+ * and the precomputed L2 norm of each row; the words are in a separate file sorted in the same order
+ * as the rows. Run {@link #main(String[])} with the convert option to create it once.
+ * <p/>
+ * The calculator is read only after construction, annotators share one per JVM through
+ * {@link #acquire(String, String)}.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
 public class SennaWordSimilarityCalculator {
-  Map<String, List<Double>> wordVectors;
-
     private static final Logger logger = LoggerFactory.getLogger(SennaWordSimilarityCalculator.class);
 
-    public SennaWordSimilarityCalculator(String embeddingsPath, String wordsPath) {
-    logger.info("Preparing Senna Words...");
-        
-    File embeddingsFile = new File(embeddingsPath);
-    File wordsFile = new File(wordsPath);
-
-    List<String> words = new ArrayList<String>();
-    wordVectors = new HashMap<String, List<Double>>();
-
-    BufferedReader wordsIn;
-    try {
-      wordsIn = new BufferedReader(new FileReader(wordsFile));
-
-      while (wordsIn.ready()) {
-        String word = wordsIn.readLine().trim();
-        words.add(word);
-      }
-
-      wordsIn.close();
-
-      BufferedReader embeddingsIn = new BufferedReader(new FileReader(embeddingsFile));
-
-      int count = 0;
-      while (embeddingsIn.ready()) {
-        String embeddings = embeddingsIn.readLine();
-        List<String> embeddingElements = Arrays.asList(embeddings.split(" "));
-        List<Double> embeddingVector = Lists.transform(embeddingElements,
-                new Function<String, Double>() {
-                  @Override
-                  public Double apply(String from) {
-                    return Double.parseDouble(from);
-                  }
+    private static final int BINARY_MAGIC = 0x53454e41; // "SENA"
+
+    private static final int BINARY_VERSION = 1;
+
+    // magic, version, number of words, dimension
+    private static final int BINARY_HEADER_BYTES = 4 * 4;
+
+    // sorted, the position of a word is its row in the vectors
+    private String[] vocabulary;
+
+    private int dimension;
+
+    private float[] norms;
+
+    // row major, either mapped from the binary store or filled from the text files
+    private FloatBuffer vectors;
+
+    /**
+     * Get the calculator of the given files from the {@link ModelRegistry}, call
+     * {@link #release(String, String)} with the same files when it is not used anymore.
+     *
+     * @param embeddingsPath
+     * @param wordsPath
+     * @return the calculator shared in this JVM
+     * @throws ResourceInitializationException
+     */
+    public static SennaWordSimilarityCalculator acquire(final String embeddingsPath, final String wordsPath)
+            throws ResourceInitializationException {
+        return ModelRegistry.acquire(getModelKey(embeddingsPath, wordsPath),
+                new ModelRegistry.Loader<SennaWordSimilarityCalculator>() {
+                    @Override
+                    public SennaWordSimilarityCalculator load() throws Exception {
+                        return new SennaWordSimilarityCalculator(embeddingsPath, wordsPath);
+                    }
                 });
-        wordVectors.put(words.get(count), embeddingVector);
-        count ++;
-      }
-      embeddingsIn.close();
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
-    logger.info("Done preparing Senna words.");
-  }
-
-  public Double getCosineSimilarity(String lemma1, String lemma2) {
-    if (!(wordVectors.containsKey(lemma1) && wordVectors.containsKey(lemma2))) {
-      return -2.0; // indicating faliure
-    }
-    List<Double> vector1 = wordVectors.get(lemma1);
-    List<Double> vector2 = wordVectors.get(lemma2);
-
-    double v1l2 = 0.0;
-    double v2l2 = 0.0;
-    double dotProd = 0.0;
-    for (int i = 0; i < vector1.size(); i++) {
-      double v1 = vector1.get(i);
-      double v2 = vector2.get(i);
-
-      dotProd += v1 * v2;
-      v1l2 += v1 * v1;
-      v2l2 += v2 * v2;
-    }
-    return dotProd / Math.sqrt(v1l2 * v2l2);
-  }
-
-  public static void main(String[] args) {
-    // test the calculator
-      SennaWordSimilarityCalculator senna = new SennaWordSimilarityCalculator(
-              "resources/senna/embeddings.txt", "resources/senna/words.lst");
-
-      Scanner in = new Scanner(System.in);
-      String s;
-      while (true){
-        System.out.println("Enter word1 :");
-        String word1 = in.nextLine().trim().toLowerCase();
-        System.out.println("Enter word2 :");
-        String word2 = in.nextLine().trim().toLowerCase();
-        
-        System.out.println("Similarity is " + senna.getCosineSimilarity(word1,word2));
-      }
-//     System.out.println( senna.getCosineSimilarity("fight", "battle"));
-//     System.out.println( senna.getCosineSimilarity("gunbattle", "shootout"));
-//     System.out.println( senna.getCosineSimilarity("attack","position"));
-//     System.out.println( senna.getCosineSimilarity("capture", "attack"));
-  }
+    }
+
+    public static void release(String embeddingsPath, String wordsPath) {
+        ModelRegistry.release(getModelKey(embeddingsPath, wordsPath));
+    }
+
+    private static String getModelKey(String embeddingsPath, String wordsPath) {
+        return "senna:" + new File(embeddingsPath).getAbsolutePath() + ":" + new File(wordsPath).getAbsolutePath();
+    }
+
+    public SennaWordSimilarityCalculator(String embeddingsPath, String wordsPath) {
+        logger.info("Preparing Senna Words...");
+        try {
+            if (isBinaryStore(new File(embeddingsPath))) {
+                mapBinary(new File(embeddingsPath), new File(wordsPath));
+            } else {
+                logger.info("Reading Senna embeddings from text, consider converting them to the binary store.");
+                readText(new File(embeddingsPath), new File(wordsPath));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            vocabulary = new String[0];
+            norms = new float[0];
+            vectors = FloatBuffer.allocate(0);
+        }
+        logger.info(String.format("Done preparing %d Senna words.", vocabulary.length));
+    }
+
+    private static boolean isBinaryStore(File embeddingsFile) throws IOException {
+        if (embeddingsFile.length() < BINARY_HEADER_BYTES) {
+            return false;
+        }
+        DataInputStream in = new DataInputStream(new FileInputStream(embeddingsFile));
+        try {
+            return in.readInt() == BINARY_MAGIC;
+        } finally {
+            in.close();
+        }
+    }
+
+    private void mapBinary(File embeddingsFile, File wordsFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(embeddingsFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            buffer.getInt(); // magic
+            int version = buffer.getInt();
+            if (version != BINARY_VERSION) {
+                throw new IOException(String.format("Unsupported Senna binary store version %d in %s", version,
+                        embeddingsFile));
+            }
+            int numWords = buffer.getInt();
+            dimension = buffer.getInt();
+
+            norms = new float[numWords];
+            buffer.asFloatBuffer().get(norms);
+            buffer.position(BINARY_HEADER_BYTES + 4 * numWords);
+            vectors = buffer.slice().asFloatBuffer();
+        } finally {
+            // the mapping stays valid after the channel is closed
+            file.close();
+        }
+
+        List<String> words = readLines(wordsFile);
+        if (words.size() != norms.length) {
+            throw new IOException(String.format("Senna binary store has %d rows but %s has %d words",
+                    norms.length, wordsFile, words.size()));
+        }
+        vocabulary = words.toArray(new String[words.size()]);
+    }
+
+    private void readText(File embeddingsFile, File wordsFile) throws IOException {
+        List<String> words = readLines(wordsFile);
+
+        Map<String, float[]> wordVectors = new HashMap<String, float[]>();
+        BufferedReader embeddingsIn = new BufferedReader(new FileReader(embeddingsFile));
+        int count = 0;
+        String line;
+        while ((line = embeddingsIn.readLine()) != null && count < words.size()) {
+            String[] elements = line.trim().split(" ");
+            float[] vector = new float[elements.length];
+            for (int i = 0; i < elements.length; i++) {
+                vector[i] = Float.parseFloat(elements[i]);
+            }
+            dimension = vector.length;
+            wordVectors.put(words.get(count), vector);
+            count++;
+        }
+        embeddingsIn.close();
+
+        vocabulary = wordVectors.keySet().toArray(new String[wordVectors.size()]);
+        Arrays.sort(vocabulary);
+        norms = new float[vocabulary.length];
+        vectors = FloatBuffer.allocate(vocabulary.length * dimension);
+        for (int row = 0; row < vocabulary.length; row++) {
+            float[] vector = wordVectors.get(vocabulary[row]);
+            double squaredNorm = 0;
+            for (float v : vector) {
+                squaredNorm += v * v;
+            }
+            norms[row] = (float) Math.sqrt(squaredNorm);
+            vectors.put(vector);
+        }
+        vectors.rewind();
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        String line;
+        while ((line = in.readLine()) != null) {
+            lines.add(line.trim());
+        }
+        in.close();
+        return lines;
+    }
+
+    /**
+     * Write the embeddings as a binary store that can be memory-mapped by the constructor.
+     *
+     * @param embeddingsPath output path of the float32 matrix
+     * @param wordsPath      output path of the sorted word list
+     * @throws IOException
+     */
+    public void writeBinary(String embeddingsPath, String wordsPath) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(embeddingsPath)));
+        out.writeInt(BINARY_MAGIC);
+        out.writeInt(BINARY_VERSION);
+        out.writeInt(vocabulary.length);
+        out.writeInt(dimension);
+        for (float norm : norms) {
+            out.writeFloat(norm);
+        }
+        for (int i = 0; i < vocabulary.length * dimension; i++) {
+            out.writeFloat(vectors.get(i));
+        }
+        out.close();
+
+        PrintWriter wordsOut = new PrintWriter(new BufferedWriter(new FileWriter(wordsPath)));
+        for (String word : vocabulary) {
+            wordsOut.println(word);
+        }
+        wordsOut.close();
+    }
+
+    /**
+     * @param word
+     * @return the row of the word, or a negative number if the word is not in the vocabulary
+     */
+    private int getRow(String word) {
+        return Arrays.binarySearch(vocabulary, word);
+    }
+
+    public Double getCosineSimilarity(String lemma1, String lemma2) {
+        int row1 = getRow(lemma1);
+        int row2 = getRow(lemma2);
+        if (row1 < 0 || row2 < 0) {
+            return -2.0; // indicating faliure
+        }
+
+        int offset1 = row1 * dimension;
+        int offset2 = row2 * dimension;
+        double dotProd;
+        if (vectors.hasArray()) {
+            float[] array = vectors.array();
+            int arrayOffset = vectors.arrayOffset();
+            dotProd = SimilarityKernels.dot(array, arrayOffset + offset1, array, arrayOffset + offset2, dimension);
+        } else {
+            dotProd = SimilarityKernels.dot(vectors, offset1, offset2, dimension);
+        }
+        return dotProd / ((double) norms[row1] * norms[row2]);
+    }
+
+    /**
+     * Get the embedding of the given word scaled to unit length, the cosine of two such vectors is
+     * their dot product, see {@link SimilarityKernels#cosineOfNormalized(float[], float[])}.
+     *
+     * @param word
+     * @return the normalized embedding, or null if the word is not in the vocabulary
+     */
+    public float[] getNormalizedVector(String word) {
+        int row = getRow(word);
+        if (row < 0) {
+            return null;
+        }
+        float[] vector = new float[dimension];
+        int offset = row * dimension;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = vectors.get(offset + i);
+        }
+        return SimilarityKernels.normalize(vector);
+    }
+
+    /**
+     * Get the embedding of the given word as a primitive array.
+     *
+     * @param word
+     * @return the embedding, or null if the word is not in the vocabulary
+     */
+    public double[] getVector(String word) {
+        int row = getRow(word);
+        if (row < 0) {
+            return null;
+        }
+        double[] vector = new double[dimension];
+        int offset = row * dimension;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = vectors.get(offset + i);
+        }
+        return vector;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int getVocabularySize() {
+        return vocabulary.length;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 5 && args[0].equals("convert")) {
+            // convert <embeddings.txt> <words.lst> <embeddings.bin> <words.sorted.lst>
+            SennaWordSimilarityCalculator senna = new SennaWordSimilarityCalculator(args[1], args[2]);
+            senna.writeBinary(args[3], args[4]);
+            logger.info(String.format("Binary store written to %s and %s", args[3], args[4]));
+            return;
+        }
+
+        // test the calculator
+        SennaWordSimilarityCalculator senna = new SennaWordSimilarityCalculator(
+                "resources/senna/embeddings.txt", "resources/senna/words.lst");
+
+        Scanner in = new Scanner(System.in);
+        while (true) {
+            System.out.println("Enter word1 :");
+            String word1 = in.nextLine().trim().toLowerCase();
+            System.out.println("Enter word2 :");
+            String word2 = in.nextLine().trim().toLowerCase();
+
+            System.out.println("Similarity is " + senna.getCosineSimilarity(word1, word2));
+        }
+    }
 
 }
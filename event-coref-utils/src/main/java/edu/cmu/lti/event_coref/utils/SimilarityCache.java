@@ -0,0 +1,250 @@
+package edu.cmu.lti.event_coref.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of similarity scores keyed by (measure, lemma1, lemma2), shared by all the similarity
+ * calculators in the JVM. At most a given number of scores are kept in memory, the least recently
+ * used ones are evicted first.
+ * <p/>
+ * When backed by a file, the cache is loaded from it at startup and every newly computed score is
+ * appended to it, so that the scores survive between runs. The file is tab separated with one score
+ * per line: measure, lemma1, lemma2, score. Later lines win over earlier ones. The file is loaded
+ * into the bounded cache, so only the last scores of a large file are kept in memory. A score is not
+ * appended when the cache already holds it, a score evicted and computed again is appended again.
+ * <p/>
+ * The shared cache is configured by the system properties {@value #CACHE_PATH_PROPERTY} (no file
+ * if not set) and {@value #CACHE_SIZE_PROPERTY}.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class SimilarityCache {
+    private static final Logger logger = LoggerFactory.getLogger(SimilarityCache.class);
+
+    public static final String CACHE_PATH_PROPERTY = "event_coref.similarity_cache.path";
+
+    public static final String CACHE_SIZE_PROPERTY = "event_coref.similarity_cache.size";
+
+    public static final int DEFAULT_CACHE_SIZE = 500000;
+
+    private static final String separator = "\t";
+
+    // number of appended scores between two flushes of the file
+    private static final int flushInterval = 1000;
+
+    private static final Map<String, SimilarityCache> sharedCaches = new HashMap<String, SimilarityCache>();
+
+    private final Map<String, Double> scores;
+
+    private final File cacheFile;
+
+    private Writer cacheWriter;
+
+    private int unflushedCount = 0;
+
+    private int hits = 0;
+
+    private int misses = 0;
+
+    /**
+     * @param cacheFile the file to load and append scores, null to keep the cache in memory only
+     * @param maxSize   maximum number of scores kept in memory
+     * @throws IOException
+     */
+    public SimilarityCache(File cacheFile, final int maxSize) throws IOException {
+        this.scores = new LinkedHashMap<String, Double>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.cacheFile = cacheFile;
+
+        if (cacheFile != null) {
+            if (cacheFile.exists()) {
+                load();
+            } else if (cacheFile.getParentFile() != null) {
+                cacheFile.getParentFile().mkdirs();
+            }
+            cacheWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(cacheFile, true), "UTF-8"));
+        }
+    }
+
+    /**
+     * Get the cache shared in this JVM, configured by the system properties.
+     *
+     * @return the shared cache
+     */
+    public static SimilarityCache getSharedCache() {
+        return getSharedCache(System.getProperty(CACHE_PATH_PROPERTY));
+    }
+
+    /**
+     * Get the cache shared in this JVM that is backed by the given file.
+     *
+     * @param cachePath the cache file, null for the memory only cache
+     * @return the shared cache
+     */
+    public static synchronized SimilarityCache getSharedCache(String cachePath) {
+        String key = cachePath == null ? "" : new File(cachePath).getAbsolutePath();
+        SimilarityCache cache = sharedCaches.get(key);
+        if (cache == null) {
+            int maxSize = Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+            File cacheFile = cachePath == null ? null : new File(cachePath);
+            try {
+                cache = new SimilarityCache(cacheFile, maxSize);
+            } catch (IOException e) {
+                logger.warn(String.format("Cannot use similarity cache file %s, the cache is kept in memory only",
+                        cachePath), e);
+                try {
+                    cache = new SimilarityCache(null, maxSize);
+                } catch (IOException impossible) {
+                    throw new IllegalStateException(impossible);
+                }
+            }
+
+            final SimilarityCache cacheToClose = cache;
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    cacheToClose.close();
+                }
+            });
+            sharedCaches.put(key, cache);
+        }
+        return cache;
+    }
+
+    private void load() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile), "UTF-8"));
+        int numLines = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.split(separator);
+            if (parts.length != 4) {
+                // most likely a line cut by a crash
+                continue;
+            }
+            try {
+                String key = toKey(parts[0], parts[1], parts[2]);
+                double score = Double.parseDouble(parts[3]);
+                scores.put(key, score);
+                numLines++;
+            } catch (NumberFormatException e) {
+                // same as above
+            }
+        }
+        reader.close();
+        logger.info(String.format("Loaded %d similarity scores from %s, %d kept in memory.", numLines, cacheFile,
+                scores.size()));
+    }
+
+    private static String toKey(String measure, String lemma1, String lemma2) {
+        return measure + separator + lemma1 + separator + lemma2;
+    }
+
+    /**
+     * @param measure
+     * @param lemma1
+     * @param lemma2
+     * @return the cached score, or null if it is not cached
+     */
+    public synchronized Double get(String measure, String lemma1, String lemma2) {
+        Double score = scores.get(toKey(measure, lemma1, lemma2));
+        if (score == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return score;
+    }
+
+    /**
+     * Cache the score, and append it to the cache file if there is one.
+     *
+     * @param measure
+     * @param lemma1
+     * @param lemma2
+     * @param score
+     */
+    public synchronized void put(String measure, String lemma1, String lemma2, double score) {
+        String key = toKey(measure, lemma1, lemma2);
+        Double cachedScore = scores.put(key, score);
+        if (cacheWriter == null || (cachedScore != null && cachedScore == score)) {
+            return;
+        }
+
+        if (hasLineBreak(measure) || hasLineBreak(lemma1) || hasLineBreak(lemma2) || lemma1.contains(separator)
+                || lemma2.contains(separator)) {
+            // cannot be read back, keep it in memory only
+            return;
+        }
+
+        try {
+            cacheWriter.write(key + separator + score + "\n");
+            if (++unflushedCount >= flushInterval) {
+                cacheWriter.flush();
+                unflushedCount = 0;
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot write to similarity cache file, stop appending to it", e);
+            closeWriter();
+        }
+    }
+
+    private static boolean hasLineBreak(String str) {
+        return str.indexOf('\n') >= 0 || str.indexOf('\r') >= 0;
+    }
+
+    public synchronized int size() {
+        return scores.size();
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Flush the scores appended so far to the cache file.
+     */
+    public synchronized void flush() {
+        if (cacheWriter != null) {
+            try {
+                cacheWriter.flush();
+                unflushedCount = 0;
+            } catch (IOException e) {
+                logger.warn("Cannot flush similarity cache file", e);
+            }
+        }
+    }
+
+    /**
+     * Flush and close the cache file, the cache can still be used in memory afterwards.
+     */
+    public synchronized void close() {
+        closeWriter();
+    }
+
+    private void closeWriter() {
+        if (cacheWriter != null) {
+            try {
+                cacheWriter.close();
+            } catch (IOException e) {
+                logger.warn("Cannot close similarity cache file", e);
+            }
+            cacheWriter = null;
+        }
+    }
+}
@@ -1,14 +1,9 @@
 package edu.cmu.lti.event_coref.utils;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import edu.cmu.lti.event_coref.type.*;
 import edu.cmu.lti.utils.type.ComponentAnnotation;
 import name.fraser.neil.plaintext.diff_match_patch;
 import name.fraser.neil.plaintext.diff_match_patch.Diff;
-import net.ricecode.similarity.DiceCoefficientStrategy;
-import net.ricecode.similarity.SimilarityStrategy;
-import net.ricecode.similarity.StringSimilarityServiceImpl;
 import org.apache.uima.fit.util.FSCollectionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,16 +27,14 @@ public class SimilarityCalculator {
 
     static boolean verbose = false;
 
-    // better idea is to create a file also to repeat experiments
-    private static Table<String, String, Double> wordNetCache = HashBasedTable.create();
-
-    private static SimilarityStrategy strategy = new DiceCoefficientStrategy();
-
-    private static StringSimilarityServiceImpl service = new StringSimilarityServiceImpl(strategy);
-
     public SimilarityCalculator() {
         logger.info("Initializing row filler...");
-        wnsc = new WordNetSimilarityCalculator();
+        // the WordNet calculator is static, only the first instance creates it
+        synchronized (SimilarityCalculator.class) {
+            if (wnsc == null) {
+                wnsc = new WordNetSimilarityCalculator();
+            }
+        }
         logger.info("Similarity calculator initialized.");
     }
 
@@ -199,28 +192,22 @@ public class SimilarityCalculator {
         return getDiceCoefficient(str1, str2);
     }
 
+    // the Dice scores are computed by SimilarityKernels, with the same scores as the Dice strategy of
+    // net.ricecode.similarity used before
     public Double relaxedDiceTest(String str1, String str2) {
-        str1 = str1.toLowerCase();
-        str2 = str2.toLowerCase();
-
-        return Math.max(getSuffixDiceCoefficient(str1, str2),
-                Math.max(getDiceCoefficient(str1, str2), getPrefixDiceCoefficient(str1, str2)));
+        return SimilarityKernels.relaxedDice(str1.toLowerCase(), str2.toLowerCase());
     }
 
     public Double getDiceCoefficient(String text1, String text2) {
-        return service.score(text1.toLowerCase(), text2.toLowerCase());
+        return SimilarityKernels.dice(text1.toLowerCase(), text2.toLowerCase());
     }
 
     public Double getPrefixDiceCoefficient(String text1, String text2) {
-        int n = Math.min(text1.length(), text2.length());
-        return service.score(text1.substring(0, n), text2.substring(0, n));
+        return SimilarityKernels.prefixDice(text1, text2);
     }
 
     public Double getSuffixDiceCoefficient(String text1, String text2) {
-        int len1 = text1.length();
-        int len2 = text2.length();
-        int n = Math.min(len1, len2);
-        return service.score(text1.substring(len1 - n, len1), text2.substring(len2 - n, len2));
+        return SimilarityKernels.suffixDice(text1, text2);
     }
 
     public double getLemmaWordNetSimilarity(List<Word> words1, List<Word> words2) {
@@ -236,7 +223,7 @@ public class SimilarityCalculator {
         return getWordNetSimilarity(emIWord, emJWord);
     }
 
-    // this method was cached to improve speed
+    // the WordNet calculator is shared by all instances and can be used by several threads
     public double getWordNetSimilarity(String str1, String str2) {
         String smallWord = null;
         String largeWord = null;
@@ -248,21 +235,12 @@ public class SimilarityCalculator {
             largeWord = str2.trim();
         }
 
-        double simScore;
-        if (wordNetCache.contains(smallWord, largeWord)) {
-            simScore = wordNetCache.get(smallWord, largeWord);
-        } else {
-            if (str1.equals("") || str2.equals("")) {
-                simScore = 0;
-            } else {
-                wnsc.setWordLemmas(str1, str2);
-                wnsc.calcWordNetSimilarity();
-                simScore = wnsc.getWordNetSimilarityScore();
-            }
-            wordNetCache.put(smallWord, largeWord, simScore);
+        if (smallWord.equals("") || largeWord.equals("")) {
+            return 0;
         }
 
-        return simScore;
+        // only WuPalmer is computed
+        return wnsc.getWordNetSimilarityScore(smallWord, largeWord);
     }
 
     public String getLemma(ComponentAnnotation anno) {
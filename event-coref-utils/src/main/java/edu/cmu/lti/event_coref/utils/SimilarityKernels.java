@@ -0,0 +1,197 @@
+package edu.cmu.lti.event_coref.utils;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Allocation light kernels of the string and vector similarities.
+ * <p/>
+ * The Dice coefficient gives the same scores as the Dice strategy of net.ricecode.similarity: the
+ * score is 2 * |common| / (|bigrams1| + |bigrams2|) over the distinct character bigrams, and a
+ * string shorter than two characters is a single "bigram" of itself. Instead of sets of bigram
+ * strings, the bigrams are encoded as two chars in one int and kept in a sorted array, a
+ * {@link BigramProfile}, so the common bigrams are counted with one merge. A profile can be kept for
+ * a string that is compared many times.
+ * <p/>
+ * The dot products run over primitive floats with four independent accumulators, a simple counted
+ * loop without dependencies between the lanes, which the JIT unrolls and pipelines. The floats are
+ * widened to double before they are multiplied, like the original loop over the boxed Double vectors,
+ * so each product is exact and only the sums are rounded.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class SimilarityKernels {
+    /**
+     * The distinct character bigrams of a string.
+     */
+    public static final class BigramProfile {
+        // sorted and distinct, null for a short string
+        private final int[] bigrams;
+
+        // the string itself if it is shorter than two characters
+        private final String shortText;
+
+        private BigramProfile(int[] bigrams, String shortText) {
+            this.bigrams = bigrams;
+            this.shortText = shortText;
+        }
+
+        /**
+         * @return number of distinct bigrams
+         */
+        public int size() {
+            return shortText != null ? 1 : bigrams.length;
+        }
+    }
+
+    public static BigramProfile profile(String text) {
+        return profile(text, 0, text.length());
+    }
+
+    /**
+     * @param text
+     * @param begin begin of the region, inclusive
+     * @param end   end of the region, exclusive
+     * @return the bigram profile of text.substring(begin, end), without creating the substring
+     */
+    public static BigramProfile profile(String text, int begin, int end) {
+        int length = end - begin;
+        if (length < 2) {
+            return new BigramProfile(null, text.substring(begin, end));
+        }
+
+        int[] codes = new int[length - 1];
+        for (int i = begin + 1; i < end; i++) {
+            codes[i - begin - 1] = (text.charAt(i - 1) << 16) | text.charAt(i);
+        }
+        Arrays.sort(codes);
+
+        int numDistinct = 1;
+        for (int i = 1; i < codes.length; i++) {
+            if (codes[i] != codes[numDistinct - 1]) {
+                codes[numDistinct++] = codes[i];
+            }
+        }
+        return new BigramProfile(numDistinct == codes.length ? codes : Arrays.copyOf(codes, numDistinct), null);
+    }
+
+    public static double dice(BigramProfile profile1, BigramProfile profile2) {
+        int common;
+        if (profile1.shortText != null || profile2.shortText != null) {
+            // a short string only shares its "bigram" with the same short string
+            common = profile1.shortText != null && profile1.shortText.equals(profile2.shortText) ? 1 : 0;
+        } else {
+            common = countCommon(profile1.bigrams, profile2.bigrams);
+        }
+        return 2.0 * common / (profile1.size() + profile2.size());
+    }
+
+    private static int countCommon(int[] sorted1, int[] sorted2) {
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < sorted1.length && j < sorted2.length) {
+            if (sorted1[i] < sorted2[j]) {
+                i++;
+            } else if (sorted1[i] > sorted2[j]) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    public static double dice(String text1, String text2) {
+        return dice(profile(text1), profile(text2));
+    }
+
+    /**
+     * @return Dice coefficient of the prefixes of the length of the shorter string
+     */
+    public static double prefixDice(String text1, String text2) {
+        int n = Math.min(text1.length(), text2.length());
+        return dice(profile(text1, 0, n), profile(text2, 0, n));
+    }
+
+    /**
+     * @return Dice coefficient of the suffixes of the length of the shorter string
+     */
+    public static double suffixDice(String text1, String text2) {
+        int len1 = text1.length();
+        int len2 = text2.length();
+        int n = Math.min(len1, len2);
+        return dice(profile(text1, len1 - n, len1), profile(text2, len2 - n, len2));
+    }
+
+    /**
+     * @return the largest of the suffix, full and prefix Dice coefficients, the strings are compared
+     * as they are
+     */
+    public static double relaxedDice(String text1, String text2) {
+        return Math.max(suffixDice(text1, text2), Math.max(dice(text1, text2), prefixDice(text1, text2)));
+    }
+
+    public static double dot(float[] vectors1, int offset1, float[] vectors2, int offset2, int length) {
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            sum0 += (double) vectors1[offset1 + i] * vectors2[offset2 + i];
+            sum1 += (double) vectors1[offset1 + i + 1] * vectors2[offset2 + i + 1];
+            sum2 += (double) vectors1[offset1 + i + 2] * vectors2[offset2 + i + 2];
+            sum3 += (double) vectors1[offset1 + i + 3] * vectors2[offset2 + i + 3];
+        }
+        for (; i < length; i++) {
+            sum0 += (double) vectors1[offset1 + i] * vectors2[offset2 + i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Dot product of two rows of a buffer that has no accessible array, e.g. a mapped file.
+     */
+    public static double dot(FloatBuffer vectors, int offset1, int offset2, int length) {
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            sum0 += (double) vectors.get(offset1 + i) * vectors.get(offset2 + i);
+            sum1 += (double) vectors.get(offset1 + i + 1) * vectors.get(offset2 + i + 1);
+            sum2 += (double) vectors.get(offset1 + i + 2) * vectors.get(offset2 + i + 2);
+            sum3 += (double) vectors.get(offset1 + i + 3) * vectors.get(offset2 + i + 3);
+        }
+        for (; i < length; i++) {
+            sum0 += (double) vectors.get(offset1 + i) * vectors.get(offset2 + i);
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * @param vector
+     * @return a copy of the vector with unit L2 norm, a zero vector stays zero
+     */
+    public static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, 0, vector, 0, vector.length));
+        float[] normalized = new float[vector.length];
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                normalized[i] = (float) (vector[i] / norm);
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * @return cosine similarity of two vectors of unit norm, see {@link #normalize(float[])}
+     */
+    public static double cosineOfNormalized(float[] normalized1, float[] normalized2) {
+        return dot(normalized1, 0, normalized2, 0, normalized1.length);
+    }
+}
@@ -6,102 +6,137 @@ import edu.cmu.lti.ws4j.RelatednessCalculator;
 import edu.cmu.lti.ws4j.impl.*;
 import edu.cmu.lti.ws4j.util.WS4JConfiguration;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+/**
+ * WordNet similarity between two lemmas with the WS4J relatedness measures. Scores are computed
+ * lazily for the measures asked for, and cached in the shared {@link SimilarityCache} so that they
+ * are reused by other calculators and, when the cache has a file, by later runs.
+ * <p/>
+ * One calculator can be used by several threads. Each thread computes with its own WS4J measures,
+ * which keep state between calls, over the WordNet database shared by all calculators. The global
+ * WS4J configuration is set once, when the first calculator is created.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
 public class WordNetSimilarityCalculator {
 
     private static ILexicalDatabase db;
 
-    private Map<String, RelatednessCalculator> rcs;
-
-    private Map<String, Double> wordnetSimilarityScores;
-
-    private String lemma1;
+    // the measures of each thread
+    private final ThreadLocal<Map<String, RelatednessCalculator>> rcs = new ThreadLocal<Map<String, RelatednessCalculator>>() {
+        @Override
+        protected Map<String, RelatednessCalculator> initialValue() {
+            return createMeasures();
+        }
+    };
 
-    private String lemma2;
+    private SimilarityCache cache;
 
-    private double wordnetSimilarityScore;
+    public static final String SIM_KEY_HIRST = "HirstStOnge";
 
-    private double definitionBasedScore;
+    public static final String SIM_KEY_LEACOCK = "LeacockChodorow";
 
-    private static final String SIM_KEY_HIRST = "HirstStOnge";
+    public static final String SIM_KEY_LESK = "Lesk";
 
-    private static final String SIM_KEY_LEACOCK = "LeacockChodorow";
+    public static final String SIM_KEY_WUPALMER = "WuPalmer";
 
-    private static final String SIM_KEY_LESK = "Lesk";
+    public static final String SIM_KEY_RESNIK = "Resnik";
 
-    private static final String SIM_KEY_WUPALMER = "WuPalmer";
+    public static final String SIM_KEY_JIANG = "Jiang";
 
-    private static final String SIM_KEY_RESNIK = "Resnik";
+    public static final String SIM_KEY_LIN = "Lin";
 
-    private static final String SIM_KEY_JIANG = "Jiang";
+    public static final String SIM_KEY_PATH = "Path";
 
-    private static final String SIM_KEY_LIN = "Lin";
+    private static final List<String> SIM_KEYS = Arrays.asList(SIM_KEY_HIRST, SIM_KEY_LEACOCK, SIM_KEY_LESK,
+            SIM_KEY_WUPALMER, SIM_KEY_RESNIK, SIM_KEY_JIANG, SIM_KEY_LIN, SIM_KEY_PATH);
 
-    private static final String SIM_KEY_PATH = "Path";
+    // prefix of the measure names in the similarity cache
+    private static final String CACHE_MEASURE_PREFIX = "WordNet#";
 
     public WordNetSimilarityCalculator() {
-        db = new NictWordNet();
-        rcs = new HashMap<String, RelatednessCalculator>();
-        wordnetSimilarityScores = new HashMap<String, Double>();
-
-        // Some metrics are removed because they are not normalized between 0 and 1.
-        rcs.put(SIM_KEY_HIRST, new HirstStOnge(db));
-        rcs.put(SIM_KEY_LEACOCK, new LeacockChodorow(db));
-        rcs.put(SIM_KEY_LESK, new Lesk(db));
-        rcs.put(SIM_KEY_WUPALMER, new WuPalmer(db));
-        rcs.put(SIM_KEY_RESNIK, new Resnik(db));
-        rcs.put(SIM_KEY_JIANG, new JiangConrath(db));
-        rcs.put(SIM_KEY_LIN, new Lin(db));
-        rcs.put(SIM_KEY_PATH, new Path(db));
+        this(SimilarityCache.getSharedCache());
     }
 
-    public void setWordLemmas(String lemma1, String lemma2) {
-        this.lemma1 = lemma1;
-        this.lemma2 = lemma2;
-    }
-
-    public void calcWordNetSimilarity() {
-        WS4JConfiguration.getInstance().setMFS(true);
-        double score = 0.0;
-        for (String simKey : rcs.keySet()) {
-            RelatednessCalculator rc = rcs.get(simKey);
-            score = rc.calcRelatednessOfWords(lemma1, lemma2);
-            // LogUtils.log(simKey + "\t" + score);
-            if (score > 1) {
-                score = 1.0;// a bug in the WN4J
+    /**
+     * @param cache cache of the scores, shared with other calculators
+     */
+    public WordNetSimilarityCalculator(SimilarityCache cache) {
+        this.cache = cache;
+        synchronized (WordNetSimilarityCalculator.class) {
+            // the WordNet database is loaded and WS4J configured once for all calculators
+            if (db == null) {
+                db = new NictWordNet();
+                WS4JConfiguration.getInstance().setMFS(true);
             }
-
-            wordnetSimilarityScores.put(simKey, score);
         }
-
-        wordnetSimilarityScore = wordnetSimilarityScores.get(SIM_KEY_WUPALMER);
-        definitionBasedScore = wordnetSimilarityScores.get(SIM_KEY_LESK);
     }
 
-    public double getWordNetSimilarityScore() {
-        return wordnetSimilarityScore;
-    }
+    private static Map<String, RelatednessCalculator> createMeasures() {
+        Map<String, RelatednessCalculator> measures = new HashMap<String, RelatednessCalculator>();
 
-    public double getDefinitionBasedScore() {
-        return definitionBasedScore;
+        // Some metrics are removed because they are not normalized between 0 and 1.
+        measures.put(SIM_KEY_HIRST, new HirstStOnge(db));
+        measures.put(SIM_KEY_LEACOCK, new LeacockChodorow(db));
+        measures.put(SIM_KEY_LESK, new Lesk(db));
+        measures.put(SIM_KEY_WUPALMER, new WuPalmer(db));
+        measures.put(SIM_KEY_RESNIK, new Resnik(db));
+        measures.put(SIM_KEY_JIANG, new JiangConrath(db));
+        measures.put(SIM_KEY_LIN, new Lin(db));
+        measures.put(SIM_KEY_PATH, new Path(db));
+        return measures;
     }
 
-    public boolean isSameWord() {
-        if (lemma1 == null || lemma2 == null) {
-            return false;
+    /**
+     * Compute all the measures for the lemmas, only needed when all of them are used, single
+     * measures are computed on demand by {@link #getScore(String, String, String)}.
+     *
+     * @param lemma1
+     * @param lemma2
+     * @return the scores by measure name
+     */
+    public Map<String, Double> getScores(String lemma1, String lemma2) {
+        Map<String, Double> scores = new HashMap<String, Double>();
+        for (String simKey : SIM_KEYS) {
+            scores.put(simKey, getScore(simKey, lemma1, lemma2));
         }
+        return scores;
+    }
 
-        if (lemma1.equals(lemma2)) {
-            return true;
+    /**
+     * Get the score of one measure for the lemmas, computing it if it is not cached.
+     *
+     * @param simKey one of the SIM_KEY constants
+     * @param lemma1
+     * @param lemma2
+     * @return the score
+     */
+    public double getScore(String simKey, String lemma1, String lemma2) {
+        String cacheMeasure = CACHE_MEASURE_PREFIX + simKey;
+        Double score = cache.get(cacheMeasure, lemma1, lemma2);
+        if (score == null) {
+            double computedScore = rcs.get().get(simKey).calcRelatednessOfWords(lemma1, lemma2);
+            // LogUtils.log(simKey + "\t" + score);
+            if (computedScore > 1) {
+                computedScore = 1.0;// a bug in the WN4J
+            }
+            score = computedScore;
+            cache.put(cacheMeasure, lemma1, lemma2, score);
         }
-        return false;
+        return score;
+    }
+
+    public double getWordNetSimilarityScore(String lemma1, String lemma2) {
+        return getScore(SIM_KEY_WUPALMER, lemma1, lemma2);
     }
 
-    public Map<String, Double> getWordnetSimilarityScores() {
-        return wordnetSimilarityScores;
+    public double getDefinitionBasedScore(String lemma1, String lemma2) {
+        return getScore(SIM_KEY_LESK, lemma1, lemma2);
     }
 
     private boolean isNormalizedScore(Double score) {
@@ -129,9 +164,7 @@ public class WordNetSimilarityCalculator {
         for (Entry<String, String> wordEntry : testMap.entrySet()) {
             String word1 = wordEntry.getKey();
             String word2 = wordEntry.getValue();
-            wnsc.setWordLemmas(word1, word2);
-            wnsc.calcWordNetSimilarity();
-            for (Entry<String, Double> keyScore : wnsc.wordnetSimilarityScores.entrySet()) {
+            for (Entry<String, Double> keyScore : wnsc.getScores(word1, word2).entrySet()) {
                 String key = keyScore.getKey();
                 Double score = keyScore.getValue();
                 System.out.println(String.format("[%s] score for %s and %s : %s", key, word1, word2, score));
@@ -0,0 +1,74 @@
+package edu.cmu.lti.event_coref.utils.ml;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.meta.Bagging;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * A random forest built by {@link ParallelRandomForestBuilder}. Each tree is a Weka {@link Bagging}
+ * of one RandomTree, configured as the Weka 3.6 RandomForest configures its bagger, and the forest
+ * sums the distributions of its trees and normalizes them, as the bagger of a Weka forest does.
+ * <p/>
+ * The trees are bagged separately, so the out of bag error of the whole forest is not known, and
+ * {@link #measureOutOfBagError()} fails.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class BaggedRandomForest extends Classifier {
+    private static final long serialVersionUID = -4630960468126718795L;
+
+    private final Bagging[] trees;
+
+    BaggedRandomForest(Bagging[] trees) {
+        this.trees = trees;
+    }
+
+    /**
+     * The forest is built by {@link ParallelRandomForestBuilder}, it cannot be trained again.
+     */
+    @Override
+    public void buildClassifier(Instances data) throws Exception {
+        throw new UnsupportedOperationException("Build the forest with ParallelRandomForestBuilder");
+    }
+
+    @Override
+    public double[] distributionForInstance(Instance instance) throws Exception {
+        double[] sums = new double[instance.numClasses()];
+        for (Bagging tree : trees) {
+            double[] distribution = tree.distributionForInstance(instance);
+            for (int c = 0; c < sums.length; c++) {
+                sums[c] += distribution[c];
+            }
+        }
+        if (!Utils.eq(Utils.sum(sums), 0)) {
+            Utils.normalize(sums);
+        }
+        return sums;
+    }
+
+    public int getNumTrees() {
+        return trees.length;
+    }
+
+    /**
+     * @return the bag of one tree of each tree of the forest
+     */
+    Bagging[] getTrees() {
+        return trees;
+    }
+
+    /**
+     * Not supported: each tree only knows the out of bag error of its own bag.
+     */
+    public double measureOutOfBagError() {
+        throw new UnsupportedOperationException("The out of bag error of a forest built by "
+                + "ParallelRandomForestBuilder is not computed");
+    }
+
+    @Override
+    public String toString() {
+        return "Random forest of " + trees.length + " separately bagged random trees";
+    }
+}
@@ -0,0 +1,308 @@
+package edu.cmu.lti.event_coref.utils.ml;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.meta.Bagging;
+import weka.classifiers.trees.RandomForest;
+import weka.classifiers.trees.RandomTree;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A trained Weka {@link RandomForest} or {@link BaggedRandomForest} compiled into flat arrays, so that scoring only reads primitive
+ * arrays instead of walking the tree objects. All nodes of all trees are numbered in one array, the
+ * children of a node are stored next to each other starting from {@link #firstChild}.
+ * <p/>
+ * Scoring follows RandomForest (Bagging over RandomTree) of Weka 3.6: a missing value sends the
+ * instance down all branches weighted by the branch proportions, an empty branch falls back to the
+ * class probabilities of its parent, and the tree outputs are summed and normalized. The trees are
+ * read through reflection because Weka does not expose them, use {@link #maxDifference(Classifier,
+ * Instances)} to check the compiled forest against the original model.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class CompiledRandomForest {
+    private final int numClasses;
+
+    private final int[] roots;
+
+    // split attribute of each node, -1 for leaves
+    private final int[] splitAttribute;
+
+    private final double[] splitPoint;
+
+    private final int[] firstChild;
+
+    private final int[] numChildren;
+
+    // proportion of training instances going to this node from its parent, used for missing values
+    private final double[] proportion;
+
+    // offset of the class probabilities of each node in classProbs, -1 if the node has none
+    private final int[] classProbOffset;
+
+    private final double[] classProbs;
+
+    private final boolean[] nominalAttribute;
+
+    private CompiledRandomForest(int numClasses, int[] roots, int[] splitAttribute, double[] splitPoint,
+                                 int[] firstChild, int[] numChildren, double[] proportion, int[] classProbOffset,
+                                 double[] classProbs, boolean[] nominalAttribute) {
+        this.numClasses = numClasses;
+        this.roots = roots;
+        this.splitAttribute = splitAttribute;
+        this.splitPoint = splitPoint;
+        this.firstChild = firstChild;
+        this.numChildren = numChildren;
+        this.proportion = proportion;
+        this.classProbOffset = classProbOffset;
+        this.classProbs = classProbs;
+        this.nominalAttribute = nominalAttribute;
+    }
+
+    /**
+     * Compile a trained random forest.
+     *
+     * @param forest a trained Weka 3.6 random forest
+     * @return the compiled forest
+     * @throws Exception when the forest is not trained or its internals cannot be read
+     */
+    public static CompiledRandomForest compile(RandomForest forest) throws Exception {
+        Object bagger = readField(forest, RandomForest.class, "m_bagger");
+        if (bagger == null) {
+            throw new Exception("Random forest is not trained");
+        }
+        return compile(readTrees(bagger));
+    }
+
+    /**
+     * Compile a forest built by {@link ParallelRandomForestBuilder}.
+     *
+     * @param forest the trained forest
+     * @return the compiled forest
+     * @throws Exception when the internals of the trees cannot be read
+     */
+    public static CompiledRandomForest compile(BaggedRandomForest forest) throws Exception {
+        List<Classifier> trees = new ArrayList<Classifier>();
+        for (Bagging bag : forest.getTrees()) {
+            trees.addAll(Arrays.asList(readTrees(bag)));
+        }
+        return compile(trees.toArray(new Classifier[trees.size()]));
+    }
+
+    private static Classifier[] readTrees(Object bagger) throws Exception {
+        return (Classifier[]) readField(bagger, weka.classifiers.IteratedSingleClassifierEnhancer.class,
+                "m_Classifiers");
+    }
+
+    private static CompiledRandomForest compile(Classifier[] trees) throws Exception {
+        Builder builder = new Builder();
+        Instances header = null;
+        int[] roots = new int[trees.length];
+        for (int i = 0; i < trees.length; i++) {
+            RandomTree tree = (RandomTree) trees[i];
+            if (header == null) {
+                header = (Instances) readField(tree, RandomTree.class, "m_Info");
+            }
+            roots[i] = builder.addTree(tree);
+        }
+
+        if (header == null) {
+            throw new Exception("Random forest contains no tree");
+        }
+
+        boolean[] nominalAttribute = new boolean[header.numAttributes()];
+        for (int i = 0; i < nominalAttribute.length; i++) {
+            nominalAttribute[i] = header.attribute(i).isNominal();
+        }
+
+        return builder.build(header.numClasses(), roots, nominalAttribute);
+    }
+
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    public int getNumTrees() {
+        return roots.length;
+    }
+
+    public int getNumNodes() {
+        return splitAttribute.length;
+    }
+
+    /**
+     * Score a feature vector in the attribute space of the training data (the same layout as
+     * {@link Instance#toDoubleArray()}), missing values are NaN. Nothing is allocated.
+     *
+     * @param values       the attribute values
+     * @param distribution output array of size {@link #getNumClasses()}, will be overwritten
+     */
+    public void distributionForValues(double[] values, double[] distribution) {
+        for (int c = 0; c < numClasses; c++) {
+            distribution[c] = 0;
+        }
+
+        for (int root : roots) {
+            accumulate(root, values, 1.0, distribution);
+        }
+
+        if (!Utils.eq(Utils.sum(distribution), 0)) {
+            Utils.normalize(distribution);
+        }
+    }
+
+    public double[] distributionForInstance(Instance instance) {
+        double[] distribution = new double[numClasses];
+        distributionForValues(instance.toDoubleArray(), distribution);
+        return distribution;
+    }
+
+    /**
+     * Add the weighted distribution of the subtree into the output.
+     *
+     * @return false if the subtree has no distribution, in which case nothing is added
+     */
+    private boolean accumulate(int node, double[] values, double weight, double[] distribution) {
+        int attribute = splitAttribute[node];
+        if (attribute >= 0) {
+            double value = values[attribute];
+            int first = firstChild[node];
+            if (Double.isNaN(value)) {
+                // split the instance up among all the branches
+                for (int child = first; child < first + numChildren[node]; child++) {
+                    accumulate(child, values, weight * proportion[child], distribution);
+                }
+                return true;
+            }
+
+            int child;
+            if (nominalAttribute[attribute]) {
+                child = first + (int) value;
+            } else {
+                child = value < splitPoint[node] ? first : first + 1;
+            }
+            if (accumulate(child, values, weight, distribution)) {
+                return true;
+            }
+        }
+
+        // leaf, or the branch taken is empty
+        int offset = classProbOffset[node];
+        if (offset < 0) {
+            return false;
+        }
+        for (int c = 0; c < numClasses; c++) {
+            distribution[c] += weight * classProbs[offset + c];
+        }
+        return true;
+    }
+
+    /**
+     * Compare the compiled forest with the original model on the given data.
+     *
+     * @param forest the model this forest is compiled from
+     * @param data   instances to compare on
+     * @return the largest absolute difference among all class probabilities
+     * @throws Exception
+     */
+    public double maxDifference(Classifier forest, Instances data) throws Exception {
+        double maxDiff = 0;
+        double[] distribution = new double[numClasses];
+        for (int i = 0; i < data.numInstances(); i++) {
+            Instance instance = data.instance(i);
+            double[] expected = forest.distributionForInstance(instance);
+            distributionForValues(instance.toDoubleArray(), distribution);
+            for (int c = 0; c < numClasses; c++) {
+                maxDiff = Math.max(maxDiff, Math.abs(expected[c] - distribution[c]));
+            }
+        }
+        return maxDiff;
+    }
+
+    private static Object readField(Object target, Class<?> declaringClass, String fieldName) throws Exception {
+        Field field = declaringClass.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    /**
+     * Flatten trees breadth first, so that the children of each node are consecutive.
+     */
+    private static class Builder {
+        private final List<RandomTree> nodes = new ArrayList<RandomTree>();
+
+        private final List<Integer> firstChild = new ArrayList<Integer>();
+
+        private final List<Integer> numChildren = new ArrayList<Integer>();
+
+        private final List<Double> proportion = new ArrayList<Double>();
+
+        int addTree(RandomTree tree) throws Exception {
+            int root = addNode(tree, 1.0);
+            for (int node = root; node < nodes.size(); node++) {
+                RandomTree current = nodes.get(node);
+                int attribute = (Integer) readField(current, RandomTree.class, "m_Attribute");
+                RandomTree[] successors = (RandomTree[]) readField(current, RandomTree.class, "m_Successors");
+                if (attribute < 0 || successors == null) {
+                    continue;
+                }
+                double[] props = (double[]) readField(current, RandomTree.class, "m_Prop");
+                firstChild.set(node, nodes.size());
+                numChildren.set(node, successors.length);
+                for (int i = 0; i < successors.length; i++) {
+                    addNode(successors[i], props == null ? 0 : props[i]);
+                }
+            }
+            return root;
+        }
+
+        private int addNode(RandomTree node, double prop) {
+            nodes.add(node);
+            firstChild.add(-1);
+            numChildren.add(0);
+            proportion.add(prop);
+            return nodes.size() - 1;
+        }
+
+        CompiledRandomForest build(int numClasses, int[] roots, boolean[] nominalAttribute) throws Exception {
+            int numNodes = nodes.size();
+            int[] splitAttribute = new int[numNodes];
+            double[] splitPoint = new double[numNodes];
+            int[] firstChildArray = new int[numNodes];
+            int[] numChildrenArray = new int[numNodes];
+            double[] proportionArray = new double[numNodes];
+            int[] classProbOffset = new int[numNodes];
+            double[] classProbs = new double[numNodes * numClasses];
+
+            int numProbs = 0;
+            for (int node = 0; node < numNodes; node++) {
+                RandomTree tree = nodes.get(node);
+                splitAttribute[node] = numChildren.get(node) > 0 ? (Integer) readField(tree, RandomTree.class,
+                        "m_Attribute") : -1;
+                splitPoint[node] = (Double) readField(tree, RandomTree.class, "m_SplitPoint");
+                firstChildArray[node] = firstChild.get(node);
+                numChildrenArray[node] = numChildren.get(node);
+                proportionArray[node] = proportion.get(node);
+
+                double[] probs = (double[]) readField(tree, RandomTree.class, "m_ClassProbs");
+                if (probs == null) {
+                    classProbOffset[node] = -1;
+                } else {
+                    classProbOffset[node] = numProbs;
+                    System.arraycopy(probs, 0, classProbs, numProbs, numClasses);
+                    numProbs += numClasses;
+                }
+            }
+
+            return new CompiledRandomForest(numClasses, roots, splitAttribute, splitPoint, firstChildArray,
+                    numChildrenArray, proportionArray, classProbOffset, Arrays.copyOf(classProbs, numProbs),
+                    nominalAttribute);
+        }
+    }
+}
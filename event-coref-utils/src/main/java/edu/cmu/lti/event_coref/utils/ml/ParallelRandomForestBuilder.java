@@ -0,0 +1,92 @@
+package edu.cmu.lti.event_coref.utils.ml;
+
+import weka.classifiers.meta.Bagging;
+import weka.classifiers.trees.RandomForest;
+import weka.classifiers.trees.RandomTree;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Build the trees of a random forest on several threads, the Weka 3.6 forest builds them one after
+ * another. Each tree is a Weka {@link Bagging} of one RandomTree, set up like the bagger of a Weka
+ * forest and seeded with the forest seed plus the index of the tree, so it is the tree of a Weka
+ * forest of one tree with that seed. The trees form a {@link BaggedRandomForest} in that order. The
+ * result does not depend on the number of threads.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class ParallelRandomForestBuilder {
+    /**
+     * Build a forest configured like the given one.
+     *
+     * @param template   an untrained forest with the options to use
+     * @param data       the training data
+     * @param numThreads number of threads to build the trees, 1 builds them on the calling thread
+     * @return the trained forest
+     * @throws Exception
+     */
+    public static BaggedRandomForest build(RandomForest template, Instances data, int numThreads) throws Exception {
+        int numTrees = template.getNumTrees();
+
+        // as RandomForest.buildClassifier
+        template.getCapabilities().testWithFail(data);
+        final Instances trainingData = new Instances(data);
+        trainingData.deleteWithMissingClass();
+        int numFeatures = template.getNumFeatures();
+        if (numFeatures < 1) {
+            numFeatures = (int) Utils.log2(trainingData.numAttributes()) + 1;
+        }
+
+        final Bagging[] trees = new Bagging[numTrees];
+        for (int i = 0; i < numTrees; i++) {
+            RandomTree tree = new RandomTree();
+            tree.setKValue(numFeatures);
+            tree.setMaxDepth(template.getMaxDepth());
+
+            Bagging bag = new Bagging();
+            bag.setClassifier(tree);
+            bag.setSeed(template.getSeed() + i);
+            bag.setNumIterations(1);
+            bag.setCalcOutOfBag(true);
+            trees[i] = bag;
+        }
+
+        if (numThreads <= 1) {
+            for (Bagging tree : trees) {
+                tree.buildClassifier(trainingData);
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, numTrees));
+            try {
+                List<Future<Void>> futures = new ArrayList<Future<Void>>();
+                for (final Bagging tree : trees) {
+                    futures.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            tree.buildClassifier(trainingData);
+                            return null;
+                        }
+                    }));
+                }
+                for (Future<Void> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof Exception) {
+                            throw (Exception) e.getCause();
+                        }
+                        throw e;
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        return new BaggedRandomForest(trees);
+    }
+}
@@ -0,0 +1,333 @@
+package edu.cmu.lti.event_coref.utils.ml;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes Weka instances to a file as they are created, instead of collecting the whole dataset in
+ * memory. The header is written when the file is opened, and the instances of a document are kept
+ * in a buffer until {@link #finishDocument(String)}, which appends them to the file, so the memory
+ * is bounded by the largest document.
+ * <p/>
+ * The file is either a dense or sparse ARFF, or a compact binary format that stores the non zero
+ * values of each row, which can be loaded with {@link #readBinary(File)}. After each document, its
+ * id and the file length are recorded in a progress file next to the output. When the writer is
+ * opened with resume, the output is truncated to the last finished document and
+ * {@link #isFinished(String)} tells which documents can be skipped, so a crashed run continues
+ * where it stopped.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class StreamingInstanceWriter implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(StreamingInstanceWriter.class);
+
+    public enum Format {
+        DENSE_ARFF, SPARSE_ARFF, BINARY
+    }
+
+    public static final String PROGRESS_FILE_SUFFIX = ".progress";
+
+    private static final int BINARY_MAGIC = 0x41524642; // "ARFB"
+
+    private static final int BINARY_VERSION = 1;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Instances header;
+
+    private final Format format;
+
+    private final File outputFile;
+
+    private OutputStream out;
+
+    private Writer progressOut;
+
+    // number of bytes of the output that belong to finished documents
+    private long outputLength;
+
+    private final Set<String> finishedDocuments = new HashSet<String>();
+
+    private final ByteArrayOutputStream documentBuffer = new ByteArrayOutputStream();
+
+    private final DataOutputStream documentDataOut = new DataOutputStream(documentBuffer);
+
+    private int numInstances = 0;
+
+    /**
+     * @param outputFile the output file
+     * @param header     the dataset that defines the attributes, its instances are not written
+     * @param format     the format of the output
+     * @param resume     whether to continue a previous output of the same file and header
+     * @throws IOException
+     */
+    public StreamingInstanceWriter(File outputFile, Instances header, Format format, boolean resume)
+            throws IOException {
+        this.outputFile = outputFile;
+        this.header = new Instances(header, 0);
+        this.format = format;
+
+        byte[] headerBytes = getHeaderBytes();
+        File progressFile = getProgressFile(outputFile);
+        boolean resumed = resume && outputFile.exists() && progressFile.exists();
+        if (resumed) {
+            outputLength = readProgress(progressFile, headerBytes.length);
+            checkHeader(headerBytes);
+            truncate(outputFile, outputLength);
+            out = new BufferedOutputStream(new FileOutputStream(outputFile, true));
+            logger.info(String.format("Resuming %s after %d finished documents", outputFile,
+                    finishedDocuments.size()));
+        } else {
+            out = new BufferedOutputStream(new FileOutputStream(outputFile));
+            out.write(headerBytes);
+            out.flush();
+            outputLength = headerBytes.length;
+        }
+        progressOut = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(progressFile,
+                resumed), UTF8));
+    }
+
+    public static File getProgressFile(File outputFile) {
+        return new File(outputFile.getPath() + PROGRESS_FILE_SUFFIX);
+    }
+
+    private byte[] getHeaderBytes() throws IOException {
+        if (format == Format.BINARY) {
+            ByteArrayOutputStream headerBuffer = new ByteArrayOutputStream();
+            DataOutputStream headerOut = new DataOutputStream(headerBuffer);
+            byte[] arffHeader = header.toString().getBytes(UTF8);
+            headerOut.writeInt(BINARY_MAGIC);
+            headerOut.writeInt(BINARY_VERSION);
+            headerOut.writeInt(arffHeader.length);
+            headerOut.write(arffHeader);
+            headerOut.flush();
+            return headerBuffer.toByteArray();
+        } else {
+            // ends with the @data line
+            return header.toString().getBytes(UTF8);
+        }
+    }
+
+    /**
+     * Read the finished documents.
+     *
+     * @return the output length after the last finished document
+     */
+    private long readProgress(File progressFile, long headerLength) throws IOException {
+        byte[] progress = new byte[(int) progressFile.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(progressFile));
+        try {
+            in.readFully(progress);
+        } finally {
+            in.close();
+        }
+
+        long length = headerLength;
+        String[] lines = new String(progress, UTF8).split("\n", -1);
+        // the last element is empty, or a line cut by a crash whose document is written again
+        for (int i = 0; i < lines.length - 1; i++) {
+            int separator = lines[i].lastIndexOf('\t');
+            finishedDocuments.add(lines[i].substring(0, separator));
+            length = Long.parseLong(lines[i].substring(separator + 1));
+        }
+        // drop the cut line, the progress is appended after the last complete one
+        int progressLength = progress.length;
+        while (progressLength > 0 && progress[progressLength - 1] != '\n') {
+            progressLength--;
+        }
+        truncate(progressFile, progressLength);
+        return length;
+    }
+
+    private void checkHeader(byte[] headerBytes) throws IOException {
+        byte[] existingHeader = new byte[headerBytes.length];
+        DataInputStream in = new DataInputStream(new FileInputStream(outputFile));
+        try {
+            in.readFully(existingHeader);
+        } catch (EOFException e) {
+            throw new IOException(String.format("Cannot resume %s, the header is incomplete", outputFile));
+        } finally {
+            in.close();
+        }
+        if (!Arrays.equals(existingHeader, headerBytes)) {
+            throw new IOException(String.format("Cannot resume %s, it is written with other features", outputFile));
+        }
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < length) {
+                throw new IOException(String.format("%s is shorter than recorded", file));
+            }
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @param documentId
+     * @return whether the instances of the document are already in the output
+     */
+    public boolean isFinished(String documentId) {
+        return finishedDocuments.contains(documentId);
+    }
+
+    /**
+     * Add an instance of the current document, the instance should follow the header.
+     *
+     * @param instance
+     * @throws IOException
+     */
+    public void add(Instance instance) throws IOException {
+        switch (format) {
+            case DENSE_ARFF:
+                instance.setDataset(header);
+                documentBuffer.write(instance.toString().getBytes(UTF8));
+                documentBuffer.write('\n');
+                break;
+            case SPARSE_ARFF:
+                SparseInstance sparseInstance = new SparseInstance(instance);
+                sparseInstance.setDataset(header);
+                documentBuffer.write(sparseInstance.toString().getBytes(UTF8));
+                documentBuffer.write('\n');
+                break;
+            case BINARY:
+                writeBinaryRow(instance);
+                break;
+        }
+        numInstances++;
+    }
+
+    /**
+     * A row is the weight, the number of stored values and the index and value of each, missing
+     * values are stored as NaN.
+     */
+    private void writeBinaryRow(Instance instance) throws IOException {
+        int numValues = 0;
+        for (int i = 0; i < instance.numAttributes(); i++) {
+            if (instance.value(i) != 0) {
+                numValues++;
+            }
+        }
+        documentDataOut.writeDouble(instance.weight());
+        documentDataOut.writeInt(numValues);
+        for (int i = 0; i < instance.numAttributes(); i++) {
+            double value = instance.value(i);
+            if (value != 0) {
+                documentDataOut.writeInt(i);
+                documentDataOut.writeDouble(value);
+            }
+        }
+        documentDataOut.flush();
+    }
+
+    /**
+     * Append the instances of the document to the output and record the document as finished.
+     *
+     * @param documentId
+     * @throws IOException
+     */
+    public void finishDocument(String documentId) throws IOException {
+        documentBuffer.writeTo(out);
+        out.flush();
+        outputLength += documentBuffer.size();
+        documentBuffer.reset();
+
+        finishedDocuments.add(documentId);
+        progressOut.write(documentId + "\t" + outputLength + "\n");
+        progressOut.flush();
+    }
+
+    /**
+     * @return number of instances written by this writer, excluding those of a resumed output
+     */
+    public int getNumInstances() {
+        return numInstances;
+    }
+
+    /**
+     * Close the output, instances of an unfinished document are dropped.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            progressOut.close();
+        }
+    }
+
+    /**
+     * @param file
+     * @return whether the file is written in the binary format
+     * @throws IOException
+     */
+    public static boolean isBinary(File file) throws IOException {
+        if (file.length() < 4) {
+            return false;
+        }
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return in.readInt() == BINARY_MAGIC;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Load a file of the binary format, the class is the last attribute.
+     *
+     * @param file
+     * @return the dataset
+     * @throws IOException
+     */
+    public static Instances readBinary(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != BINARY_MAGIC) {
+                throw new IOException(String.format("%s is not a binary instance file", file));
+            }
+            int version = in.readInt();
+            if (version != BINARY_VERSION) {
+                throw new IOException(String.format("Unsupported binary instance version %d in %s", version, file));
+            }
+            byte[] arffHeader = new byte[in.readInt()];
+            in.readFully(arffHeader);
+            Instances dataset = new Instances(new StringReader(new String(arffHeader, UTF8)));
+            dataset.setClassIndex(dataset.numAttributes() - 1);
+
+            int numAttributes = dataset.numAttributes();
+            while (true) {
+                double weight;
+                try {
+                    weight = in.readDouble();
+                } catch (EOFException e) {
+                    break;
+                }
+                double[] values = new double[numAttributes];
+                int numValues = in.readInt();
+                for (int i = 0; i < numValues; i++) {
+                    int index = in.readInt();
+                    values[index] = in.readDouble();
+                }
+                dataset.add(new Instance(weight, values));
+            }
+            return dataset;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -7,11 +7,13 @@ import org.slf4j.LoggerFactory;
 import weka.classifiers.Classifier;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.Utils;
 import weka.filters.Filter;
 import weka.filters.supervised.instance.StratifiedRemoveFolds;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * A wrapper that wrap weka classification and learning into this one implementation Subclasses need
@@ -21,7 +23,11 @@ import java.util.*;
  * <p/>
  * When neccessary, override {@link #classify(Instance)} method to provide a custom classification
  * method, which might try to consider other parameters (for example, consider Naive Bayes
- * confidence for positive class)
+ * confidence for positive class). If so, also override {@link #classifyDistribution(double[])} so
+ * that batch scoring with {@link #getClassDistributions(Instances)} gives the same decisions.
+ * <p/>
+ * The folds of cross validation are trained at the same time, and the data is shuffled with a fixed
+ * seed, so that tuning gives the same result on every run.
  *
  * @author Zhengzhong Liu, Hector
  */
@@ -39,8 +45,19 @@ public abstract class WekaClassifierWrapper implements Serializable {
 
     private double threshold;
 
+    public static final long DEFAULT_SEED = 1;
+
+    // seed of the data shuffling before cross validation
+    private long seed;
+
+    // number of threads used for training, not part of the model
+    private transient int numThreads;
+
+    // number of instances scored by one task in batch scoring
+    private static final int instancesPerTask = 64;
+
     /**
-     * Create a classifier wrapper with the training data
+     * Create a classifier wrapper with the training data, trained on the calling thread
      *
      * @param trainingData  Provided training data, will be used as train and dev
      * @param fold          Number of folds used in tuning
@@ -49,6 +66,24 @@ public abstract class WekaClassifierWrapper implements Serializable {
      */
     public WekaClassifierWrapper(Instances trainingData, boolean tuneParameter, int fold,
                                  boolean useCv) throws Exception {
+        this(trainingData, tuneParameter, fold, useCv, DEFAULT_SEED, 1);
+    }
+
+    /**
+     * Create a classifier wrapper with the training data
+     *
+     * @param trainingData  Provided training data, will be used as train and dev
+     * @param fold          Number of folds used in tuning
+     * @param tuneParameter Whether to do parameter tuning
+     * @param seed          Seed to shuffle the data for cross validation
+     * @param numThreads    Number of threads to train with
+     * @throws Exception
+     */
+    public WekaClassifierWrapper(Instances trainingData, boolean tuneParameter, int fold,
+                                 boolean useCv, long seed, int numThreads) throws Exception {
+        this.seed = seed;
+        this.numThreads = Math.max(1, numThreads);
+
         String[] options = prepareOptions(trainingData, tuneParameter, fold, useCv);
         Classifier rawCls = configRawClassifier();
         if (options != null)
@@ -72,7 +107,6 @@ public abstract class WekaClassifierWrapper implements Serializable {
      * @return
      */
     protected Instances randomizeData(Instances allData, int fold) {
-        long seed = System.currentTimeMillis();
         Random rand = new Random(seed);
         Instances randData = new Instances(allData);
         randData.randomize(rand);
@@ -166,9 +200,89 @@ public abstract class WekaClassifierWrapper implements Serializable {
     protected void train(Classifier cls, Instances trainingData) throws Exception {
         logger.info("Training classifier ...");
         logger.info("Training instances " + trainingData.numInstances());
-        cls.buildClassifier(trainingData);
+        this.wrappedClassifier = buildClassifier(cls, trainingData, numThreads);
         logger.info("Done.");
-        this.wrappedClassifier = cls;
+    }
+
+    /**
+     * Train a classifier configured like the given one, override it when the classifier can be
+     * trained with several threads.
+     *
+     * @param cls          the untrained classifier, it can be trained and returned
+     * @param trainingData
+     * @param numThreads   number of threads that can be used
+     * @return the trained classifier
+     * @throws Exception
+     */
+    protected Classifier buildClassifier(Classifier cls, Instances trainingData, int numThreads) throws Exception {
+        cls.buildClassifier(trainingData);
+        return cls;
+    }
+
+    /**
+     * Tune the probability cutoff for the best F1 on held out folds. With cross validation, each fold
+     * is trained on a copy of the classifier and the folds run at the same time, the thresholds are
+     * averaged weighted by their F1.
+     *
+     * @param cls                the untrained classifier, which is not modified
+     * @param trainingAndDevData
+     * @param fold               number of folds
+     * @param useCv              whether to use all folds or only the first one
+     * @return the tuned threshold
+     * @throws Exception
+     */
+    protected double tuneThreshold(final Classifier cls, Instances trainingAndDevData, final int fold,
+                                   boolean useCv) throws Exception {
+        final Instances dataFolds = randomizeData(trainingAndDevData, fold);
+        int cvIter = useCv ? fold : 1;
+
+        int numFoldThreads = Math.min(cvIter, numThreads);
+        // the threads left are used inside each fold
+        final int threadsPerFold = Math.max(1, numThreads / numFoldThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(numFoldThreads);
+
+        List<Future<Pair<Double, Double>>> foldResults = new ArrayList<Future<Pair<Double, Double>>>();
+        try {
+            for (int iter = 0; iter < cvIter; iter++) {
+                final int foldIndex = iter;
+                foldResults.add(executor.submit(new Callable<Pair<Double, Double>>() {
+                    @Override
+                    public Pair<Double, Double> call() throws Exception {
+                        Instances trainingData = dataFolds.trainCV(fold, foldIndex);
+                        Instances devData = dataFolds.testCV(fold, foldIndex);
+                        logger.debug(String.format("Tuning threshold with %d training data, %d dev data",
+                                trainingData.numInstances(), devData.numInstances()));
+                        Classifier foldCls = buildClassifier(Classifier.makeCopy(cls), trainingData, threadsPerFold);
+                        Pair<Double, Double> result = findBestF1FromSortedProbs(foldCls, devData);
+                        logger.info("Best threshold find by hold out " + result.getValue0());
+                        return result;
+                    }
+                }));
+            }
+
+            // sum in fold order, so the result does not depend on which fold finishes first
+            double weightedThresholdSum = 0;
+            double normalizer = 0;
+            for (Future<Pair<Double, Double>> foldResult : foldResults) {
+                Pair<Double, Double> result;
+                try {
+                    result = foldResult.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+                double tempThreshold = result.getValue0();
+                double tempF1 = result.getValue1();
+                normalizer += tempF1;
+                weightedThresholdSum += tempThreshold * tempF1;
+            }
+            // get an average over the threshold
+            return weightedThresholdSum / normalizer;
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     /**
@@ -195,9 +309,103 @@ public abstract class WekaClassifierWrapper implements Serializable {
     }
 
     public double[] getClassDistribution(Instance instance) throws Exception {
+        return distributionForInstance(instance);
+    }
+
+    /**
+     * All class distributions of this wrapper are computed here, override it to provide a faster way
+     * to compute the same distribution as the wrapped classifier.
+     *
+     * @param instance
+     * @return
+     * @throws Exception
+     */
+    protected double[] distributionForInstance(Instance instance) throws Exception {
         return wrappedClassifier.distributionForInstance(instance);
     }
 
+    /**
+     * Decide the class label from a class distribution, so that one distribution pass gives both the
+     * label and the confidence. The default picks the most probable class.
+     *
+     * @param distribution
+     * @return
+     */
+    public double classifyDistribution(double[] distribution) {
+        return Utils.maxIndex(distribution);
+    }
+
+    public boolean isPositive(double[] distribution) {
+        return classifyDistribution(distribution) == 1.0;
+    }
+
+    /**
+     * Batch version of {@link #getClassDistribution(Instance)}, compute the class distributions of
+     * all instances of the dataset.
+     *
+     * @param instances
+     * @return the class distribution of each instance, in the order of the dataset
+     * @throws Exception
+     */
+    public double[][] getClassDistributions(Instances instances) throws Exception {
+        return getClassDistributions(instances, null);
+    }
+
+    /**
+     * Batch version of {@link #getClassDistribution(Instance)}, the instances are split into chunks
+     * that are scored on the executor if one is given. The wrapped classifier must be safe to be used
+     * by multiple threads at the same time for prediction, which is true for the Weka tree models.
+     *
+     * @param instances
+     * @param executor  the executor to run the chunks, null to score on the calling thread
+     * @return the class distribution of each instance, in the order of the dataset
+     * @throws Exception
+     */
+    public double[][] getClassDistributions(final Instances instances, ExecutorService executor)
+            throws Exception {
+        final double[][] distributions = new double[instances.numInstances()][];
+
+        if (executor == null || distributions.length <= instancesPerTask) {
+            scoreRange(instances, distributions, 0, distributions.length);
+            return distributions;
+        }
+
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int begin = 0; begin < distributions.length; begin += instancesPerTask) {
+            final int taskBegin = begin;
+            final int taskEnd = Math.min(begin + instancesPerTask, distributions.length);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    scoreRange(instances, distributions, taskBegin, taskEnd);
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+
+        return distributions;
+    }
+
+    private void scoreRange(Instances instances, double[][] distributions, int begin, int end) throws Exception {
+        for (int i = begin; i < end; i++) {
+            distributions[i] = distributionForInstance(instances.instance(i));
+        }
+    }
+
     /**
      * Provide a default way to classify using the tuned threshold, call it when needed
      *
@@ -206,9 +414,17 @@ public abstract class WekaClassifierWrapper implements Serializable {
      * @throws Exception
      */
     protected double classifyWithThreshold(Instance instance) throws Exception {
-        double predictedClassLabel;
+        return classifyWithThreshold(distributionForInstance(instance));
+    }
 
-        double[] distributions = wrappedClassifier.distributionForInstance(instance);
+    /**
+     * Decide the class label from a class distribution using the tuned threshold
+     *
+     * @param distributions
+     * @return
+     */
+    protected double classifyWithThreshold(double[] distributions) {
+        double predictedClassLabel;
 
         double trueProb = distributions[1];
 
@@ -232,7 +448,7 @@ public abstract class WekaClassifierWrapper implements Serializable {
      * @throws Exception
      */
     public double getPositiveClassDistribution(Instance instance) throws Exception {
-        return wrappedClassifier.distributionForInstance(instance)[1];
+        return distributionForInstance(instance)[1];
     }
 
     /**
@@ -347,27 +563,7 @@ public abstract class WekaClassifierWrapper implements Serializable {
         logger.info(String.format("Training and Tuning classifier [%s], total training and development instances: %d, positive examples : %s ",
                 cls.getClass().getSimpleName(), trainingAndDevData.numInstances(), numPositive));
 
-        Instances dataFolds = randomizeData(trainingAndDevData, fold);
-        int cvIter = useCv ? fold : 1;
-
-        double weightedThresholdSum = 0;
-        double normalizer = 0;
-        for (int iter = 0; iter < cvIter; iter++) {
-            double tempThreshold = 0;
-            double tempF1 = 0;
-            Instances trainingData = dataFolds.trainCV(fold, iter);
-            Instances devData = dataFolds.testCV(fold, iter);
-            logger.debug(String.format("Tuning threshold with %d training data, %d dev data", trainingData.numInstances(), devData.numInstances()));
-            cls.buildClassifier(trainingData);
-            Pair<Double, Double> result = findBestF1FromSortedProbs(cls, devData);
-            tempThreshold = result.getValue0();
-            tempF1 = result.getValue1();
-            normalizer += tempF1;
-            weightedThresholdSum += tempThreshold * tempF1;
-            logger.info("Best threshold find by hold out " + tempThreshold);
-        }
-        // get an average over the threshold
-        threshold = weightedThresholdSum / normalizer;
+        threshold = tuneThreshold(cls, trainingAndDevData, fold, useCv);
 
         logger.info("Final threshold after tuning is " + threshold);
 
@@ -160,6 +160,20 @@ public class WekaFeatureFactory {
                 isPositive ? classVal.indexOf(positiveLabel) : classVal.indexOf(otherLabel), weight);
     }
 
+    /**
+     * Create an instance with binary label without adding it to {@link #dataSet}, for writers that
+     * stream the instances instead of keeping the dataset.
+     *
+     * @param featuresMap
+     * @param isPositive
+     * @param weight
+     * @return
+     */
+    public Instance buildLabeledInstance(Map<String, Double> featuresMap, boolean isPositive, int weight) {
+        return buildInstance(featuresMap,
+                isPositive ? classVal.indexOf(positiveLabel) : classVal.indexOf(otherLabel), weight);
+    }
+
     /**
      * Create instance without class and filled class value with a dummy value (-1)
      *
@@ -193,6 +207,36 @@ public class WekaFeatureFactory {
      * @return
      */
     public Instance createInstance(Map<String, Double> featuresMap, int classValIndex, int weight) {
+        Instance instance = buildInstance(featuresMap, classValIndex, weight);
+
+        addInstance(instance, classValIndex == dummyClassIndex);
+
+        return instance;
+    }
+
+    /**
+     * Create a dataset of instances without class, one for each feature map. Unlike
+     * {@link #createInstance(Map, int)}, the instances are not added to {@link #dataSet}, so they can
+     * be scored in batch and discarded afterwards.
+     *
+     * @param featuresMaps
+     * @param weight
+     * @return
+     */
+    public Instances createUnlabeledInstances(List<Map<String, Double>> featuresMaps, int weight) {
+        Instances instances = new Instances(dataSet, featuresMaps.size());
+        for (Map<String, Double> featuresMap : featuresMaps) {
+            Instance instance = buildInstance(featuresMap, dummyClassIndex, weight);
+            instances.add(instance);
+        }
+        // Instances.add copies the instance, set class missing on the copies
+        for (int i = 0; i < instances.numInstances(); i++) {
+            instances.instance(i).setClassMissing();
+        }
+        return instances;
+    }
+
+    private Instance buildInstance(Map<String, Double> featuresMap, int classValIndex, int weight) {
         double[] featureAttValues = new double[dataSet.numAttributes()];
 
         for (Entry<String, Triplet<Integer, Boolean, String>> featureEntry : featureNameMap.entrySet()) {
@@ -226,11 +270,7 @@ public class WekaFeatureFactory {
 
         featureAttValues[dataSet.numAttributes() - 1] = classValIndex;
 
-        Instance instance = new Instance(weight, featureAttValues);
-
-        addInstance(instance, classValIndex == dummyClassIndex);
-
-        return instance;
+        return new Instance(weight, featureAttValues);
     }
 
     /**
@@ -1,11 +1,18 @@
 package edu.cmu.lti.event_coref.utils.ml;
 
-import org.javatuples.Pair;
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.RandomForest;
 import weka.core.Instance;
 import weka.core.Instances;
 
+/**
+ * Random forest classifier with a tuned probability threshold. Prediction uses a
+ * {@link CompiledRandomForest} compiled from the trained forest, which gives the distributions of
+ * the Weka model. The trees are built by {@link ParallelRandomForestBuilder}, on several threads when
+ * the wrapper is created with more than one.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
 public class WekaRandomForestWrapper extends WekaClassifierWrapper {
     /**
      * Generated uid
@@ -13,7 +20,13 @@ public class WekaRandomForestWrapper extends WekaClassifierWrapper {
     private static final long serialVersionUID = -2892077027606690443L;
 
     // weighted average value on a 5-fold cv
-    double forestThreshold = 0.2337950409729744;
+    private static final double defaultForestThreshold = 0.2337950409729744;
+
+    // set in configRawClassifier, a field initializer would run after the tuning in the super constructor
+    double forestThreshold;
+
+    // compiled from the wrapped classifier when first needed, not serialized with the model
+    private transient volatile CompiledRandomForest compiledForest;
 
     public WekaRandomForestWrapper(Instances trainingData,
                                    boolean tuneParameter, int numberOfFold, boolean useCv)
@@ -21,6 +34,11 @@ public class WekaRandomForestWrapper extends WekaClassifierWrapper {
         super(trainingData, tuneParameter, numberOfFold, useCv);
     }
 
+    public WekaRandomForestWrapper(Instances trainingData, boolean tuneParameter, int numberOfFold,
+                                   boolean useCv, long seed, int numThreads) throws Exception {
+        super(trainingData, tuneParameter, numberOfFold, useCv, seed, numThreads);
+    }
+
     @Override
     protected String[] prepareOptions(Instances trainingData,
                                       boolean tuneParameter, int fold, boolean useCv) {
@@ -39,10 +57,16 @@ public class WekaRandomForestWrapper extends WekaClassifierWrapper {
      */
     @Override
     protected Classifier configRawClassifier() throws Exception {
+        forestThreshold = defaultForestThreshold;
         Classifier rf = new RandomForest();
         return rf;
     }
 
+    @Override
+    protected Classifier buildClassifier(Classifier cls, Instances trainingData, int numThreads) throws Exception {
+        return ParallelRandomForestBuilder.build((RandomForest) cls, trainingData, numThreads);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -63,27 +87,7 @@ public class WekaRandomForestWrapper extends WekaClassifierWrapper {
         logger.info(String.format("Training and Tuning RandomForest, total training and development instances: %d, " +
                 "positive examples : %s ", trainingAndDevData.numInstances(), numPositive));
 
-        Instances dataFolds = randomizeData(trainingAndDevData, fold);
-        int cvIter = useCv ? fold : 1;
-
-        double weightedThresholdSum = 0;
-        double normalizer = 0;
-        for (int iter = 0; iter < cvIter; iter++) {
-            double tempThreshold = 0;
-            double tempF1 = 0;
-            Instances trainingData = dataFolds.trainCV(fold, iter);
-            Instances devData = dataFolds.testCV(fold, iter);
-            logger.debug(String.format("%d training data, %d dev data", trainingData.numInstances(), devData.numInstances()));
-            cls.buildClassifier(trainingData);
-            Pair<Double, Double> result = findBestF1FromSortedProbs(cls, devData);
-            tempThreshold = result.getValue0();
-            tempF1 = result.getValue1();
-            normalizer += tempF1;
-            weightedThresholdSum += tempThreshold * tempF1;
-            logger.info("Best threshold find by hold out " + tempThreshold);
-        }
-        // get an average over the threshold
-        forestThreshold = weightedThresholdSum / normalizer;
+        forestThreshold = tuneThreshold(cls, trainingAndDevData, fold, useCv);
 
         logger.info("Final threshold after tuning is " + forestThreshold);
 
@@ -100,10 +104,43 @@ public class WekaRandomForestWrapper extends WekaClassifierWrapper {
      */
     @Override
     public double classify(Instance instance) throws Exception {
-        double predictedClassLabel;
+        return classifyDistribution(distributionForInstance(instance));
+    }
 
-        double[] distributions = wrappedClassifier
-                .distributionForInstance(instance);
+    @Override
+    protected double[] distributionForInstance(Instance instance) throws Exception {
+        if (!(wrappedClassifier instanceof RandomForest || wrappedClassifier instanceof BaggedRandomForest)) {
+            return wrappedClassifier.distributionForInstance(instance);
+        }
+        return getCompiledForest().distributionForInstance(instance);
+    }
+
+    private CompiledRandomForest getCompiledForest() throws Exception {
+        if (compiledForest == null) {
+            synchronized (this) {
+                if (compiledForest == null) {
+                    // models saved before the parallel builder hold a Weka forest
+                    compiledForest = wrappedClassifier instanceof BaggedRandomForest ? CompiledRandomForest
+                            .compile((BaggedRandomForest) wrappedClassifier) : CompiledRandomForest
+                            .compile((RandomForest) wrappedClassifier);
+                    logger.info(String.format("Compiled random forest with %d trees and %d nodes.",
+                            compiledForest.getNumTrees(), compiledForest.getNumNodes()));
+                }
+            }
+        }
+        return compiledForest;
+    }
+
+    @Override
+    protected void train(Classifier cls, Instances trainingData) throws Exception {
+        super.train(cls, trainingData);
+        // the model changed, compile again when needed
+        compiledForest = null;
+    }
+
+    @Override
+    public double classifyDistribution(double[] distributions) {
+        double predictedClassLabel;
 
         double trueProb = distributions[1];
 
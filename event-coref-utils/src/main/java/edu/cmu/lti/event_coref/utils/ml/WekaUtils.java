@@ -16,6 +16,9 @@ public class WekaUtils {
 
   public static Instances readArffData(String fileName, WekaFeatureFactory sampleFactory)
           throws Exception {
+    if (StreamingInstanceWriter.isBinary(new File(fileName))) {
+      return StreamingInstanceWriter.readBinary(new File(fileName));
+    }
     BufferedReader reader = new BufferedReader(new FileReader(fileName));
     Instances data = new Instances(reader);
     reader.close();
@@ -73,13 +76,17 @@ public class WekaUtils {
   }
 
   /**
-   * Reads the specified data in the Weka format (e.g., ARFF), and return instances.
+   * Reads the specified data in the Weka format (e.g., ARFF), or the binary format of
+   * {@link StreamingInstanceWriter}, and return instances.
    * 
    * @param dataFilePath
    * @return
    */
   public static Instances readData(String dataFilePath) {
     try {
+      if (StreamingInstanceWriter.isBinary(new File(dataFilePath))) {
+        return StreamingInstanceWriter.readBinary(new File(dataFilePath));
+      }
       Instances dataset = DataSource.read(dataFilePath);
       dataset.setClassIndex(dataset.numAttributes() - 1);
       return dataset;
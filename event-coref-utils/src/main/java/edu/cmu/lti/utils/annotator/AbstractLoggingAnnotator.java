@@ -1,5 +1,6 @@
 package edu.cmu.lti.utils.annotator;
 
+import edu.cmu.lti.event_coref.utils.ProcessingMetrics;
 import edu.cmu.lti.utils.uima.UimaConvenience;
 import org.apache.uima.UimaContext;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
@@ -78,6 +79,17 @@ public abstract class AbstractLoggingAnnotator extends JCasAnnotator_ImplBase {
         return additionalViews;
     }
 
+    /**
+     * Record a value into the {@link ProcessingMetrics} histogram "EngineName.name", the time and
+     * annotation counts of every engine are measured by {@link edu.cmu.lti.utils.uima.EngineProbe}.
+     *
+     * @param name  metric name, ending with its unit, e.g. "pairs_count"
+     * @param value
+     */
+    protected void recordMetric(String name, long value) {
+        ProcessingMetrics.record(getClass().getSimpleName() + "." + name, value);
+    }
+
     protected String progressInfo(JCas aJCas) {
         return "Processing " + UimaConvenience.getShortDocumentNameWithOffset(aJCas);
     }
@@ -1,6 +1,7 @@
 package edu.cmu.lti.utils.uima;
 
 
+import edu.cmu.lti.event_coref.utils.ProcessingMetrics;
 import edu.cmu.lti.utils.type.ComponentAnnotation;
 import edu.cmu.lti.utils.type.ComponentTOP;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
@@ -8,11 +9,25 @@ import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 /**
  * An implementation of an abstract analysis engine. This analysis engine assumes you to use uimaFIT
  * in your analysis engine inherited from it.
+ * <p/>
+ * Engines can record their own measurements with {@link #recordMetric(String, long)}, the time and
+ * annotation counts of every engine are measured by {@link EngineProbe}.
  * 
  * @author Jun Araki
  */
 public abstract class BaseAnalysisEngine extends JCasAnnotator_ImplBase {
 
+  /**
+   * Record a value into the {@link ProcessingMetrics} histogram "EngineName.name".
+   * 
+   * @param name
+   *          metric name, ending with its unit, e.g. "pairs_count"
+   * @param value
+   */
+  protected void recordMetric(String name, long value) {
+    ProcessingMetrics.record(getClass().getSimpleName() + "." + name, value);
+  }
+
   public void setGoldStandardComponentId(ComponentAnnotation ann) {
     ann.setComponentId(UimaConstants.ComponentId.GOLD_STANDARD.toString());
   }
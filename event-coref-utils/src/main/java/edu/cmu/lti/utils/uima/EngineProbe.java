@@ -0,0 +1,190 @@
+package edu.cmu.lti.utils.uima;
+
+import edu.cmu.lti.event_coref.utils.ProcessingMetrics;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the engines of a chain without changing them. {@link #instrument(AnalysisEngineDescription[], String)}
+ * puts a probe before the first engine and after every engine; each probe closes the measurement of
+ * the engine before it and opens the one of the next engine. For every engine and document it
+ * records into {@link ProcessingMetrics}:
+ * <ul>
+ * <li>wall_us: wall time in microseconds</li>
+ * <li>annotations_in, annotations_out: number of annotations in all views before and after</li>
+ * <li>heap_delta_kb: change of the used heap, negative when a garbage collection happened</li>
+ * </ul>
+ * The whole chain is recorded as "pipeline". Each instrumented chain is a new run: its first probe
+ * drops the metrics of other runs when it is initialized, and replicas of the chain share the run.
+ * The last probe writes the CSV and JSON report at the end of the collection. A chain processes a CAS on one thread, so the open measurement is kept per
+ * thread, and replicas of the chain can run at the same time.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class EngineProbe extends JCasAnnotator_ImplBase {
+    private static final Logger logger = LoggerFactory.getLogger(EngineProbe.class);
+
+    public static final String PARAM_MEASURED_ENGINE = "MeasuredEngine";
+
+    public static final String PARAM_LAST_PROBE = "LastProbe";
+
+    public static final String PARAM_REPORT_PATH = "ReportPath";
+
+    public static final String PARAM_RUN_ID = "RunId";
+
+    public static final String PIPELINE_METRIC = "pipeline";
+
+    private static final AtomicInteger runCounter = new AtomicInteger();
+
+    @ConfigurationParameter(name = PARAM_MEASURED_ENGINE, mandatory = false, description = "Name of the engine before this probe, not set for the first probe")
+    private String measuredEngine;
+
+    @ConfigurationParameter(name = PARAM_LAST_PROBE, mandatory = false, defaultValue = "false")
+    private boolean lastProbe;
+
+    @ConfigurationParameter(name = PARAM_REPORT_PATH, mandatory = false, description = "Report path without extension, .csv and .json are written at the end of the collection")
+    private String reportPath;
+
+    @ConfigurationParameter(name = PARAM_RUN_ID, mandatory = false, description = "Run of the instrumented chain, only set for the first probe")
+    private String runId;
+
+    private static class Mark {
+        private long documentStartNanos;
+
+        private long startNanos;
+
+        private int annotationCount;
+
+        private long usedHeap;
+    }
+
+    private static final ThreadLocal<Mark> openMark = new ThreadLocal<Mark>();
+
+    /**
+     * Put probes around every engine of the chain.
+     *
+     * @param engines    the engines, in processing order
+     * @param reportPath report path without extension, or null not to write a report
+     * @return the engines with the probes
+     * @throws ResourceInitializationException
+     */
+    public static AnalysisEngineDescription[] instrument(AnalysisEngineDescription[] engines, String reportPath)
+            throws ResourceInitializationException {
+        List<AnalysisEngineDescription> instrumented = new ArrayList<AnalysisEngineDescription>();
+        String runId = "run-" + runCounter.incrementAndGet();
+        instrumented.add(AnalysisEngineFactory.createEngineDescription(EngineProbe.class, PARAM_RUN_ID, runId));
+        for (int i = 0; i < engines.length; i++) {
+            String implementationName = engines[i].getAnnotatorImplementationName();
+            // aggregates have no implementation
+            String engineName = String.format("%02d-%s", i, implementationName == null ? engines[i].getMetaData()
+                    .getName() : implementationName.substring(implementationName.lastIndexOf('.') + 1));
+
+            List<Object> configuration = new ArrayList<Object>();
+            configuration.add(PARAM_MEASURED_ENGINE);
+            configuration.add(engineName);
+            if (i == engines.length - 1) {
+                configuration.add(PARAM_LAST_PROBE);
+                configuration.add(true);
+                if (reportPath != null) {
+                    configuration.add(PARAM_REPORT_PATH);
+                    configuration.add(reportPath);
+                }
+            }
+
+            instrumented.add(engines[i]);
+            instrumented.add(AnalysisEngineFactory.createEngineDescription(EngineProbe.class,
+                    configuration.toArray()));
+        }
+        return instrumented.toArray(new AnalysisEngineDescription[instrumented.size()]);
+    }
+
+    @Override
+    public void initialize(UimaContext context) throws ResourceInitializationException {
+        super.initialize(context);
+        if (runId != null) {
+            ProcessingMetrics.startRun(runId);
+        }
+    }
+
+    @Override
+    public void process(JCas aJCas) throws AnalysisEngineProcessException {
+        long endNanos = System.nanoTime();
+        long usedHeap = getUsedHeap();
+        int annotationCount = countAnnotations(aJCas);
+
+        Mark mark = openMark.get();
+        if (measuredEngine != null && mark != null) {
+            ProcessingMetrics.record(measuredEngine + ".wall_us", (endNanos - mark.startNanos) / 1000);
+            ProcessingMetrics.record(measuredEngine + ".annotations_in", mark.annotationCount);
+            ProcessingMetrics.record(measuredEngine + ".annotations_out", annotationCount);
+            ProcessingMetrics.record(measuredEngine + ".heap_delta_kb", (usedHeap - mark.usedHeap) / 1024);
+        }
+
+        if (lastProbe) {
+            if (mark != null) {
+                ProcessingMetrics.record(PIPELINE_METRIC + ".wall_us", (endNanos - mark.documentStartNanos) / 1000);
+            }
+            openMark.remove();
+            return;
+        }
+
+        if (mark == null || measuredEngine == null) {
+            // the first probe starts a new document
+            mark = new Mark();
+            mark.documentStartNanos = endNanos;
+            openMark.set(mark);
+        }
+        mark.annotationCount = annotationCount;
+        mark.usedHeap = usedHeap;
+        // the time of the probe itself is not counted for the next engine
+        mark.startNanos = System.nanoTime();
+    }
+
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static int countAnnotations(JCas aJCas) throws AnalysisEngineProcessException {
+        int count = 0;
+        try {
+            Iterator<JCas> views = aJCas.getViewIterator();
+            while (views.hasNext()) {
+                count += views.next().getAnnotationIndex().size();
+            }
+        } catch (Exception e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+        return count;
+    }
+
+    @Override
+    public void collectionProcessComplete() throws AnalysisEngineProcessException {
+        super.collectionProcessComplete();
+        if (reportPath != null) {
+            try {
+                // every replica writes the report, the last one has all the documents
+                ProcessingMetrics.writeCsv(new File(reportPath + ".csv"));
+                ProcessingMetrics.writeJson(new File(reportPath + ".json"));
+                logger.info("Processing metrics are written to " + reportPath + ".csv and .json");
+            } catch (IOException e) {
+                throw new AnalysisEngineProcessException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package edu.cmu.lti.event_coref.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The percentiles of the histogram must stay within a factor of two of the exact ones, be exact when
+ * all values are the same, and the exact statistics must be exact.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class HistogramTest {
+    private static final double[] quantiles = {0.01, 0.1, 0.5, 0.9, 0.99, 1};
+
+    @Test
+    public void percentilesAreWithinFactorOfTwo() {
+        Histogram histogram = new Histogram();
+        int numValues = 1000;
+        for (int value = 1; value <= numValues; value++) {
+            histogram.record(value);
+        }
+
+        for (double quantile : quantiles) {
+            long exact = (long) Math.ceil(quantile * numValues);
+            long percentile = histogram.getPercentile(quantile);
+            assertTrue(quantile + " : " + percentile, percentile >= exact / 2 && percentile <= exact * 2);
+        }
+        assertEquals(numValues, histogram.getPercentile(1));
+        assertEquals(1, histogram.getMin());
+        assertEquals(numValues, histogram.getMax());
+        assertEquals(numValues * (numValues + 1) / 2, histogram.getSum());
+        assertEquals((numValues + 1) / 2.0, histogram.getMean(), 0);
+    }
+
+    @Test
+    public void percentilesOfOneValueAreExact() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5);
+        }
+        for (double quantile : quantiles) {
+            assertEquals(5, histogram.getPercentile(quantile));
+        }
+    }
+
+    @Test
+    public void negativeValuesComeFirst() {
+        Histogram histogram = new Histogram();
+        histogram.record(-100);
+        histogram.record(0);
+        histogram.record(100);
+
+        long lowest = histogram.getPercentile(0.3);
+        assertTrue(String.valueOf(lowest), lowest >= -100 && lowest <= -50);
+        assertEquals(0, histogram.getPercentile(0.5));
+        assertEquals(100, histogram.getPercentile(1));
+    }
+}
@@ -0,0 +1,72 @@
+package edu.cmu.lti.event_coref.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * A model is loaded once for all its users and dropped with the last one, and a pool loads one
+ * instance per user and never gives the same instance to two documents at once.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class ModelRegistryTest {
+    private static class CountingLoader implements ModelRegistry.Loader<Object> {
+        private final AtomicInteger numLoads = new AtomicInteger();
+
+        @Override
+        public Object load() {
+            numLoads.incrementAndGet();
+            return new Object();
+        }
+    }
+
+    @Test
+    public void modelIsSharedUntilLastRelease() throws Exception {
+        String key = "test:shared";
+        CountingLoader loader = new CountingLoader();
+        Object model = ModelRegistry.acquire(key, loader);
+        assertSame(model, ModelRegistry.acquire(key, loader));
+        assertEquals(1, loader.numLoads.get());
+        assertEquals(2, ModelRegistry.getReferenceCount(key));
+
+        ModelRegistry.release(key);
+        assertEquals(1, ModelRegistry.getReferenceCount(key));
+        ModelRegistry.release(key);
+        assertEquals(0, ModelRegistry.getReferenceCount(key));
+
+        assertNotSame(model, ModelRegistry.acquire(key, loader));
+        assertEquals(2, loader.numLoads.get());
+        ModelRegistry.release(key);
+    }
+
+    @Test
+    public void poolHasOneInstancePerUser() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        ModelRegistry.Pool<Object> pool = new ModelRegistry.Pool<Object>(loader);
+        pool.addUser();
+        pool.addUser();
+        assertEquals(2, loader.numLoads.get());
+
+        Object first = pool.take();
+        Object second = pool.take();
+        assertNotSame(first, second);
+        assertEquals(2, loader.numLoads.get());
+
+        // more documents than users at once get a new instance
+        Object third = pool.take();
+        assertEquals(3, pool.getNumInstances());
+        pool.give(first);
+        pool.give(second);
+        pool.give(third);
+
+        // a free instance is reused
+        assertNotNull(pool.take());
+        assertEquals(3, loader.numLoads.get());
+
+        pool.removeUser();
+        assertEquals(2, pool.getNumInstances());
+    }
+}
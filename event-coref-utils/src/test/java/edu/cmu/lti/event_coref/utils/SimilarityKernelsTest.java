@@ -0,0 +1,124 @@
+package edu.cmu.lti.event_coref.utils;
+
+import net.ricecode.similarity.DiceCoefficientStrategy;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The Dice kernels must give the scores of the Dice strategy of net.ricecode.similarity, and the dot
+ * kernels the dot product of the vectors taken in double.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class SimilarityKernelsTest {
+    private static final int numPairs = 2000;
+
+    private static final double tolerance = 1e-12;
+
+    // a small alphabet, so that the strings share bigrams
+    private static final String alphabet = "abcde";
+
+    private static String randomString(Random random) {
+        int length = 1 + random.nextInt(8);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void diceGivesStrategyScores() {
+        DiceCoefficientStrategy strategy = new DiceCoefficientStrategy();
+        Random random = new Random(1);
+        for (int i = 0; i < numPairs; i++) {
+            String text1 = randomString(random);
+            String text2 = randomString(random);
+            String pair = text1 + " " + text2;
+            int len1 = text1.length();
+            int len2 = text2.length();
+            int n = Math.min(len1, len2);
+
+            double dice = strategy.score(text1, text2);
+            double prefixDice = strategy.score(text1.substring(0, n), text2.substring(0, n));
+            double suffixDice = strategy.score(text1.substring(len1 - n), text2.substring(len2 - n));
+
+            assertEquals(pair, dice, SimilarityKernels.dice(text1, text2), tolerance);
+            assertEquals(pair, prefixDice, SimilarityKernels.prefixDice(text1, text2), tolerance);
+            assertEquals(pair, suffixDice, SimilarityKernels.suffixDice(text1, text2), tolerance);
+            assertEquals(pair, Math.max(suffixDice, Math.max(dice, prefixDice)),
+                    SimilarityKernels.relaxedDice(text1, text2), tolerance);
+        }
+    }
+
+    @Test
+    public void profilesCountDistinctBigrams() {
+        assertEquals(1, SimilarityKernels.profile("a").size());
+        assertEquals(1, SimilarityKernels.profile("aaa").size());
+        assertEquals(2, SimilarityKernels.profile("abab").size());
+        assertEquals(2, SimilarityKernels.profile("xabab", 1, 5).size());
+        assertEquals(1.0, SimilarityKernels.dice("ab", "ab"), tolerance);
+        assertEquals(0.0, SimilarityKernels.dice("a", "b"), tolerance);
+    }
+
+    @Test
+    public void dotGivesDoubleDotProduct() {
+        Random random = new Random(2);
+        for (int length = 0; length < 20; length++) {
+            float[] vectors = new float[2 * length + 3];
+            for (int i = 0; i < vectors.length; i++) {
+                vectors[i] = (float) random.nextGaussian();
+            }
+            int offset1 = 1;
+            int offset2 = length + 3;
+
+            double expected = 0;
+            for (int i = 0; i < length; i++) {
+                expected += (double) vectors[offset1 + i] * vectors[offset2 + i];
+            }
+
+            assertEquals(expected, SimilarityKernels.dot(vectors, offset1, vectors, offset2, length), tolerance);
+
+            // a direct buffer has no accessible array
+            FloatBuffer direct = ByteBuffer.allocateDirect(4 * vectors.length).asFloatBuffer();
+            direct.put(vectors);
+            direct.rewind();
+            assertEquals(expected, SimilarityKernels.dot(direct, offset1, offset2, length), tolerance);
+        }
+    }
+
+    @Test
+    public void normalizedVectorsGiveCosine() {
+        Random random = new Random(3);
+        float[] vector1 = new float[50];
+        float[] vector2 = new float[50];
+        for (int i = 0; i < vector1.length; i++) {
+            vector1[i] = (float) random.nextGaussian();
+            vector2[i] = (float) random.nextGaussian();
+        }
+
+        double dot = 0;
+        double squaredNorm1 = 0;
+        double squaredNorm2 = 0;
+        for (int i = 0; i < vector1.length; i++) {
+            dot += (double) vector1[i] * vector2[i];
+            squaredNorm1 += (double) vector1[i] * vector1[i];
+            squaredNorm2 += (double) vector2[i] * vector2[i];
+        }
+        double cosine = dot / Math.sqrt(squaredNorm1 * squaredNorm2);
+
+        float[] normalized1 = SimilarityKernels.normalize(vector1);
+        float[] normalized2 = SimilarityKernels.normalize(vector2);
+        // the normalized vectors are rounded to float
+        assertEquals(1.0, SimilarityKernels.dot(normalized1, 0, normalized1, 0, normalized1.length), 1e-6);
+        assertEquals(cosine, SimilarityKernels.cosineOfNormalized(normalized1, normalized2), 1e-6);
+
+        float[] zero = SimilarityKernels.normalize(new float[3]);
+        assertEquals(0.0, SimilarityKernels.dot(zero, 0, zero, 0, zero.length), 0);
+    }
+}
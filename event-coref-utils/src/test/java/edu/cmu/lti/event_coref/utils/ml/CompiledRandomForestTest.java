@@ -0,0 +1,63 @@
+package edu.cmu.lti.event_coref.utils.ml;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import weka.classifiers.Classifier;
+import weka.classifiers.trees.RandomForest;
+import weka.core.Instances;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The compiled forest must give the distributions of the Weka forest it is compiled from, including
+ * for missing values, which are sent down all branches.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class CompiledRandomForestTest {
+    private static final double tolerance = 1e-9;
+
+    private static Instances trainingData;
+
+    private static Instances testData;
+
+    @BeforeClass
+    public static void setUp() {
+        trainingData = SyntheticInstances.create(500, 0.1, 1);
+        testData = SyntheticInstances.create(300, 0.2, 2);
+    }
+
+    @Test
+    public void compiledForestGivesWekaDistributions() throws Exception {
+        RandomForest forest = new RandomForest();
+        forest.setNumTrees(11);
+        forest.setSeed(3);
+        forest.buildClassifier(trainingData);
+
+        CompiledRandomForest compiled = CompiledRandomForest.compile(forest);
+        assertEquals(11, compiled.getNumTrees());
+        assertEquals(2, compiled.getNumClasses());
+
+        for (int i = 0; i < testData.numInstances(); i++) {
+            assertArrayEquals("Instance " + i, forest.distributionForInstance(testData.instance(i)),
+                    compiled.distributionForInstance(testData.instance(i)), tolerance);
+        }
+        assertEquals(0, compiled.maxDifference(forest, testData), tolerance);
+    }
+
+    @Test
+    public void wrapperScoresWithWekaDistributions() throws Exception {
+        WekaRandomForestWrapper wrapper = new WekaRandomForestWrapper(trainingData, false, 5, false,
+                WekaClassifierWrapper.DEFAULT_SEED, 1);
+        Classifier forest = wrapper.getClassifier();
+
+        double[][] batchDistributions = wrapper.getClassDistributions(testData);
+        for (int i = 0; i < testData.numInstances(); i++) {
+            double[] expected = forest.distributionForInstance(testData.instance(i));
+            assertArrayEquals("Instance " + i, expected, wrapper.getClassDistribution(testData.instance(i)),
+                    tolerance);
+            assertArrayEquals("Batch instance " + i, expected, batchDistributions[i], tolerance);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package edu.cmu.lti.event_coref.utils.ml;
+
+import org.javatuples.Pair;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import weka.classifiers.Classifier;
+import weka.classifiers.trees.RandomForest;
+import weka.core.Instances;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The forest must not depend on the number of threads, and must predict like the Weka forests of one
+ * tree seeded like its trees, i.e. like building those trees one after another and averaging them. It
+ * must refuse to give an out of bag error it does not know. Threshold tuning with parallel folds must give the threshold of the sequential fold loop.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class ParallelRandomForestBuilderTest {
+    private static final double tolerance = 1e-9;
+
+    private static final int numTrees = 9;
+
+    private static final int seed = 5;
+
+    private static Instances trainingData;
+
+    private static Instances testData;
+
+    @BeforeClass
+    public static void setUp() {
+        trainingData = SyntheticInstances.create(400, 0.1, 3);
+        testData = SyntheticInstances.create(200, 0.2, 4);
+    }
+
+    private static RandomForest createTemplate() {
+        RandomForest template = new RandomForest();
+        template.setNumTrees(numTrees);
+        template.setSeed(seed);
+        return template;
+    }
+
+    @Test
+    public void forestDoesNotDependOnThreads() throws Exception {
+        BaggedRandomForest sequential = ParallelRandomForestBuilder.build(createTemplate(), trainingData, 1);
+        BaggedRandomForest parallel = ParallelRandomForestBuilder.build(createTemplate(), trainingData, 4);
+        assertEquals(numTrees, sequential.getNumTrees());
+        assertEquals(numTrees, parallel.getNumTrees());
+
+        for (int i = 0; i < testData.numInstances(); i++) {
+            assertArrayEquals("Instance " + i, sequential.distributionForInstance(testData.instance(i)),
+                    parallel.distributionForInstance(testData.instance(i)), tolerance);
+        }
+    }
+
+    @Test
+    public void forestAveragesWekaSingleTreeForests() throws Exception {
+        BaggedRandomForest forest = ParallelRandomForestBuilder.build(createTemplate(), trainingData, 4);
+
+        // the same trees, built by Weka one by one
+        RandomForest[] singleTreeForests = new RandomForest[numTrees];
+        for (int t = 0; t < numTrees; t++) {
+            singleTreeForests[t] = new RandomForest();
+            singleTreeForests[t].setNumTrees(1);
+            singleTreeForests[t].setSeed(seed + t);
+            singleTreeForests[t].buildClassifier(trainingData);
+        }
+
+        for (int i = 0; i < testData.numInstances(); i++) {
+            double[] expected = new double[testData.numClasses()];
+            for (RandomForest singleTreeForest : singleTreeForests) {
+                double[] distribution = singleTreeForest.distributionForInstance(testData.instance(i));
+                for (int c = 0; c < expected.length; c++) {
+                    expected[c] += distribution[c] / numTrees;
+                }
+            }
+            assertArrayEquals("Instance " + i, expected, forest.distributionForInstance(testData.instance(i)),
+                    tolerance);
+        }
+
+        // and the forest can be compiled like a Weka one
+        assertEquals(0, CompiledRandomForest.compile(forest).maxDifference(forest, testData), tolerance);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void outOfBagErrorIsUnsupported() throws Exception {
+        ParallelRandomForestBuilder.build(createTemplate(), trainingData, 2).measureOutOfBagError();
+    }
+
+    @Test
+    public void tunedWrapperDoesNotDependOnThreads() throws Exception {
+        WekaRandomForestWrapper sequential = new WekaRandomForestWrapper(trainingData, true, 3, true,
+                WekaClassifierWrapper.DEFAULT_SEED, 1);
+        WekaRandomForestWrapper parallel = new WekaRandomForestWrapper(trainingData, true, 3, true,
+                WekaClassifierWrapper.DEFAULT_SEED, 4);
+
+        for (int i = 0; i < testData.numInstances(); i++) {
+            double[] distribution = sequential.getClassDistribution(testData.instance(i));
+            assertArrayEquals("Instance " + i, distribution, parallel.getClassDistribution(testData.instance(i)),
+                    tolerance);
+            assertEquals("Instance " + i, sequential.classifyDistribution(distribution),
+                    parallel.classifyDistribution(distribution), 0);
+        }
+    }
+
+    @Test
+    public void parallelTuningGivesSequentialThreshold() throws Exception {
+        int fold = 3;
+        WekaRandomForestWrapper wrapper = new WekaRandomForestWrapper(trainingData, false, fold, true,
+                WekaClassifierWrapper.DEFAULT_SEED, 4);
+
+        // the fold loop as it was, one fold after another on the calling thread
+        Instances dataFolds = wrapper.randomizeData(trainingData, fold);
+        double weightedThresholdSum = 0;
+        double normalizer = 0;
+        for (int iter = 0; iter < fold; iter++) {
+            Classifier foldCls = wrapper.buildClassifier(createTemplate(), dataFolds.trainCV(fold, iter), 1);
+            Pair<Double, Double> result = wrapper.findBestF1FromSortedProbs(foldCls, dataFolds.testCV(fold, iter));
+            normalizer += result.getValue1();
+            weightedThresholdSum += result.getValue0() * result.getValue1();
+        }
+
+        assertEquals(weightedThresholdSum / normalizer,
+                wrapper.tuneThreshold(createTemplate(), trainingData, fold, true), 0);
+    }
+}
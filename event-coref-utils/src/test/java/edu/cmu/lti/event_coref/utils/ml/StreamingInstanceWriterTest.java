@@ -0,0 +1,157 @@
+package edu.cmu.lti.event_coref.utils.ml;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import weka.core.Instances;
+
+import java.io.*;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * A run that crashes in the middle of a row and is resumed must give the output of a run that did
+ * not crash, in all formats.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+public class StreamingInstanceWriterTest {
+    private static final int numDocuments = 5;
+
+    private static final int rowsPerDocument = 3;
+
+    // the document that is being written when the run crashes
+    private static final int crashedDocument = 3;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Instances data = SyntheticInstances.create(numDocuments * rowsPerDocument, 0.1, 1);
+
+    private static String documentId(int document) {
+        return "doc" + document;
+    }
+
+    private void writeDocuments(StreamingInstanceWriter writer, int from, int to) throws IOException {
+        for (int document = from; document < to; document++) {
+            for (int row = 0; row < rowsPerDocument; row++) {
+                writer.add(data.instance(document * rowsPerDocument + row));
+            }
+            writer.finishDocument(documentId(document));
+        }
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            in.readFully(bytes);
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    private static void append(File file, byte[] bytes, int offset, int length) throws IOException {
+        OutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write(bytes, offset, length);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return the output length recorded after the document
+     */
+    private static int recordedLength(File progressFile, int document) throws IOException {
+        String line = new String(read(progressFile), UTF8).split("\n")[document];
+        return Integer.parseInt(line.substring(line.lastIndexOf('\t') + 1));
+    }
+
+    private void checkResumeAfterCrash(StreamingInstanceWriter.Format format) throws IOException {
+        File expectedFile = folder.newFile("expected-" + format);
+        StreamingInstanceWriter writer = new StreamingInstanceWriter(expectedFile, data, format, false);
+        writeDocuments(writer, 0, numDocuments);
+        writer.close();
+        assertEquals(numDocuments * rowsPerDocument, writer.getNumInstances());
+        byte[] expected = read(expectedFile);
+        File expectedProgressFile = StreamingInstanceWriter.getProgressFile(expectedFile);
+
+        File outputFile = folder.newFile("output-" + format);
+        writer = new StreamingInstanceWriter(outputFile, data, format, false);
+        writeDocuments(writer, 0, crashedDocument);
+        writer.close();
+
+        // the crash cuts the first row of the next document, and its progress line
+        int start = recordedLength(expectedProgressFile, crashedDocument - 1);
+        int rowEnd = start + (recordedLength(expectedProgressFile, crashedDocument) - start) / rowsPerDocument;
+        append(outputFile, expected, start, (start + rowEnd) / 2 - start);
+        byte[] cutProgress = (documentId(crashedDocument) + "\t1").getBytes(UTF8);
+        append(StreamingInstanceWriter.getProgressFile(outputFile), cutProgress, 0, cutProgress.length);
+
+        writer = new StreamingInstanceWriter(outputFile, data, format, true);
+        for (int document = 0; document < numDocuments; document++) {
+            assertEquals(documentId(document), document < crashedDocument, writer.isFinished(documentId(document)));
+        }
+        writeDocuments(writer, crashedDocument, numDocuments);
+        writer.close();
+        assertEquals((numDocuments - crashedDocument) * rowsPerDocument, writer.getNumInstances());
+
+        assertArrayEquals(format.toString(), expected, read(outputFile));
+        assertArrayEquals(format.toString(), read(expectedProgressFile),
+                read(StreamingInstanceWriter.getProgressFile(outputFile)));
+    }
+
+    @Test
+    public void resumedDenseArffMatchesUninterruptedRun() throws IOException {
+        checkResumeAfterCrash(StreamingInstanceWriter.Format.DENSE_ARFF);
+    }
+
+    @Test
+    public void resumedSparseArffMatchesUninterruptedRun() throws IOException {
+        checkResumeAfterCrash(StreamingInstanceWriter.Format.SPARSE_ARFF);
+    }
+
+    @Test
+    public void resumedBinaryMatchesUninterruptedRun() throws IOException {
+        checkResumeAfterCrash(StreamingInstanceWriter.Format.BINARY);
+    }
+
+    @Test
+    public void binaryOutputReadsBack() throws IOException {
+        File outputFile = folder.newFile("binary");
+        StreamingInstanceWriter writer = new StreamingInstanceWriter(outputFile, data,
+                StreamingInstanceWriter.Format.BINARY, false);
+        writeDocuments(writer, 0, numDocuments);
+        writer.close();
+
+        assertTrue(StreamingInstanceWriter.isBinary(outputFile));
+        Instances readData = StreamingInstanceWriter.readBinary(outputFile);
+        assertEquals(data.numInstances(), readData.numInstances());
+        for (int i = 0; i < data.numInstances(); i++) {
+            for (int j = 0; j < data.numAttributes(); j++) {
+                double value = data.instance(i).value(j);
+                double readValue = readData.instance(i).value(j);
+                // missing values are stored as NaN
+                assertTrue(i + "," + j, Double.isNaN(value) ? Double.isNaN(readValue) : value == readValue);
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void resumeWithOtherFeaturesFails() throws IOException {
+        File outputFile = folder.newFile("other-features");
+        StreamingInstanceWriter writer = new StreamingInstanceWriter(outputFile, data,
+                StreamingInstanceWriter.Format.DENSE_ARFF, false);
+        writeDocuments(writer, 0, 1);
+        writer.close();
+
+        Instances otherData = new Instances(data, 0);
+        otherData.deleteAttributeAt(0);
+        new StreamingInstanceWriter(outputFile, otherData, StreamingInstanceWriter.Format.DENSE_ARFF, true);
+    }
+}
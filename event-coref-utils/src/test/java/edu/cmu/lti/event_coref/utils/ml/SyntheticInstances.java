@@ -0,0 +1,67 @@
+package edu.cmu.lti.event_coref.utils.ml;
+
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Random;
+
+/**
+ * Small binary classification data sets for the tests of the classifiers: numeric and nominal
+ * features with missing values, and a noisy label, so that the trees have both kinds of splits.
+ *
+ * @author Zhengzhong Liu, Hector
+ */
+class SyntheticInstances {
+    static final int numNumericAttributes = 6;
+
+    static final int numNominalValues = 3;
+
+    /**
+     * @param numInstances
+     * @param missingRate  probability of each feature value to be missing
+     * @param seed
+     * @return the instances, the class is the last attribute
+     */
+    static Instances create(int numInstances, double missingRate, long seed) {
+        FastVector attributes = new FastVector();
+        for (int i = 0; i < numNumericAttributes; i++) {
+            attributes.addElement(new Attribute("numeric_" + i));
+        }
+        FastVector nominalValues = new FastVector();
+        for (int i = 0; i < numNominalValues; i++) {
+            nominalValues.addElement("value_" + i);
+        }
+        attributes.addElement(new Attribute("nominal", nominalValues));
+        FastVector classValues = new FastVector();
+        classValues.addElement("0");
+        classValues.addElement("1");
+        attributes.addElement(new Attribute("class", classValues));
+
+        Instances data = new Instances("synthetic", attributes, numInstances);
+        data.setClassIndex(data.numAttributes() - 1);
+
+        Random random = new Random(seed);
+        for (int n = 0; n < numInstances; n++) {
+            double[] values = new double[data.numAttributes()];
+            double score = 0;
+            for (int i = 0; i < numNumericAttributes; i++) {
+                values[i] = random.nextGaussian();
+                score += (i % 2 == 0 ? 1 : -0.5) * values[i];
+            }
+            int nominal = random.nextInt(numNominalValues);
+            values[numNumericAttributes] = nominal;
+            score += nominal == 0 ? 1 : 0;
+            values[data.classIndex()] = score + 0.5 * random.nextGaussian() > 0.5 ? 1 : 0;
+
+            for (int i = 0; i < data.classIndex(); i++) {
+                if (random.nextDouble() < missingRate) {
+                    values[i] = Instance.missingValue();
+                }
+            }
+            data.add(new Instance(1, values));
+        }
+        return data;
+    }
+}
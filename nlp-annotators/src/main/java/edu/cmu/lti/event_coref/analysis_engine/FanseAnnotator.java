@@ -2,6 +2,7 @@ package edu.cmu.lti.event_coref.analysis_engine;
 
 import com.google.common.collect.ArrayListMultimap;
 import edu.cmu.lti.event_coref.type.*;
+import edu.cmu.lti.event_coref.utils.ModelRegistry;
 import edu.cmu.lti.utils.uima.UimaConvenience;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -47,31 +48,61 @@ public class FanseAnnotator extends JCasAnnotator_ImplBase {
     public final static String DEFAULT_SENTENCE_READER_CLASS = tratz.parse.io.ConllxSentenceReader.class
             .getName();
 
-    FullSystemWrapper fullSystemWrapper = null;
+    private String parserKey;
+
+    private ModelRegistry.Pool<FullSystemWrapper> parserPool;
 
     @Override
     public void initialize(UimaContext aContext)
             throws ResourceInitializationException {
         super.initialize(aContext);
+        // the parser keeps state while parsing, so the annotators with the same models share a pool
+        // of parsers, of which each document takes one
+        parserKey = "fanse:" + new File(modeBaseDir).getAbsolutePath();
+        parserPool = ModelRegistry.acquire(parserKey,
+                new ModelRegistry.Loader<ModelRegistry.Pool<FullSystemWrapper>>() {
+                    @Override
+                    public ModelRegistry.Pool<FullSystemWrapper> load() {
+                        return new ModelRegistry.Pool<FullSystemWrapper>(createParserLoader(modeBaseDir));
+                    }
+                });
         try {
-            fullSystemWrapper = new FullSystemWrapper(
-                    joinPath(modeBaseDir, PREPOSITION_MODELS),
-                    joinPath(modeBaseDir, NOUN_COMPOUND_MODEL),
-                    joinPath(modeBaseDir, POSSESSIVES_MODEL),
-                    joinPath(modeBaseDir, SRL_ARGS_MODELS),
-                    joinPath(modeBaseDir, SRL_PREDICATE_MODELS),
-                    joinPath(modeBaseDir, POS_MODEL),
-                    joinPath(modeBaseDir, PARSE_MODEL),
-                    joinPath(modeBaseDir, WORDNET)
-            );
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new ResourceInitializationException();
+            parserPool.addUser();
+        } catch (ResourceInitializationException e) {
+            ModelRegistry.release(parserKey);
+            throw e;
         }
     }
 
+    private static ModelRegistry.Loader<FullSystemWrapper> createParserLoader(final String modelBaseDir) {
+        return new ModelRegistry.Loader<FullSystemWrapper>() {
+            @Override
+            public FullSystemWrapper load() throws Exception {
+                return new FullSystemWrapper(
+                        joinPath(modelBaseDir, PREPOSITION_MODELS),
+                        joinPath(modelBaseDir, NOUN_COMPOUND_MODEL),
+                        joinPath(modelBaseDir, POSSESSIVES_MODEL),
+                        joinPath(modelBaseDir, SRL_ARGS_MODELS),
+                        joinPath(modelBaseDir, SRL_PREDICATE_MODELS),
+                        joinPath(modelBaseDir, POS_MODEL),
+                        joinPath(modelBaseDir, PARSE_MODEL),
+                        joinPath(modelBaseDir, WORDNET)
+                );
+            }
+        };
+    }
+
+    @Override
+    public void destroy() {
+        if (parserPool != null) {
+            parserPool.removeUser();
+            ModelRegistry.release(parserKey);
+            parserPool = null;
+        }
+        super.destroy();
+    }
 
-    private String joinPath(String d, String f) {
+    private static String joinPath(String d, String f) {
         return new File(d, f).getAbsolutePath();
     }
 
@@ -79,6 +110,21 @@ public class FanseAnnotator extends JCasAnnotator_ImplBase {
     public void process(JCas aJCas) throws AnalysisEngineProcessException {
         UimaConvenience.printProcessLog(aJCas, logger);
 
+        FullSystemWrapper fullSystemWrapper;
+        try {
+            fullSystemWrapper = parserPool.take();
+        } catch (Exception e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+        try {
+            parse(aJCas, fullSystemWrapper);
+        } finally {
+            parserPool.give(fullSystemWrapper);
+        }
+    }
+
+    private void parse(JCas aJCas, FullSystemWrapper fullSystemWrapper) throws AnalysisEngineProcessException {
+
         Collection<Sentence> sentList = JCasUtil.select(aJCas, Sentence.class);
 
         for (Sentence sent : sentList) {
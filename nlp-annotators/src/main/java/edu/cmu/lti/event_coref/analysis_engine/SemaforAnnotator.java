@@ -5,6 +5,7 @@ import edu.cmu.cs.lti.ark.fn.parsing.SemaforParseResult;
 import edu.cmu.cs.lti.ark.fn.pipeline.SemaforFullPipeline;
 import edu.cmu.cs.lti.ark.fn.pipeline.parsing.ParsingException;
 import edu.cmu.lti.event_coref.type.*;
+import edu.cmu.lti.event_coref.utils.ModelRegistry;
 import edu.cmu.lti.utils.annotator.AbstractLoggingAnnotator;
 import edu.cmu.lti.utils.uima.UimaAnnotationUtils;
 import org.apache.uima.UimaContext;
@@ -14,11 +15,9 @@ import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.cas.FSArray;
 import org.apache.uima.resource.ResourceInitializationException;
-import org.maltparser.core.exception.MaltChainedException;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,32 +36,71 @@ public class SemaforAnnotator extends AbstractLoggingAnnotator {
 
     public static final String COMPONENT_ID = SemaforAnnotator.class.getSimpleName();
 
-    SemaforFullPipeline semafor;
+    private String semaforKey;
+
+    private ModelRegistry.Pool<SemaforFullPipeline> semaforPool;
 
     @Override
     public void initialize(UimaContext aContext) throws ResourceInitializationException {
         super.initialize(aContext);
 
-        File semaforModelDir = new File((String) aContext.getConfigParameterValue(SEMAFOR_MODEL_PATH));
-
+        final File semaforModelDir = new File((String) aContext.getConfigParameterValue(SEMAFOR_MODEL_PATH));
+
+        logger.info(String.format("Initializing from model : %s", semaforModelDir.getAbsolutePath()));
+
+        // Semafor and its MaltParser are not thread safe, so the annotators with the same model share
+        // a pool of parsers, of which each document takes one
+        semaforKey = "semafor:" + semaforModelDir.getAbsolutePath();
+        semaforPool = ModelRegistry.acquire(semaforKey,
+                new ModelRegistry.Loader<ModelRegistry.Pool<SemaforFullPipeline>>() {
+                    @Override
+                    public ModelRegistry.Pool<SemaforFullPipeline> load() {
+                        return new ModelRegistry.Pool<SemaforFullPipeline>(new ModelRegistry.Loader<SemaforFullPipeline>() {
+                            @Override
+                            public SemaforFullPipeline load() throws Exception {
+                                return new SemaforFullPipeline(semaforModelDir);
+                            }
+                        });
+                    }
+                });
         try {
-            logger.info(String.format("Initializing from model : %s", semaforModelDir.getCanonicalPath()));
-            semafor = new SemaforFullPipeline(semaforModelDir);
-        } catch (IOException | URISyntaxException | ClassNotFoundException | MaltChainedException e) {
-            throw new IllegalArgumentException();
+            semaforPool.addUser();
+        } catch (ResourceInitializationException e) {
+            ModelRegistry.release(semaforKey);
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (semaforPool != null) {
+            semaforPool.removeUser();
+            ModelRegistry.release(semaforKey);
+            semaforPool = null;
         }
+        super.destroy();
     }
 
     @Override
     public void process(JCas aJCas) throws AnalysisEngineProcessException {
-        annotateSemafor(aJCas);
-        for (JCas view : getAdditionalViews(aJCas)) {
-            annotateSemafor(view);
+        SemaforFullPipeline semafor;
+        try {
+            semafor = semaforPool.take();
+        } catch (Exception e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+        try {
+            annotateSemafor(aJCas, semafor);
+            for (JCas view : getAdditionalViews(aJCas)) {
+                annotateSemafor(view, semafor);
+            }
+        } finally {
+            semaforPool.give(semafor);
         }
     }
 
 
-    private void annotateSemafor(JCas aJCas) {
+    private void annotateSemafor(JCas aJCas, SemaforFullPipeline semafor) {
         for (Sentence sentence : JCasUtil.select(aJCas, Sentence.class)) {
             List<Token> semaforTokens = new ArrayList<>();
 
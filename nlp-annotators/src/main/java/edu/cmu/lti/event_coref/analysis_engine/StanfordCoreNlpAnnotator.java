@@ -2,6 +2,7 @@ package edu.cmu.lti.event_coref.analysis_engine;
 
 import com.google.common.collect.ArrayListMultimap;
 import edu.cmu.lti.event_coref.type.*;
+import edu.cmu.lti.event_coref.utils.ModelRegistry;
 import edu.cmu.lti.utils.general.ErrorUtils;
 import edu.cmu.lti.utils.general.FileUtils;
 import edu.cmu.lti.utils.general.TimeUtils;
@@ -69,7 +70,23 @@ public class StanfordCoreNlpAnnotator extends JCasAnnotator_ImplBase {
 
     private final static String ANNOTATOR_COMPONENT_ID = "System-stanford-corenlp";
 
-    private StanfordCoreNLP pipeline;
+    private String parsersKey;
+
+    private ModelRegistry.Pool<Parsers> parsersPool;
+
+    /**
+     * The CoreNLP pipeline and SUTime of one configuration, used by one document at a time.
+     */
+    private static class Parsers {
+        private final StanfordCoreNLP pipeline;
+
+        private final TimeAnnotator timeAnnotator;
+
+        private Parsers(StanfordCoreNLP pipeline, TimeAnnotator timeAnnotator) {
+            this.pipeline = pipeline;
+            this.timeAnnotator = timeAnnotator;
+        }
+    }
 
     private final static String PARSE_TREE_ROOT_NODE_LABEL = "ROOT";
 
@@ -80,7 +97,7 @@ public class StanfordCoreNlpAnnotator extends JCasAnnotator_ImplBase {
             throws ResourceInitializationException {
         super.initialize(aContext);
 
-        Properties props = new Properties();
+        final Properties props = new Properties();
         props.setProperty("annotators",
                 "tokenize, ssplit, pos, lemma, ner, parse, dcoref");
         props.setProperty("dcoref.postprocessing", "true");
@@ -97,13 +114,68 @@ public class StanfordCoreNlpAnnotator extends JCasAnnotator_ImplBase {
             props.setProperty("ner.useSUTime", "false");
         }
 
-        pipeline = new StanfordCoreNLP(props);
+        final Properties propsTime = new Properties();
+        if (useSUTime) {
+            propsTime.put("sutime.rules", suPath + "/defs.sutime.txt" + "," + suPath + "/english.sutime.txt" + "," + suPath + "/english.holidays.sutime.txt");
+            propsTime.put("sutime.markTimeRanges", true);
+            propsTime.put("sutime.includeNested", true);
+            propsTime.put("sutime.teRelHeurLevel", "MORE");
+        }
+
+        // the pipeline is not thread safe (dcoref keeps document state), so the annotators of the
+        // same configuration share a pool of pipelines, of which each document takes one
+        parsersKey = "corenlp:" + new TreeMap<Object, Object>(props) + ":" + new TreeMap<Object, Object>(propsTime);
+        final boolean withTime = useSUTime;
+        parsersPool = ModelRegistry.acquire(parsersKey, new ModelRegistry.Loader<ModelRegistry.Pool<Parsers>>() {
+            @Override
+            public ModelRegistry.Pool<Parsers> load() {
+                return new ModelRegistry.Pool<Parsers>(new ModelRegistry.Loader<Parsers>() {
+                    @Override
+                    public Parsers load() {
+                        return new Parsers(new StanfordCoreNLP(props),
+                                withTime ? new TimeAnnotator("sutime", propsTime) : null);
+                    }
+                });
+            }
+        });
+        try {
+            parsersPool.addUser();
+        } catch (ResourceInitializationException e) {
+            ModelRegistry.release(parsersKey);
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (parsersPool != null) {
+            parsersPool.removeUser();
+            ModelRegistry.release(parsersKey);
+            parsersPool = null;
+        }
+        super.destroy();
     }
 
     @Override
     public void process(JCas aJCas) throws AnalysisEngineProcessException {
         UimaConvenience.printProcessLog(aJCas, logger);
 
+        Parsers parsers;
+        try {
+            parsers = parsersPool.take();
+        } catch (Exception e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+        try {
+            annotate(aJCas, parsers.pipeline, parsers.timeAnnotator);
+        } finally {
+            parsersPool.give(parsers);
+        }
+    }
+
+    private void annotate(JCas aJCas, StanfordCoreNLP pipeline, TimeAnnotator timeAnnotator)
+            throws AnalysisEngineProcessException {
+
         String documentText = aJCas.getDocumentText();
 
         // add period for title in a hacky way assume first sentence is title
@@ -339,15 +411,7 @@ public class StanfordCoreNlpAnnotator extends JCasAnnotator_ImplBase {
 
         // The following add Time annotation
         // TimeAnnotator should come after the tokenizer, sentence splitter,
-        // and pos tagger
-        Properties propsTime = new Properties();
-
-        propsTime.put("sutime.rules", suPath + "/defs.sutime.txt" + "," + suPath + "/english.sutime.txt" + "," + suPath + "/english.holidays.sutime.txt");
-        propsTime.put("sutime.markTimeRanges", true);
-        propsTime.put("sutime.includeNested", true);
-        propsTime.put("sutime.teRelHeurLevel", "MORE");
-
-        TimeAnnotator timeAnnotator = new TimeAnnotator("sutime", propsTime);
+        // and pos tagger, it is created once in initialize
 
         // temporarily edit by adapting ArticleDateAnnotator the following to
         // add datatime
@@ -1,32 +1,48 @@
 package deft.cmucs.hovy.eventcoref;
 
-import adept.common.Document;
-import adept.common.HltContentContainer;
+import adept.common.*;
 import adept.module.AdeptModuleException;
 import adept.module.EventCoreferenceResolver;
 import adept.module.ModuleConfig;
-import deft.cmucs.hovy.eventcoref.uima.PlainTextSingleDocUimaInterface;
 import edu.cmu.lti.event_coref.pipeline.EndToEndSingleDocumentResolver;
+import edu.cmu.lti.event_coref.pipeline.EventCorefProcessor;
 import edu.cmu.lti.event_coref.pipeline.postprocessor.EventCoreferenceResultPostProcessor;
-import edu.cmu.lti.event_coref.pipeline.preprocessor.IcDomainPreprocessor;
+import edu.cmu.lti.event_coref.type.EventCoreferenceCluster;
+import edu.cmu.lti.event_coref.type.EventMention;
+import edu.cmu.lti.event_coref.type.Word;
 import org.apache.uima.UIMAException;
-import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.fit.util.FSCollectionFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.InvalidPropertiesFormatException;
+import java.util.*;
 
 /**
- * Created with IntelliJ IDEA.
+ * The event coreference resolver as an Adept module. The documents are plain text, so it runs the
+ * plain text engine chain of {@link EventCorefProcessor#getPlainTextEngineDescriptors()}, as the
+ * event coreference service does, on one CAS that is reset for each document.
+ * <p/>
+ * The Adept API of this version has no event coreference, so each system cluster is given as a
+ * {@link Coreference} of the mentions of the cluster, which are entity mentions of type "EVENT" over
+ * the Stanford tokens of the document.
  *
  * @author Zhengzhong Liu
  *         Date: 3/25/15
  *         Time: 5:14 PM
  */
 public class HovyEventCoreferenceResolver extends EventCoreferenceResolver {
-    PlainTextSingleDocUimaInterface document2Uima;
+    private static final Logger logger = LoggerFactory.getLogger(HovyEventCoreferenceResolver.class);
+
+    public static final String EVENT_MENTION_TYPE = "EVENT";
+
     EndToEndSingleDocumentResolver resolver;
 
+    JCas aJCas;
+
     @Override
     public void activate(String configFilePath)
             throws InvalidPropertiesFormatException, IOException,
@@ -34,54 +50,129 @@ public class HovyEventCoreferenceResolver extends EventCoreferenceResolver {
         super.activate(configFilePath);
         final ModuleConfig config = getModuleConfig();
 
-        final String artifactDirPath = new File(EventCoreferenceRunner.class.getClassLoader().
-                getResource("ext/edu/cmucs/hovy/eventcoref").getFile()).getAbsolutePath();
-        final String fanseDir = config.getProperty("fanseModelBase");
+        final String processDir = config.getProperty("processDir");
+        final String resourceDir = config.getProperty("resourceDir");
 
-        final String corpusDir = "data/corpus/IC_domain/IC_domain_65_articles/gold_standard";
+        EventCorefProcessor processor = new EventCorefProcessor(processDir, resourceDir);
+        EventCoreferenceResultPostProcessor postprocessor = new EventCoreferenceResultPostProcessor(processDir,
+                resourceDir);
+        // a module has no end of collection, so the collection writers are dropped
+        AnalysisEngineDescription[] postprocessors = postprocessor.buildPostprocessors();
+        AnalysisEngineDescription[] documentPostprocessors = Arrays.copyOfRange(postprocessors, 0,
+                postprocessors.length - postprocessor.getNumberOfCollectionPostprocessors());
 
-        //TODO config the parameter latter.
-        document2Uima = new PlainTextSingleDocUimaInterface("ascii");
-        IcDomainPreprocessor preprocessor = new IcDomainPreprocessor(corpusDir);
-        EventCoreferenceResultPostProcessor postprocessor = new EventCoreferenceResultPostProcessor();
         resolver = new EndToEndSingleDocumentResolver();
         try {
-            resolver.initialize(preprocessor.buildPreprocessers(), postprocessor.buildPostprocessors());
+            // the engines are created once and kept warm until deactivate
+            resolver.initialize(new AnalysisEngineDescription[0], processor.getPlainTextEngineDescriptors(),
+                    documentPostprocessors);
+            aJCas = resolver.createJCas();
         } catch (UIMAException e) {
-            e.printStackTrace();
+            logger.error("Cannot start the event coreference engines", e);
+            throw new AdeptModuleException("Cannot start the event coreference engines: " + e.getMessage());
         }
     }
 
     @Override
     public void deactivate() throws AdeptModuleException {
-        //release any resources occupied
         try {
             resolver.complete();
-        } catch (AnalysisEngineProcessException e) {
-            e.printStackTrace();
+        } catch (UIMAException e) {
+            logger.error("Cannot release the event coreference engines", e);
+            throw new AdeptModuleException("Cannot release the event coreference engines: " + e.getMessage());
         }
     }
 
     @Override
-    public HltContentContainer process(Document document,
-                                       HltContentContainer hltContentContainerIn) {
-        // Process p;
-        String docName = document.getUri();
-        System.out.println("Processing input file " + docName);
+    public synchronized HltContentContainer process(Document document,
+                                                    HltContentContainer hltContentContainerIn) {
+        String docName = document.getUri() == null ? document.getDocId() : document.getUri();
+        logger.info("Processing input file " + docName);
 
         try {
-            resolver.process(document2Uima.getJCas(document));
+            aJCas.reset();
+            EndToEndSingleDocumentResolver.prepareDocument(aJCas, docName, document.getValue());
+            resolver.process(aJCas);
         } catch (UIMAException e) {
-            e.printStackTrace();
+            throw new IllegalStateException("Cannot resolve the event coreference of " + docName, e);
         }
 
-        //TODO convert results to HltContentContainer
-        System.out.println("Finished processing file. Setting event coreference in HltContentContainer...");
-        HltContentContainer hltContentContainerOut = new HltContentContainer();
-
-
+        HltContentContainer hltContentContainerOut = hltContentContainerIn == null ? new HltContentContainer()
+                : hltContentContainerIn;
+        addCoreferences(document, hltContentContainerOut);
         return hltContentContainerOut;
     }
 
+    /**
+     * Add the system clusters of the resolved CAS to the container, next to the entity mentions and
+     * coreferences already in it.
+     */
+    private void addCoreferences(Document document, HltContentContainer hltContentContainer) {
+        TokenStream tokenStream = new TokenStream(TokenizerType.STANFORD_CORENLP, TranscriptType.SOURCE,
+                document.getLanguage(), ChannelName.NONE, ContentType.TEXT, document);
+        Map<Word, Integer> tokenIndices = new HashMap<Word, Integer>();
+        for (Word word : JCasUtil.select(aJCas, Word.class)) {
+            tokenIndices.put(word, tokenIndices.size());
+            tokenStream.add(new Token(tokenIndices.size() - 1, new CharOffset(word.getBegin(), word.getEnd()),
+                    word.getCoveredText()));
+        }
+        document.addTokenStream(tokenStream);
+
+        Map<EventMention, Collection<Word>> mentionWords = JCasUtil.indexCovered(aJCas, EventMention.class,
+                Word.class);
+        Map<EventMention, EntityMention> adeptMentions = new LinkedHashMap<EventMention, EntityMention>();
+        for (EventMention mention : JCasUtil.select(aJCas, EventMention.class)) {
+            Collection<Word> words = mentionWords.get(mention);
+            if (words == null || words.isEmpty()) {
+                logger.warn(String.format("Event mention [%s] covers no token, it is not reported",
+                        mention.getCoveredText()));
+                continue;
+            }
+            int firstToken = Integer.MAX_VALUE;
+            int lastToken = -1;
+            for (Word word : words) {
+                int tokenIndex = tokenIndices.get(word);
+                firstToken = Math.min(firstToken, tokenIndex);
+                lastToken = Math.max(lastToken, tokenIndex);
+            }
+            EntityMention adeptMention = new EntityMention(adeptMentions.size(),
+                    new TokenOffset(firstToken, lastToken), tokenStream);
+            adeptMention.setEntityType(new Type(EVENT_MENTION_TYPE));
+            adeptMentions.put(mention, adeptMention);
+        }
+
+        List<Coreference> coreferences = new ArrayList<Coreference>();
+        for (EventCoreferenceCluster cluster : EndToEndSingleDocumentResolver.selectSystemClusters(aJCas)) {
+            List<EntityMention> resolvedMentions = new ArrayList<EntityMention>();
+            for (EventMention child : FSCollectionFactory.create(cluster.getChildEventMentions(),
+                    EventMention.class)) {
+                EntityMention adeptMention = adeptMentions.get(child);
+                if (adeptMention != null) {
+                    resolvedMentions.add(adeptMention);
+                }
+            }
+            if (!resolvedMentions.isEmpty()) {
+                Coreference coreference = new Coreference(coreferences.size());
+                coreference.setResolvedMentions(resolvedMentions);
+                coreferences.add(coreference);
+            }
+        }
+
+        List<EntityMention> entityMentions = new ArrayList<EntityMention>();
+        if (hltContentContainer.getEntityMentions() != null) {
+            entityMentions.addAll(hltContentContainer.getEntityMentions());
+        }
+        entityMentions.addAll(adeptMentions.values());
+        hltContentContainer.setEntityMentions(entityMentions);
+
+        List<Coreference> allCoreferences = new ArrayList<Coreference>();
+        if (hltContentContainer.getCoreferences() != null) {
+            allCoreferences.addAll(hltContentContainer.getCoreferences());
+        }
+        allCoreferences.addAll(coreferences);
+        hltContentContainer.setCoreferences(allCoreferences);
 
+        logger.info(String.format("Found %d event mentions in %d clusters.", adeptMentions.size(),
+                coreferences.size()));
+    }
 }